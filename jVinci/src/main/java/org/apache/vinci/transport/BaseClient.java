@@ -21,6 +21,7 @@ package org.apache.vinci.transport;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -66,6 +67,10 @@ public class BaseClient {
 
   private boolean retry = true;
 
+  private File sharedMemoryDirectory = null;
+
+  private SharedMemoryTransport sharedMemory = null;
+
   /**
    * Open up the service at the specified host and port, using a VinciFrame factory.
    * 
@@ -512,6 +517,10 @@ public class BaseClient {
    * Close the connection. Using the Client object after this will throw an exception.
    */
   public void close() {
+    if (sharedMemory != null) {
+      sharedMemory.close();
+      sharedMemory = null;
+    }
     if (isOpen()) {
       try {
         socket.close();
@@ -524,6 +533,37 @@ public class BaseClient {
     }
   }
 
+  /**
+   * Pass the documents of request/reply exchanges through a memory mapped file in the given
+   * directory, instead of through the socket, whenever the service runs on this host. The service
+   * must have been started with the system property VINCI_SHM_DIR set to the same directory.
+   * One-way send() and receive() still use the socket.
+   * 
+   * @param dir
+   *          the directory, or null to stop using shared memory
+   */
+  public void setSharedMemoryDirectory(File dir) {
+    if (sharedMemory != null) {
+      sharedMemory.close();
+      sharedMemory = null;
+    }
+    sharedMemoryDirectory = dir;
+  }
+
+  /**
+   * @return the transport for this connection, created the first time it is needed, or null if not
+   *         using shared memory
+   * @throws IOException
+   *           if the shared memory file can't be created
+   */
+  private SharedMemoryTransport getSharedMemory() throws IOException {
+    if (sharedMemory == null && sharedMemoryDirectory != null && socket != null
+            && SharedMemoryTransport.isLocal(socket)) {
+      sharedMemory = SharedMemoryTransport.create(sharedMemoryDirectory);
+    }
+    return sharedMemory;
+  }
+
   public boolean isOpen() {
     return socket != null && os != null && is != null;
   }
@@ -712,10 +752,24 @@ public class BaseClient {
    */
   protected Transportable sendAndReceiveWork(Transportable in, TransportableFactory f)
           throws IOException, ServiceException {
-    in.toStream(os);
+    SharedMemoryTransport shm = getSharedMemory();
+    if (shm != null) {
+      shm.write(in, os);
+    } else {
+      in.toStream(os);
+    }
     os.flush();
     Transportable out = f.makeTransportable();
-    header = out.fromStream(is);
+    header = SharedMemoryTransport.fromStream(shm, out, is);
+    if (shm != null && SharedMemoryTransport.isRefusal(header)) {
+      // the service can't read the file, e.g. because its VINCI_SHM_DIR differs, so use the
+      // socket from now on
+      setSharedMemoryDirectory(null);
+      in.toStream(os);
+      os.flush();
+      out = f.makeTransportable();
+      header = out.fromStream(is);
+    }
     if (header != null && header.key.equals(TransportConstants.ERROR_KEY)) {
       throw new ServiceException(header.getValueAsString(), out);
     }
@@ -37,6 +37,9 @@ public class BaseServerRunnable implements Runnable {
 
   private BaseServer parent;
 
+  /** set when the client passes documents through shared memory */
+  private SharedMemoryTransport sharedMemory = null;
+
   private static final ThreadLocal THREAD_LOCAL_SOCKET = new ThreadLocal();
 
   /**
@@ -71,14 +74,32 @@ public class BaseServerRunnable implements Runnable {
       while (true) {
         Transportable in = parent.makeTransportable();
         KeyValuePair header = null;
+        boolean isSharedMemory;
+        Transportable out = null;
         try {
           // long begin = System.currentTimeMillis(); // TEMP
-          header = in.fromStream(is);
+          isSharedMemory = SharedMemoryTransport.isSharedMemoryMessage(is);
+          if (isSharedMemory) {
+            SharedMemoryTransport.Control c = SharedMemoryTransport.readControl(is);
+            try {
+              header = readSharedMemory(in, c);
+            } catch (IOException e) {
+              // Can't use the client's file, e.g. because VINCI_SHM_DIR differs. Tell the client
+              // over the socket, which then resends the request that way.
+              Debug.p("Refusing shared memory transport: " + e);
+              isSharedMemory = false;
+              out = new ErrorFrame(SharedMemoryTransport.REFUSED + e.getMessage());
+            }
+          } else {
+            header = in.fromStream(is);
+          }
           // Debug.p("Elapsed fromStream: " + (System.currentTimeMillis() - begin));
         } catch (EOFException e) {
           break;
         }
-        Transportable out = handleHeader(header);
+        if (out == null) {
+          out = handleHeader(header);
+        }
         if (out == null) {
           try {
             out = parent.eval(in, header);
@@ -90,7 +111,11 @@ public class BaseServerRunnable implements Runnable {
         if (out != null) {
           // ^ Asynch services may choose not to return results.
           // long begin = System.currentTimeMillis(); // TEMP
-          out.toStream(os);
+          if (isSharedMemory) {
+            sharedMemory.write(out, os);
+          } else {
+            out.toStream(os);
+          }
           os.flush();
           // Debug.p("Elapsed toStream: " + (System.currentTimeMillis() - begin));
         }
@@ -101,6 +126,10 @@ public class BaseServerRunnable implements Runnable {
       Debug.reportException(e);
     } finally {
       THREAD_LOCAL_SOCKET.set(null);
+      if (sharedMemory != null) {
+        sharedMemory.close();
+        sharedMemory = null;
+      }
       try {
         socket.close();
       } catch (IOException f) {
@@ -109,6 +138,21 @@ public class BaseServerRunnable implements Runnable {
     }
   }
 
+  /**
+   * Read a request sent through shared memory, opening the file it names unless already open.
+   */
+  private KeyValuePair readSharedMemory(Transportable in, SharedMemoryTransport.Control c)
+          throws IOException {
+    if (sharedMemory == null || !sharedMemory.isFor(c)) {
+      if (sharedMemory != null) {
+        sharedMemory.close();
+        sharedMemory = null;
+      }
+      sharedMemory = SharedMemoryTransport.open(c);
+    }
+    return sharedMemory.read(in, c);
+  }
+
   public Transportable handleHeader(KeyValuePair header) {
     return null;
   }
@@ -0,0 +1,495 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.vinci.transport;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Passes the documents of a connection between two processes on the same host through a memory
+ * mapped file, instead of through the socket. The socket then only carries a short control
+ * message: SHM_MARKER, the path of the file, and the offset and length of the document in it.
+ *
+ * The client creates the file, in the directory given to BaseClient.setSharedMemoryDirectory, and
+ * uses it only for request/reply exchanges with a service on the same host. A server accepts a
+ * file only if it is in the directory named by the system property VINCI_SHM_DIR, and replies
+ * through the file only to requests which came through it. If the server can't use the file, it
+ * replies over the socket with an ErrorFrame starting with REFUSED, and the client resends the
+ * request over the socket.
+ *
+ * Only one side uses the file at a time, as each side writes only after reading the other's
+ * document. The file grows to hold the largest document, and the client shrinks it again once the
+ * documents have stayed small for SHRINK_AFTER exchanges.
+ */
+public class SharedMemoryTransport {
+
+  static public final String SHM_DIR_PROPERTY = "VINCI_SHM_DIR";
+
+  /**
+   * First byte of a control message; XTalk documents start with XTalkTransporter.DOCUMENT_MARKER.
+   */
+  static public final byte SHM_MARKER = (byte) 'M';
+
+  /**
+   * Start of the error message of a server which can't use the file of a control message.
+   */
+  static public final String REFUSED = "Shared memory transport refused: ";
+
+  static private final int INITIAL_SIZE = 1024 * 1024;
+
+  /**
+   * Number of consecutive exchanges using at most a quarter of the file after which the client
+   * halves it.
+   */
+  static private final int SHRINK_AFTER = 16;
+
+  /** unmaps a MappedByteBuffer, or null if this JVM has no way to do that */
+  static private final Unmapper UNMAPPER = Unmapper.find();
+
+  private final File file;
+
+  /** the path as sent in control messages */
+  private final String path;
+
+  private final boolean isOwner;
+
+  private final RandomAccessFile raf;
+
+  private final FileChannel channel;
+
+  private MappedByteBuffer buffer;
+
+  /** the end of the largest document written or read since the last shrink check */
+  private int highWater = 0;
+
+  /** number of consecutive exchanges which used at most a quarter of the file */
+  private int smallExchanges = 0;
+
+  /**
+   * The position and length of a document, as read from a control message.
+   */
+  static public class Control {
+    final String path;
+
+    final int offset;
+
+    final int length;
+
+    Control(String path, int offset, int length) {
+      this.path = path;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  private SharedMemoryTransport(File file, String path, boolean isOwner, int size)
+          throws IOException {
+    this.file = file;
+    this.path = path;
+    this.isOwner = isOwner;
+    raf = new RandomAccessFile(file, "rw");
+    channel = raf.getChannel();
+    try {
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+              Math.min(Math.max(size, channel.size()), Integer.MAX_VALUE));
+    } catch (IOException e) {
+      raf.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Create a new file to be used by a client connection.
+   *
+   * @param dir
+   *          the directory, also known to the server, where the file is created
+   * @return the transport
+   * @throws IOException
+   *           if the file cannot be created or mapped
+   */
+  static public SharedMemoryTransport create(File dir) throws IOException {
+    File f = File.createTempFile("vinci", ".shm", dir);
+    f.deleteOnExit();
+    return new SharedMemoryTransport(f, f.getAbsolutePath(), true, INITIAL_SIZE);
+  }
+
+  /**
+   * Open the file named in a control message, for the server side of a connection.
+   *
+   * @param c
+   *          the control message
+   * @return the transport
+   * @throws IOException
+   *           if this process has no VINCI_SHM_DIR, or the file isn't in it
+   */
+  static public SharedMemoryTransport open(Control c) throws IOException {
+    String dir = System.getProperty(SHM_DIR_PROPERTY);
+    if (dir == null) {
+      throw new IOException("Shared memory transport requested, but " + SHM_DIR_PROPERTY
+              + " is not set");
+    }
+    File f = new File(c.path).getCanonicalFile();
+    if (!new File(dir).getCanonicalFile().equals(f.getParentFile())) {
+      throw new IOException("Shared memory file not in " + SHM_DIR_PROPERTY + ": " + c.path);
+    }
+    if (!f.isFile()) {
+      throw new IOException("Shared memory file not found: " + c.path);
+    }
+    return new SharedMemoryTransport(f, c.path, false, 0);
+  }
+
+  /**
+   * @param header
+   *          the first header of a reply
+   * @return true if the reply is the ErrorFrame of a server which can't use the file
+   */
+  static public boolean isRefusal(KeyValuePair header) {
+    return header != null && header.key.equals(TransportConstants.ERROR_KEY)
+            && header.getValueAsString().startsWith(REFUSED);
+  }
+
+  /**
+   * @param socket
+   *          a connected socket
+   * @return true if the other end of the socket is on this host
+   */
+  static public boolean isLocal(Socket socket) {
+    InetAddress addr = socket.getInetAddress();
+    if (addr == null) {
+      return false;
+    }
+    if (addr.isLoopbackAddress() || addr.isAnyLocalAddress()) {
+      return true;
+    }
+    try {
+      return NetworkInterface.getByInetAddress(addr) != null;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Check, without consuming it, if the next message on the stream is a control message.
+   *
+   * @param is
+   *          the stream, which must support mark/reset
+   * @return true if the next message is a control message
+   * @throws IOException
+   *           passthru
+   * @throws EOFException
+   *           if the stream has ended
+   */
+  static public boolean isSharedMemoryMessage(InputStream is) throws IOException {
+    is.mark(1);
+    int b = is.read();
+    if (b == -1) {
+      throw new EOFException();
+    }
+    is.reset();
+    return (byte) b == SHM_MARKER;
+  }
+
+  /**
+   * @param is
+   *          the stream positioned at a control message
+   * @return the control message
+   * @throws IOException
+   *           passthru
+   */
+  static public Control readControl(InputStream is) throws IOException {
+    if ((byte) is.read() != SHM_MARKER) {
+      throw new IOException("Expected shared memory control message");
+    }
+    String path = XTalkTransporter.consumeString(is);
+    int offset = XTalkTransporter.readInt(is);
+    int length = XTalkTransporter.readInt(is);
+    return new Control(path, offset, length);
+  }
+
+  /**
+   * Read the response from the stream, which may be a control message or (for example after an
+   * error) a document sent over the socket.
+   *
+   * @param shm
+   *          the transport of the connection, or null if not using one
+   * @param t
+   *          the Transportable to populate
+   * @param is
+   *          the socket's stream
+   * @return the first header of the document
+   * @throws IOException
+   *           passthru
+   */
+  static public KeyValuePair fromStream(SharedMemoryTransport shm, Transportable t, InputStream is)
+          throws IOException {
+    if (shm != null && isSharedMemoryMessage(is)) {
+      return shm.read(t, readControl(is));
+    }
+    return t.fromStream(is);
+  }
+
+  /**
+   * @param c
+   *          a control message
+   * @return true if the message refers to this transport's file
+   */
+  public boolean isFor(Control c) {
+    return path.equals(c.path);
+  }
+
+  /**
+   * Populate the Transportable from the document a control message refers to.
+   *
+   * @param t
+   *          the Transportable to populate
+   * @param c
+   *          the control message
+   * @return the first header of the document
+   * @throws IOException
+   *           passthru
+   */
+  public KeyValuePair read(Transportable t, Control c) throws IOException {
+    // the other side may have grown the file, or the client shrunk it
+    long fileSize = channel.size();
+    if (fileSize != buffer.capacity()) {
+      remap(Math.min(fileSize, Integer.MAX_VALUE));
+    }
+    if (c.offset < 0 || c.length < 0 || (long) c.offset + c.length > buffer.capacity()) {
+      throw new EOFException("Shared memory document past the end of " + path);
+    }
+    highWater = Math.max(highWater, c.offset + c.length);
+    ByteBuffer bb = buffer.duplicate();
+    bb.limit(c.offset + c.length);
+    bb.position(c.offset);
+    return t.fromStream(new SegmentInputStream(bb));
+  }
+
+  /**
+   * Write the Transportable into the file, and the control message for it to the socket's stream.
+   * The caller flushes the stream.
+   *
+   * @param t
+   *          the Transportable to send
+   * @param os
+   *          the socket's stream
+   * @throws IOException
+   *           passthru
+   */
+  public void write(Transportable t, OutputStream os) throws IOException {
+    if (isOwner) {
+      shrinkIfUnused();
+    }
+    buffer.clear();
+    t.toStream(new SegmentOutputStream());
+    highWater = Math.max(highWater, buffer.position());
+    os.write(SHM_MARKER);
+    XTalkTransporter.stringToBin(path, os);
+    XTalkTransporter.writeInt(0, os);
+    XTalkTransporter.writeInt(buffer.position(), os);
+  }
+
+  /**
+   * Release the file; the client's side also deletes it.
+   */
+  public void close() {
+    if (buffer != null) {
+      unmap(buffer);
+      buffer = null;
+    }
+    try {
+      channel.close();
+      raf.close();
+    } catch (IOException e) {
+      // ignore, nothing more to do with it
+    }
+    if (isOwner) {
+      file.delete();
+    }
+  }
+
+  private void ensureMapped(int size) throws IOException {
+    if (size > buffer.capacity()) {
+      remap(Math.max(size, Math.min(2L * buffer.capacity(), Integer.MAX_VALUE)));
+    }
+  }
+
+  /**
+   * Called by the client before writing a request, while the server waits for it. Halves the file
+   * if the last SHRINK_AFTER exchanges used at most a quarter of it.
+   */
+  private void shrinkIfUnused() throws IOException {
+    int capacity = buffer.capacity();
+    if (capacity > INITIAL_SIZE && highWater <= capacity / 4) {
+      smallExchanges++;
+    } else {
+      smallExchanges = 0;
+    }
+    highWater = 0;
+    if (smallExchanges >= SHRINK_AFTER) {
+      smallExchanges = 0;
+      int newSize = Math.max(INITIAL_SIZE, capacity / 2);
+      unmap(buffer);
+      buffer = null;
+      try {
+        raf.setLength(newSize);
+      } catch (IOException e) {
+        // some platforms refuse to truncate a file the server still has mapped; keep its size
+        newSize = capacity;
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+    }
+  }
+
+  /**
+   * Replace the mapping by one of the given size, growing the file if needed. No other view of the
+   * old buffer may be in use.
+   */
+  private void remap(long size) throws IOException {
+    int position = buffer.position();
+    unmap(buffer);
+    buffer = null;
+    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    buffer.position((int) Math.min(position, size));
+  }
+
+  /**
+   * Release the mapping now, instead of when the buffer is garbage collected, so that remapping a
+   * growing file doesn't hold on to the old mappings. The buffer must not be used afterwards.
+   */
+  static private void unmap(MappedByteBuffer b) {
+    if (UNMAPPER != null) {
+      try {
+        UNMAPPER.unmap(b);
+      } catch (Exception e) {
+        // left to the garbage collector
+      }
+    }
+  }
+
+  /**
+   * Calls the JVM internal method releasing a direct buffer: Unsafe.invokeCleaner from Java 9 on,
+   * the buffer's Cleaner before.
+   */
+  static private class Unmapper {
+    private final Object unsafe;
+
+    private final Method invokeCleaner;
+
+    private final Method cleaner;
+
+    private final Method clean;
+
+    private Unmapper(Object unsafe, Method invokeCleaner, Method cleaner, Method clean) {
+      this.unsafe = unsafe;
+      this.invokeCleaner = invokeCleaner;
+      this.cleaner = cleaner;
+      this.clean = clean;
+    }
+
+    static Unmapper find() {
+      try {
+        Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+        Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+        theUnsafe.setAccessible(true);
+        return new Unmapper(theUnsafe.get(null), invokeCleaner, null, null);
+      } catch (Exception e) {
+        // before Java 9
+      }
+      try {
+        Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+        Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+        return new Unmapper(null, null, cleaner, clean);
+      } catch (Exception e) {
+        return null;
+      }
+    }
+
+    void unmap(MappedByteBuffer b) throws Exception {
+      if (invokeCleaner != null) {
+        invokeCleaner.invoke(unsafe, b);
+      } else {
+        Object c = cleaner.invoke(b);
+        if (c != null) {
+          clean.invoke(c);
+        }
+      }
+    }
+  }
+
+  private class SegmentOutputStream extends OutputStream {
+
+    @Override
+    public void write(int b) throws IOException {
+      ensureMapped(buffer.position() + 1);
+      buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      ensureMapped(buffer.position() + len);
+      buffer.put(b, off, len);
+    }
+  }
+
+  static private class SegmentInputStream extends InputStream {
+
+    private final ByteBuffer bb;
+
+    SegmentInputStream(ByteBuffer bb) {
+      this.bb = bb;
+    }
+
+    @Override
+    public int read() {
+      return bb.hasRemaining() ? (bb.get() & 0xFF) : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      if (!bb.hasRemaining()) {
+        return -1;
+      }
+      int n = Math.min(len, bb.remaining());
+      bb.get(b, off, n);
+      return n;
+    }
+
+    @Override
+    public int available() {
+      return bb.remaining();
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.vinci.transport;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests request/reply exchanges between a BaseClient and a BaseServer through a
+ * SharedMemoryTransport.
+ */
+public class SharedMemoryTransportTest extends TestCase {
+
+  private File shmDir;
+
+  private BaseServer server;
+
+  private BaseClient client;
+
+  /**
+   * Answers each request with its "text", and the length of that text.
+   */
+  static class EchoServable extends VinciServableAdapter {
+    @Override
+    public Transportable eval(Transportable in) {
+      String text = ((VinciFrame) in).fgetString("text");
+      VinciFrame out = new VinciFrame();
+      out.fadd("text", text);
+      out.fadd("length", text.length());
+      return out;
+    }
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    shmDir = Files.createTempDirectory("vinciShm").toFile();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    if (client != null) {
+      client.close();
+    }
+    if (server != null) {
+      server.shutdownServing();
+    }
+    System.clearProperty(SharedMemoryTransport.SHM_DIR_PROPERTY);
+    File[] files = shmDir.listFiles();
+    if (files != null) {
+      for (File f : files) {
+        f.delete();
+      }
+    }
+    File otherDir = new File(shmDir.getPath() + "-other");
+    otherDir.delete();
+    shmDir.delete();
+  }
+
+  public void testRoundTrip() throws Exception {
+    connect(shmDir, shmDir);
+
+    assertEquals("small", exchange("small"));
+    File shmFile = getShmFile();
+    assertEquals(1024 * 1024, shmFile.length());
+
+    // a document larger than the file grows it, for the request and the reply
+    String large = makeText(3 * 1024 * 1024);
+    assertEquals(large, exchange(large));
+    assertTrue(shmFile.length() > 3 * 1024 * 1024);
+    long grownSize = shmFile.length();
+
+    // small documents shrink it again
+    for (int i = 0; i < 40; i++) {
+      assertEquals("doc " + i, exchange("doc " + i));
+    }
+    assertTrue(shmFile.length() < grownSize);
+    assertEquals(large, exchange(large));
+
+    client.close();
+    client = null;
+    assertFalse(shmFile.exists());
+  }
+
+  public void testMismatchedDirectory() throws Exception {
+    File otherDir = new File(shmDir.getPath() + "-other");
+    assertTrue(otherDir.mkdir());
+    connect(otherDir, shmDir);
+
+    // the server refuses the file, and the client falls back to the socket
+    assertEquals("first", exchange("first"));
+    assertEquals(0, shmDir.listFiles().length);
+    assertEquals("second", exchange("second"));
+    assertEquals(0, shmDir.listFiles().length);
+  }
+
+  private void connect(File serverDir, File clientDir) throws IOException {
+    System.setProperty(SharedMemoryTransport.SHM_DIR_PROPERTY, serverDir.getPath());
+    int port;
+    try (ServerSocket s = new ServerSocket(0)) {
+      port = s.getLocalPort();
+    }
+    server = new BaseServer(new EchoServable());
+    server.startServing(port);
+    client = new BaseClient("localhost", port);
+    client.setSharedMemoryDirectory(clientDir);
+  }
+
+  private String exchange(String text) throws Exception {
+    VinciFrame request = new VinciFrame();
+    request.fadd("text", text);
+    VinciFrame reply = (VinciFrame) client.sendAndReceive(request);
+    assertEquals(text.length(), reply.fgetInt("length"));
+    return reply.fgetString("text");
+  }
+
+  private File getShmFile() {
+    File[] files = shmDir.listFiles();
+    assertEquals(1, files.length);
+    return files[0];
+  }
+
+  private static String makeText(int length) {
+    StringBuilder sb = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      sb.append((char) ('a' + i % 26));
+    }
+    return sb.toString();
+  }
+}
@@ -73,6 +73,19 @@ public abstract class UIMAFramework {
    */
   public static final String PROCESS_TRACE_ENABLED = "process_trace_enabled";
 
+  /**
+   * Key to be used in the Properties object returned by
+   * {@link #getDefaultPerformanceTuningProperties()}. If the value of this key is a number N greater
+   * than 0, ProcessTraces are in sampling mode: only 1 in N ProcessTraces created (or cleared) by a
+   * thread keeps the full event tree, the others just record their events' timings in arrays, which
+   * a cleared ProcessTrace leaves to the next one of its thread. Aggregating ProcessTraces then sums
+   * counts, durations and duration histograms per event, without locking, and keeps the event trees
+   * of the last sampled ProcessTraces, see ProcessTrace_impl.getSampledEvents(). Getting the events
+   * returns one event per component name and type, whose duration is the sum of their durations.
+   * Not set, or 0, disables sampling.
+   */
+  public static final String PROCESS_TRACE_SAMPLE_RATE = "process_trace_sample_rate";
+
   /**
    * Key to be used in the Properties object returned by
    * {@link #getDefaultPerformanceTuningProperties()}. The value of this key indicates whether
@@ -91,6 +104,14 @@ public abstract class UIMAFramework {
    * disables the cache; any other value leaves the default setting of true.
    */
   public static final String JCAS_CACHE_ENABLED = "jcas_cache_enabled";
+
+  /**
+   * Key to be used in the Properties object returned by
+   * {@link #getDefaultPerformanceTuningProperties()}. The value of this key indicates whether CAS
+   * pools should size the indexes of each CAS they reset for the next document, from the index sizes
+   * observed in recent documents. The default is false; set to "true" to enable.
+   */
+  public static final String ADAPTIVE_CAS_PRESIZING = "adaptive_cas_presizing";
   
   /**
    * Key to be used in the Properties object returned by
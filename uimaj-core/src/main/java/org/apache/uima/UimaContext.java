@@ -27,6 +27,7 @@ import java.util.Set;
 import org.apache.uima.cas.AbstractCas;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.SofaID;
+import org.apache.uima.resource.ConfigurationSnapshot;
 import org.apache.uima.resource.ResourceAccessException;
 import org.apache.uima.resource.ResourceConfigurationException;
 import org.apache.uima.resource.Session;
@@ -117,6 +118,19 @@ public interface UimaContext {
    */
   public String[] getConfigParameterNames();
 
+  /**
+   * Gets an immutable snapshot of the values of this component's configuration parameters, with
+   * overrides, default groups and fallbacks already resolved. This is cheaper than
+   * {@link #getConfigParameterValue(String)} for components which read their parameters while
+   * processing, and is safe to use while another thread reconfigures the component.
+   * <p>
+   * The same snapshot is returned until the component is reconfigured; values set with
+   * <code>setConfigParameterValue</code> are not in the snapshot before then.
+   * 
+   * @return the current configuration snapshot
+   */
+  public ConfigurationSnapshot getConfigurationSnapshot();
+
   /**
    * Get the value of a shared configuration parameter from the external override settings.
    * 
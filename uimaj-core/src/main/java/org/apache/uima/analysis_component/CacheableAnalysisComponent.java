@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.analysis_component;
+
+/**
+ * Marker interface for Analysis Components whose results may be cached across CASes.
+ * <p>
+ * Implement this in an annotator whose result depends only on its type system, its configuration
+ * parameter settings and result specification, the Sofa data, and the feature values of its
+ * declared input types; and which has no side effects outside of the CAS. When the JVM property
+ * {@link org.apache.uima.analysis_engine.impl.AnnotatorResultCache#ANNOTATOR_RESULT_CACHE_DIR} is
+ * set, the framework then stores the result of processing a CAS, and replays it instead of calling
+ * {@link AnalysisComponent#process(org.apache.uima.cas.AbstractCas)} when an equivalent CAS is
+ * processed again.
+ * <p>
+ * Annotators not implementing this interface, and CAS Multipliers, are never cached. Annotators using
+ * the older annotator interfaces may implement it too.
+ */
+public interface CacheableAnalysisComponent {
+}
@@ -22,6 +22,8 @@ package org.apache.uima.analysis_engine;
 import java.io.Serializable;
 
 import org.apache.uima.analysis_component.AnalysisComponent;
+import org.apache.uima.cas.Feature;
+import org.apache.uima.cas.Type;
 import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.resource.metadata.Capability;
 import org.apache.uima.util.XMLizable;
@@ -341,6 +343,68 @@ public interface ResultSpecification extends XMLizable, Serializable, Cloneable
    */
   public boolean containsFeature(String aFullFeatureName, String aLanguage);
 
+  /**
+   * Same as {@link #containsType(String)}, but takes a Type.  If the type is from the (committed) type system
+   * of this <code>ResultSpecification</code>, the test uses a form of the result specification
+   * indexed by type code, computed once, so it is a single array lookup.
+   * 
+   * @param aType
+   *          the type
+   * @return true if and only if this <code>ResultSpecification</code> contains the type.
+   */
+  default boolean containsType(Type aType) {
+    return containsType(aType.getName());
+  }
+  
+  /**
+   * Same as {@link #containsType(String, String)}, but takes a Type.  If the type is from the (committed) type system
+   * of this <code>ResultSpecification</code>, the test uses a form of the result specification
+   * indexed by type code, computed once per language, so it is a single array lookup.
+   * 
+   * @param aType
+   *          the type
+   * @param aLanguage
+   *          the language to search for, see {@link #containsType(String, String)}
+   * @return true if and only if this <code>ResultSpecification</code> contains the type 
+   *         for a matching language.
+   */
+  default boolean containsType(Type aType, String aLanguage) {
+    return containsType(aType.getName(), aLanguage);
+  }
+
+  /**
+   * Same as {@link #containsFeature(String)}, but takes a Feature.  The feature name tested is
+   * the one using the feature's domain type (the type which introduces the feature).
+   * If the feature is from the (committed) type system of this <code>ResultSpecification</code>,
+   * the test uses a form of the result specification indexed by feature code, computed once, 
+   * so it is a single array lookup.
+   * 
+   * @param aFeature
+   *          the feature
+   * @return true if and only if this <code>ResultSpecification</code> contains the feature.
+   */
+  default boolean containsFeature(Feature aFeature) {
+    return containsFeature(aFeature.getName());
+  }
+
+  /**
+   * Same as {@link #containsFeature(String, String)}, but takes a Feature.  The feature name tested is
+   * the one using the feature's domain type (the type which introduces the feature).
+   * If the feature is from the (committed) type system of this <code>ResultSpecification</code>,
+   * the test uses a form of the result specification indexed by feature code, computed once per language, 
+   * so it is a single array lookup.
+   * 
+   * @param aFeature
+   *          the feature
+   * @param aLanguage
+   *          the language to search for, see {@link #containsFeature(String, String)}
+   * @return true if and only if this <code>ResultSpecification</code> contains the feature 
+   *         for a matching language.
+   */
+  default boolean containsFeature(Feature aFeature, String aLanguage) {
+    return containsFeature(aFeature.getName(), aLanguage);
+  }
+
   /**
    * Adds the output types and features from the specified capabilities to this
    * <code>ResultSpecification</code>.  
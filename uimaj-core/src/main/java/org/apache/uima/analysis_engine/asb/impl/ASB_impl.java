@@ -49,9 +49,11 @@ import org.apache.uima.analysis_engine.metadata.FlowControllerDeclaration;
 import org.apache.uima.analysis_engine.metadata.SofaMapping;
 import org.apache.uima.analysis_engine.metadata.impl.AnalysisEngineMetaData_impl;
 import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.impl.CASImpl;
 import org.apache.uima.flow.FinalStep;
 import org.apache.uima.flow.FlowControllerContext;
 import org.apache.uima.flow.ParallelStep;
+import org.apache.uima.flow.ParallelStepWithResultSpecs;
 import org.apache.uima.flow.SimpleStep;
 import org.apache.uima.flow.SimpleStepWithResultSpec;
 import org.apache.uima.flow.Step;
@@ -597,6 +599,7 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
                   // no new CASes are output; this cas is done being processed
                   // by that AnalysisEngine so clear the componentInfo
                   cas.setCurrentComponentInfo(null);
+                  ((CASImpl) cas.getLowLevelCAS()).maybeReleaseUnreachableFSs();
                 }
               } else {
                 throw new AnalysisEngineProcessException(
@@ -615,6 +618,14 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
                 //execute this step as we would a single step
                 AnalysisEngine nextAe = mComponentAnalysisEngineMap.get(nextAeKey);
                 if (nextAe != null) {
+                  // if there is an explicit ResultSpec specified, set it into the AE
+                  if (nextStep instanceof ParallelStepWithResultSpecs) {
+                    ResultSpecification rs = ((ParallelStepWithResultSpecs) nextStep)
+                            .getResultSpecification(nextAeKey);
+                    if (rs != null) {
+                      nextAe.setResultSpecification(rs);
+                    }
+                  }
                   // invoke next AE in flow
                   CasIterator casIter = null;
                   CAS outputCas = null; //used if the AE we call outputs a new CAS
@@ -641,7 +652,11 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
                     // be sure to include the incomplete ParallelStep
                     if (!destinations.isEmpty()) {
                       casIteratorStack.push(new StackFrame(casIter, cas, flow, nextAeKey,
-                              new ParallelStep(destinations)));
+                              (nextStep instanceof ParallelStepWithResultSpecs)
+                                      ? new ParallelStepWithResultSpecs(destinations,
+                                              ((ParallelStepWithResultSpecs) nextStep)
+                                                      .getResultSpecifications())
+                                      : new ParallelStep(destinations)));
                     } else {
                       casIteratorStack.push(new StackFrame(casIter, cas, flow, nextAeKey));                      
                     }
@@ -655,6 +670,7 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
                     // no new CASes are output; this cas is done being processed
                     // by that AnalysisEngine so clear the componentInfo
                     cas.setCurrentComponentInfo(null);
+                    ((CASImpl) cas.getLowLevelCAS()).maybeReleaseUnreachableFSs();
                   }
                 } else {
                   throw new AnalysisEngineProcessException(
@@ -0,0 +1,343 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.analysis_engine.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import org.apache.uima.UIMARuntimeException;
+import org.apache.uima.analysis_component.CacheableAnalysisComponent;
+import org.apache.uima.cas.CommonArrayFS;
+import org.apache.uima.cas.impl.CASImpl;
+import org.apache.uima.cas.impl.FeatureImpl;
+import org.apache.uima.cas.impl.TypeImpl;
+import org.apache.uima.cas.impl.TypeSystemImpl;
+import org.apache.uima.jcas.cas.FSArray;
+import org.apache.uima.jcas.cas.Sofa;
+import org.apache.uima.jcas.cas.TOP;
+
+/**
+ * A disk-backed store of the delta CASs produced by primitive annotators, keyed by a fingerprint
+ * of what the annotator's result depends on.
+ *
+ * Only annotators implementing {@link CacheableAnalysisComponent} are cached, and only when the JVM
+ * property {@link #ANNOTATOR_RESULT_CACHE_DIR} is set to a directory. Their Primitive Analysis
+ * Engines then fingerprint each input CAS, and on a hit replay the stored delta instead of calling
+ * the annotator's process method.  After a run of CASes without a hit, only a sample of the CASes is
+ * fingerprinted, until one hits again.
+ *
+ * The fingerprint covers
+ *   - the type system,
+ *   - the annotator (implementation, name, version, configuration parameter settings, result specification),
+ *   - the Sofa data of all views,
+ *   - the id and type of every reachable Feature Structure, so the delta lines up with the receiving CAS,
+ *   - the feature values of the instances of the annotator's declared input types, and of arrays.
+ *
+ * This is only correct for annotators whose result depends on nothing else, i.e. which read only their
+ * declared inputs and have no side effects outside the CAS.
+ *
+ * Each entry is one file in the directory.  The total size is bounded; when exceeded, the least
+ * recently used entries are deleted.  The last use is kept as the file modification time, so it
+ * survives restarts.
+ */
+public final class AnnotatorResultCache {
+
+  /**
+   * Set this JVM property to a directory to enable caching of the results of
+   * {@link CacheableAnalysisComponent}s in it.
+   */
+  public static final String ANNOTATOR_RESULT_CACHE_DIR = "uima.annotator_result_cache_dir";
+
+  /**
+   * Set this JVM property to the maximum size of the cache in megabytes, default is 1024.
+   */
+  public static final String ANNOTATOR_RESULT_CACHE_MAX_MB = "uima.annotator_result_cache_max_mb";
+
+  private static final String SUFFIX = ".delta";
+
+  /** one instance per directory, shared by all Analysis Engines in the JVM */
+  private static final Map<File, AnnotatorResultCache> caches = new ConcurrentHashMap<>();
+
+  private final File dir;
+
+  private final long maxBytes;
+
+  /** key to entry size, in access order (least recently used first) */
+  private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+  private long totalBytes = 0;
+
+  /**
+   * @return the cache configured by JVM properties, or null if caching is not enabled
+   */
+  static AnnotatorResultCache getDefault() {
+    String dirName = System.getProperty(ANNOTATOR_RESULT_CACHE_DIR);
+    if (null == dirName || dirName.isEmpty()) {
+      return null;
+    }
+    long maxMb = Math.max(1L, Long.getLong(ANNOTATOR_RESULT_CACHE_MAX_MB, 1024L));
+    return getInstance(new File(dirName), maxMb << 20);
+  }
+
+  /**
+   * @param aDir the directory holding the entries, created if needed
+   * @param aMaxBytes the maximum total size of the entries
+   * @return the cache for this directory; the size limit is the one of the first call for the directory
+   */
+  public static AnnotatorResultCache getInstance(File aDir, long aMaxBytes) {
+    return caches.computeIfAbsent(aDir.getAbsoluteFile(), d -> new AnnotatorResultCache(d, aMaxBytes));
+  }
+
+  private AnnotatorResultCache(File aDir, long aMaxBytes) {
+    dir = aDir;
+    maxBytes = aMaxBytes;
+    dir.mkdirs();
+    File[] files = dir.listFiles((d, name) -> name.endsWith(SUFFIX));
+    if (files != null) {
+      // oldest first, to rebuild the access order
+      Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+      for (File f : files) {
+        String name = f.getName();
+        long size = f.length();
+        entries.put(name.substring(0, name.length() - SUFFIX.length()), size);
+        totalBytes += size;
+      }
+    }
+    evictIfNeeded();
+  }
+
+  /**
+   * @param aKey a fingerprint
+   * @return the stored delta for the key, or null if none
+   */
+  public byte[] get(String aKey) {
+    File f = fileFor(aKey);
+    synchronized (this) {
+      if (null == entries.get(aKey)) {  // get updates the access order
+        return null;
+      }
+    }
+    try {
+      byte[] r = Files.readAllBytes(f.toPath());
+      Files.setLastModifiedTime(f.toPath(), FileTime.fromMillis(System.currentTimeMillis()));
+      return r;
+    } catch (NoSuchFileException e) {
+      remove(aKey);  // evicted or deleted concurrently
+      return null;
+    } catch (IOException e) {
+      remove(aKey);
+      return null;
+    }
+  }
+
+  /**
+   * Store a delta, replacing any existing one for the key
+   * @param aKey a fingerprint
+   * @param aDelta the delta CAS, serialized
+   */
+  public void put(String aKey, byte[] aDelta) {
+    File f = fileFor(aKey);
+    try {
+      // write to a temporary file first, so readers never see a partial entry
+      File tmp = File.createTempFile("tmp", ".part", dir);
+      try {
+        Files.write(tmp.toPath(), aDelta);
+        Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        tmp.delete();
+      }
+    } catch (IOException e) {
+      return;  // the cache is an optimization, a failure to store is not an error
+    }
+    synchronized (this) {
+      Long prev = entries.put(aKey, (long) aDelta.length);
+      totalBytes += aDelta.length - ((prev == null) ? 0 : prev);
+      evictIfNeeded();
+    }
+  }
+
+  /**
+   * Remove all entries
+   */
+  public synchronized void clear() {
+    for (String key : entries.keySet()) {
+      fileFor(key).delete();
+    }
+    entries.clear();
+    totalBytes = 0;
+  }
+
+  /**
+   * @return the number of entries
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  private synchronized void remove(String aKey) {
+    Long prev = entries.remove(aKey);
+    if (prev != null) {
+      totalBytes -= prev;
+    }
+  }
+
+  private synchronized void evictIfNeeded() {
+    Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+    while (totalBytes > maxBytes && it.hasNext()) {
+      Map.Entry<String, Long> e = it.next();
+      fileFor(e.getKey()).delete();
+      totalBytes -= e.getValue();
+      it.remove();
+    }
+  }
+
+  private File fileFor(String aKey) {
+    return new File(dir, aKey + SUFFIX);
+  }
+
+  /**
+   * Compute the fingerprint of a CAS, as input to an annotator
+   *
+   * @param aCas the CAS
+   * @param aComponentDigest the digest of the annotator's settings and of the type system
+   * @param aIsInputType true for the types whose instances' feature values are part of the fingerprint
+   * @return the fingerprint
+   */
+  static String fingerprint(CASImpl aCas, byte[] aComponentDigest, Predicate<TypeImpl> aIsInputType) {
+    MessageDigest md = newDigest();
+    md.update(aComponentDigest);
+    aCas.walkReachablePlusFSsSorted(fs -> {
+      TypeImpl ti = fs._getTypeImpl();
+      updateInt(md, fs._id());
+      updateInt(md, ti.getCode());
+      if (fs instanceof FSArray) {
+        FSArray<?> a = (FSArray<?>) fs;
+        for (int i = 0; i < a.size(); i++) {
+          TOP e = a.get(i);
+          updateInt(md, (null == e) ? 0 : e._id());
+        }
+      } else if (fs instanceof CommonArrayFS) {
+        for (String s : ((CommonArrayFS<?>) fs).toStringArray()) {
+          update(md, s);
+        }
+      } else if (fs instanceof Sofa || aIsInputType.test(ti)) {
+        updateFeatures(md, fs, ti);
+        if (fs instanceof Sofa && null != ((Sofa) fs).getSofaURI()) {
+          updateSofaData(md, aCas, (Sofa) fs);
+        }
+      }
+    }, null, null, null);
+    return toHex(md.digest());
+  }
+
+  /**
+   * @param aTs a type system
+   * @param aSettings the annotator's settings, in a fixed order
+   * @return a digest of both
+   */
+  static byte[] componentDigest(TypeSystemImpl aTs, String[] aSettings) {
+    MessageDigest md = newDigest();
+    for (TypeImpl ti : aTs.getAllTypes()) {
+      update(md, ti.getName());
+      for (FeatureImpl fi : ti.getFeatureImpls()) {
+        update(md, fi.getShortName());
+        update(md, fi.getRangeImpl().getName());
+      }
+    }
+    for (String s : aSettings) {
+      update(md, s);
+    }
+    return md.digest();
+  }
+
+  private static void updateFeatures(MessageDigest md, TOP fs, TypeImpl ti) {
+    for (FeatureImpl fi : ti.getFeatureImpls()) {
+      if (fi.getRangeImpl().isPrimitive()) {
+        update(md, fs.getFeatureValueAsString(fi));
+      } else {
+        TOP ref = (TOP) fs.getFeatureValue(fi);
+        updateInt(md, (null == ref) ? 0 : ref._id());
+      }
+    }
+  }
+
+  private static void updateSofaData(MessageDigest md, CASImpl aCas, Sofa aSofa) {
+    try (InputStream is = aCas.getSofaDataStream(aSofa)) {
+      if (null == is) {
+        return;
+      }
+      byte[] buf = new byte[8192];
+      int n;
+      while ((n = is.read(buf)) != -1) {
+        md.update(buf, 0, n);
+      }
+    } catch (IOException e) {
+      throw new UIMARuntimeException(e);
+    }
+  }
+
+  private static void update(MessageDigest md, String s) {
+    if (null == s) {
+      updateInt(md, -1);
+    } else {
+      byte[] b = s.getBytes(StandardCharsets.UTF_8);
+      updateInt(md, b.length);
+      md.update(b);
+    }
+  }
+
+  private static void updateInt(MessageDigest md, int v) {
+    md.update((byte) (v >>> 24));
+    md.update((byte) (v >>> 16));
+    md.update((byte) (v >>> 8));
+    md.update((byte) v);
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new UIMARuntimeException(e);  // SHA-256 is required to be present in all JVMs
+    }
+  }
+
+  private static String toHex(byte[] d) {
+    StringBuilder sb = new StringBuilder(d.length * 2);
+    for (byte b : d) {
+      sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return sb.toString();
+  }
+}
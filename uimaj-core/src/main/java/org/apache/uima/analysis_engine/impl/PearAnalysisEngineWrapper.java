@@ -39,6 +39,8 @@ import org.apache.uima.analysis_engine.metadata.AnalysisEngineMetaData;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.impl.ChildUimaContext_impl;
+import org.apache.uima.internal.util.Misc;
+import org.apache.uima.internal.util.UIMAClassLoader;
 import org.apache.uima.pear.tools.PackageBrowser;
 import org.apache.uima.resource.Parameter;
 import org.apache.uima.resource.PearSpecifier;
@@ -73,6 +75,17 @@ import org.apache.uima.util.XMLInputSource;
  */
 public class PearAnalysisEngineWrapper extends AnalysisEngineImplBase {
 
+   /**
+    * Define this JVM property to have JCas classes packaged in a PEAR which are identical to the
+    * ones outside the PEAR loaded from outside, so Feature Structures of those types don't need
+    * PEAR versions (trampolines) inside the PEAR.
+    * The classes are compared when they are loaded; PEARs with different JCas classes are unaffected.
+    */
+   public static final String PEAR_SHARE_IDENTICAL_JCAS_CLASSES = "uima.pear_share_identical_jcas_classes";
+
+   private static final boolean IS_PEAR_SHARE_IDENTICAL_JCAS_CLASSES =
+       Misc.getNoValueSystemProperty(PEAR_SHARE_IDENTICAL_JCAS_CLASSES);
+
    // a hash map where the entries will be reclaimed when the keys are no longer
    // referenced by anything (other than this hash map)
    // key = resourceManager instance associated with this call
@@ -124,6 +137,9 @@ public class PearAnalysisEngineWrapper extends AnalysisEngineImplBase {
 //       ((ResourceManagerPearWrapper)rsrcMgr).initializeFromParentResourceManager(parentResourceManager);
      }
      rsrcMgr.setExtensionClassPath(sp.classPath, true);
+     if (IS_PEAR_SHARE_IDENTICAL_JCAS_CLASSES && rsrcMgr.getExtensionClassLoader() instanceof UIMAClassLoader) {
+       ((UIMAClassLoader) rsrcMgr.getExtensionClassLoader()).setShareIdenticalJCasClasses(true);
+     }
      if (parentResourceManager != null) {
        rsrcMgr.setCasManager(parentResourceManager.getCasManager());  // shares the same merged type system
      }
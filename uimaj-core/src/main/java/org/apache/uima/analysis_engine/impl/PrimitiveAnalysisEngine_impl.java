@@ -19,7 +19,14 @@
 
 package org.apache.uima.analysis_engine.impl;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.uima.Constants;
@@ -29,17 +36,25 @@ import org.apache.uima.UimaContext;
 import org.apache.uima.UimaContextAdmin;
 import org.apache.uima.UimaContextHolder;
 import org.apache.uima.analysis_component.AnalysisComponent;
+import org.apache.uima.analysis_component.CacheableAnalysisComponent;
 import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.analysis_engine.CasIterator;
 import org.apache.uima.analysis_engine.ResultNotSupportedException;
 import org.apache.uima.analysis_engine.ResultSpecification;
+import org.apache.uima.analysis_engine.TypeOrFeature;
 import org.apache.uima.analysis_engine.impl.compatibility.AnalysisComponentAdapterFactory;
 import org.apache.uima.cas.AbstractCas;
 import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Marker;
 import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.impl.AllowPreexistingFS;
+import org.apache.uima.cas.impl.BinaryCasSerDes6.ReuseInfo;
 import org.apache.uima.cas.impl.CASImpl;
+import org.apache.uima.cas.impl.Serialization;
+import org.apache.uima.cas.impl.TypeImpl;
+import org.apache.uima.cas.impl.TypeSystemImpl;
 import org.apache.uima.impl.UimaContext_ImplBase;
 import org.apache.uima.impl.Util;
 import org.apache.uima.internal.util.UUIDGenerator;
@@ -48,6 +63,7 @@ import org.apache.uima.resource.ResourceConfigurationException;
 import org.apache.uima.resource.ResourceCreationSpecifier;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.resource.ResourceSpecifier;
+import org.apache.uima.resource.metadata.Capability;
 import org.apache.uima.resource.metadata.ProcessingResourceMetaData;
 import org.apache.uima.resource.metadata.ResourceMetaData;
 import org.apache.uima.util.Level;
@@ -103,6 +119,39 @@ public class PrimitiveAnalysisEngine_impl extends AnalysisEngineImplBase impleme
 
   private boolean mSofaAware;
 
+  /**
+   * The store of this annotator's results, or null if results are not cached.
+   * See {@link AnnotatorResultCache}.
+   */
+  private AnnotatorResultCache mResultCache;
+
+  /**
+   * The type system the result cache digest and input types were computed for;
+   * null when they need to be recomputed.
+   */
+  private TypeSystemImpl mResultCacheTs;
+
+  private byte[] mResultCacheComponentDigest;
+
+  private TypeImpl[] mResultCacheInputTypes;
+
+  /** true if the annotator implements {@link CacheableAnalysisComponent} */
+  private boolean mResultCacheable;
+
+  /**
+   * Lookups in the result cache are counted in windows of this many CASes. After a window without a
+   * hit, only one CAS per window is looked up, until a lookup hits again; this bounds the cost of
+   * fingerprinting for annotators whose inputs never repeat.
+   */
+  private static final int RESULT_CACHE_WINDOW = 100;
+
+  /** true while only one CAS per window is looked up */
+  private boolean mResultCacheSampling;
+
+  private int mResultCacheWindowCount;
+
+  private int mResultCacheWindowHits;
+
   /**
    * @see org.apache.uima.resource.Resource#initialize(ResourceSpecifier, Map)
    */
@@ -172,6 +221,12 @@ public class PrimitiveAnalysisEngine_impl extends AnalysisEngineImplBase impleme
 
       initializeAnalysisComponent(aAdditionalParams);
 
+      // results are only cached for annotators which declare them cacheable; results of
+      // CAS Multipliers are not cached, their output CASs can't be replayed
+      if (mResultCacheable && !getAnalysisEngineMetaData().getOperationalProperties().getOutputsNewCASes()) {
+        mResultCache = AnnotatorResultCache.getDefault();
+      }
+
       // Initialize ResultSpec based on output capabilities
       // TODO: should only do this for outermost AE
       resetResultSpecificationToDefault();
@@ -225,6 +280,7 @@ public class PrimitiveAnalysisEngine_impl extends AnalysisEngineImplBase impleme
 
     try {
       Object userObject = annotatorClass.newInstance();
+      mResultCacheable = userObject instanceof CacheableAnalysisComponent;
       if (userObject instanceof AnalysisComponent) {
         mAnalysisComponent = (AnalysisComponent) userObject;
       } else {
@@ -287,6 +343,7 @@ public class PrimitiveAnalysisEngine_impl extends AnalysisEngineImplBase impleme
       mCurrentResultSpecification = aResultSpec;
       mResultSpecChanged = true;
     }
+    mResultCacheTs = null;
   }
 
   /**
@@ -295,6 +352,10 @@ public class PrimitiveAnalysisEngine_impl extends AnalysisEngineImplBase impleme
   public CasIterator processAndOutputNewCASes(CAS aCAS) throws AnalysisEngineProcessException {
     enterProcess();
     try {
+      if (null != mResultCache && !((CASImpl)aCAS).isCasLocked() && !((CASImpl)aCAS).isLogging()
+              && isResultCacheLookup()) {
+        return processWithResultCache(aCAS);
+      }
       // make initial call to the AnalysisComponent
       callAnalysisComponentProcess(aCAS);
 
@@ -306,6 +367,147 @@ public class PrimitiveAnalysisEngine_impl extends AnalysisEngineImplBase impleme
     }
   }
 
+  /**
+   * Replays the stored result for the CAS, if any; otherwise processes the CAS, and
+   * arranges for the result to be stored when the processing completes.
+   * 
+   * @param aCAS the CAS to process
+   * @return the CasIterator for the outputs (there are none, CAS Multipliers are not cached)
+   * @throws AnalysisEngineProcessException -
+   */
+  private CasIterator processWithResultCache(CAS aCAS) throws AnalysisEngineProcessException {
+    CASImpl cas = ((CASImpl)aCAS).getBaseCAS();
+    String key = AnnotatorResultCache.fingerprint(cas, getResultCacheComponentDigest(cas), this::isResultCacheInputType);
+    // the reuse info maps the FSs below the mark between the stored delta and this CAS 
+    ReuseInfo reuseInfo;
+    try {
+      reuseInfo = Serialization.serializeWithCompression(cas, NULL_OUTPUT, (TypeSystem) null);
+    } catch (IOException | ResourceInitializationException e) {
+      throw new AnalysisEngineProcessException(e);
+    }
+
+    byte[] delta = mResultCache.get(key);
+    if (null != delta) {
+      resultCacheHit();
+      try {
+        Serialization.deserializeCAS(cas, new ByteArrayInputStream(delta), null, reuseInfo, AllowPreexistingFS.allow);
+      } catch (IOException | ResourceInitializationException e) {
+        throw new AnalysisEngineProcessException(e);
+      }
+      return new EmptyCasIterator();
+    }
+
+    Marker mark = cas.createMarker();
+    try {
+      callAnalysisComponentProcess(aCAS);
+    } catch (AnalysisEngineProcessException | RuntimeException | Error e) {
+      cas.releaseMarker(mark);
+      throw e;
+    }
+    return new AnalysisComponentCasIterator(mAnalysisComponent, aCAS, key, mark, reuseInfo);
+  }
+
+  /**
+   * Store the delta since the mark as the result for the key, and stop tracking changes
+   */
+  private void storeResult(CASImpl cas, String key, Marker mark, ReuseInfo reuseInfo) {
+    try {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      Serialization.serializeWithCompression(cas, baos, null, mark, reuseInfo);
+      mResultCache.put(key, baos.toByteArray());
+    } catch (IOException | ResourceInitializationException e) {
+      // not storing only costs a later cache miss
+      getLogger().log(Level.WARNING, "Could not store the annotator result in the result cache", e);
+    } finally {
+      cas.releaseMarker(mark);
+    }
+  }
+
+  private byte[] getResultCacheComponentDigest(CASImpl cas) {
+    TypeSystemImpl ts = cas.getTypeSystemImpl();
+    if (mResultCacheTs != ts) {
+      List<String> settings = new ArrayList<>();
+      settings.add(mDescription.getImplementationName());
+      settings.add(getMetaData().getName());
+      settings.add(getMetaData().getVersion());
+      UimaContext context = getUimaContext();
+      for (String name : context.getConfigParameterNames()) {
+        settings.add(name);
+        settings.add(Arrays.deepToString(new Object[] {context.getConfigParameterValue(name)}));
+      }
+      for (String group : context.getConfigurationGroupNames()) {
+        for (String name : context.getConfigParameterNames(group)) {
+          settings.add(group + ':' + name);
+          settings.add(Arrays.deepToString(new Object[] {context.getConfigParameterValue(group, name)}));
+        }
+      }
+      List<String> results = new ArrayList<>();
+      for (TypeOrFeature tof : mCurrentResultSpecification.getResultTypesAndFeatures()) {
+        results.add(tof.getName());
+      }
+      Collections.sort(results);
+      settings.addAll(results);
+
+      List<TypeImpl> inputTypes = new ArrayList<>();
+      for (Capability capability : getAnalysisEngineMetaData().getCapabilities()) {
+        for (TypeOrFeature tof : capability.getInputs()) {
+          String name = tof.getName();
+          // for features, the type declaring it
+          TypeImpl ti = ts.getType(tof.isType() ? name : name.substring(0, Math.max(0, name.indexOf(':'))));
+          if (null != ti) {
+            inputTypes.add(ti);
+          }
+        }
+      }
+      mResultCacheInputTypes = inputTypes.toArray(new TypeImpl[inputTypes.size()]);
+      mResultCacheComponentDigest = AnnotatorResultCache.componentDigest(ts, settings.toArray(new String[settings.size()]));
+      mResultCacheTs = ts;
+    }
+    return mResultCacheComponentDigest;
+  }
+
+  /**
+   * Decides whether to look up the CAS about to be processed in the result cache. Fingerprinting
+   * walks the whole CAS, so once a window of CASes had no hit, only one CAS per window is looked up.
+   * 
+   * @return true to look up the CAS
+   */
+  private boolean isResultCacheLookup() {
+    int count = ++mResultCacheWindowCount;
+    if (count < RESULT_CACHE_WINDOW) {
+      return !mResultCacheSampling;
+    }
+    if (!mResultCacheSampling) {
+      mResultCacheSampling = (0 == mResultCacheWindowHits);
+    }
+    mResultCacheWindowCount = 0;
+    mResultCacheWindowHits = 0;
+    return true;
+  }
+
+  private void resultCacheHit() {
+    mResultCacheWindowHits++;
+    mResultCacheSampling = false;
+  }
+
+  private boolean isResultCacheInputType(TypeImpl ti) {
+    for (TypeImpl inputType : mResultCacheInputTypes) {
+      if (inputType.subsumes(ti)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Used to compute the reuse info of a CAS, discards the serialized form */
+  private static final OutputStream NULL_OUTPUT = new OutputStream() {
+    @Override
+    public void write(int b) {}
+
+    @Override
+    public void write(byte[] b, int off, int len) {}
+  };
+
   public void batchProcessComplete() throws AnalysisEngineProcessException {
     enterBatchProcessComplete();
     UimaContext prevContext = setContextHolder();  // for use by POJOs
@@ -556,6 +758,7 @@ public class PrimitiveAnalysisEngine_impl extends AnalysisEngineImplBase impleme
   public void reconfigure() throws ResourceConfigurationException {
     // do base resource reconfiguration
     super.reconfigure();
+    mResultCacheTs = null;  // parameter settings are part of the result cache key
 
     // inform the annotator
     UimaContext prevContext = setContextHolder();  // for use by POJOs
@@ -580,12 +783,37 @@ public class PrimitiveAnalysisEngine_impl extends AnalysisEngineImplBase impleme
     private CAS mInputCas;
     private boolean casAvailable;
 
+    /** if the result is to be cached: its key, the mark before processing, and the reuse info */
+    private String mResultKey;
+    private Marker mResultMark;
+    private ReuseInfo mResultReuseInfo;
+
     AnalysisComponentCasIterator(AnalysisComponent aAnalysisComponent, CAS aInputCas) {
       mMyAnalysisComponent = aAnalysisComponent;
       mInputCas = aInputCas;
       casAvailable = false;
     }
 
+    AnalysisComponentCasIterator(AnalysisComponent aAnalysisComponent, CAS aInputCas,
+            String aResultKey, Marker aResultMark, ReuseInfo aResultReuseInfo) {
+      this(aAnalysisComponent, aInputCas);
+      mResultKey = aResultKey;
+      mResultMark = aResultMark;
+      mResultReuseInfo = aResultReuseInfo;
+    }
+
+    private void releaseResultMark(boolean store) {
+      if (null != mResultMark) {
+        CASImpl cas = ((CASImpl)mInputCas).getBaseCAS();
+        if (store) {
+          storeResult(cas, mResultKey, mResultMark, mResultReuseInfo);
+        } else {
+          cas.releaseMarker(mResultMark);
+        }
+        mResultMark = null;
+      }
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -605,10 +833,12 @@ public class PrimitiveAnalysisEngine_impl extends AnalysisEngineImplBase impleme
           //CAS is no longer being processed.
           mInputCas.setCurrentComponentInfo(null);
           ((CASImpl)mInputCas).restoreClassLoaderUnlockCas();
+          releaseResultMark(true);
         }
         return casAvailable;
       } catch (Exception e) {
         ((CASImpl)mInputCas).restoreClassLoaderUnlockCas();
+        releaseResultMark(false);
         if (e instanceof AnalysisEngineProcessException) {
           throw (AnalysisEngineProcessException) e;
         }
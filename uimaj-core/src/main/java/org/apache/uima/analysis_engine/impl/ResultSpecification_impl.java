@@ -27,12 +27,15 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.uima.analysis_engine.ResultSpecification;
 import org.apache.uima.analysis_engine.TypeOrFeature;
 import org.apache.uima.cas.Feature;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.impl.FeatureImpl;
+import org.apache.uima.cas.impl.TypeImpl;
 import org.apache.uima.cas.impl.TypeSystemImpl;
 import org.apache.uima.cas.text.Language;
 import org.apache.uima.resource.metadata.Capability;
@@ -123,6 +126,10 @@ import org.apache.uima.resource.metadata.impl.XmlizationInfo;
  *        
  * The compiled version is used in containsType, containsFeature testing, and is used when
  * computing intersection.
+ * 
+ * A second compiled form, indexed by type and feature codes, is built lazily per (normalized) language
+ * from the first one, when the type system is a committed TypeSystemImpl.  It is used by the 
+ * containsType(Type, ...) and containsFeature(Feature, ...) methods, which then reduce to one array lookup.
  */
 
 public final class ResultSpecification_impl extends MetaDataObject_impl implements
@@ -161,6 +168,29 @@ public final class ResultSpecification_impl extends MetaDataObject_impl implemen
   // compiled forms
   private boolean needsCompilation = true;
   private final Map<String, RsLangs> rsCompiled;
+  
+  /**
+   * type-code / feature-code indexed forms of rsCompiled, key is the normalized language.
+   * Built lazily, cleared whenever rsCompiled is.
+   */
+  private transient volatile Map<String, RsCompiledCodes> rsCompiledCodes = null;
+  
+  /**
+   * 1 element cache of the last language (not normalized) looked up in rsCompiledCodes, and its value.
+   * The pair is immutable and held in one volatile field, so a thread never sees the codes of
+   * one language paired with another language.
+   */
+  private transient volatile LastCodes lastCodes = null;
+
+  private static final class LastCodes {
+    final String language;
+    final RsCompiledCodes codes;
+
+    LastCodes(String language, RsCompiledCodes codes) {
+      this.language = language;
+      this.codes = codes;
+    }
+  }
 
   public ResultSpecification_impl() {
     rsTypesMap = new RsTypesMap();
@@ -193,6 +223,9 @@ public final class ResultSpecification_impl extends MetaDataObject_impl implemen
     for (Map.Entry<String, RsLangs> e : rsCompiled.entrySet()) {
       e.getValue().setShared();
     }
+    if (original.rsCompiledCodes != null) {
+      rsCompiledCodes = new ConcurrentHashMap<>(original.rsCompiledCodes);  // values are immutable, can share
+    }
   }
       
   /**
@@ -450,6 +483,96 @@ public final class ResultSpecification_impl extends MetaDataObject_impl implemen
     return false;
   }
 
+  /**
+   * @see org.apache.uima.analysis_engine.ResultSpecification#containsType(org.apache.uima.cas.Type)
+   */
+  public boolean containsType(Type aType) {
+    return containsType(aType, Language.UNSPECIFIED_LANGUAGE);
+  }
+  
+  /**
+   * @see org.apache.uima.analysis_engine.ResultSpecification#containsType(org.apache.uima.cas.Type,java.lang.String)
+   */
+  public boolean containsType(Type aType, String aLanguage) {
+    TypeImpl ti = (TypeImpl) aType;
+    RsCompiledCodes codes = getCompiledCodes(ti.getTypeSystem(), aLanguage);
+    return (null == codes) 
+             ? containsType(ti.getName(), aLanguage)
+             : codes.containsType(ti.getCode());
+  }
+
+  /**
+   * @see org.apache.uima.analysis_engine.ResultSpecification#containsFeature(org.apache.uima.cas.Feature)
+   */
+  public boolean containsFeature(Feature aFeature) {
+    return containsFeature(aFeature, Language.UNSPECIFIED_LANGUAGE);
+  }
+
+  /**
+   * @see org.apache.uima.analysis_engine.ResultSpecification#containsFeature(org.apache.uima.cas.Feature,java.lang.String)
+   */
+  public boolean containsFeature(Feature aFeature, String aLanguage) {
+    FeatureImpl fi = (FeatureImpl) aFeature;
+    RsCompiledCodes codes = getCompiledCodes(((TypeImpl)fi.getDomain()).getTypeSystem(), aLanguage);
+    return (null == codes) 
+             ? containsFeature(fi.getName(), aLanguage)
+             : codes.containsFeature(fi.getCode());
+  }
+  
+  /**
+   * Get (building if needed) the code-indexed compiled form for a language
+   * @param tsi the type system of the type or feature being tested
+   * @param aLanguage the language, not normalized
+   * @return the compiled form, or null if the type or feature being tested is not from 
+   *         the committed type system of this result spec
+   */
+  private RsCompiledCodes getCompiledCodes(TypeSystemImpl tsi, String aLanguage) {
+    if (tsi != mTypeSystem || !tsi.isCommitted()) {
+      return null;
+    }
+    compileIfNeeded();
+    final LastCodes last = lastCodes;
+    if (last != null && aLanguage == last.language) {
+      return last.codes;
+    }
+    String language = Language.normalize(aLanguage);
+    Map<String, RsCompiledCodes> map = rsCompiledCodes;
+    if (null == map) {
+      map = rsCompiledCodes = new ConcurrentHashMap<>();
+    }
+    RsCompiledCodes codes = map.get(language);
+    if (null == codes) {
+      codes = compileCodes(tsi, language);
+      RsCompiledCodes prev = map.putIfAbsent(language, codes);
+      if (prev != null) {
+        codes = prev;
+      }
+    }
+    lastCodes = new LastCodes(aLanguage, codes);
+    return codes;
+  }
+  
+  /**
+   * Expand the compiled form for one language into arrays indexed by type and feature codes.
+   * Uses the name based lookups, so results are identical to those. 
+   */
+  private RsCompiledCodes compileCodes(TypeSystemImpl tsi, String language) {
+    boolean[] types = new boolean[tsi.getTypeArraySize()];
+    for (TypeImpl ti : tsi.getAllTypes()) {
+      types[ti.getCode()] = containsType(ti.getName(), language);
+    }
+    
+    final int nbrFeats = tsi.getNumberOfFeatures();
+    boolean[] features = new boolean[nbrFeats + 1];  // slot 0 not used
+    for (int featCode = 1; featCode <= nbrFeats; featCode++) {
+      Feature f = tsi.ll_getFeatureForCode(featCode);
+      if (null != f) {
+        features[featCode] = containsFeature(f.getName(), language);
+      }
+    }
+    return new RsCompiledCodes(types, features);
+  }
+
   /**
    * 
    * @param rsLangs
@@ -587,6 +710,8 @@ public final class ResultSpecification_impl extends MetaDataObject_impl implemen
   private void setCompileNeeded() {
     needsCompilation = true;
     rsCompiled.clear(); 
+    rsCompiledCodes = null;
+    lastCodes = null;
   }
   
   /**
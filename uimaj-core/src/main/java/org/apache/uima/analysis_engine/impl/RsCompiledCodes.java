@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.analysis_engine.impl;
+
+/**
+ * The type-code and feature-code indexed form of a compiled result spec, for one language.
+ *
+ * Subsumption (types and languages) and the allAnnotatorFeatures flag are already expanded
+ * when this is built, so a containment test is a single array lookup.
+ *
+ * Instances are immutable, and are only valid for the committed type system they were built from.
+ */
+class RsCompiledCodes {
+
+  /** indexed by type code */
+  private final boolean[] types;
+
+  /** indexed by feature code */
+  private final boolean[] features;
+
+  RsCompiledCodes(boolean[] types, boolean[] features) {
+    this.types = types;
+    this.features = features;
+  }
+
+  boolean containsType(int typeCode) {
+    return typeCode < types.length && types[typeCode];
+  }
+
+  boolean containsFeature(int featCode) {
+    return featCode < features.length && features[featCode];
+  }
+}
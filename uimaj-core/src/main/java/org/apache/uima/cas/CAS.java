@@ -20,6 +20,7 @@
 package org.apache.uima.cas;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.ListIterator;
@@ -1061,6 +1062,28 @@ public interface CAS extends AbstractCas {
    */
   InputStream getSofaDataStream();
 
+  /**
+   * Get the Sofa data as a read only buffer, without copying it where possible.
+   * 
+   * @return A buffer over the Sofa Data, or <code>null</code> if not set.
+   * @see SofaFS#getSofaDataBuffer()
+   */
+  default ByteBuffer getSofaDataBuffer() {
+    SofaFS sofa = getSofa();
+    return (sofa == null) ? null : sofa.getSofaDataBuffer();
+  }
+
+  /**
+   * Get the Sofa data as text, without creating a String where possible.
+   * 
+   * @return A text view of the Sofa Data, or <code>null</code> if not set.
+   * @see SofaFS#getSofaDataText()
+   */
+  default CharSequence getSofaDataText() {
+    SofaFS sofa = getSofa();
+    return (sofa == null) ? null : sofa.getSofaDataText();
+  }
+
   /**
    * Get the mime type of the Sofa data being analyzed.
    * 
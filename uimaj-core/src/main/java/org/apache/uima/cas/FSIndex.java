@@ -19,7 +19,9 @@
 
 package org.apache.uima.cas;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.stream.Stream;
 
 import org.apache.uima.cas.impl.LowLevelIndex;
@@ -93,6 +95,13 @@ public interface FSIndex<T extends FeatureStructure> extends Collection<T> {
    */
   public static final int DEFAULT_BAG_INDEX = 3;
   
+  /**
+   * Indexing strategy: hash index. A hash index contains all elements, in no particular order, and 
+   * in addition finds the elements having given values of the key features directly, without a
+   * scan or a search. 
+   */
+  public static final int HASH_INDEX = 5;
+  
 //  /**
 //   * Special indexes used by the framework to implement flattened indexes
 //   * NOT CURRENTLY IN USE
@@ -147,6 +156,26 @@ public interface FSIndex<T extends FeatureStructure> extends Collection<T> {
    */
   T find(FeatureStructure fs);
 
+  /**
+   * Find all the feature structures in this index which compare equal with the parameter
+   * in terms of the defined comparators for the index.
+   * 
+   * For hash indexes, this is a direct lookup; for other kinds of indexes, the index is scanned.
+   * 
+   * @param fs A Feature Structure used a template to match with the Feature Structures in the index.
+   *           It must have the keys needed to do the compare as specified for the index that it's in.
+   * @return a new list of the FSs equal to the template argument, in no particular order, possibly empty.
+   */
+  default List<T> findAll(FeatureStructure fs) {
+    List<T> r = new ArrayList<>();
+    for (T item : this) {
+      if (compare(item, fs) == 0) {
+        r.add(item);
+      }
+    }
+    return r;
+  }
+
   /**
    * Compare two feature structures according to the ordering relation of the index. If the input
    * feature structures are not of the type of the index or a supertype, the result is undefined.
@@ -194,7 +223,7 @@ public interface FSIndex<T extends FeatureStructure> extends Collection<T> {
   /**
    * Return the indexing strategy.
    * 
-   * @return One of <code>SORTED_INDEX</code>, <code>BAG_INDEX</code> or <code>SET_INDEX</code>.
+   * @return One of <code>SORTED_INDEX</code>, <code>BAG_INDEX</code>, <code>SET_INDEX</code> or <code>HASH_INDEX</code>.
    */
   int getIndexingStrategy();
 
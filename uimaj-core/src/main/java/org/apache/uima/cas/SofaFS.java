@@ -19,7 +19,11 @@
 
 package org.apache.uima.cas;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Interface for "Subject of Analysis" (Sofa) feature structures. A Sofa is implemented as a
@@ -133,4 +137,55 @@ public interface SofaFS extends FeatureStructure {
    * @return an InputStream for reading Sofa data. null returned if there is no Sofa data.
    */
   InputStream getSofaDataStream();
+
+  /**
+   * Provides buffer access to both local and remote Sofa data, without copying the data where possible.
+   * 
+   * Local byte array data is wrapped, and file: Sofa URIs are memory mapped, so large artifacts can be
+   * scanned without materializing them on the Java heap. Other remote Sofa URIs are read once, and the
+   * data kept for subsequent calls.  Local string data is encoded as UTF-8, and other local arrays are
+   * converted as for {@link #getSofaDataStream()}.
+   * 
+   * The default implementation reads {@link #getSofaDataStream()} into a new buffer on every call.
+   * 
+   * @return a read only buffer positioned at the start of the Sofa data. null returned if there is no Sofa data.
+   */
+  default ByteBuffer getSofaDataBuffer() {
+    try (InputStream is = getSofaDataStream()) {
+      if (null == is) {
+        return null;
+      }
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      byte[] b = new byte[8192];
+      int n;
+      while ((n = is.read(b)) != -1) {
+        baos.write(b, 0, n);
+      }
+      return ByteBuffer.wrap(baos.toByteArray()).asReadOnlyBuffer();
+    } catch (IOException e) {
+      throw new CASRuntimeException(CASRuntimeException.SOFADATASTREAM_ERROR, e.getMessage());
+    }
+  }
+
+  /**
+   * Provides text access to both local and remote Sofa data, without creating a String.
+   * 
+   * For local string data, this is the string. For other data, this is a view over the
+   * {@link #getSofaDataBuffer()} bytes, decoded using the charset parameter of the Sofa mime type,
+   * or UTF-8 if none.  ISO-8859-1 and US-ASCII data is viewed in place; other charsets are decoded
+   * once, off the Java heap.
+   * 
+   * The default implementation decodes {@link #getSofaDataBuffer()} as UTF-8 on every call,
+   * ignoring the Sofa mime type.
+   * 
+   * @return a read only CharSequence of the Sofa data. null returned if there is no Sofa data.
+   */
+  default CharSequence getSofaDataText() {
+    String sd = getLocalStringData();
+    if (null != sd) {
+      return sd;
+    }
+    ByteBuffer buf = getSofaDataBuffer();
+    return (null == buf) ? null : StandardCharsets.UTF_8.decode(buf.duplicate()).asReadOnlyBuffer();
+  }
 }
@@ -112,6 +112,41 @@ class AllFSs {
     return this;
   }
   
+  /**
+   * The sofas, the FSs in the indexes of all views, and the FSs in the id to FS map which are pinned
+   * by the low level APIs, plus all FSs reachable from these
+   * @return this
+   */
+  AllFSs getAllFSsAllViews_sofas_pinned_reachable() {
+    getAllFSsAllViews_sofas();
+    IteratorNvc<TOP> it = cas.getId2FSs().iterator();
+    while (it.hasNext()) {
+      TOP fs = it.nextNvc();
+      if (fs._isPinned()) {
+        enqueueFS(fs);
+      }
+    }
+    
+    for (int i = 0; i < toBeScanned.size(); i++) {
+      enqueueFeatures(toBeScanned.get(i));
+    }
+    return this;
+  }
+  
+  /**
+   * The FSs in the indexes of one view, the view's sofa, plus all FSs reachable from these
+   * @param view the view
+   * @return this
+   */
+  AllFSs getAllFSsView_sofa_reachable(CASImpl view) {
+    enqueueFS(view.getSofa());
+    getFSsForView(view.indexRepository.getIndexedFSs());
+    for (int i = 0; i < toBeScanned.size(); i++) {
+      enqueueFeatures(toBeScanned.get(i));
+    }
+    return this;
+  }
+
   private void getFSsForView(Collection<TOP> fss) {
     for (TOP fs : fss) {
       enqueueFS(fs);
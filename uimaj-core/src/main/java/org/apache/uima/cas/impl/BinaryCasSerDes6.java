@@ -2851,26 +2851,31 @@ public class BinaryCasSerDes6 implements SlotKindsConstants {
 //      if (doMeasurements) {
 //        sm.statDetails[fsIndexes_i].original = fsIndexes.length * 4 + 1;      
 //      }
+    // for delta only write new sofas; the count written must match, the reader reads that many
+    final List<Sofa> sofas = new ArrayList<>();
+    final FSIterator<Sofa> it = cas1.getSofaIterator();
+    while (it.hasNext()) {
+      Sofa sofa = it.nextNvc();
+      if (!isSerializingDelta || mark.isNew(sofa)) {
+        sofas.add(sofa);
+      }
+    }
+
     writeVnumber(control_i, cas1.getNumberOfViews());
-    writeVnumber(control_i, cas1.getNumberOfSofas());
+    writeVnumber(control_i, sofas.size());
     if (doMeasurements) {
       sm.statDetails[fsIndexes_i].incr(1); // an approximation - probably correct
       sm.statDetails[fsIndexes_i].incr(1);
     }
 
     // write or enqueue the sofas
-    final FSIterator<Sofa> it = cas1.getSofaIterator();
-    while (it.hasNext()) {
-      Sofa sofa = it.nextNvc();
-      // for delta only write new sofas
-      if (!isSerializingDelta || mark.isNew(sofa)) {
-        // never returns -1, because this is for the sofa fs, and that's never filtered
-        final int v = getTgtSeqFromSrcFS(sofa);
-        writeVnumber(control_i, v);    // version 1
-         
-        if (doMeasurements) {
-          sm.statDetails[fsIndexes_i].incr(DataIO.lengthVnumber(v));
-        }
+    for (Sofa sofa : sofas) {
+      // never returns -1, because this is for the sofa fs, and that's never filtered
+      final int v = getTgtSeqFromSrcFS(sofa);
+      writeVnumber(control_i, v);    // version 1
+       
+      if (doMeasurements) {
+        sm.statDetails[fsIndexes_i].incr(DataIO.lengthVnumber(v));
       }
     }
     TypeImpl topType = (TypeImpl) cas1.getTypeSystemImpl().getTopType();
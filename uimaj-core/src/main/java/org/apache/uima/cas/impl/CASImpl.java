@@ -33,6 +33,7 @@ import java.lang.invoke.MethodType;
 import java.lang.invoke.MutableCallSite;
 import java.net.URL;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
@@ -236,9 +237,29 @@ public class CASImpl extends AbstractCas_ImplBase implements CAS, CASMgr, LowLev
       !IS_REPORT_FS_UPDATE_CORRUPTS_INDEX &&
       !IS_THROW_EXCEPTION_CORRUPT_INDEX;
  
+  /**
+   * Define this JVM property to create, when entering a PEAR with its own JCas classes, the PEAR
+   * versions (trampolines) of all indexed FSs of the types it overrides, in one pass, rather than one
+   * at a time as they are accessed.
+   */
+  public static final String PEAR_PRECREATE_TRAMPOLINES = "uima.pear_precreate_trampolines";
+
+  private static final boolean IS_PEAR_PRECREATE_TRAMPOLINES = Misc.getNoValueSystemProperty(PEAR_PRECREATE_TRAMPOLINES);
+
   public static final String ALWAYS_HOLD_ONTO_FSS = "uima.default_v2_id_references";
   static final boolean IS_ALWAYS_HOLD_ONTO_FSS =    // debug and users of low-level cas apis with deserialization
       Misc.getNoValueSystemProperty(ALWAYS_HOLD_ONTO_FSS);
+
+  /**
+   * Define this JVM property to have aggregates call {@link #maybeReleaseUnreachableFSs()} after each delegate,
+   * so FSs held on to by the id to FS map, which are not indexed, not reachable from indexed FSs,
+   * and not pinned by the low level APIs, can be garbage collected before the CAS is reset.
+   */
+  public static final String RELEASE_UNREACHABLE_FSS = "uima.release_unreachable_fss";
+  static final boolean IS_RELEASE_UNREACHABLE_FSS = Misc.getNoValueSystemProperty(RELEASE_UNREACHABLE_FSS);
+  
+  /** the id to FS map isn't compacted until it holds at least this many FSs */
+  private static final int MIN_SIZE_FOR_RELEASE_UNREACHABLE_FSS = 1024;
 //  private static final int REF_DATA_FOR_ALLOC_SIZE = 1024;
 //  private static final int INT_DATA_FOR_ALLOC_SIZE = 1024;
 //  
@@ -509,6 +530,19 @@ public class CASImpl extends AbstractCas_ImplBase implements CAS, CASMgr, LowLev
      */
     AtomicInteger fsIdLastValue = new AtomicInteger(0);
     
+    /*
+     * Memory accounting, see getMemoryFootprint.  Updated as FSs are created and strings set,
+     * cleared on reset
+     */
+    /** number of FSs created, indexed by type code; grown as needed */
+    private int[] fsCountsByTypeCode = new int[0];
+    /** estimated bytes of the backing arrays of array FSs */
+    private long arrayBytes = 0;
+    /** total length of the string values of features and string arrays */
+    private long stringChars = 0;
+
+    /** the size of the id to FS map after it was last compacted, see maybeReleaseUnreachableFSs */
+    private int id2fsSizeAfterRelease = 0;
 
     // mostly for debug - counts # times cas is reset
     private final AtomicInteger casResets = new AtomicInteger(0);
@@ -704,6 +738,10 @@ public class CASImpl extends AbstractCas_ImplBase implements CAS, CASMgr, LowLev
       fsIdGenerator = 0;
       lastFsV2Size = 1;
       id2fs.clear();
+      Arrays.fill(fsCountsByTypeCode, 0);
+      arrayBytes = 0;
+      stringChars = 0;
+      id2fsSizeAfterRelease = 0;
       
       // pear caches
       id2tramp = null;
@@ -853,6 +891,9 @@ public class CASImpl extends AbstractCas_ImplBase implements CAS, CASMgr, LowLev
       for (int view = 1; view <= numViews; view++) {
         CASImpl tcas = (CASImpl) ((view == 1) ? getInitialView() : getViewFromSofaNbr(view));
         if (tcas != null) {         
+          if (tcas.mySofaRef != null) {
+            tcas.mySofaRef._clearRemoteSofaData();
+          }
           tcas.mySofaRef = null;  // was in v2: (1 == view) ? -1 : 0;
           tcas.docAnnotIter = null;
         }
@@ -961,6 +1002,15 @@ public class CASImpl extends AbstractCas_ImplBase implements CAS, CASMgr, LowLev
         throw new RuntimeException("UIMA Cas Internal id value overflowed maximum int value");
       }
       
+      final TypeImpl ti = fs._getTypeImpl();
+      if (ti != null) {  // null for a JCas class whose type isn't in the type system, which then throws
+        final int typeCode = ti.getCode();
+        if (typeCode >= fsCountsByTypeCode.length) {
+          fsCountsByTypeCode = Arrays.copyOf(fsCountsByTypeCode, Math.max(typeCode + 1, fsCountsByTypeCode.length * 2));
+        }
+        fsCountsByTypeCode[typeCode] ++;
+      }
+      
       if (isId2Fs) {
         // this computation is partial - misses length of arrays stored on heap
         // because that info not yet available  
@@ -1281,6 +1331,7 @@ public class CASImpl extends AbstractCas_ImplBase implements CAS, CASMgr, LowLev
   }
   
   void set_id2fs(TOP fs) {
+    fs._setPinned();
     svd.id2fs.put(fs);
   }
   
@@ -1730,65 +1781,18 @@ public class CASImpl extends AbstractCas_ImplBase implements CAS, CASMgr, LowLev
       
     } else if (null != aSofa.getLocalFSData()) {
       TOP fs = (TOP) sofa.getLocalFSData();
-      ByteBuffer buf = null;
-      switch(fs._getTypeCode()) {
-      
-      case stringArrayTypeCode: {
-        StringBuilder sb = new StringBuilder();
-        final String[] theArray = ((StringArray) fs)._getTheArray();
-        
-        for (int i = 0; i < theArray.length; i++) {
-          if (i != 0) {
-            sb.append('\n');
-          }
-          sb.append(theArray[i]);
-        }
-        return new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8) );
-      }
-      case intArrayTypeCode: {
-        final int[] theArray = ((IntegerArray) fs)._getTheArray();
-        (buf = ByteBuffer.allocate(theArray.length * 4)).asIntBuffer().put(theArray, 0, theArray.length);
-        break;
-      }
-        
-      case floatArrayTypeCode: {
-        final float[] theArray = ((FloatArray) fs)._getTheArray();
-        (buf = ByteBuffer.allocate(theArray.length * 4)).asFloatBuffer().put(theArray, 0, theArray.length);
-        break;
-      }
-        
-      case byteArrayTypeCode: {
-        final byte[] theArray = ((ByteArray) fs)._getTheArray();
-        buf = ByteBuffer.wrap(theArray);
-        break;
+      if (fs._getTypeCode() == stringArrayTypeCode) {
+        return new ByteArrayInputStream(stringArraySofaData((StringArray) fs).getBytes(StandardCharsets.UTF_8));
       }
-
-      case shortArrayTypeCode: {
-        final short[] theArray = ((ShortArray) fs)._getTheArray();
-        (buf = ByteBuffer.allocate(theArray.length * 2)).asShortBuffer().put(theArray, 0, theArray.length);
-        break;
-      }
-
-      case longArrayTypeCode: {
-        final long[] theArray = ((LongArray) fs)._getTheArray();
-        (buf = ByteBuffer.allocate(theArray.length * 8)).asLongBuffer().put(theArray, 0, theArray.length);
-         break;
-      }
-         
-      case doubleArrayTypeCode: {
-        final double[] theArray = ((DoubleArray) fs)._getTheArray();
-        (buf = ByteBuffer.allocate(theArray.length * 8)).asDoubleBuffer().put(theArray, 0, theArray.length);
-        break;
-      }
-
-      default:
-        throw Misc.internalError();
-      }
-      
-      ByteArrayInputStream bis = new ByteArrayInputStream(buf.array());
-      return bis;
+      ByteBuffer buf = arraySofaData(fs);
+      return new ByteArrayInputStream(buf.array(), buf.arrayOffset(), buf.remaining());
 
     } else if (null != aSofa.getSofaURI()) {
+      ByteBuffer remoteData = sofa._getRemoteSofaData();
+      if (null != remoteData) {
+        // already read or mapped by getSofaDataBuffer / getSofaDataText
+        return SofaDataAccess.asStream(remoteData);
+      }
       URL url;
       try {
         url = new URL(aSofa.getSofaURI());
@@ -1800,9 +1804,134 @@ public class CASImpl extends AbstractCas_ImplBase implements CAS, CASMgr, LowLev
     return null;
   }
 
+  /**
+   * @param aSofa the Sofa
+   * @return a read only buffer over the Sofa data, or null if there is none
+   * @see SofaFS#getSofaDataBuffer()
+   */
+  public ByteBuffer getSofaDataBuffer(SofaFS aSofa) {
+    Sofa sofa = (Sofa) aSofa;
+    String sd = sofa.getLocalStringData();
+
+    if (null != sd) {
+      return ByteBuffer.wrap(sd.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+
+    } else if (null != aSofa.getLocalFSData()) {
+      TOP fs = (TOP) sofa.getLocalFSData();
+      if (fs._getTypeCode() == stringArrayTypeCode) {
+        return ByteBuffer.wrap(stringArraySofaData((StringArray) fs).getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+      }
+      return arraySofaData(fs).asReadOnlyBuffer();
+
+    } else if (null != aSofa.getSofaURI()) {
+      return getRemoteSofaData(sofa).duplicate();
+    }
+    return null;
+  }
+
+  /**
+   * @param aSofa the Sofa
+   * @return a read only text view of the Sofa data, or null if there is none
+   * @see SofaFS#getSofaDataText()
+   */
+  public CharSequence getSofaDataText(SofaFS aSofa) {
+    Sofa sofa = (Sofa) aSofa;
+    String sd = sofa.getLocalStringData();
+    if (null != sd) {
+      return sd;
+    }
+    if (null != aSofa.getLocalFSData() && ((TOP) aSofa.getLocalFSData())._getTypeCode() == stringArrayTypeCode) {
+      return stringArraySofaData((StringArray) aSofa.getLocalFSData());
+    }
+    if (null == aSofa.getLocalFSData() && null != aSofa.getSofaURI()) {
+      // decoded once, like the data is read once
+      CharSequence text = sofa._getRemoteSofaText();
+      if (null == text) {
+        text = SofaDataAccess.asText(getRemoteSofaData(sofa), SofaDataAccess.charsetOf(aSofa.getSofaMime()));
+        sofa._setRemoteSofaText(text);
+      }
+      // a CharBuffer has a position of its own
+      return (text instanceof CharBuffer) ? ((CharBuffer) text).duplicate() : text;
+    }
+    ByteBuffer buf = getSofaDataBuffer(aSofa);
+    return (null == buf) ? null : SofaDataAccess.asText(buf, SofaDataAccess.charsetOf(aSofa.getSofaMime()));
+  }
+
+  private ByteBuffer getRemoteSofaData(Sofa sofa) {
+    ByteBuffer data = sofa._getRemoteSofaData();
+    if (null == data) {
+      data = SofaDataAccess.readUri(sofa.getSofaURI());
+      sofa._setRemoteSofaData(data);
+    }
+    return data;
+  }
+
+  private static String stringArraySofaData(StringArray fs) {
+    StringBuilder sb = new StringBuilder();
+    final String[] theArray = fs._getTheArray();
+
+    for (int i = 0; i < theArray.length; i++) {
+      if (i != 0) {
+        sb.append('\n');
+      }
+      sb.append(theArray[i]);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * @param fs a local Sofa array, other than a String array
+   * @return a heap buffer over the array; byte arrays are wrapped, not copied
+   */
+  private ByteBuffer arraySofaData(TOP fs) {
+    ByteBuffer buf = null;
+    switch(fs._getTypeCode()) {
+
+    case intArrayTypeCode: {
+      final int[] theArray = ((IntegerArray) fs)._getTheArray();
+      (buf = ByteBuffer.allocate(theArray.length * 4)).asIntBuffer().put(theArray, 0, theArray.length);
+      break;
+    }
+
+    case floatArrayTypeCode: {
+      final float[] theArray = ((FloatArray) fs)._getTheArray();
+      (buf = ByteBuffer.allocate(theArray.length * 4)).asFloatBuffer().put(theArray, 0, theArray.length);
+      break;
+    }
+
+    case byteArrayTypeCode: {
+      final byte[] theArray = ((ByteArray) fs)._getTheArray();
+      buf = ByteBuffer.wrap(theArray);
+      break;
+    }
+
+    case shortArrayTypeCode: {
+      final short[] theArray = ((ShortArray) fs)._getTheArray();
+      (buf = ByteBuffer.allocate(theArray.length * 2)).asShortBuffer().put(theArray, 0, theArray.length);
+      break;
+    }
+
+    case longArrayTypeCode: {
+      final long[] theArray = ((LongArray) fs)._getTheArray();
+      (buf = ByteBuffer.allocate(theArray.length * 8)).asLongBuffer().put(theArray, 0, theArray.length);
+       break;
+    }
+
+    case doubleArrayTypeCode: {
+      final double[] theArray = ((DoubleArray) fs)._getTheArray();
+      (buf = ByteBuffer.allocate(theArray.length * 8)).asDoubleBuffer().put(theArray, 0, theArray.length);
+      break;
+    }
+
+    default:
+      throw Misc.internalError();
+    }
+    return buf;
+  }
+
   @Override
   public<T extends FeatureStructure> FSIterator<T> createFilteredIterator(FSIterator<T> it, FSMatchConstraint cons) {
-    return new FilteredIterator<>(it, cons);
+    return ConstraintPushDown.createFilteredIterator(this, it, cons);
   }
 
   public TypeSystemImpl commitTypeSystem(boolean skip_loading_user_jcas) {
@@ -2783,6 +2912,7 @@ public JCasImpl getJCasImpl() {
     svd.reuseId = id;
     try {
       TOP fs = createFS(ti);
+      fs._setPinned();
       svd.id2fs.putChange(id, fs);
       return fs;
     } finally {
@@ -2916,6 +3046,7 @@ public JCasImpl getJCasImpl() {
       return fst._id;  // no need to hold on to this one - it's in jcas hash maps
     }
     // uncond. because this method can be called multiple times
+    fst._setPinned();
     svd.id2fs.putUnconditionally(fst);  // hold on to it
     return ((FeatureStructureImplC)fs)._id;
   }
@@ -3875,6 +4006,9 @@ public JCasImpl getJCasImpl() {
     // lock out CAS functions to which annotator should not have access
     enableReset(false);
     svd.switchClassLoader(newClassLoader, wasLocked);
+    if (IS_PEAR_PRECREATE_TRAMPOLINES && inPearContext()) {
+      precreatePearTrampolines();
+    }
   }
 
 //  // internal use, public for cross-package ref
@@ -4472,6 +4606,22 @@ public JCasImpl getJCasImpl() {
  
   }
 
+  @Override
+  public ByteBuffer getSofaDataBuffer() {
+    if (this == this.svd.baseCAS) {
+      return null;
+    }
+    return mySofaIsValid() ? this.getSofaDataBuffer(mySofaRef) : null;
+  }
+
+  @Override
+  public CharSequence getSofaDataText() {
+    if (this == this.svd.baseCAS) {
+      return null;
+    }
+    return mySofaIsValid() ? this.getSofaDataText(mySofaRef) : null;
+  }
+
   @Override
   public String getSofaMimeType() {
     if (this == this.svd.baseCAS) {
@@ -4915,6 +5065,22 @@ public JCasImpl getJCasImpl() {
   private void errorMultipleMarkers() {
     throw new CASRuntimeException(CASRuntimeException.MULTIPLE_CREATE_MARKER);
   }
+
+  /**
+   * Invalidate the current marker, and stop tracking modifications to preexisting FSs,
+   * as if the marker had never been created.
+   * Used when the delta since the mark has been captured, and no one else uses the mark.
+   * @param aMarker the current marker
+   */
+  public void releaseMarker(Marker aMarker) {
+    if (aMarker != this.svd.trackingMark) {
+      throw new CASRuntimeException(CASRuntimeException.INVALID_MARKER);
+    }
+    this.svd.trackingMark.isValid = false;
+    this.svd.trackingMark = null;
+    this.svd.trackingMarkList = null;
+    this.svd.modifiedPreexistingFSs.clear();
+  }
   
   
   // made public https://issues.apache.org/jira/browse/UIMA-2478
@@ -4973,6 +5139,108 @@ public JCasImpl getJCasImpl() {
     svd.lastFsV2Size += 2;  // length and index into other special heap
   }
   
+  /**
+   * Internal use - called by array FS constructors, for memory accounting
+   * @param length the length of the backing array
+   * @param elementBytes the size of an element of the backing array
+   */
+  public void addArrayBytes(int length, int elementBytes) {
+    svd.arrayBytes += CasMemoryFootprint.arrayBytes(length, elementBytes);
+  }
+
+  /**
+   * Internal use - called when a string valued slot is updated, for memory accounting
+   * @param oldValue the previous value of the slot, may be any Object or null
+   * @param newValue the new value of the slot, may be any Object or null
+   */
+  public void updateStringChars(Object oldValue, Object newValue) {
+    svd.stringChars += stringLength(newValue) - stringLength(oldValue);
+  }
+
+  /**
+   * Internal use - called before a range of slots holding strings is overwritten, for memory accounting
+   * @param oldValues the slots being updated
+   * @param oldPos the first slot being updated
+   * @param newValues the source of the new values
+   * @param newPos the position of the first new value
+   * @param length the number of slots
+   */
+  public void updateStringChars(Object[] oldValues, int oldPos, Object[] newValues, int newPos, int length) {
+    long d = 0;
+    for (int i = 0; i < length; i++) {
+      d += stringLength(newValues[newPos + i]) - stringLength(oldValues[oldPos + i]);
+    }
+    svd.stringChars += d;
+  }
+
+  private static int stringLength(Object v) {
+    return (v instanceof String) ? ((String)v).length() : 0;
+  }
+
+  /**
+   * Removes the FSs from the id to FS map which are not
+   * <ul>
+   *   <li>a sofa, or indexed in some view,</li>
+   *   <li>pinned, because their id was returned by or passed to the low level APIs, or</li>
+   *   <li>reachable from one of the above.</li>
+   * </ul>
+   * Unless otherwise referenced, these FSs can then be garbage collected, and they are no longer serialized.
+   * Their ids can no longer be used with the low level APIs.
+   * 
+   * When the CAS is holding on to every FS ({@link #ALWAYS_HOLD_ONTO_FSS}), this is typically called
+   * between delegates, to reclaim the temporary FSs created by the previous delegate.
+   * 
+   * @return the number of FSs removed from the id to FS map
+   */
+  public int releaseUnreachableFSs() {
+    final AllFSs allFSs = new AllFSs(this).getAllFSsAllViews_sofas_pinned_reachable();
+    final PositiveIntSet keep = allFSs.getAllNew();
+    final int removed = svd.id2fs.retainAll(fs -> keep.contains(fs._id));
+    svd.id2fsSizeAfterRelease = svd.id2fs.size();
+    return removed;
+  }
+  
+  /**
+   * If enabled by the {@link #RELEASE_UNREACHABLE_FSS} JVM property, calls {@link #releaseUnreachableFSs()}
+   * when the id to FS map has doubled in size since the last time.
+   * Called by aggregates after each delegate.
+   */
+  public void maybeReleaseUnreachableFSs() {
+    if (IS_RELEASE_UNREACHABLE_FSS) {
+      final int size = svd.id2fs.size();
+      if (size >= MIN_SIZE_FOR_RELEASE_UNREACHABLE_FSS && size > (svd.id2fsSizeAfterRelease << 1)) {
+        releaseUnreachableFSs();
+      }
+    }
+  }
+
+  /**
+   * Get an estimate of the Java heap used by this CAS, including all its views.
+   *
+   * The counts of FSs by type and the bytes of FSs, arrays and strings are maintained as the CAS is updated;
+   * this call only adds up the size of the indexes, so it is cheap enough to be called after each annotator.
+   * It may be called from another thread than the one updating the CAS, in which case the
+   * figures may be slightly out of date.
+   *
+   * @return the estimated memory footprint of this CAS
+   */
+  public CasMemoryFootprint getMemoryFootprint() {
+    long indexBytes = svd.id2fs.estimatedBytes();
+    long sofaBytes = 0;
+    Iterator<CASImpl> it = getViewImplIterator();
+    while (it.hasNext()) {
+      CASImpl view = it.next();
+      indexBytes += view.indexRepository.getEstimatedBytes();
+      Sofa sofa = view.getSofa();
+      String sofaString = (null == sofa) ? null : sofa.getLocalStringData();
+      if (null != sofaString) {
+        sofaBytes += (long) sofaString.length() * Character.BYTES;
+      }
+    }
+    return new CasMemoryFootprint(getTypeSystemImpl(), svd.fsCountsByTypeCode, svd.arrayBytes, svd.stringChars,
+        indexBytes, sofaBytes);
+  }
+
   /**
    * Test case use
    * @param fss the FSs to include in the id 2 fs map
@@ -4985,6 +5253,7 @@ public JCasImpl getJCasImpl() {
   
   private void setId2FsMaybeUnconditionally(TOP fs) {
     if (svd.isId2Fs) {
+      fs._setPinned();
       svd.id2fs.putUnconditionally(fs);
     } else {
       set_id2fs(fs);
@@ -5412,6 +5681,11 @@ public BooleanArray emptyBooleanArray() {
    * @return
    */
   private TOP pearConvert(TOP fs, FsGenerator3 g) {
+    // most calls find an existing trampoline; avoid allocating the creator for those
+    TOP existing = svd.id2tramp.get(fs._id);
+    if (null != existing) {
+      return existing;
+    }
     return svd.id2tramp.putIfAbsent(fs._id, k -> {
 
       svd.reuseId = k;  // create new FS using base FS's ID
@@ -5436,6 +5710,47 @@ public BooleanArray emptyBooleanArray() {
     });
   }
   
+  /**
+   * @param ti a type
+   * @return true if in a Pear context, and the Pear has its own JCas class for the type,
+   *         so FSs of this type have to be converted to their Pear versions.
+   *         If false, FSs of the type are used as is, without trampolines.
+   */
+  boolean isPearOverride(TypeImpl ti) {
+    if (!inPearContext()) {
+      return false;
+    }
+    final FsGenerator3[] g = svd.generators;
+    return null != g && null != g[ti.getCode()];
+  }
+
+  /**
+   * Create the Pear versions of all indexed FSs, in all views, whose types the current Pear overrides,
+   * so later accesses find them already made.
+   */
+  private void precreatePearTrampolines() {
+    final FsGenerator3[] g = svd.generators;
+    if (null == g) {
+      return;
+    }
+    boolean hasOverride = false;
+    for (FsGenerator3 gi : g) {
+      if (null != gi) {
+        hasOverride = true;
+        break;
+      }
+    }
+    if (!hasOverride) {
+      return;
+    }
+    final TypeImpl topType = getTypeSystemImpl().topType;
+    forAllViews(view -> {
+      for (LowLevelIterator<TOP> it = view.indexRepository.getAllIndexedFS(topType); it.isValid(); it.moveToNextNvc()) {
+        pearConvert(it.getNvc());  // no-op for types not overridden, or if the iterator already converted
+      }
+    });
+  }
+
   /**
    * Given a trampoline FS, return the corresponding base Fs
    * Supports adding Fs (which must be a non-trampoline version) to indexes
@@ -28,6 +28,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.IntUnaryOperator;
@@ -96,6 +97,7 @@ import org.apache.uima.util.IntEntry;
  *     - Set any additional configuration 
  *         cc.compareAll(true) - continue comparing if mismatch found
  *         cc.compardIds(true) - compare ids (require ids to be ==)
+ *         cc.compareByTypeHashes(true) - only compare in detail the types whose structural hashes differ
  *     - Do any transformations needed on the CASes to account for known but allowed differences:
  *         -- These are transformations done on the CAS Feature Structures outside of this routine
  *         -- example: for certain type:feature string values, normalize to the same canonical value
@@ -401,6 +403,7 @@ public class CasCompare {
     /** if true, continues comparison and reporting after finding the first miscompare */
   private boolean isCompareAll = false;
   private boolean isCompareIds = false;
+  private boolean isCompareByTypeHashes = false;
   private Pair<TOP, TOP> leafErrorReported = null;
   final private Set<String> excludedRootNames = new HashSet<String>(0);
   final private Set<String> includedTypeNames = new HashSet<String>(0);
@@ -498,6 +501,19 @@ public class CasCompare {
     isCompareIds = v;
   }
   
+  /**
+   * Before the FS by FS compare, computes a structural hash per type of each CAS (see {@link CasFingerprint}),
+   * in parallel, and then only compares the FSs of the types whose hashes differ.
+   * If no hashes differ, the CASs compare equal without any FS by FS compare.
+   * 
+   * Not used when comparing ids.
+   * 
+   * @param v defaults to false, set to true to skip comparing the FSs of types whose hashes are equal
+   */
+  public void compareByTypeHashes(boolean v) {
+    isCompareByTypeHashes = v;
+  }
+  
   /**
    * Many times some customation needs to be applied to both CASs being compared.
    * This routine does that
@@ -651,7 +667,9 @@ public class CasCompare {
         "org.apache.uima.jcas.cas.FSHashSet",
         "org.apache.uima.jcas.cas.IntegerArrayList",
         "org.apache.uima.jcas.cas.FSLinkedHashSet",
-        "org.apache.uima.jcas.cas.Int2FS"
+        "org.apache.uima.jcas.cas.Int2FS",
+        "org.apache.uima.jcas.cas.String2FS",
+        "org.apache.uima.jcas.cas.IntegerHashSet"
         ));
   }
   
@@ -781,6 +799,24 @@ public class CasCompare {
         
       }
       
+      if (isCompareByTypeHashes && !isCompareIds) {
+        if (IS_SHOW_PROGRESS) System.out.println("Comparing type hashes");
+        final List<TOP> fss1 = c1FoundFSs;
+        CompletableFuture<CasFingerprint> fp1 = CompletableFuture.supplyAsync(() -> CasFingerprint.of(fss1));
+        CasFingerprint fp2 = CasFingerprint.of(c2FoundFSs);
+        Set<String> differingTypes = fp1.join().differingTypes(fp2);
+        if (differingTypes.isEmpty()) {
+          return allOk;
+        }
+        // FSs of the other types are still compared when reached via references
+        c1FoundFSs = c1FoundFSs.stream()
+            .filter(fs -> differingTypes.contains(fs._getTypeImpl().getName()))
+            .collect(Collectors.toCollection(ArrayList::new));
+        c2FoundFSs = c2FoundFSs.stream()
+            .filter(fs -> differingTypes.contains(fs._getTypeImpl().getName()))
+            .collect(Collectors.toCollection(ArrayList::new));
+      }
+      
       // if type systems are "isEqual()" still need to map because of feature validation testing
           
       int i1 = 0;
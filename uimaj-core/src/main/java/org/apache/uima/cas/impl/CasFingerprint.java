@@ -0,0 +1,363 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.jcas.cas.BooleanArray;
+import org.apache.uima.jcas.cas.ByteArray;
+import org.apache.uima.jcas.cas.DoubleArray;
+import org.apache.uima.jcas.cas.FSArray;
+import org.apache.uima.jcas.cas.FloatArray;
+import org.apache.uima.jcas.cas.IntegerArray;
+import org.apache.uima.jcas.cas.LongArray;
+import org.apache.uima.jcas.cas.ShortArray;
+import org.apache.uima.jcas.cas.StringArray;
+import org.apache.uima.jcas.cas.TOP;
+
+/**
+ * A structural hash of the Feature Structures of a CAS, or of one view, by type.
+ *
+ * The hash doesn't depend on FS ids, on the order of FSs, or on type or feature codes:
+ *   - types and features are identified by name, so CASs with different but compatible
+ *     type systems (e.g. from different releases) hash the same when their contents are the same.
+ *   - the hash of an FS covers its type, its primitive values, and the hashes of the FSs it
+ *     references, to a reference depth of {@link #NBR_ROUNDS}.
+ *   - the hash of a type combines the hashes of its FSs without regard to order.
+ *
+ * Equal CASs have equal fingerprints; unequal fingerprints identify the types whose FSs differ.
+ *
+ * Each round of hashing is computed in parallel, per type.
+ *
+ * Usage:
+ *   - dedup: CasFingerprint.of(cas).getHash()
+ *   - regression: CasFingerprint.of(cas1).differingTypes(CasFingerprint.of(cas2))
+ *   - see also {@link CasCompare#compareByTypeHashes(boolean)}
+ */
+public class CasFingerprint {
+
+  /**
+   * The number of hashing rounds, which is the depth to which referenced FSs contribute
+   */
+  public static final int NBR_ROUNDS = 3;
+
+  private static final long NULL_HASH = 0x9e3779b97f4a7c15L;
+
+  /** type name to the combined hash of its FSs, sorted by name */
+  private final Map<String, Long> typeHashes;
+
+  /** type name to the number of its FSs */
+  private final Map<String, Integer> typeCounts;
+
+  private final long hash;
+
+  /**
+   * @param cas any view of the CAS
+   * @return the fingerprint of all the FSs in all the views, and those reachable from them
+   */
+  public static CasFingerprint of(CAS cas) {
+    CASImpl baseCas = ((CASImpl) cas.getLowLevelCAS()).getBaseCAS();
+    return of(new AllFSs(baseCas).getAllFSsAllViews_sofas_reachable().getAllFSs());
+  }
+
+  /**
+   * @param view a view of the CAS
+   * @return the fingerprint of the FSs in the indexes of the view, its Sofa, and those reachable from them
+   */
+  public static CasFingerprint ofView(CAS view) {
+    CASImpl v = (CASImpl) view.getLowLevelCAS();
+    return of(new AllFSs(v.getBaseCAS()).getAllFSsView_sofa_reachable(v).getAllFSs());
+  }
+
+  static CasFingerprint of(List<TOP> fss) {
+    return new CasFingerprint(fss);
+  }
+
+  private CasFingerprint(List<TOP> fss) {
+    // group by type; features in name order, so the hash doesn't depend on feature codes
+    Map<TypeImpl, List<TOP>> byType = new HashMap<>();
+    int maxId = 0;
+    for (TOP fs : fss) {
+      if (null == fs) {
+        continue;
+      }
+      byType.computeIfAbsent(fs._getTypeImpl(), k -> new ArrayList<>()).add(fs);
+      maxId = Math.max(maxId, fs._id);
+    }
+    List<TypeFss> types = new ArrayList<>(byType.size());
+    byType.forEach((ti, l) -> types.add(new TypeFss(ti, l)));
+
+    final long[] base = new long[maxId + 1];
+    types.parallelStream().forEach(t -> {
+      for (TOP fs : t.fss) {
+        base[fs._id] = primitiveHash(fs, t);
+      }
+    });
+
+    long[] prev = base;
+    for (int round = 1; round < NBR_ROUNDS; round++) {
+      final long[] p = prev;
+      final long[] next = new long[maxId + 1];
+      types.parallelStream().forEach(t -> {
+        for (TOP fs : t.fss) {
+          next[fs._id] = refHash(fs, t, base[fs._id], p);
+        }
+      });
+      prev = next;
+    }
+
+    final long[] last = prev;
+    Map<String, Long> hashes = Collections.synchronizedMap(new TreeMap<>());
+    Map<String, Integer> counts = Collections.synchronizedMap(new TreeMap<>());
+    types.parallelStream().forEach(t -> {
+      long h = 0;
+      for (TOP fs : t.fss) {
+        h += mix(last[fs._id]);  // commutative, order doesn't matter
+      }
+      h = mix(h ^ mix(t.fss.size()) ^ stringHash(t.type.getName()));
+      hashes.put(t.type.getName(), h);
+      counts.put(t.type.getName(), t.fss.size());
+    });
+
+    long h = NULL_HASH;
+    for (Map.Entry<String, Long> e : hashes.entrySet()) {
+      h = mix(h ^ e.getValue());
+    }
+    this.typeHashes = Collections.unmodifiableMap(new TreeMap<>(hashes));
+    this.typeCounts = Collections.unmodifiableMap(new TreeMap<>(counts));
+    this.hash = h;
+  }
+
+  /**
+   * @return the hash of all the FSs
+   */
+  public long getHash() {
+    return hash;
+  }
+
+  /**
+   * @return a map from type name to the hash of the FSs of exactly that type, sorted by type name
+   */
+  public Map<String, Long> getTypeHashes() {
+    return typeHashes;
+  }
+
+  /**
+   * @return a map from type name to the number of FSs of exactly that type, sorted by type name
+   */
+  public Map<String, Integer> getTypeCounts() {
+    return typeCounts;
+  }
+
+  /**
+   * @param other another fingerprint
+   * @return the names of the types whose FSs differ, including types present in only one, sorted
+   */
+  public Set<String> differingTypes(CasFingerprint other) {
+    Set<String> r = new TreeSet<>();
+    for (Map.Entry<String, Long> e : typeHashes.entrySet()) {
+      if (!e.getValue().equals(other.typeHashes.get(e.getKey()))) {
+        r.add(e.getKey());
+      }
+    }
+    for (String typeName : other.typeHashes.keySet()) {
+      if (!typeHashes.containsKey(typeName)) {
+        r.add(typeName);
+      }
+    }
+    return r;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(hash);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof CasFingerprint)) {
+      return false;
+    }
+    CasFingerprint other = (CasFingerprint) obj;
+    return hash == other.hash && typeHashes.equals(other.typeHashes);
+  }
+
+  /**
+   * @return the hash, as 16 hex digits
+   */
+  @Override
+  public String toString() {
+    return String.format("%016x", hash);
+  }
+
+  /**
+   * The FSs of one type, with the type's features in name order
+   */
+  private static class TypeFss {
+    final TypeImpl type;
+    final List<TOP> fss;
+    final FeatureImpl[] feats;
+    final long[] featNameHashes;
+
+    TypeFss(TypeImpl type, List<TOP> fss) {
+      this.type = type;
+      this.fss = fss;
+      feats = type.getFeatureImpls().clone();
+      Arrays.sort(feats, Comparator.comparing(FeatureImpl::getShortName));
+      featNameHashes = new long[feats.length];
+      for (int i = 0; i < feats.length; i++) {
+        featNameHashes[i] = stringHash(feats[i].getShortName());
+      }
+    }
+  }
+
+  private static long primitiveHash(TOP fs, TypeFss t) {
+    long h = stringHash(t.type.getName());
+    if (fs instanceof FSArray) {
+      return mix(h ^ ((FSArray<?>) fs).size());
+    }
+    if (fs instanceof StringArray) {
+      for (String s : ((StringArray) fs)._getTheArray()) {
+        h = mix(h ^ stringHash(s));
+      }
+      return h;
+    }
+    if (fs instanceof IntegerArray) {
+      for (int v : ((IntegerArray) fs)._getTheArray()) {
+        h = mix(h ^ v);
+      }
+      return h;
+    }
+    if (fs instanceof FloatArray) {
+      for (float v : ((FloatArray) fs)._getTheArray()) {
+        h = mix(h ^ Float.floatToIntBits(v));
+      }
+      return h;
+    }
+    if (fs instanceof DoubleArray) {
+      for (double v : ((DoubleArray) fs)._getTheArray()) {
+        h = mix(h ^ Double.doubleToLongBits(v));
+      }
+      return h;
+    }
+    if (fs instanceof LongArray) {
+      for (long v : ((LongArray) fs)._getTheArray()) {
+        h = mix(h ^ v);
+      }
+      return h;
+    }
+    if (fs instanceof ShortArray) {
+      for (short v : ((ShortArray) fs)._getTheArray()) {
+        h = mix(h ^ v);
+      }
+      return h;
+    }
+    if (fs instanceof ByteArray) {
+      for (byte v : ((ByteArray) fs)._getTheArray()) {
+        h = mix(h ^ v);
+      }
+      return h;
+    }
+    if (fs instanceof BooleanArray) {
+      for (boolean v : ((BooleanArray) fs)._getTheArray()) {
+        h = mix(h ^ (v ? 1 : 2));
+      }
+      return h;
+    }
+
+    for (int i = 0; i < t.feats.length; i++) {
+      FeatureImpl fi = t.feats[i];
+      long v;
+      switch (fi.getSlotKind()) {
+      case Slot_Boolean: v = fs._getBooleanValueNc(fi) ? 1 : 2; break;
+      case Slot_Byte:    v = fs._getByteValueNc(fi); break;
+      case Slot_Short:   v = fs._getShortValueNc(fi); break;
+      case Slot_Int:     v = fs._getIntValueNc(fi); break;
+      case Slot_Float:   v = Float.floatToIntBits(fs._getFloatValueNc(fi)); break;
+      case Slot_LongRef: v = fs._getLongValueNc(fi); break;
+      case Slot_DoubleRef: v = Double.doubleToLongBits(fs._getDoubleValueNc(fi)); break;
+      case Slot_StrRef:  v = stringHash(fs._getStringValueNc(fi)); break;
+      default: continue;  // references, done in later rounds
+      }
+      h = mix(h ^ t.featNameHashes[i] ^ mix(v));
+    }
+    return h;
+  }
+
+  private static long refHash(TOP fs, TypeFss t, long h, long[] prev) {
+    if (fs instanceof FSArray) {
+      for (TOP item : ((FSArray<?>) fs)._getTheArray()) {
+        h = mix(h ^ hashOf(item, prev));
+      }
+      return h;
+    }
+    for (int i = 0; i < t.feats.length; i++) {
+      FeatureImpl fi = t.feats[i];
+      if (fi.getSlotKind() == SlotKinds.SlotKind.Slot_HeapRef) {
+        h = mix(h ^ t.featNameHashes[i] ^ hashOf(fs._getFeatureValueNc(fi), prev));
+      }
+    }
+    return h;
+  }
+
+  private static long hashOf(TOP fs, long[] prev) {
+    if (null == fs) {
+      return NULL_HASH;
+    }
+    // FSs not in the set (e.g. not reachable in this view) contribute their type only
+    return (fs._id < prev.length && prev[fs._id] != 0) ? prev[fs._id] : stringHash(fs._getTypeImpl().getName());
+  }
+
+  /**
+   * 64 bit FNV-1a of the chars, stable across JVMs
+   */
+  private static long stringHash(String s) {
+    if (null == s) {
+      return NULL_HASH;
+    }
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < s.length(); i++) {
+      h = (h ^ s.charAt(i)) * 0x100000001b3L;
+    }
+    return h;
+  }
+
+  /**
+   * the SplitMix64 finalizer
+   */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An estimate of the Java heap used by a CAS, returned by {@link CASImpl#getMemoryFootprint()}.
+ *
+ * The FS, array and string figures are kept up to date by the CAS as FSs are created and string
+ * values are set, so getting a footprint only walks the type codes and the indexes.
+ * They cover the FSs created since the CAS was last reset, including ones which are no longer
+ * reachable, and each reference to a string counts its characters, even if the string is shared.
+ *
+ * Sizes are estimated for a 64 bit JVM with compressed oops: 12 byte object headers,
+ * 16 byte array headers, 4 byte references, objects aligned to 8 bytes.
+ *
+ * Immutable.
+ */
+public class CasMemoryFootprint {
+
+  /** the estimated size of a reference */
+  public static final int REFERENCE_BYTES = 4;
+
+  static final int OBJECT_HEADER_BYTES = 12;
+
+  static final int ARRAY_HEADER_BYTES = 16;
+
+  /** the fields of FeatureStructureImplC: _intData, _refData, _casView, _typeImpl, _id and _flags */
+  private static final int FS_FIELDS_BYTES = 4 * REFERENCE_BYTES + 2 * Integer.BYTES;
+
+  /** a HashMap node, plus its share of the table */
+  static final int HASH_ENTRY_BYTES = 40;
+
+  /** key is the type name, value the number of FSs of exactly that type */
+  private final Map<String, Integer> fsCounts;
+
+  private final int fsCount;
+
+  private final long fsBytes;
+
+  private final long arrayBytes;
+
+  private final long stringBytes;
+
+  private final long indexBytes;
+
+  private final long sofaBytes;
+
+  CasMemoryFootprint(TypeSystemImpl tsi, int[] fsCountsByTypeCode, long arrayBytes, long stringChars,
+      long indexBytes, long sofaBytes) {
+    Map<String, Integer> counts = new LinkedHashMap<>();
+    int count = 0;
+    long bytes = 0;
+    final int len = Math.min(fsCountsByTypeCode.length, tsi.getTypeArraySize());
+    for (int typeCode = 1; typeCode < len; typeCode++) {
+      final int n = fsCountsByTypeCode[typeCode];
+      if (n > 0) {
+        TypeImpl ti = tsi.getTypeForCode(typeCode);
+        counts.put(ti.getName(), n);
+        count += n;
+        bytes += n * fsBytes(ti);
+      }
+    }
+    this.fsCounts = Collections.unmodifiableMap(counts);
+    this.fsCount = count;
+    this.fsBytes = bytes;
+    this.arrayBytes = arrayBytes;
+    this.stringBytes = stringChars * Character.BYTES;
+    this.indexBytes = indexBytes;
+    this.sofaBytes = sofaBytes;
+  }
+
+  /**
+   * @return the number of FSs created since the last reset, by type name, excluding subtypes.
+   *         Types without FSs are omitted.
+   */
+  public Map<String, Integer> getFsCounts() {
+    return fsCounts;
+  }
+
+  /**
+   * @param typeName the name of a type
+   * @return the number of FSs of exactly that type created since the last reset
+   */
+  public int getFsCount(String typeName) {
+    Integer n = fsCounts.get(typeName);
+    return (null == n) ? 0 : n;
+  }
+
+  /**
+   * @return the number of FSs created since the last reset
+   */
+  public int getFsCount() {
+    return fsCount;
+  }
+
+  /**
+   * @return the estimated bytes of the FS objects, including their _intData and _refData arrays
+   *         which hold the feature values, but excluding the backing arrays of array FSs
+   */
+  public long getFsBytes() {
+    return fsBytes;
+  }
+
+  /**
+   * @return the estimated bytes of the backing arrays of array FSs
+   */
+  public long getArrayBytes() {
+    return arrayBytes;
+  }
+
+  /**
+   * @return the estimated bytes of the characters of the string feature and string array values
+   */
+  public long getStringBytes() {
+    return stringBytes;
+  }
+
+  /**
+   * @return the estimated bytes of the index structures of all views and, if enabled, the id to FS map;
+   *         this is their allocated capacity, which may be larger than needed for the indexed FSs
+   */
+  public long getIndexBytes() {
+    return indexBytes;
+  }
+
+  /**
+   * @return the estimated bytes of the local string data of the sofas of all views.
+   *         This is already included in the string bytes.
+   */
+  public long getSofaBytes() {
+    return sofaBytes;
+  }
+
+  /**
+   * @return the sum of the FS, array, string and index bytes
+   */
+  public long getTotalBytes() {
+    return fsBytes + arrayBytes + stringBytes + indexBytes;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("CasMemoryFootprint[fss=%,d, fsBytes=%,d, arrayBytes=%,d, stringBytes=%,d, "
+        + "indexBytes=%,d, sofaBytes=%,d, totalBytes=%,d]",
+        fsCount, fsBytes, arrayBytes, stringBytes, indexBytes, sofaBytes, getTotalBytes());
+  }
+
+  /**
+   * @param ti a type
+   * @return the estimated bytes of an FS of this type, excluding the backing array of an array FS
+   */
+  static long fsBytes(TypeImpl ti) {
+    long r = align(OBJECT_HEADER_BYTES + FS_FIELDS_BYTES + (ti.isArray() ? REFERENCE_BYTES : 0));
+    if (ti.nbrOfUsedIntDataSlots > 0) {
+      r += arrayBytes(ti.nbrOfUsedIntDataSlots, Integer.BYTES);
+    }
+    if (ti.nbrOfUsedRefDataSlots > 0) {
+      r += arrayBytes(ti.nbrOfUsedRefDataSlots, REFERENCE_BYTES);
+    }
+    return r;
+  }
+
+  /**
+   * @param length the length of a Java array
+   * @param elementBytes the bytes of an element
+   * @return the estimated bytes of the array
+   */
+  static long arrayBytes(int length, int elementBytes) {
+    return align(ARRAY_HEADER_BYTES + (long) length * elementBytes);
+  }
+
+  private static long align(long bytes) {
+    return (bytes + 7) & ~7L;
+  }
+}
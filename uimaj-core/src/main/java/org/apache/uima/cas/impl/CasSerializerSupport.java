@@ -19,6 +19,7 @@
 
 package org.apache.uima.cas.impl;
 
+import java.io.OutputStream;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -37,11 +38,15 @@ import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.TransformerFactory;
+
 import org.apache.uima.UimaSerializable;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.CASRuntimeException;
 import org.apache.uima.cas.FSIndex;
 import org.apache.uima.internal.util.Misc;
+import org.apache.uima.internal.util.Utf8XmlWriter;
 import org.apache.uima.internal.util.XmlElementName;
 import org.apache.uima.internal.util.function.Consumer_withSaxException;
 import org.apache.uima.jcas.cas.CommonList;
@@ -54,6 +59,7 @@ import org.apache.uima.jcas.cas.Sofa;
 import org.apache.uima.jcas.cas.TOP;
 import org.apache.uima.jcas.tcas.Annotation;
 import org.apache.uima.util.Logger;
+import org.apache.uima.util.XMLSerializer;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.ErrorHandler;
 import org.xml.sax.SAXException;
@@ -156,6 +162,20 @@ public class CasSerializerSupport {
   
   public static AtomicInteger errorCount = new AtomicInteger(0);
   
+  /**
+   * Define this JVM property to write unformatted XMI and XCAS to output streams through the
+   * JAXP Transformer (XMLSerializer), instead of writing the UTF-8 bytes directly.
+   */
+  public static final String DISABLE_DIRECT_XML_WRITER = "uima.disable_direct_xml_writer";
+  
+  /**
+   * The direct writer reproduces the JDK's built-in Transformer output;
+   * not used if some other TransformerFactory has been configured.
+   */
+  private static final boolean IS_DIRECT_XML_WRITER = 
+      !Misc.getNoValueSystemProperty(DISABLE_DIRECT_XML_WRITER) &&
+      TransformerFactory.newInstance().getClass().getName().startsWith("com.sun.org.apache.xalan.internal.");
+  
   /**
    * Comparator that just uses short name
    * Public for access by JsonCasSerializer where it's needed for a binary search
@@ -182,6 +202,26 @@ public class CasSerializerSupport {
 
   public CasSerializerSupport() {}
   
+  /**
+   * Get a content handler writing the XML for serialized CASes to a stream.
+   * Unformatted XML 1.0 is written directly as UTF-8, other output goes through an XMLSerializer.
+   * 
+   * @param aStream where the XML is written
+   * @param isFormattedOutput true to pretty print
+   * @param useXml_1_1 true to write XML 1.1
+   * @return a content handler which validates characters and writes the XML 
+   */
+  static ContentHandler createXmlContentHandler(OutputStream aStream, boolean isFormattedOutput, boolean useXml_1_1) {
+    if (IS_DIRECT_XML_WRITER && !isFormattedOutput && !useXml_1_1) {
+      return new Utf8XmlWriter(aStream, true);
+    }
+    XMLSerializer sax2xml = new XMLSerializer(aStream, isFormattedOutput);
+    if (useXml_1_1) {
+      sax2xml.setOutputProperty(OutputKeys.VERSION,"1.1");
+    }
+    return sax2xml.getContentHandler();
+  }
+  
   /********************************************************
    *   Routines to set/reset configuration                *
    ********************************************************/
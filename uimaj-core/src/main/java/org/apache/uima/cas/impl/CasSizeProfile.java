@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.uima.cas.CAS;
+
+/**
+ * Observed index sizes of the CASs of a pool, used to size the indexes of a CAS when it is reset
+ * for the next document.
+ *
+ * For each view name and type, the number of indexed FSs is kept as a decaying high-water mark:
+ * it is raised to any larger observed size, and otherwise drops by 1/8 each time a CAS is reset.
+ *
+ * When a CAS is reset, its flushed indexes are grown to the high-water marks, so in steady state
+ * they don't reallocate while a document is processed.  Indexes more than 4 times bigger than
+ * the high-water mark, left over from an unusually large document, are shrunk.
+ *
+ * All the CASs using one instance must share one type system.
+ * Thread safe.
+ */
+public class CasSizeProfile {
+
+  private final TypeSystemImpl tsi;
+
+  /** key is the view name, value is the high-water mark of the index size, indexed by type code */
+  private final Map<String, int[]> highWaterMarks = new HashMap<>();
+
+  /**
+   * @param aTs the type system of the CASs using this profile
+   */
+  public CasSizeProfile(TypeSystemImpl aTs) {
+    tsi = aTs;
+  }
+
+  /**
+   * Reset a CAS, updating the profile from the CAS's index sizes, and then sizing its indexes from the profile.
+   * @param aCas the CAS to reset; any view
+   */
+  public void resetAndPresize(CAS aCas) {
+    final CASImpl cas = ((CASImpl) aCas.getLowLevelCAS()).getBaseCAS();
+    if (cas.getTypeSystemImpl() != tsi) {
+      cas.reset();
+      return;
+    }
+
+    final List<FSIndexRepositoryImpl> repos = new ArrayList<>();
+    final List<String> viewNames = new ArrayList<>();
+    final List<int[]> sizes = new ArrayList<>();
+    Iterator<CAS> it = cas.getViewIterator();
+    while (it.hasNext()) {
+      CASImpl view = (CASImpl) it.next();
+      int[] viewSizes = new int[tsi.getTypeArraySize()];
+      view.indexRepository.getIndexSizesByType(viewSizes);
+      repos.add(view.indexRepository);
+      viewNames.add(view.getViewName());
+      sizes.add(viewSizes);
+    }
+
+    cas.reset();
+
+    for (int i = 0; i < repos.size(); i++) {
+      repos.get(i).presize(update(viewNames.get(i), sizes.get(i)));
+    }
+  }
+
+  /**
+   * @param aViewName a view name
+   * @param aTypeName a type name
+   * @return the current high-water mark for the number of indexed FSs of the type, excluding subtypes, in the view
+   */
+  public synchronized int getHighWaterMark(String aViewName, String aTypeName) {
+    int[] hwm = highWaterMarks.get(aViewName);
+    TypeImpl ti = tsi.getType(aTypeName);
+    return (null == hwm || null == ti) ? 0 : hwm[ti.getCode()];
+  }
+
+  /**
+   * @return a copy of the updated high-water marks for the view
+   */
+  private synchronized int[] update(String aViewName, int[] aSizes) {
+    int[] hwm = highWaterMarks.computeIfAbsent(aViewName, k -> new int[aSizes.length]);
+    for (int i = 0; i < hwm.length; i++) {
+      int decayed = hwm[i] - (hwm[i] >> 3);
+      hwm[i] = Math.max(aSizes[i], (decayed < 8) ? 0 : decayed);
+    }
+    return hwm.clone();
+  }
+}
@@ -54,6 +54,14 @@ class ConjunctiveConstraint implements FSMatchConstraint {
     this.c2 = c2;
   }
 
+  FSMatchConstraint getFirst() {
+    return this.c1;
+  }
+
+  FSMatchConstraint getSecond() {
+    return this.c2;
+  }
+
   public boolean match(FeatureStructure fs) {
     return (this.c1.match(fs) && this.c2.match(fs));
   }
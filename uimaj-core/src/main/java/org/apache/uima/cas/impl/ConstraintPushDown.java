@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.uima.cas.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.uima.cas.FSIntConstraint;
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.FSMatchConstraint;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.cas.admin.FSIndexComparator;
+import org.apache.uima.jcas.cas.TOP;
+
+/**
+ * Creates filtered iterators, pushing parts of the constraint down into the index being iterated over,
+ * when the iterator is a plain iterator over a sorted index.
+ * 
+ * The constraint is split into its conjuncts (ConjunctiveConstraint). Then
+ *   - a type constraint for a single type which is a subtype of the index type is replaced by 
+ *     iterating over the index for that subtype;  if it is the index type or one of its supertypes, it is dropped.
+ *   - int constraints on the first key of the index (e.g. begin, for annotation indexes) are replaced by
+ *     seeking to the start of the range of key values, and stopping at the end of the range.
+ *   
+ * The remaining conjuncts are evaluated per FS, as before.  
+ */
+final class ConstraintPushDown {
+  
+  private ConstraintPushDown() {} // no instances
+
+  static <T extends FeatureStructure> FSIterator<T> createFilteredIterator(CASImpl cas, FSIterator<T> it, FSMatchConstraint cons) {
+    if (!(it instanceof FsIterator_subtypes_ordered || it instanceof FsIterator_set_sorted2)) {
+      return new FilteredIterator<>(it, cons);
+    }
+    
+    List<FSMatchConstraint> conjuncts = new ArrayList<>();
+    addConjuncts(cons, conjuncts);
+    final int nbrConjuncts = conjuncts.size();
+    
+    LowLevelIterator<T> llit = (LowLevelIterator<T>) it;
+    
+    // type constraints
+    for (Iterator<FSMatchConstraint> ci = conjuncts.iterator(); ci.hasNext();) {
+      FSMatchConstraint c = ci.next();
+      if (!(c instanceof FSTypeConstraintImpl)) {
+        continue;
+      }
+      Set<String> typeNames = ((FSTypeConstraintImpl) c).getTypeNames();
+      if (typeNames.size() != 1) {
+        continue;
+      }
+      TypeImpl type = cas.getTypeSystemImpl().getType(typeNames.iterator().next());
+      if (type == null) {
+        continue;  // reported when evaluated
+      }
+      LowLevelIndex<T> idx = llit.ll_getIndex();
+      TypeImpl idxType = (TypeImpl) idx.getType();
+      if (type.subsumes(idxType)) {
+        ci.remove();  // always true
+      } else if (idxType.subsumes(type) && idx instanceof FsIndex_iicp) {
+        LowLevelIterator<T> subIt = subtypeIterator((FsIndex_iicp<T>) idx, type, llit.getComparator());
+        if (subIt != null) {
+          llit = subIt;
+          ci.remove();
+        }
+      }
+    }
+    
+    // range of the first key
+    FsIndex_singletype<T> st = singleTypeIndex(llit.ll_getIndex());
+    FeatureImpl keyFeature = (st == null) ? null : intFirstKey(st);
+    int keyLow = Integer.MIN_VALUE;
+    int keyHigh = Integer.MAX_VALUE;
+    boolean hasRange = false;
+    if (keyFeature != null) {
+      for (Iterator<FSMatchConstraint> ci = conjuncts.iterator(); ci.hasNext();) {
+        FSMatchConstraint c = ci.next();
+        if (!(c instanceof IntConstraint)) {
+          continue;
+        }
+        IntConstraint ic = (IntConstraint) c;
+        FSIntConstraint fsic = ic.getIntConstraint(); 
+        if (ic.getPath().size() != 1 || 
+            !ic.getPath().get(0).equals(keyFeature.getShortName()) ||
+            !(fsic instanceof FSIntConstraintImpl)) {
+          continue;
+        }
+        int[] range = ((FSIntConstraintImpl) fsic).getRange();
+        keyLow = Math.max(keyLow, range[0]);
+        keyHigh = Math.min(keyHigh, range[1]);
+        hasRange = true;
+        ci.remove();
+      }
+    }
+    
+    if (conjuncts.size() == nbrConjuncts) {
+      return new FilteredIterator<>(it, cons);  // nothing pushed down
+    }
+    
+    FSMatchConstraint residual = null;
+    for (FSMatchConstraint c : conjuncts) {
+      residual = (residual == null) ? c : new ConjunctiveConstraint(residual, c);
+    }
+    
+    if (!hasRange) {
+      if (residual == null) {
+        llit.moveToFirst();  // as a filtered iterator would be
+        return llit;
+      }
+      return new FilteredIterator<>(llit, residual);
+    }
+    
+    TOP lowTemplate = (keyLow == Integer.MIN_VALUE) ? null : makeTemplate(cas, st, keyFeature, keyLow);
+    TOP highTemplate = (keyHigh == Integer.MAX_VALUE || keyLow > keyHigh) 
+                         ? null 
+                         : makeTemplate(cas, st, keyFeature, keyHigh + 1);
+    return new FilteredIterator<>(llit, residual, keyFeature, keyLow, keyHigh, lowTemplate, highTemplate);
+  }
+  
+  private static void addConjuncts(FSMatchConstraint cons, List<FSMatchConstraint> conjuncts) {
+    if (cons instanceof ConjunctiveConstraint) {
+      addConjuncts(((ConjunctiveConstraint) cons).getFirst(), conjuncts);
+      addConjuncts(((ConjunctiveConstraint) cons).getSecond(), conjuncts);
+    } else {
+      conjuncts.add(cons);
+    }
+  }
+  
+  /**
+   * @return an iterator over the subtype's part of the index, ordered the same way as the iterator 
+   *         having the comparator, or null if the ordering can't be matched
+   */
+  private static <T extends FeatureStructure> LowLevelIterator<T> subtypeIterator(
+      FsIndex_iicp<T> iicp, TypeImpl type, Comparator<TOP> comparator) {
+    FsIndex_singletype<T> st = iicp.fsIndex_singletype;
+    boolean ignoreType;
+    if (comparator == st.comparatorWithoutID) {
+      ignoreType = false;
+    } else if (comparator == st.comparatorNoTypeWithoutID) {
+      ignoreType = true;
+    } else {
+      return null;
+    }
+    LowLevelIndex<T> subIndex = iicp.getSubIndex(type);
+    return (subIndex == null) ? null : subIndex.iterator(false, ignoreType);
+  }
+  
+  private static <T extends FeatureStructure> FsIndex_singletype<T> singleTypeIndex(LowLevelIndex<T> idx) {
+    if (idx instanceof FsIndex_iicp) {
+      return ((FsIndex_iicp<T>) idx).fsIndex_singletype;
+    }
+    return (idx instanceof FsIndex_singletype) ? (FsIndex_singletype<T>) idx : null;
+  }
+  
+  /**
+   * @return the first key of a sorted index, if it is an int feature sorted in ascending order, otherwise null
+   */
+  private static FeatureImpl intFirstKey(FsIndex_singletype<?> st) {
+    if (!st.isSorted()) {
+      return null;
+    }
+    FSIndexComparator comp = st.getComparatorForIndexSpecs();
+    if (comp.getNumberOfKeys() == 0 ||
+        comp.getKeyType(0) != FSIndexComparator.FEATURE_KEY ||
+        comp.getKeyComparator(0) != FSIndexComparator.STANDARD_COMPARE) {
+      return null;
+    }
+    FeatureImpl fi = (FeatureImpl) comp.getKeyFeature(0);
+    return (fi.getRangeImpl().getCode() == TypeSystemConstants.intTypeCode) ? fi : null;
+  }
+  
+  /**
+   * An FS positioned at the start of the FSs with the key value. 
+   * For annotation indexes, end is set to the maximum, which sorts first for equal begins.
+   */
+  private static TOP makeTemplate(CASImpl cas, FsIndex_singletype<?> st, FeatureImpl keyFeature, int keyValue) {
+    TOP template = cas.createFS(st.getType());
+    template._setIntValueNcNj(keyFeature, keyValue);
+    if (st.isAnnotIdx) {
+      template._setIntValueNcNj(cas.getTypeSystemImpl().endFeat, Integer.MAX_VALUE);
+    }
+    return template;
+  }
+}
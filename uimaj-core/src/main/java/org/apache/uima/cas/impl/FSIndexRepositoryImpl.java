@@ -19,6 +19,7 @@
 
 package org.apache.uima.cas.impl;
 
+import java.lang.reflect.Array;
 import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.BitSet;
@@ -252,6 +253,11 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
       case FSIndex.SET_INDEX:
         hasSetIndex = true;
         break;
+      case FSIndex.HASH_INDEX:  // holds all FSs, like a bag
+        if (aBagIndex == -1) {  // real bag indexes have priority
+          aBagIndex = i;
+        }
+        break;
       default: Misc.internalError();
       }
       indexesForType.add(iicp);
@@ -677,7 +683,53 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
     this.logProcessed = false;
     this.usedIndexes.removeAllElements();
   }
-  
+
+  /**
+   * For adaptive CAS presizing: get the number of indexed FSs of each type, excluding subtypes, in this view.
+   * @param sizes indexed by type code; the entries for types having indexed FSs are set
+   */
+  void getIndexSizesByType(int[] sizes) {
+    for (int i = 0; i < this.usedIndexes.size(); i++) {
+      sizes[this.usedIndexes.get(i)] = getNonSetSingleIndexForUsedType(i).size();
+    }
+  }
+
+  /**
+   * For memory accounting: the estimated bytes of all the indexes of this view, including empty ones
+   * @return the sum of the estimated bytes of the indexes
+   */
+  long getEstimatedBytes() {
+    long r = 0;
+    if (null == indexArray) {
+      return r;
+    }
+    for (IndexesForType ift : indexArray) {
+      if (null != ift) {
+        for (FsIndex_iicp<?> iicp : ift.indexesForType) {
+          r += iicp.fsIndex_singletype.estimatedBytes();
+        }
+      }
+    }
+    return r;
+  }
+
+  /**
+   * For adaptive CAS presizing: size the flushed indexes for the expected number of FSs of each type.
+   * An expected size of 0 shrinks indexes grown by earlier documents back to their default size.
+   * @param expectedSizes indexed by type code, the expected number of FSs of that type, excluding subtypes
+   */
+  void presize(int[] expectedSizes) {
+    final int len = Math.min(expectedSizes.length, indexArray.length);
+    for (int typeCode = 1; typeCode < len; typeCode++) {
+      final int expectedSize = expectedSizes[typeCode];
+      if (!isUsed.get(typeCode)) {
+        for (FsIndex_iicp<?> iicp : indexArray[typeCode].indexesForType) {
+          iicp.fsIndex_singletype.presize(expectedSize);
+        }
+      }
+    }
+  }
+
 //  // for now, with flattened index optimization disabled, this should be a no-op
 //  private void clearIteratedSortedIndexes() {
 //    int sz = iteratedSortedIndexes.size();
@@ -776,6 +828,10 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
       ind = new FsIndex_bag<>(this.cas, type, initialSize, indexingStrategy, comparatorForIndexSpecs);
       break;
     
+    case FSIndex.HASH_INDEX:
+      ind = new FsIndex_hash<>(this.cas, type, initialSize, comparatorForIndexSpecs);
+      break;
+    
     default: 
       // SORTED_INDEX is the default. We don't throw any errors, if the code is unknown, we just create a sorted index.
       ind = new FsIndex_set_sorted<>(this.cas, type, FSIndex.SORTED_INDEX, comparatorForIndexSpecs); // true = is sorted
@@ -1411,7 +1467,7 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
       if (bi < 0 && !i4t.hasSetIndex) {
         return false;  // no indexes defined for this type
       }
-      if (bi >= 0 && !i4t.indexesForType.get(bi).fsIndex_singletype.contains(fs)) {
+      if (bi >= 0 && !((FsIndex_bag<TOP>)i4t.indexesForType.get(bi).fsIndex_singletype).containsIdentical(fs)) {
         return false;  // not in defined bag index
       }
     }
@@ -1421,7 +1477,7 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
      */
     for (FsIndex_iicp<TOP> iicp : indexes4type) {
       FsIndex_singletype<TOP> st = iicp.fsIndex_singletype;
-      if (skipBagIndexes && !st.isSetOrSorted()) {
+      if (skipBagIndexes && !st.isKeyed()) {
         continue;
       }
       if (st.deleteFS(fs)) {
@@ -1626,8 +1682,14 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
        * @see java.util.AbstractCollection#toArray(java.lang.Object[])
        */
       @Override
-      public <U> U[] toArray(U[] r) {
-        
+      public <U> U[] toArray(U[] a) {
+        final int sz = size();
+        final U[] r = (a.length >= sz)
+                        ? a
+                        : (U[]) Array.newInstance(a.getClass().getComponentType(), sz);
+        if (r.length > sz) {
+          r[sz] = null;  // per the Collection contract
+        }
         int i = 0;
         for (CopyOnWriteIndexPart<T> idx : indexes) {
           i = idx.copyToArray( (T[]) r, i);
@@ -149,6 +149,29 @@ class FSIntConstraintImpl implements FSIntConstraint {
     this.values.add(i);
   }
 
+  /**
+   * @return the smallest and largest values matched, inclusive; the range is empty if the first is larger
+   */
+  int[] getRange() {
+    long lo = Integer.MIN_VALUE;
+    long hi = Integer.MAX_VALUE;
+    for (int i = 0; i < this.codes.size(); i++) {
+      final long v = this.values.get(i);
+      switch (this.codes.get(i)) {
+        case LT:  hi = Math.min(hi, v - 1); break;
+        case LEQ: hi = Math.min(hi, v);     break;
+        case EQ:  lo = Math.max(lo, v); hi = Math.min(hi, v); break;
+        case GEQ: lo = Math.max(lo, v);     break;
+        case GT:  lo = Math.max(lo, v + 1); break;
+        default: throw new Error("Internal error.");
+      }
+    }
+    if (lo > hi) {
+      return new int[] { 1, 0 };  // empty
+    }
+    return new int[] { (int) lo, (int) hi };
+  }
+
   public String toString() {
     if (this.codes.size() == 1) {
       return FSFloatConstraintImpl.toString(this.codes.get(0)) + " "
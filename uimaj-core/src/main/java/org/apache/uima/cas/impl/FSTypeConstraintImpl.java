@@ -71,6 +71,13 @@ class FSTypeConstraintImpl implements FSTypeConstraint {
 		}
 	}
 
+	/**
+	 * @return the names of the types, any of which matches
+	 */
+	Set<String> getTypeNames() {
+		return nameSet;
+	}
+
 	public void add(Type type) {
 		this.ts = null; // This will force a recompile.
 		nameSet.add(type.getName());
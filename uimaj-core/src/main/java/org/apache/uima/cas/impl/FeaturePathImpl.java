@@ -84,6 +84,57 @@ class FeaturePathImpl implements FeaturePath {
    */
   private TypeImpl boundBaseType = null;
 
+  /**
+   * Compiled form of the path, or null.
+   * Set up when every feature in the path is defined for the starting type (PathValid.ALWAYS),
+   * by typeInit or by the first evaluation.  Evaluation of FSs of that type (or subtypes)
+   * then skips the per step feature lookup, domain checks, and type class dispatch. 
+   */
+  private CompiledPath compiledPath = null;
+  
+  private static final int STEP_FS = 0;         // step to the FS value, continue
+  private static final int STEP_PRIMITIVE = 1;  // last step, the value is a primitive in the current FS 
+  private static final int STEP_ARRAY = 2;      // last step, the value is an array
+
+  /**
+   * The features of the path resolved for a starting type, with the kind of step for each. 
+   */
+  private static final class CompiledPath {
+    final TypeImpl baseType;
+    final FeatureImpl[] features;
+    final TypeImpl[] ranges;
+    final int[] stepKinds;
+    
+    CompiledPath(TypeImpl baseType, ArrayList<FeatureImpl> boundFeatures) {
+      this.baseType = baseType;
+      final int n = boundFeatures.size();
+      features = boundFeatures.toArray(new FeatureImpl[n]);
+      ranges = new TypeImpl[n];
+      stepKinds = new int[n];
+      for (int i = 0; i < n; i++) {
+        ranges[i] = features[i].getRangeImpl();
+        switch (TypeSystemImpl.getTypeClass(ranges[i])) {
+        case LowLevelCAS.TYPE_CLASS_FS:
+          stepKinds[i] = STEP_FS;
+          break;
+        case LowLevelCAS.TYPE_CLASS_BOOLEANARRAY:
+        case LowLevelCAS.TYPE_CLASS_BYTEARRAY:
+        case LowLevelCAS.TYPE_CLASS_DOUBLEARRAY:
+        case LowLevelCAS.TYPE_CLASS_FLOATARRAY:
+        case LowLevelCAS.TYPE_CLASS_FSARRAY:
+        case LowLevelCAS.TYPE_CLASS_INTARRAY:
+        case LowLevelCAS.TYPE_CLASS_LONGARRAY:
+        case LowLevelCAS.TYPE_CLASS_SHORTARRAY:
+        case LowLevelCAS.TYPE_CLASS_STRINGARRAY:
+          stepKinds[i] = STEP_ARRAY;
+          break;
+        default:
+          stepKinds[i] = STEP_PRIMITIVE;
+        }
+      }
+    }
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -100,6 +151,7 @@ class FeaturePathImpl implements FeaturePath {
     }
 
     // add feature to feature path
+    this.compiledPath = null;
     this.featurePathElementNames.add(feat.getShortName());
     this.boundFeatures.add((FeatureImpl) feat);
 
@@ -143,6 +195,7 @@ class FeaturePathImpl implements FeaturePath {
 
     this.builtInFunction = NO_BUILT_IN_FUNCTION;
     this.originalBuiltInName = null;
+    this.compiledPath = null;
 
     // throw exception if featurePath is null
     if (featurePath == null) {
@@ -206,6 +259,7 @@ class FeaturePathImpl implements FeaturePath {
   public void typeInit(Type typeAtStartOfFeaturePath) throws CASException {
     
     this.boundBaseType = (TypeImpl) typeAtStartOfFeaturePath;
+    this.compiledPath = null;
 
     // do feature path type initialization only if a featurePath is available
     if (this.featurePathElementNames.size() > 0) {
@@ -241,9 +295,32 @@ class FeaturePathImpl implements FeaturePath {
             break;
           }
         }
+        if (this.boundFeatures.size() == this.featurePathElementNames.size()) {
+          compileIfAlwaysValid();
+        }
       }
     }
   }
+  
+  /**
+   * Compile the path for the boundBaseType, if all the features are always present.
+   * Binds all the features if compiled.
+   * @return true if compiled
+   */
+  private boolean compileIfAlwaysValid() {
+    if (PathValid.ALWAYS != TypeSystemUtils.isPathValid(boundBaseType, featurePathElementNames)) {
+      return false;
+    }
+    boundFeatures.clear();
+    TypeImpl currentType = boundBaseType;
+    for (String featName : featurePathElementNames) {
+      FeatureImpl fi = currentType.getFeatureByBaseName(featName);
+      boundFeatures.add(fi);
+      currentType = fi.getRangeImpl();
+    }
+    compiledPath = new CompiledPath(boundBaseType, boundFeatures);
+    return true;
+  }
 
   /*
    * (non-Javadoc)
@@ -563,10 +640,20 @@ class FeaturePathImpl implements FeaturePath {
     
     // we have a feature path that must be evaluated
     
+    final CompiledPath cp = compiledPath;
+    if (cp != null && cp.baseType.subsumes(fs._getTypeImpl())) {
+      return getTargetFsCompiled(cp, fs);
+    }
+    
+    final boolean isFirstEvaluation = (boundBaseType == null);
     if (boundBaseType == null || !boundBaseType.subsumes(fs._getTypeImpl())) {
       boundFeatures.clear();  // reset if supplied FS not the one the features were calculated for.
       boundBaseType = fs._getTypeImpl();
     }
+    
+    if (isFirstEvaluation && compileIfAlwaysValid()) {
+      return getTargetFsCompiled(compiledPath, fs);
+    }
          
     // set current FS values
     TOP currentFs = fs;
@@ -650,6 +737,34 @@ class FeaturePathImpl implements FeaturePath {
 
     return currentFs;
   }
+  
+  /**
+   * Same as getTargetFs, for a compiled path and an FS whose type is subsumed by the compiled path's base type.
+   * The features are all valid for the FSs along the path, so their values are read directly.
+   * @param cp the compiled path
+   * @param fs the non-null FS to start from
+   * @return the same as getTargetFs
+   */
+  private TOP getTargetFsCompiled(CompiledPath cp, TOP fs) {
+    final FeatureImpl[] features = cp.features;
+    TOP currentFs = fs;
+    for (int i = 0; i < features.length; i++) {
+      targetFeature = features[i];
+      targetType = cp.ranges[i];
+      switch (cp.stepKinds[i]) {
+      case STEP_PRIMITIVE:
+        return currentFs;
+      case STEP_ARRAY:
+        return currentFs._getFeatureValueNc(targetFeature);
+      default: // STEP_FS
+        currentFs = currentFs._getFeatureValueNc(targetFeature);
+        if (currentFs == null) {
+          return null;
+        }
+      }
+    }
+    return currentFs;
+  }
 
   private void setTargetFeature(TOP currentFs, int i) {
     targetFeature = currentFs._getTypeImpl().getFeatureByBaseName(featurePathElementNames.get(i));
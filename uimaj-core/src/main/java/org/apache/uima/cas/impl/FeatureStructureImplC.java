@@ -103,6 +103,7 @@ public class FeatureStructureImplC implements FeatureStructureImpl {
   private static final int _BIT_IN_SET_SORTED_INDEX = 1;
   private static final int _BIT_PEAR_TRAMPOLINE = 2;
   private static final int _BIT_JCASHASHMAP_RESERVE = 4;
+  private static final int _BIT_PINNED = 8;
       
   
   // data storage
@@ -1605,6 +1606,17 @@ public class FeatureStructureImplC implements FeatureStructureImpl {
     return (_flags & _BIT_PEAR_TRAMPOLINE) != 0;
   }
   
+  /**
+   * Marks this FS as held in the id to FS map because its id was handed out by the low level APIs
+   */
+  protected void _setPinned() {
+    _flags |= _BIT_PINNED;
+  }
+  
+  protected boolean _isPinned() {
+    return (_flags & _BIT_PINNED) != 0;
+  }
+  
   protected FeatureImpl _getFeatFromAdjOffset(int adjOffset, boolean isInInt) {
     return _typeImpl.getFeatureByAdjOffset(adjOffset, isInInt);
   }
@@ -1650,7 +1662,11 @@ public class FeatureStructureImplC implements FeatureStructureImpl {
   }
   
   public void  _setRefValueCommon(int adjOffset, Object v) {
+    final Object prev = _refData[adjOffset /*+ _getRefDataArrayOffset()*/];
     _refData[adjOffset /*+ _getRefDataArrayOffset()*/] = v;
+    if (prev instanceof String || v instanceof String) {
+      _casView.updateStringChars(prev, v);
+    }
     if (traceFSs) {
       _casView.traceFSfeat(this, _getFeatFromAdjOffset(adjOffset, false), v);
     }
@@ -1771,8 +1787,9 @@ public class FeatureStructureImplC implements FeatureStructureImpl {
     if (src._refData != null && _refData != null) {
 //      System.arraycopy(src._refData, src._getRefDataArrayOffset(), _refData, _getRefDataArrayOffset(), 
 //          Math.min(src._typeImpl.nbrOfUsedRefDataSlots, _typeImpl.nbrOfUsedRefDataSlots));
-      System.arraycopy(src._refData, 0, _refData, 0, 
-          Math.min(src._refData.length, _refData.length));
+      final int length = Math.min(src._refData.length, _refData.length);
+      _casView.updateStringChars(_refData, 0, src._refData, 0, length);
+      System.arraycopy(src._refData, 0, _refData, 0, length);
     }
   }
  
@@ -1787,6 +1804,7 @@ public class FeatureStructureImplC implements FeatureStructureImpl {
      }
     if (_refData != null) {
 //      System.arraycopy(src._refData, src._getRefDataArrayOffset(), _refData, _getRefDataArrayOffset(), _typeImpl.nbrOfUsedRefDataSlots);
+      _casView.updateStringChars(_refData, 0, src._refData, 0, _typeImpl.nbrOfUsedRefDataSlots);
       System.arraycopy(src._refData, 0, _refData, 0, _typeImpl.nbrOfUsedRefDataSlots);
     }
   }
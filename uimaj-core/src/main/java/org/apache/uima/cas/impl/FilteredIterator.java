@@ -36,9 +36,23 @@ class FilteredIterator<T extends FeatureStructure> implements LowLevelIterator<T
   // The base iterator.
   private LowLevelIterator<T> it;
 
-  // The filter constraint.
+  // The filter constraint, or null if everything in the key range matches
   private FSMatchConstraint cons;
 
+  /*
+   * Optional key range, pushed down into the base iterator.
+   * The base iterator is over a sorted index whose first key is keyFeature (ascending), so
+   * the FSs in the range are contiguous, and iteration starts and stops by seeking.
+   */
+  private FeatureImpl keyFeature = null;  // null if no key range
+  private int keyLow;                     // inclusive
+  private int keyHigh;                    // inclusive
+  private TOP lowTemplate;                // key value keyLow, or null if keyLow is Integer.MIN_VALUE
+  private TOP highTemplate;               // key value keyHigh + 1, or null if keyHigh is Integer.MAX_VALUE
+  
+  // true when the base iterator is positioned outside of the key range
+  private boolean isOutOfRange = false;
+
   // Private...
   private FilteredIterator() {
     super();
@@ -53,16 +67,43 @@ class FilteredIterator<T extends FeatureStructure> implements LowLevelIterator<T
     this.cons = cons;
     moveToFirst();
   }
+  
+  /**
+   * Create a filtered iterator over the part of a base iterator within a key range.
+   * @param it iterator over a sorted index, whose first key is keyFeature
+   * @param cons the constraint for FSs within the key range, or null to match all of them
+   * @param keyFeature an int valued feature, the first key of the index
+   * @param keyLow the lowest key value to include
+   * @param keyHigh the highest key value to include
+   * @param lowTemplate an FS having the key value keyLow, or null if keyLow is Integer.MIN_VALUE
+   * @param highTemplate an FS having the key value keyHigh + 1, or null if keyHigh is Integer.MAX_VALUE
+   */
+  FilteredIterator(FSIterator<T> it, FSMatchConstraint cons, 
+      FeatureImpl keyFeature, int keyLow, int keyHigh, TOP lowTemplate, TOP highTemplate) {
+    this();
+    this.it = (LowLevelIterator<T>) it;
+    this.cons = cons;
+    this.keyFeature = keyFeature;
+    this.keyLow = keyLow;
+    this.keyHigh = keyHigh;
+    this.lowTemplate = lowTemplate;
+    this.highTemplate = highTemplate;
+    moveToFirst();
+  }
 
   public boolean isValid() {
     // We always make sure that the underlying iterator is either pointing
     // at an FS
     // that matches the constraint, or is not valid. Thus, for isValid(), we
     // can simply refer to the underlying iterator.
-    return this.it.isValid();
+    return !this.isOutOfRange && this.it.isValid();
   }
   
   private void adjustForConstraintForward() {
+    if (this.keyFeature != null) {
+      adjustForRangeAndConstraintForward();
+      return;
+    }
     // If the iterator is valid, but doesn't match the constraint, advance.
     while (this.it.isValid() && !this.cons.match(this.it.get())) {
       this.it.moveToNext();
@@ -70,20 +111,115 @@ class FilteredIterator<T extends FeatureStructure> implements LowLevelIterator<T
   }
   
   private void adjustForConstraintBackward() {
+    if (this.keyFeature != null) {
+      adjustForRangeAndConstraintBackward();
+      return;
+    }
     // If the iterator is valid, but doesn't match the constraint, advance.
     while (this.it.isValid() && !this.cons.match(this.it.get())) {
       this.it.moveToPrevious();
     }    
   }
   
+  private void adjustForRangeAndConstraintForward() {
+    while (this.it.isValid()) {
+      T fs = this.it.get();
+      if (key(fs) > this.keyHigh) {
+        this.isOutOfRange = true;  // the rest of the index is past the range
+        return;
+      }
+      if (this.cons == null || this.cons.match(fs)) {
+        return;
+      }
+      this.it.moveToNext();
+    }
+  }
+
+  private void adjustForRangeAndConstraintBackward() {
+    while (this.it.isValid()) {
+      T fs = this.it.get();
+      if (key(fs) < this.keyLow) {
+        this.isOutOfRange = true;  // the rest of the index is before the range
+        return;
+      }
+      if (this.cons == null || this.cons.match(fs)) {
+        return;
+      }
+      this.it.moveToPrevious();
+    }
+  }
+  
+  private boolean isEmptyRange() {
+    return this.keyFeature != null && this.keyLow > this.keyHigh;
+  }
+  
+  private int key(T fs) {
+    return ((TOP) fs)._getIntValueNc(this.keyFeature);
+  }
+  
+  /**
+   * Position the base iterator at the first FS with a key &gt;= keyLow, or invalid
+   */
+  private void seekLow() {
+    if (this.lowTemplate == null) {
+      this.it.moveToFirstNoReinit();
+      return;
+    }
+    this.it.moveToNoReinit(this.lowTemplate);
+    // other keys may sort the template after some FSs having the keyLow value; back up over them
+    if (!this.it.isValid()) {
+      this.it.moveToLastNoReinit();
+    }
+    while (this.it.isValid() && key(this.it.getNvc()) >= this.keyLow) {
+      this.it.moveToPreviousNvc();
+    }
+    if (this.it.isValid()) {
+      this.it.moveToNextNvc();
+    } else {
+      this.it.moveToFirstNoReinit();
+    }
+  }
+
+  /**
+   * Position the base iterator at the last FS with a key &lt;= keyHigh, or invalid
+   */
+  private void seekHigh() {
+    if (this.highTemplate == null) {
+      this.it.moveToLastNoReinit();
+      return;
+    }
+    this.it.moveToNoReinit(this.highTemplate);
+    if (!this.it.isValid()) {
+      this.it.moveToLastNoReinit();
+    }
+    while (this.it.isValid() && key(this.it.getNvc()) > this.keyHigh) {
+      this.it.moveToPreviousNvc();
+    }
+  }
 
   public void moveToFirstNoReinit() {
-    this.it.moveToFirstNoReinit();
+    this.isOutOfRange = isEmptyRange();
+    if (this.isOutOfRange) {
+      return;
+    }
+    if (this.keyFeature != null) {
+      seekLow();
+    } else {
+      this.it.moveToFirstNoReinit();
+    }
     adjustForConstraintForward();
   }
 
   public void moveToLastNoReinit() {
-    this.it.moveToLast();
+    this.isOutOfRange = isEmptyRange();
+    if (this.isOutOfRange) {
+      return;
+    }
+    if (this.keyFeature != null) {
+      seekHigh();
+    } else {
+      this.it.moveToLast();
+    }
     adjustForConstraintBackward();
   }
 
@@ -105,14 +241,24 @@ class FilteredIterator<T extends FeatureStructure> implements LowLevelIterator<T
    * @see org.apache.uima.cas.FSIterator#copy()
    */
   public FilteredIterator<T> copy() {
-    return new FilteredIterator<>(this.it.copy(), this.cons);
+    return (this.keyFeature == null) 
+        ? new FilteredIterator<>(this.it.copy(), this.cons)
+        : new FilteredIterator<>(this.it.copy(), this.cons, 
+              this.keyFeature, this.keyLow, this.keyHigh, this.lowTemplate, this.highTemplate);
   }
 
   /**
    * @see org.apache.uima.cas.FSIterator#moveTo(FeatureStructure)
    */
   public void moveToNoReinit(FeatureStructure fs) {
+    this.isOutOfRange = isEmptyRange();
+    if (this.isOutOfRange) {
+      return;
+    }
     this.it.moveToNoReinit(fs);
+    if (this.keyFeature != null && this.it.isValid() && key(this.it.getNvc()) < this.keyLow) {
+      seekLow();
+    }
     adjustForConstraintForward();
   }
   
@@ -22,6 +22,7 @@ package org.apache.uima.cas.impl;
 import java.util.Collection;
 import java.util.List;
 
+import org.apache.uima.cas.FSIndex;
 import org.apache.uima.cas.FeatureStructure;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.admin.FSIndexComparator;
@@ -56,7 +57,9 @@ public class FsIndex_bag<T extends FeatureStructure> extends FsIndex_singletype<
 //  private WeakReference<CopyOnWriteObjHashSet<TOP>> cow = null;
   
   FsIndex_bag(CASImpl cas, Type type, int initialSize, int indexType, FSIndexComparator comparatorForIndexSpecs) {
-    super(cas, type, indexType, cleanUpComparator(comparatorForIndexSpecs, cas));
+    super(cas, type, indexType, (indexType == FSIndex.HASH_INDEX) 
+                                  ? comparatorForIndexSpecs  // hash indexes keep their keys
+                                  : cleanUpComparator(comparatorForIndexSpecs, cas));
     this.index = new ObjHashSet<>(initialSize, TOP.class, TOP._singleton);
   }
 
@@ -82,9 +85,19 @@ public class FsIndex_bag<T extends FeatureStructure> extends FsIndex_singletype<
     super.flush();
     index.clear();
   }
+  
+  @Override
+  void presize(int expectedSize) {
+    index.presize(expectedSize);
+  }
+
+  @Override
+  long estimatedBytes() {
+    return CasMemoryFootprint.arrayBytes(index.getCapacity(), CasMemoryFootprint.REFERENCE_BYTES);
+  }
 
   @Override
-  public final void insert(T fs) {
+  public void insert(T fs) {
     maybeCopy();
     index.add((TOP) fs);
   }
@@ -147,6 +160,14 @@ public class FsIndex_bag<T extends FeatureStructure> extends FsIndex_singletype<
     return this.index.contains(fs);
   }
     
+  /**
+   * @param fs -
+   * @return true if this exact fs is in the index
+   */
+  final boolean containsIdentical(FeatureStructure fs) {
+    return this.index.contains(fs);
+  }
+
   boolean ll_contains(int fsAddr) {
     return contains(casImpl.getFsFromId_checked(fsAddr));
   }
@@ -206,7 +227,7 @@ public class FsIndex_bag<T extends FeatureStructure> extends FsIndex_singletype<
   @Override
   public LowLevelIterator<T> iterator(boolean orderNotNeeded, boolean ignoreType) {
     CopyOnWriteIndexPart<T> cow_index_wrapper = getNonNullCow();
-    return casImpl.inPearContext()
+    return casImpl.isPearOverride(type)
              ? new FsIterator_bag_pear<>(this, type, cow_index_wrapper)
              : new FsIterator_bag     <>(this, type, cow_index_wrapper);
   }
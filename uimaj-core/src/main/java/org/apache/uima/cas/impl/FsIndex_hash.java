@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.uima.cas.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.uima.cas.FSIndex;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.admin.FSIndexComparator;
+import org.apache.uima.jcas.cas.TOP;
+
+/**
+ * Used for UIMA FS Hash Indexes
+ * 
+ * Holds all instances, like a bag index, and in addition a hash map from the values of the 
+ * key features to the instances having those values.  This makes find / contains, and
+ * getting all FSs with a given key, O(1) instead of a scan or a binary search.
+ * 
+ * The map is maintained incrementally on insert and deleteFS.  Key features are protected like
+ * the keys of Set and Sorted indexes, so an FS is removed and added back when its key changes.
+ * 
+ * Only feature keys are used; type order keys are ignored.  Iteration is unordered, as for bag indexes.
+ * 
+ * @param <T> the Java cover class type for this index, passed along to (wrapped) iterators producing Java cover classes
+ */
+public class FsIndex_hash<T extends FeatureStructure> extends FsIndex_bag<T> {
+
+  /** the key features, in the order of the index definition */
+  final private FeatureImpl[] keyFeatures;
+  
+  /** the range type codes of the keyFeatures */
+  final private int[] keyRangeCodes;
+  
+  /** 
+   * key to FSs having that key.
+   * The value is a TOP, or an ArrayList&lt;TOP&gt; if more than one FS has the same key
+   */
+  final private Map<Object, Object> keyToFss;
+
+  FsIndex_hash(CASImpl cas, Type type, int initialSize, FSIndexComparator comparatorForIndexSpecs) {
+    super(cas, type, initialSize, FSIndex.HASH_INDEX, comparatorForIndexSpecs);
+    this.keyToFss = new HashMap<>(Math.max(16, initialSize));
+    
+    FSIndexComparator comp = getComparatorForIndexSpecs();
+    List<FeatureImpl> feats = new ArrayList<>();
+    for (int i = 0; i < comp.getNumberOfKeys(); i++) {
+      if (comp.getKeyType(i) == FSIndexComparator.FEATURE_KEY) {
+        feats.add((FeatureImpl) comp.getKeyFeature(i));
+      }
+    }
+    this.keyFeatures = feats.toArray(new FeatureImpl[feats.size()]);
+    this.keyRangeCodes = new int[keyFeatures.length];
+    for (int i = 0; i < keyFeatures.length; i++) {
+      keyRangeCodes[i] = keyFeatures[i].getRangeImpl().getCode();
+    }
+  }
+
+  @Override
+  public void flush() {
+    super.flush();
+    keyToFss.clear();
+  }
+
+  @Override
+  long estimatedBytes() {
+    return super.estimatedBytes() + (long) keyToFss.size() * CasMemoryFootprint.HASH_ENTRY_BYTES;
+  }
+
+  @Override
+  public void insert(T fs) {
+    super.insert(fs);
+    TOP tfs = (TOP) fs;
+    Object key = keyOf(tfs);
+    Object v = keyToFss.get(key);
+    if (null == v) {
+      keyToFss.put(key, tfs);
+    } else if (v instanceof TOP) {
+      ArrayList<TOP> fss = new ArrayList<>(2);
+      fss.add((TOP) v);
+      fss.add(tfs);
+      keyToFss.put(key, fss);
+    } else {
+      ((ArrayList<TOP>) v).add(tfs);
+    }
+  }
+
+  @Override
+  public boolean deleteFS(T fs) {
+    if (!super.deleteFS(fs)) {
+      return false;
+    }
+    TOP tfs = (TOP) fs;
+    if (!removeFromMap(keyOf(tfs), tfs)) {
+      // key was modified while indexed, with index protection disabled; find it the slow way
+      for (Object key : new ArrayList<>(keyToFss.keySet())) {
+        if (removeFromMap(key, tfs)) {
+          break;
+        }
+      }
+    }
+    return true;
+  }
+  
+  private boolean removeFromMap(Object key, TOP fs) {
+    Object v = keyToFss.get(key);
+    if (v == fs) {
+      keyToFss.remove(key);
+      return true;
+    }
+    if (v instanceof ArrayList) {
+      ArrayList<TOP> fss = (ArrayList<TOP>) v;
+      for (int i = 0; i < fss.size(); i++) {
+        if (fss.get(i) == fs) {
+          fss.remove(i);
+          if (fss.size() == 1) {
+            keyToFss.put(key, fss.get(0));
+          }
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @param fs A Feature Structure used as a template, only its key feature values are used
+   * @return an arbitrary FS in this index having the same key values, or null
+   */
+  @Override
+  public T find(FeatureStructure fs) {
+    Object v = keyToFss.get(keyOf((TOP) fs));
+    if (null == v) {
+      return null;
+    }
+    return (T) ((v instanceof TOP) ? v : ((ArrayList<TOP>) v).get(0));
+  }
+
+  /**
+   * @param fs A Feature Structure used as a template, only its key feature values are used
+   * @return true if an FS with the same key values is in this index
+   */
+  @Override
+  public boolean contains(FeatureStructure fs) {
+    return keyToFss.containsKey(keyOf((TOP) fs));
+  }
+
+  /**
+   * @param fs A Feature Structure used as a template, only its key feature values are used
+   * @return all the FSs in this index having the same key values, in no particular order; 
+   *         a new list, not affected by later index updates
+   */
+  @Override
+  public List<T> findAll(FeatureStructure fs) {
+    Object v = keyToFss.get(keyOf((TOP) fs));
+    if (null == v) {
+      return Collections.emptyList();
+    }
+    return (v instanceof TOP) 
+             ? Collections.singletonList((T) v) 
+             : new ArrayList<>((ArrayList<T>) v);
+  }
+  
+  /**
+   * @return the number of distinct keys in this index
+   */
+  int numberOfKeys() {
+    return keyToFss.size();
+  }
+
+  /**
+   * The key is the boxed value of the single key feature, or a list of the values if more than one
+   * @param fs -
+   * @return the key for this fs
+   */
+  private Object keyOf(TOP fs) {
+    if (keyFeatures.length == 1) {
+      return keyValue(fs, 0);
+    }
+    Object[] k = new Object[keyFeatures.length];
+    for (int i = 0; i < k.length; i++) {
+      k[i] = keyValue(fs, i);
+    }
+    return Arrays.asList(k);
+  }
+  
+  private Object keyValue(TOP fs, int i) {
+    FeatureImpl fi = keyFeatures[i];
+    if (fi.getRange().isStringOrStringSubtype()) {
+      return fs._getStringValueNc(fi);
+    }
+    switch (keyRangeCodes[i]) {
+    case TypeSystemConstants.booleanTypeCode: return fs._getBooleanValueNc(fi);
+    case TypeSystemConstants.byteTypeCode:    return fs._getByteValueNc(fi);
+    case TypeSystemConstants.shortTypeCode:   return fs._getShortValueNc(fi);
+    case TypeSystemConstants.intTypeCode:     return fs._getIntValueNc(fi);
+    case TypeSystemConstants.longTypeCode:    return fs._getLongValueNc(fi);
+    case TypeSystemConstants.floatTypeCode:   return fs._getFloatValueNc(fi);
+    case TypeSystemConstants.doubleTypeCode:  return fs._getDoubleValueNc(fi);
+    default: return fs._getFeatureValueNc(fi);  // FS identity
+    }
+  }
+}
@@ -23,6 +23,7 @@ import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 import java.util.stream.Stream;
 
 import org.apache.uima.cas.FSIndex;
@@ -445,6 +446,17 @@ class FsIndex_iicp<T extends FeatureStructure>
     return null;
   }
 
+  @Override
+  public List<T> findAll(FeatureStructure fs) {
+    createIndexIteratorCache();  // does nothing if already created
+    
+    List<T> r = new ArrayList<>();
+    for (FsIndex_singletype<TOP> idx : cachedSubFsLeafIndexes) {
+      r.addAll((List<T>) idx.findAll(fs));
+    }
+    return r;
+  }
+
   @Override
   public Type getType() {
     return fsIndex_singletype.getType();
@@ -72,6 +72,16 @@ final public class FsIndex_set_sorted<T extends FeatureStructure> extends FsInde
     super.flush();
     this.indexedFSs.clear();
   }
+  
+  @Override
+  void presize(int expectedSize) {
+    this.indexedFSs.presize(expectedSize);
+  }
+
+  @Override
+  long estimatedBytes() {
+    return CasMemoryFootprint.arrayBytes(indexedFSs.getCapacity(), CasMemoryFootprint.REFERENCE_BYTES);
+  }
 
   /**
    * @see org.apache.uima.cas.FSIndex#contains(FeatureStructure)
@@ -252,7 +262,7 @@ final public class FsIndex_set_sorted<T extends FeatureStructure> extends FsInde
     // if index is empty, return never-the-less a real iterator,
     //   not an empty one, because it may become non-empty
     Comparator<TOP> comparatorMaybeNoTypeWithoutID = ignoreType ? comparatorNoTypeWithoutID : comparatorWithoutID;
-    return casImpl.inPearContext()
+    return casImpl.isPearOverride(type)
              ? new FsIterator_set_sorted_pear<>(this, cow_wrapper, comparatorMaybeNoTypeWithoutID)
              : new FsIterator_set_sorted2<>(this, cow_wrapper, comparatorMaybeNoTypeWithoutID);  }
 
@@ -51,7 +51,7 @@ public abstract class FsIndex_singletype<T extends FeatureStructure>
     implements Comparator<FeatureStructure>, LowLevelIndex<T> {
 
   private final static String[] indexTypes = new String[] {
-      "Sorted", "Set", "Bag", "DefaultBag" };
+      "Sorted", "Set", "Bag", "DefaultBag", "Flat", "Hash" };
 
   /**
    * shares equal FSIndexComparatorImpl comparatorForIndexSpecs objects updates
@@ -124,7 +124,7 @@ public abstract class FsIndex_singletype<T extends FeatureStructure>
 
   @Override
   public String toString() {
-    String kind = (indexType >= 0 && indexType < 4) ? indexTypes[indexType] : "Invalid";
+    String kind = (indexType >= 0 && indexType < indexTypes.length) ? indexTypes[indexType] : "Invalid";
     return this.getClass().getSimpleName() + "(" + kind + ")[" + type.getShortName() + "]";
   }
 
@@ -213,7 +213,7 @@ public abstract class FsIndex_singletype<T extends FeatureStructure>
       // NOT ANNOTATION INDEX      
       isAnnotIdx = false;
 
-      if (indexType == BAG_INDEX) {
+      if (indexType == BAG_INDEX || indexType == HASH_INDEX) {
         comparatorNoTypeWithID = comparatorNoTypeWithoutID = comparatorWithID = comparatorWithoutID = 
             (o1, o2) -> ((FsIndex_bag)this).compare(o1, o2);
       } else {
@@ -502,6 +502,14 @@ public abstract class FsIndex_singletype<T extends FeatureStructure>
     return indexType == FSIndex.SET_INDEX || indexType == FSIndex.SORTED_INDEX;
   }
 
+  /**
+   * @return true if the placement of an FS in this index depends on its key feature values, 
+   *         so it has to be removed and added back when a key changes
+   */
+  boolean isKeyed() {
+    return isSetOrSorted() || indexType == FSIndex.HASH_INDEX;
+  }
+
   public boolean isSorted() {
     return indexType == FSIndex.SORTED_INDEX;
   }
@@ -575,6 +583,22 @@ public abstract class FsIndex_singletype<T extends FeatureStructure>
     wr_cow = null;
     // casImpl.indexRepository.isUsedChanged = true;
   }
+  
+  /**
+   * Called after a flush, to size the index for the number of FSs expected in the next document.
+   * The default does nothing.
+   * @param expectedSize the expected number of FSs
+   */
+  void presize(int expectedSize) {
+  }
+
+  /**
+   * For memory accounting.  The default assumes one reference per FS.
+   * @return the estimated bytes of the structure holding the FSs of this index
+   */
+  long estimatedBytes() {
+    return CasMemoryFootprint.arrayBytes(size(), CasMemoryFootprint.REFERENCE_BYTES);
+  }
 
   /* (non-Javadoc)
    * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
@@ -19,9 +19,11 @@
 
 package org.apache.uima.cas.impl;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Predicate;
 
 import org.apache.uima.internal.util.Misc;
 import org.apache.uima.jcas.cas.TOP;
@@ -39,6 +41,8 @@ import org.apache.uima.util.IteratorNvc;
  * 
  * Removes not supported; they happen when the map is reset / cleared
  * This corresponds to the v2 property of "once created, a FS cannot be reclaimed (until reset)"
+ *   -- except for CASImpl.releaseUnreachableFSs, which retains only the FSs still reachable
+ *      or pinned by the low level APIs
  * 
  * Threading: to support read-only views, concurrent with updates, needs to be thread safe
  */
@@ -151,6 +155,39 @@ public class Id2FS implements Iterable<TOP> {
   int size() {
     return id2fs.getApproximateSize(); 
   }
+
+  /**
+   * @return the estimated bytes of the table, for memory accounting
+   */
+  long estimatedBytes() {
+    return CasMemoryFootprint.arrayBytes(id2fs.getCapacity(), CasMemoryFootprint.REFERENCE_BYTES);
+  }
+    
+  /**
+   * Removes the FSs not satisfying a predicate, by rebuilding the map
+   * @param keep true for the FSs to keep
+   * @return the number of FSs removed
+   */
+  int retainAll(Predicate<TOP> keep) {
+    final ArrayList<TOP> kept = new ArrayList<>();
+    int removed = 0;
+    IteratorNvc<TOP> it = id2fs.iterator();
+    while (it.hasNext()) {
+      TOP fs = it.nextNvc();
+      if (keep.test(fs)) {
+        kept.add(fs);
+      } else {
+        removed ++;
+      }
+    }
+    if (removed > 0) {
+      id2fs.clear();
+      for (TOP fs : kept) {
+        id2fs.put(fs._id, fs);
+      }
+    }
+    return removed;
+  }
     
   /**
    * adjusts the underlying array down in size if grew beyond the reset heap size value
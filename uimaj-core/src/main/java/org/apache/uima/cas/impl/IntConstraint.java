@@ -43,6 +43,14 @@ class IntConstraint extends PathConstraint implements FSMatchConstraint {
     this.intConstraint = cons;
   }
 
+  FSIntConstraint getIntConstraint() {
+    return this.intConstraint;
+  }
+
+  ArrayList<String> getPath() {
+    return this.featNames;
+  }
+
   public boolean match(FeatureStructure fs) {
     // compile(((FeatureStructureImpl) fs).getCAS().getTypeSystem());
     final int max = this.featNames.size() - 1; // The last position in the
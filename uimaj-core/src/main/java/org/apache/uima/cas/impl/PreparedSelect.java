@@ -0,0 +1,324 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.internal.util.CopyOnWriteOrderedFsSet_array;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.TOP;
+import org.apache.uima.jcas.tcas.Annotation;
+
+/**
+ * A coveredBy or covering selection over the annotation index of one view, which is set up once and
+ * then bound to new bounds for each use, for example once per sentence or per token.
+ *
+ * Results are the same, and in the same order, as for
+ * <pre>cas.select(type).coveredBy(bounds)</pre> and <pre>cas.select(type).covering(bounds)</pre>
+ * with the default settings: ignoring type priorities, overlapping annotations included, and
+ * the bounding annotation itself excluded.
+ *
+ * Binding and running the selection allocates no objects: the sorted index of each type and
+ * subtype is read directly, by binary searching to the bounds and merging the types by position.
+ * {@link #forEach(Consumer)} uses no Iterator; {@link #iterator()} returns the same, reset,
+ * iterator instance each time.
+ *
+ * Like other index iterators, the selection sees the indexes as they were when it was started;
+ * updates to the indexes made while it is running are not seen.
+ *
+ * An instance is not thread safe, and can run only one selection at a time.
+ *
+ * @param <T> the type of the selected annotations
+ */
+public final class PreparedSelect<T extends AnnotationFS> implements Iterable<T> {
+
+  private final boolean isCovering;
+
+  private final CASImpl view;
+
+  /** the sorted index for each of the type and its subtypes */
+  private final FsIndex_set_sorted<TOP>[] subIndexes;
+
+  // per sub-index state of the running selection, index 0 .. nbrActive - 1
+  private final CopyOnWriteOrderedFsSet_array<TOP>[] cows;
+  private final int[] pos;
+  private final int[] limit;
+  private final boolean[] isPear;
+  private int nbrActive;
+
+  private int boundBegin;
+  private int boundEnd;
+  /** the id of the bounding annotation, excluded from the results; 0 if bound by position */
+  private int boundId;
+
+  private final Cursor cursor = new Cursor();
+
+  @SuppressWarnings("unchecked")
+  private PreparedSelect(CAS aView, Type aType, boolean aIsCovering) {
+    view = (CASImpl) aView.getLowLevelCAS();
+    isCovering = aIsCovering;
+    FsIndex_iicp<?> iicp = (FsIndex_iicp<?>) view.getAnnotationIndex(aType);
+    iicp.createIndexIteratorCache();
+    List<FsIndex_set_sorted<TOP>> sorted = new ArrayList<>();
+    for (FsIndex_singletype<TOP> idx : iicp.cachedSubFsLeafIndexes) {
+      sorted.add((FsIndex_set_sorted<TOP>) idx);
+    }
+    int n = sorted.size();
+    subIndexes = sorted.toArray(new FsIndex_set_sorted[n]);
+    cows = new CopyOnWriteOrderedFsSet_array[n];
+    pos = new int[n];
+    limit = new int[n];
+    isPear = new boolean[n];
+  }
+
+  /**
+   * @param aView the view whose annotation index is used
+   * @param aType the type of annotation to select, including subtypes
+   * @param <T> the Java class for the type
+   * @return a selection of the annotations covered by the bounds, to be bound with one of the bind methods
+   */
+  public static <T extends AnnotationFS> PreparedSelect<T> coveredBy(CAS aView, Type aType) {
+    return new PreparedSelect<>(aView, aType, false);
+  }
+
+  /**
+   * @param aView the view whose annotation index is used
+   * @param aClazz the JCas class of annotation to select, including subtypes
+   * @param <T> the Java class for the type
+   * @return a selection of the annotations covered by the bounds, to be bound with one of the bind methods
+   */
+  public static <T extends Annotation> PreparedSelect<T> coveredBy(JCas aView, Class<T> aClazz) {
+    return new PreparedSelect<>(aView.getCas(), aView.getCasType(aClazz), false);
+  }
+
+  /**
+   * @param aView the view whose annotation index is used
+   * @param aType the type of annotation to select, including subtypes
+   * @param <T> the Java class for the type
+   * @return a selection of the annotations covering the bounds, to be bound with one of the bind methods
+   */
+  public static <T extends AnnotationFS> PreparedSelect<T> covering(CAS aView, Type aType) {
+    return new PreparedSelect<>(aView, aType, true);
+  }
+
+  /**
+   * @param aView the view whose annotation index is used
+   * @param aClazz the JCas class of annotation to select, including subtypes
+   * @param <T> the Java class for the type
+   * @return a selection of the annotations covering the bounds, to be bound with one of the bind methods
+   */
+  public static <T extends Annotation> PreparedSelect<T> covering(JCas aView, Class<T> aClazz) {
+    return new PreparedSelect<>(aView.getCas(), aView.getCasType(aClazz), true);
+  }
+
+  /**
+   * Bind to the bounds of an annotation; the annotation itself is not selected.
+   * @param aBounds the bounding annotation
+   * @return this selection
+   */
+  public PreparedSelect<T> bind(AnnotationFS aBounds) {
+    boundBegin = aBounds.getBegin();
+    boundEnd = aBounds.getEnd();
+    boundId = ((TOP) aBounds)._id();
+    return this;
+  }
+
+  /**
+   * Bind to a position
+   * @param aBegin the begin of the bounds
+   * @param aEnd the end of the bounds
+   * @return this selection
+   */
+  public PreparedSelect<T> bind(int aBegin, int aEnd) {
+    boundBegin = aBegin;
+    boundEnd = aEnd;
+    boundId = 0;
+    return this;
+  }
+
+  /**
+   * Run the selection for the current bounds
+   * @param action called for each selected annotation, in index order
+   */
+  @Override
+  public void forEach(Consumer<? super T> action) {
+    start();
+    for (T fs = nextOrNull(); fs != null; fs = nextOrNull()) {
+      action.accept(fs);
+    }
+  }
+
+  /**
+   * @return the number of annotations selected with the current bounds
+   */
+  public int count() {
+    start();
+    int n = 0;
+    while (nextOrNull() != null) {
+      n++;
+    }
+    return n;
+  }
+
+  /**
+   * @return the first annotation selected with the current bounds, or null if none
+   */
+  public T get() {
+    start();
+    return nextOrNull();
+  }
+
+  /**
+   * Run the selection for the current bounds.
+   * The same iterator instance is returned each time, reset to the start; a previously returned
+   * iterator is no longer usable.
+   */
+  @Override
+  public Iterator<T> iterator() {
+    start();
+    cursor.next = nextOrNull();
+    return cursor;
+  }
+
+  /**
+   * Set up, for each non-empty sub-index, the range of positions to look at
+   */
+  private void start() {
+    nbrActive = 0;
+    for (FsIndex_set_sorted<TOP> idx : subIndexes) {
+      if (idx.size() == 0) {
+        continue;
+      }
+      @SuppressWarnings("unchecked")
+      CopyOnWriteOrderedFsSet_array<TOP> cow = (CopyOnWriteOrderedFsSet_array<TOP>) idx.getNonNullCow();
+      final TOP[] a = cow.a;
+      final int first = cow.a_firstUsedslot;
+      final int end = cow.a_nextFreeslot;
+      int from;
+      int to;
+      if (isCovering) {
+        // a covering annotation begins at or before the bounds' begin, and
+        //   is no longer than the longest annotation in this index
+        int span = idx.ll_maxAnnotSpan();
+        from = (span < 0) ? end : firstBeginAtOrAfter(a, first, end, (int) Math.max(Integer.MIN_VALUE, (long) boundEnd - span));
+        to = firstBeginAtOrAfter(a, from, end, boundBegin + 1);
+      } else {
+        from = firstBeginAtOrAfter(a, first, end, boundBegin);
+        to = firstBeginAtOrAfter(a, from, end, boundEnd + 1);
+      }
+      if (from < to) {
+        cows[nbrActive] = cow;
+        pos[nbrActive] = from;
+        limit[nbrActive] = to;
+        isPear[nbrActive] = view.isPearOverride(idx.getTypeImpl());
+        nbrActive++;
+      }
+    }
+  }
+
+  /**
+   * @return the next selected annotation, in index order (begin ascending, end descending, id ascending), or null
+   */
+  @SuppressWarnings("unchecked")
+  private T nextOrNull() {
+    for (;;) {
+      int best = -1;
+      Annotation bestFs = null;
+      for (int i = 0; i < nbrActive; i++) {
+        if (pos[i] >= limit[i]) {
+          continue;
+        }
+        Annotation fs = (Annotation) cows[i].a[pos[i]];
+        if (bestFs == null || isBefore(fs, bestFs)) {
+          best = i;
+          bestFs = fs;
+        }
+      }
+      if (bestFs == null) {
+        return null;
+      }
+      pos[best]++;
+      if (bestFs._id() == boundId) {
+        continue;
+      }
+      if (isCovering ? (bestFs.getEnd() < boundEnd) : (bestFs.getEnd() > boundEnd)) {
+        continue;
+      }
+      return (T) (isPear[best] ? CASImpl.pearConvert(bestFs) : bestFs);
+    }
+  }
+
+  private static boolean isBefore(Annotation fs1, Annotation fs2) {
+    int b1 = fs1.getBegin();
+    int b2 = fs2.getBegin();
+    if (b1 != b2) {
+      return b1 < b2;
+    }
+    int e1 = fs1.getEnd();
+    int e2 = fs2.getEnd();
+    if (e1 != e2) {
+      return e1 > e2;
+    }
+    return fs1._id() < fs2._id();
+  }
+
+  /**
+   * @return the first position in [from, to) whose annotation begins at or after aBegin, or to if none
+   */
+  private static int firstBeginAtOrAfter(TOP[] a, int from, int to, int aBegin) {
+    int lo = from;
+    int hi = to;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (((Annotation) a[mid]).getBegin() < aBegin) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private final class Cursor implements Iterator<T> {
+    T next;
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public T next() {
+      T r = next;
+      if (r == null) {
+        throw new NoSuchElementException();
+      }
+      next = nextOrNull();
+      return r;
+    }
+  }
+}
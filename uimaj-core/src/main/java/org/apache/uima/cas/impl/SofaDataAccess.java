@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.uima.cas.CASRuntimeException;
+
+/**
+ * Internal use: access to Sofa data without copying it onto the Java heap.
+ *
+ *   - file: Sofa URIs are memory mapped, read only.
+ *   - other Sofa URIs are read once into a buffer.
+ *   - text views over the data are CharSequences; single byte charsets are viewed in place,
+ *     other charsets are decoded once into an off-heap buffer.
+ */
+public final class SofaDataAccess {
+
+  private SofaDataAccess() {} // no instances
+
+  /**
+   * @param aUri the Sofa URI
+   * @return a read only buffer holding the data at the URI, memory mapped for file: URIs
+   */
+  public static ByteBuffer readUri(String aUri) {
+    try {
+      File file = asFile(aUri);
+      if (file != null) {
+        try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+          long size = fc.size();
+          if (size > Integer.MAX_VALUE) {
+            throw new CASRuntimeException(CASRuntimeException.SOFADATASTREAM_ERROR,
+                    "Sofa data larger than 2GB can not be mapped: " + aUri);
+          }
+          // the mapping stays valid after the channel is closed
+          return fc.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+      }
+      try (InputStream is = new URL(aUri).openStream()) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(8192);
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = is.read(buf)) != -1) {
+          baos.write(buf, 0, n);
+        }
+        return ByteBuffer.wrap(baos.toByteArray()).asReadOnlyBuffer();
+      }
+    } catch (IOException exc) {
+      throw new CASRuntimeException(CASRuntimeException.SOFADATASTREAM_ERROR, exc.getMessage());
+    }
+  }
+
+  private static File asFile(String aUri) {
+    try {
+      URI uri = new URI(aUri);
+      if ("file".equalsIgnoreCase(uri.getScheme())) {
+        // opaque form is a relative path, e.g. file:./doc.txt
+        return uri.isOpaque() ? new File(uri.getSchemeSpecificPart()) : new File(uri);
+      }
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      // not a hierarchical file URI, read through the URL
+    }
+    return null;
+  }
+
+  /**
+   * @param aMimeType a mime type, possibly with a charset parameter, e.g. "text/plain; charset=ISO-8859-1"
+   * @return the charset of the mime type, or UTF-8 if none or not supported
+   */
+  public static Charset charsetOf(String aMimeType) {
+    if (aMimeType != null) {
+      for (String param : aMimeType.split(";")) {
+        param = param.trim();
+        if (param.regionMatches(true, 0, "charset=", 0, 8)) {
+          String name = param.substring(8).trim();
+          if (name.length() > 1 && name.charAt(0) == '"' && name.charAt(name.length() - 1) == '"') {
+            name = name.substring(1, name.length() - 1);
+          }
+          try {
+            return Charset.forName(name);
+          } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            break;
+          }
+        }
+      }
+    }
+    return StandardCharsets.UTF_8;
+  }
+
+  /**
+   * @param aBuffer the Sofa data
+   * @param aCharset the encoding of the data
+   * @return a read only text view over the data
+   */
+  public static CharSequence asText(ByteBuffer aBuffer, Charset aCharset) {
+    ByteBuffer bb = aBuffer.duplicate();
+    bb.rewind();
+    if (aCharset.equals(StandardCharsets.ISO_8859_1) || aCharset.equals(StandardCharsets.US_ASCII)) {
+      return new SingleByteCharSequence(bb.slice());
+    }
+
+    // maxCharsPerByte bounds the decoded length
+    CharsetDecoder decoder = aCharset.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    int capacity = (int) Math.min(Integer.MAX_VALUE / 2,
+            (long) Math.ceil(bb.remaining() * (double) decoder.maxCharsPerByte()));
+    CharBuffer cb = ByteBuffer.allocateDirect(capacity * 2).asCharBuffer();
+    try {
+      CoderResult cr = decoder.decode(bb, cb, true);
+      if (!cr.isUnderflow()) {
+        cr.throwException();
+      }
+      cr = decoder.flush(cb);
+      if (!cr.isUnderflow()) {
+        cr.throwException();
+      }
+    } catch (CharacterCodingException e) {
+      throw new CASRuntimeException(CASRuntimeException.SOFADATASTREAM_ERROR, e.getMessage());
+    }
+    cb.flip();
+    return cb.asReadOnlyBuffer();
+  }
+
+  /**
+   * @param aBuffer the Sofa data
+   * @return a stream reading the data, without copying it
+   */
+  public static InputStream asStream(ByteBuffer aBuffer) {
+    ByteBuffer bb = aBuffer.duplicate();
+    bb.rewind();
+    return new ByteBufferInputStream(bb);
+  }
+
+  /**
+   * A CharSequence over bytes in a single byte charset (ISO-8859-1 or US-ASCII), viewed in place
+   */
+  static class SingleByteCharSequence implements CharSequence {
+    private final ByteBuffer bytes;
+
+    SingleByteCharSequence(ByteBuffer bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    public int length() {
+      return bytes.limit();
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) (bytes.get(index) & 0xff);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      if (start < 0 || end > length() || start > end) {
+        throw new IndexOutOfBoundsException();
+      }
+      ByteBuffer sub = bytes.duplicate();
+      sub.position(start).limit(end);
+      return new SingleByteCharSequence(sub.slice());
+    }
+
+    @Override
+    public String toString() {
+      byte[] b = new byte[length()];
+      bytes.duplicate().get(b);
+      return new String(b, StandardCharsets.ISO_8859_1);
+    }
+  }
+
+  static class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer bb;
+
+    ByteBufferInputStream(ByteBuffer bb) {
+      this.bb = bb;
+    }
+
+    @Override
+    public int read() {
+      return bb.hasRemaining() ? (bb.get() & 0xff) : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      if (!bb.hasRemaining()) {
+        return -1;
+      }
+      int n = Math.min(len, bb.remaining());
+      bb.get(b, off, n);
+      return n;
+    }
+
+    @Override
+    public long skip(long n) {
+      int k = (int) Math.max(0, Math.min(n, bb.remaining()));
+      bb.position(bb.position() + k);
+      return k;
+    }
+
+    @Override
+    public int available() {
+      return bb.remaining();
+    }
+  }
+}
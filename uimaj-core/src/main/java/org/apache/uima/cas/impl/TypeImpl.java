@@ -966,6 +966,23 @@ public class TypeImpl implements Type, Comparable<TypeImpl> {
     return hashCodeLong;
   }
   
+  /**
+   * Before commit, the hash code is recomputed on each call, which includes recomputing it for the
+   * whole supertype chain.  Commit fixes the hash codes while looking up an equal committed type system,
+   * fixing supertypes first so each type's hash code is computed once.
+   * @param fix true to compute and keep the hash code, false to go back to recomputing it if not committed
+   */
+  void fixHashCodeLong(boolean fix) {
+    synchronized (this) {
+      if (fix) {
+        this.hashCodeLong = computeHashCodeLong();
+        hasHashCodeLong = true;
+      } else if (!this.getTypeSystem().isCommitted()) {
+        hasHashCodeLong = false;
+      }
+    }
+  }
+
   public long hashCodeNameLong() {
     return hashCodeNameLong;
   }
@@ -1383,8 +1383,21 @@ public class TypeSystemImpl implements TypeSystem, TypeSystemMgr, LowLevelTypeSy
       // because it will call the type system iterator
   //    this.casMetadata.setupFeaturesAndCreatableTypes();
 
+      // Only an equal committed type system is reused.  One this type system merely adds types or
+      //   features to is not: committed type systems are shared and immutable (CASs, JCas
+      //   generators and the map below depend on them), and adding a type or feature renumbers
+      //   the depth-first type codes after it and shifts the feature offsets of the subtypes
+      //   of the changed type, which JCas call sites have already bound to.
       if (!IS_DISABLE_TYPESYSTEM_CONSOLIDATION) {
-        WeakReference<TypeSystemImpl> prevWr = committedTypeSystems.get(this);
+        WeakReference<TypeSystemImpl> prevWr;
+        // the lookup hashes and compares every type; fix the hash codes, supertypes first
+        //   (types are in type code order), instead of recomputing each supertype chain per type
+        fixTypeHashCodes(true);
+        try {
+          prevWr = committedTypeSystems.get(this);
+        } finally {
+          fixTypeHashCodes(false);
+        }
         if (null != prevWr) {
           TypeSystemImpl prev = prevWr.get();
           if (null != prev) {            
@@ -1450,6 +1463,12 @@ public class TypeSystemImpl implements TypeSystem, TypeSystemMgr, LowLevelTypeSy
     } // of sync block 
   }  
   
+  private void fixTypeHashCodes(boolean fix) {
+    for (int i = 1; i < types.size(); i++) {
+      types.get(i).fixHashCodeLong(fix);
+    }
+  }
+
   /**
    * This is the actual offset for the feature, in either the int or ref array
    * 
@@ -456,15 +456,15 @@ public class XCASDeserializer {
             cas.removeFromCorruptableIndexAnyView(fs, cas.getAddbackSingle());
           } else {
             fs = maybeCreateWithV2Id(fsId, () -> casView.createFS(type));
-            if (currentFs instanceof UimaSerializable) {
-              UimaSerializable ufs = (UimaSerializable) currentFs;
+            if (fs instanceof UimaSerializable) {
+              UimaSerializable ufs = (UimaSerializable) fs;
               uimaSerializableFixups.add(() -> ufs._init_from_cas_data());
             }
           }
         } else {  // not an annotation base
           fs = maybeCreateWithV2Id(fsId, () -> cas.createFS(type));
-          if (currentFs instanceof UimaSerializable) {
-            UimaSerializable ufs = (UimaSerializable) currentFs;
+          if (fs instanceof UimaSerializable) {
+            UimaSerializable ufs = (UimaSerializable) fs;
             uimaSerializableFixups.add(() -> ufs._init_from_cas_data());
           }
         }
@@ -32,8 +32,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import javax.xml.transform.OutputKeys;
-
 import org.apache.uima.UimaContext;
 import org.apache.uima.UimaSerializable;
 import org.apache.uima.cas.CAS;
@@ -53,7 +51,6 @@ import org.apache.uima.jcas.cas.ShortArray;
 import org.apache.uima.jcas.cas.Sofa;
 import org.apache.uima.jcas.cas.StringArray;
 import org.apache.uima.jcas.cas.TOP;
-import org.apache.uima.util.XMLSerializer;
 import org.xml.sax.Attributes;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
@@ -979,10 +976,6 @@ public class XCASSerializer {
   public static void serialize(CAS aCAS, OutputStream aStream, boolean isFormattedOutput, boolean useXml_1_1)
           throws SAXException, IOException {
     XCASSerializer xcasSerializer = new XCASSerializer(aCAS.getTypeSystem());
-    XMLSerializer sax2xml = new XMLSerializer(aStream, isFormattedOutput);
-    if (useXml_1_1) {
-      sax2xml.setOutputProperty(OutputKeys.VERSION,"1.1");
-    }
-    xcasSerializer.serialize(aCAS, sax2xml.getContentHandler());
+    xcasSerializer.serialize(aCAS, CasSerializerSupport.createXmlContentHandler(aStream, isFormattedOutput, useXml_1_1));
   }
 }
@@ -597,16 +597,16 @@ public class XmiCasDeserializer {
                   fs = casView.getDocumentAnnotation(); // gets existing one or creates a new one
                 } else {
                   fs = casView.createFS(currentType);  // not document annotation
-                  if (currentFs instanceof UimaSerializable) {
-                    UimaSerializable ufs = (UimaSerializable) currentFs;
+                  if (fs instanceof UimaSerializable) {
+                    UimaSerializable ufs = (UimaSerializable) fs;
                     uimaSerializableFixups.add(() -> ufs._init_from_cas_data());
                   }
                 }
               }
             } else {  // not annotationBase subtype
       		    fs = casBeingFilled.createFS(currentType);
-      		    if (currentFs instanceof UimaSerializable) {
-                UimaSerializable ufs = (UimaSerializable) currentFs;
+      		    if (fs instanceof UimaSerializable) {
+                UimaSerializable ufs = (UimaSerializable) fs;
                 uimaSerializableFixups.add(() -> ufs._init_from_cas_data());
               }
             }
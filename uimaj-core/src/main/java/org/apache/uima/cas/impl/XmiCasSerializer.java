@@ -28,7 +28,6 @@ import java.util.Map;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParserFactory;
-import javax.xml.transform.OutputKeys;
 
 import org.apache.uima.UIMAFramework;
 import org.apache.uima.UIMARuntimeException;
@@ -54,7 +53,6 @@ import org.apache.uima.jcas.cas.Sofa;
 import org.apache.uima.jcas.cas.StringArray;
 import org.apache.uima.jcas.cas.StringList;
 import org.apache.uima.jcas.cas.TOP;
-import org.apache.uima.util.XMLSerializer;
 import org.xml.sax.Attributes;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.ErrorHandler;
@@ -384,11 +382,8 @@ public class XmiCasSerializer {
           XmiSerializationSharedData aSharedData, Marker aMarker, boolean useXml_1_1) 
           throws SAXException {
     XmiCasSerializer xmiCasSerializer = new XmiCasSerializer(aTargetTypeSystem);
-    XMLSerializer sax2xml = new XMLSerializer(aStream, aPrettyPrint);
-    if (useXml_1_1) {
-      sax2xml.setOutputProperty(OutputKeys.VERSION,"1.1");
-    }
-    xmiCasSerializer.serialize(aCAS, sax2xml.getContentHandler(), null, aSharedData, aMarker);
+    ContentHandler ch = CasSerializerSupport.createXmlContentHandler(aStream, aPrettyPrint, useXml_1_1);
+    xmiCasSerializer.serialize(aCAS, ch, null, aSharedData, aMarker);
   }
   
   
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection;
+
+import java.io.IOException;
+
+import org.apache.uima.cas.CAS;
+
+/**
+ * A <code>CollectionReader</code> whose collection is split into partitions which can be read
+ * concurrently, and whose reading of an element is split into fetching the raw artifact and
+ * decoding it into a CAS.
+ * <p>
+ * The CPM reads such a Collection Reader with one thread per partition, which fetch artifacts
+ * ahead of processing into a bounded buffer, and a number of threads which decode the fetched
+ * artifacts into CASes. This keeps I/O bound readers from starving the processing pipelines.
+ * The CPM does not call {@link #hasNext()} or {@link #getNext(CAS)}, which should keep working
+ * for sequential use.
+ * <p>
+ * {@link #hasNext(int)} and {@link #fetchNext(int)} are called by one thread per partition, so
+ * different partitions are read concurrently. {@link #decode(Object, CAS)} is called concurrently
+ * by several threads, for artifacts of any partition. {@link #getProgress()} may be called while
+ * the partitions are read.
+ *
+ * @param <T>
+ *          the type of the fetched artifacts
+ */
+public interface PartitionedCollectionReader<T> extends CollectionReader {
+
+  /**
+   * Gets the number of partitions the collection is split into. This is called once, before the
+   * first call to {@link #hasNext(int)}.
+   *
+   * @return the number of partitions, at least 1
+   */
+  public int getNumberOfPartitions();
+
+  /**
+   * Gets whether a partition has more elements.
+   *
+   * @param aPartition
+   *          the partition, from 0 to the number of partitions - 1
+   * @return true if the partition has more elements
+   *
+   * @throws IOException
+   *           if an I/O failure occurs
+   * @throws CollectionException
+   *           if there is some other problem with reading from the Collection
+   */
+  public boolean hasNext(int aPartition) throws IOException, CollectionException;
+
+  /**
+   * Fetches the next element of a partition, without decoding it. This is where the I/O should be
+   * done.
+   *
+   * @param aPartition
+   *          the partition, from 0 to the number of partitions - 1
+   * @return the fetched artifact, to be passed to {@link #decode(Object, CAS)}; must not be null.
+   *         The CPM reports a null artifact as a failure to read the element.
+   *
+   * @throws IOException
+   *           if an I/O failure occurs
+   * @throws CollectionException
+   *           if there is some other problem with reading from the Collection
+   */
+  public T fetchNext(int aPartition) throws IOException, CollectionException;
+
+  /**
+   * Decodes a fetched artifact into a CAS.
+   *
+   * @param aArtifact
+   *          an artifact returned by {@link #fetchNext(int)}
+   * @param aCAS
+   *          the CAS to populate, as it would be passed to {@link #getNext(CAS)}
+   *
+   * @throws IOException
+   *           if an I/O failure occurs
+   * @throws CollectionException
+   *           if the artifact can not be decoded
+   */
+  public void decode(T aArtifact, CAS aCAS) throws IOException, CollectionException;
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.flow;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.uima.analysis_engine.ResultSpecification;
+
+/**
+ * Special type of ParallelStep used by the parallel variant of the Capability Language Flow. Like
+ * {@link SimpleStepWithResultSpec}, it allows the Flow Controller to set a Result Specification
+ * for each of the AEs that will be called next.
+ * <p>
+ * User-developed Flow Controllers should not use this.
+ */
+public class ParallelStepWithResultSpecs extends ParallelStep {
+
+  private Map<String, ResultSpecification> mResultSpecs;
+
+  /**
+   * @param aAnalysisEngineKeys
+   *          keys of the Analysis Engines to which the CAS should be routed
+   * @param aResultSpecs
+   *          Result Specification for each key. A key without a Result Specification keeps the
+   *          one it had before.
+   */
+  public ParallelStepWithResultSpecs(Collection<String> aAnalysisEngineKeys,
+          Map<String, ResultSpecification> aResultSpecs) {
+    super(aAnalysisEngineKeys);
+    mResultSpecs = aResultSpecs;
+  }
+
+  /**
+   * Gets the result specification for one of the Analysis Engines of this step
+   *
+   * @param aAnalysisEngineKey
+   *          key of an Analysis Engine
+   * @return the result specification, or <code>null</code> if it should not be changed
+   */
+  public ResultSpecification getResultSpecification(String aAnalysisEngineKey) {
+    return mResultSpecs.get(aAnalysisEngineKey);
+  }
+
+  /**
+   * @return the result specifications, by Analysis Engine key
+   */
+  public Map<String, ResultSpecification> getResultSpecifications() {
+    return mResultSpecs;
+  }
+}
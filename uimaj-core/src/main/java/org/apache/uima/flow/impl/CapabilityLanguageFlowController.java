@@ -286,6 +286,13 @@ public class CapabilityLanguageFlowController extends CasFlowController_ImplBase
         
     return desc;
   }
+  /**
+   * @return the flow table computed at initialization, with the flow sequence for each language
+   */
+  protected Map<String, List<AnalysisSequenceCapabilityNode>> getFlowTable() {
+    return mFlowTable;
+  }
+
   public Map<String, ResultSpecification> getLastResultSpecForComponent() {
     return lastResultSpecForComponent;
   }
@@ -125,15 +125,7 @@ public class CapabilityLanguageFlowObject extends CasFlow_ImplBase implements Cl
     CAS cas = getCas();
     assert cas != null; // CapabilityLanguageFlowController ensures this
 
-    // if type system has changed, recompile flow table to pick up 
-    //   potentially different type system inheritances
-    if (mLastTypeSystem != cas.getTypeSystem()) {
-      // set new type system
-      mLastTypeSystem = cas.getTypeSystem();
-
-      // recompile all result specs
-      recompileFlowTable();
-    }
+    checkTypeSystem(cas);
 
     // get current document language from the CAS
     String documentLanguage = Language.normalize(cas.getDocumentLanguage());
@@ -234,25 +226,7 @@ public class CapabilityLanguageFlowObject extends CasFlow_ImplBase implements Cl
       // in this impl, mFlowTable is never null
       AnalysisSequenceCapabilityNode node = null;
 
-      // check if document language is included in the flowTable
-      List<AnalysisSequenceCapabilityNode> flow = mFlowTable.get(documentLanguage);
-
-      if (flow == null) { // try to get flow without language extension or with x-unspecified
-        // strip language extension if available
-        int index = documentLanguage.indexOf(LANGUAGE_SEPARATOR);
-
-        // if country extension is available
-        if (index >= 0) {
-          // check if document language is included in the flowTable
-          flow = mFlowTable.get(documentLanguage.substring(0, index));
-          // If the language was not found, use flow for unspecified lang instead.
-          if (flow == null) {
-            flow = mFlowTable.get(UNSPECIFIED_LANGUAGE);
-          }
-        } else {// try to get flow for language x-unspecified
-          flow = mFlowTable.get(UNSPECIFIED_LANGUAGE);
-        }
-      }
+      List<AnalysisSequenceCapabilityNode> flow = getForLanguage(mFlowTable, documentLanguage);
 
       // if flow is available get next node
       if (flow != null) {
@@ -264,26 +238,88 @@ public class CapabilityLanguageFlowObject extends CasFlow_ImplBase implements Cl
         }
       }
       if (node != null) {
-        // see if this next cas processor was previously given this result spec, and 
-        // if so, set a flag indicating this
-        
-        Map<String, ResultSpecification> lastResultSpecForComponent = mParentController.getLastResultSpecForComponent();
-        String component = node.getCasProcessorKey();
-        ResultSpecification neededResultSpec = node.getResultSpec();      
-        ResultSpecification previousResultSpec = lastResultSpecForComponent.get(component);
-        
-        if (null == previousResultSpec || previousResultSpec != neededResultSpec) {
-          lastResultSpecForComponent.put(component, neededResultSpec);
-          return new SimpleStepWithResultSpec(component, neededResultSpec); 
-        } 
-        // null is a special flag saying the previous component result spec is still good
-        return new SimpleStepWithResultSpec(node.getCasProcessorKey(), null);
-//        return new SimpleStepWithResultSpec(component, neededResultSpec); // for testing with caching disabled
+        return new SimpleStepWithResultSpec(node.getCasProcessorKey(), getResultSpecToSend(node));
       } 
 //    }
     return new FinalStep();
   }
 
+  /**
+   * If the type system has changed, recompile the flow table to pick up potentially different
+   * type system inheritances.
+   * 
+   * @param aCas
+   *          the CAS being routed
+   * @return true if the type system has changed
+   */
+  protected boolean checkTypeSystem(CAS aCas) {
+    if (mLastTypeSystem == aCas.getTypeSystem()) {
+      return false;
+    }
+    // set new type system
+    mLastTypeSystem = aCas.getTypeSystem();
+
+    // recompile all result specs
+    recompileFlowTable();
+    return true;
+  }
+
+  /**
+   * Gets the entry for a document language from a table by language. If there is none, the entry
+   * for the language without country extension is used, and then the one for x-unspecified.
+   * 
+   * @param <T>
+   *          the type of the entries
+   * @param aTable
+   *          a table by language
+   * @param aDocumentLanguage
+   *          the normalized document language
+   * @return the entry for the language, or <code>null</code> if none
+   */
+  protected static <T> T getForLanguage(Map<String, T> aTable, String aDocumentLanguage) {
+    // check if document language is included in the table
+    T entry = aTable.get(aDocumentLanguage);
+
+    if (entry == null) { // try to get entry without language extension or with x-unspecified
+      // strip language extension if available
+      int index = aDocumentLanguage.indexOf(LANGUAGE_SEPARATOR);
+
+      // if country extension is available
+      if (index >= 0) {
+        // check if document language is included in the table
+        entry = aTable.get(aDocumentLanguage.substring(0, index));
+        // If the language was not found, use entry for unspecified lang instead.
+        if (entry == null) {
+          entry = aTable.get(UNSPECIFIED_LANGUAGE);
+        }
+      } else {// try to get entry for language x-unspecified
+        entry = aTable.get(UNSPECIFIED_LANGUAGE);
+      }
+    }
+    return entry;
+  }
+
+  /**
+   * See if the cas processor of a node was previously given the node's result spec.
+   * 
+   * @param aNode
+   *          the next node in the flow
+   * @return the result spec of the node, or <code>null</code> as a special flag saying the
+   *         previous component result spec is still good
+   */
+  protected ResultSpecification getResultSpecToSend(AnalysisSequenceCapabilityNode aNode) {
+    Map<String, ResultSpecification> lastResultSpecForComponent = mParentController.getLastResultSpecForComponent();
+    String component = aNode.getCasProcessorKey();
+    ResultSpecification neededResultSpec = aNode.getResultSpec();
+    ResultSpecification previousResultSpec = lastResultSpecForComponent.get(component);
+
+    if (null == previousResultSpec || previousResultSpec != neededResultSpec) {
+      lastResultSpecForComponent.put(component, neededResultSpec);
+      return neededResultSpec;
+    }
+    return null;
+  }
+
   /**
    * Returns a clone of this <code>AnalysisSequence</code>.
    * 
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.flow.impl;
+
+import static org.apache.uima.UIMAFramework.getResourceSpecifierFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.analysis_engine.TypeOrFeature;
+import org.apache.uima.analysis_engine.metadata.AnalysisEngineMetaData;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.flow.Flow;
+import org.apache.uima.flow.FlowControllerDescription;
+import org.apache.uima.resource.metadata.Capability;
+import org.apache.uima.resource.metadata.ProcessingResourceMetaData;
+
+/**
+ * FlowController for the CapabilityLanguageFlow which routes the CAS to the same AEs as
+ * {@link CapabilityLanguageFlowController}, but groups AEs which do not depend on each other into
+ * {@link org.apache.uima.flow.ParallelStep}s.
+ * <p>
+ * An AE depends on an earlier AE in the flow if one of them declares an output type that the other
+ * declares as an input or output, or a sub- or supertype of it. A feature counts as its type. AEs
+ * which read or write types they do not declare in their capabilities must not be used with this
+ * flow controller.
+ * <p>
+ * The grouping is computed for each language when the type system is known, so computing the flow
+ * of a CAS does not analyze capabilities.
+ */
+public class ParallelCapabilityLanguageFlowController extends CapabilityLanguageFlowController {
+
+  /**
+   * The steps for each language. Each step is an array of one or more nodes that may run in
+   * parallel.
+   */
+  private volatile Map<String, List<AnalysisSequenceCapabilityNode[]>> mStageTable;
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see org.apache.uima.flow.CasFlowController_ImplBase#typeSystemInit(org.apache.uima.cas.TypeSystem)
+   */
+  public void typeSystemInit(TypeSystem aTypeSystem) throws AnalysisEngineProcessException {
+    Map<String, List<AnalysisSequenceCapabilityNode[]>> stageTable = new HashMap<>();
+    for (Map.Entry<String, List<AnalysisSequenceCapabilityNode>> entry : getFlowTable().entrySet()) {
+      if (entry.getValue() != null) {
+        stageTable.put(entry.getKey(), computeStages(entry.getValue(), aTypeSystem));
+      }
+    }
+    mStageTable = stageTable;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see org.apache.uima.flow.CasFlowController_ImplBase#computeFlow(org.apache.uima.cas.CAS)
+   */
+  public Flow computeFlow(CAS aCAS) throws AnalysisEngineProcessException {
+    ParallelCapabilityLanguageFlowObject flow = new ParallelCapabilityLanguageFlowObject(
+            getFlowTable(), mStageTable, this);
+    flow.setCas(aCAS);
+    return flow;
+  }
+
+  /**
+   * Groups the nodes of a flow sequence into steps. Each node is put in the step after the last one
+   * holding a node it depends on, so the steps keep the order of dependent nodes.
+   *
+   * @param aSequence
+   *          the flow sequence for a language, with <code>null</code> for skipped AEs
+   * @param aTypeSystem
+   *          type system used to find sub- and supertypes, may be <code>null</code>
+   * @return the steps, each holding one or more nodes
+   */
+  protected List<AnalysisSequenceCapabilityNode[]> computeStages(
+          List<AnalysisSequenceCapabilityNode> aSequence, TypeSystem aTypeSystem) {
+    Map<String, AnalysisEngineMetaData> metaDataMap = getContext().getAnalysisEngineMetaDataMap();
+    List<AnalysisSequenceCapabilityNode> nodes = new ArrayList<>();
+    List<Set<String>> inputs = new ArrayList<>();
+    List<Set<String>> outputs = new ArrayList<>();
+    int[] stageOf = new int[aSequence.size()];
+    int stageCount = 0;
+    for (AnalysisSequenceCapabilityNode node : aSequence) {
+      if (node == null) {
+        continue;
+      }
+      Set<String> nodeInputs = new HashSet<>();
+      Set<String> nodeOutputs = new HashSet<>();
+      Capability[] capabilities = metaDataMap.get(node.getCasProcessorKey()).getCapabilities();
+      if (capabilities != null) {
+        for (Capability capability : capabilities) {
+          addTypeNames(capability.getInputs(), nodeInputs);
+          addTypeNames(capability.getOutputs(), nodeOutputs);
+        }
+      }
+      int stage = 0;
+      for (int i = 0; i < nodes.size(); i++) {
+        if (stageOf[i] >= stage && (intersects(outputs.get(i), nodeInputs, aTypeSystem)
+                || intersects(outputs.get(i), nodeOutputs, aTypeSystem)
+                || intersects(inputs.get(i), nodeOutputs, aTypeSystem))) {
+          stage = stageOf[i] + 1;
+        }
+      }
+      stageOf[nodes.size()] = stage;
+      stageCount = Math.max(stageCount, stage + 1);
+      nodes.add(node);
+      inputs.add(nodeInputs);
+      outputs.add(nodeOutputs);
+    }
+
+    List<List<AnalysisSequenceCapabilityNode>> stages = new ArrayList<>(stageCount);
+    for (int i = 0; i < stageCount; i++) {
+      stages.add(new ArrayList<>());
+    }
+    for (int i = 0; i < nodes.size(); i++) {
+      stages.get(stageOf[i]).add(nodes.get(i));
+    }
+    List<AnalysisSequenceCapabilityNode[]> result = new ArrayList<>(stageCount);
+    for (List<AnalysisSequenceCapabilityNode> stage : stages) {
+      result.add(stage.toArray(new AnalysisSequenceCapabilityNode[stage.size()]));
+    }
+    return result;
+  }
+
+  /**
+   * Adds the names of the types of some types or features; a feature name is TypeName:FeatureName.
+   */
+  private static void addTypeNames(TypeOrFeature[] aTofs, Set<String> aTypeNames) {
+    if (aTofs != null) {
+      for (TypeOrFeature tof : aTofs) {
+        String name = tof.getName();
+        int colon = tof.isType() ? -1 : name.indexOf(TypeSystem.FEATURE_SEPARATOR);
+        aTypeNames.add((colon < 0) ? name : name.substring(0, colon));
+      }
+    }
+  }
+
+  private static boolean intersects(Set<String> aTypeNames1, Set<String> aTypeNames2,
+          TypeSystem aTypeSystem) {
+    for (String name1 : aTypeNames1) {
+      if (aTypeNames2.contains(name1)) {
+        return true;
+      }
+      Type type1 = (aTypeSystem == null) ? null : aTypeSystem.getType(name1);
+      if (type1 != null) {
+        for (String name2 : aTypeNames2) {
+          Type type2 = aTypeSystem.getType(name2);
+          if (type2 != null
+                  && (aTypeSystem.subsumes(type1, type2) || aTypeSystem.subsumes(type2, type1))) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  public static FlowControllerDescription getDescription() {
+    FlowControllerDescription desc = getResourceSpecifierFactory().createFlowControllerDescription();
+
+    desc.setImplementationName(ParallelCapabilityLanguageFlowController.class.getName());
+
+    ProcessingResourceMetaData metaData = desc.getFlowControllerMetaData();
+    metaData.setName("Parallel Capability Language Flow Controller");
+    metaData.setDescription("Capability Language Flow Controller that routes the CAS\n" +
+        "\t\tto AEs that do not depend on each other in parallel steps.");
+    metaData.setVendor("The Apache Software Foundation");
+    metaData.setVersion("1.0");
+
+    Capability capability = getResourceSpecifierFactory().createCapability();
+    metaData.setCapabilities(new Capability[] { capability });
+
+    return desc;
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.flow.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.uima.analysis_engine.ResultSpecification;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.text.Language;
+import org.apache.uima.flow.FinalStep;
+import org.apache.uima.flow.ParallelStepWithResultSpecs;
+import org.apache.uima.flow.SimpleStepWithResultSpec;
+import org.apache.uima.flow.Step;
+
+/**
+ * Flow object of the {@link ParallelCapabilityLanguageFlowController}. Steps with a single AE are
+ * returned as for the {@link CapabilityLanguageFlowObject}, steps with more than one AE as a
+ * {@link ParallelStepWithResultSpecs}.
+ */
+public class ParallelCapabilityLanguageFlowObject extends CapabilityLanguageFlowObject {
+
+  static final long serialVersionUID = 2213414520917436727L;
+
+  /**
+   * stageTable includes all languages with their steps
+   */
+  private final Map<String, List<AnalysisSequenceCapabilityNode[]>> mStageTable;
+
+  /**
+   * Current index in the step list.
+   */
+  private int mStageIndex;
+
+  /**
+   * @param aFlowTable
+   *          a flow table
+   * @param aStageTable
+   *          the steps for each language in the flow table
+   * @param aParentController -
+   */
+  public ParallelCapabilityLanguageFlowObject(
+          Map<String, List<AnalysisSequenceCapabilityNode>> aFlowTable,
+          Map<String, List<AnalysisSequenceCapabilityNode[]>> aStageTable,
+          ParallelCapabilityLanguageFlowController aParentController) {
+    super(aFlowTable, aParentController);
+    mStageTable = aStageTable;
+    mStageIndex = 0;
+  }
+
+  public Step next() {
+    CAS cas = getCas();
+    assert cas != null; // ParallelCapabilityLanguageFlowController ensures this
+
+    checkTypeSystem(cas);
+
+    String documentLanguage = Language.normalize(cas.getDocumentLanguage());
+    List<AnalysisSequenceCapabilityNode[]> stages = getForLanguage(mStageTable, documentLanguage);
+    if (stages == null || mStageIndex >= stages.size()) {
+      return new FinalStep();
+    }
+    AnalysisSequenceCapabilityNode[] stage = stages.get(mStageIndex++);
+    if (stage.length == 1) {
+      return new SimpleStepWithResultSpec(stage[0].getCasProcessorKey(),
+              getResultSpecToSend(stage[0]));
+    }
+    List<String> keys = new ArrayList<>(stage.length);
+    Map<String, ResultSpecification> resultSpecs = new HashMap<>();
+    for (AnalysisSequenceCapabilityNode node : stage) {
+      keys.add(node.getCasProcessorKey());
+      ResultSpecification resultSpec = getResultSpecToSend(node);
+      if (resultSpec != null) {
+        resultSpecs.put(node.getCasProcessorKey(), resultSpec);
+      }
+    }
+    return new ParallelStepWithResultSpecs(keys, resultSpecs);
+  }
+
+  /**
+   * reset index of the sequence to 0
+   */
+  public void resetIndex() {
+    super.resetIndex();
+    mStageIndex = 0;
+  }
+}
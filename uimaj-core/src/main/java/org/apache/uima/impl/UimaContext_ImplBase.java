@@ -51,9 +51,13 @@ import org.apache.uima.cas.SofaID;
 import org.apache.uima.cas.impl.CASImpl;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.CasManager;
+import org.apache.uima.resource.ConfigurationManager;
+import org.apache.uima.resource.ConfigurationSnapshot;
 import org.apache.uima.resource.ResourceAccessException;
 import org.apache.uima.resource.ResourceConfigurationException;
 import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.impl.ConfigurationManagerImplBase;
+import org.apache.uima.resource.impl.ConfigurationSnapshot_impl;
 import org.apache.uima.resource.metadata.ConfigurationGroup;
 import org.apache.uima.resource.metadata.ConfigurationParameter;
 import org.apache.uima.util.Level;
@@ -617,6 +621,26 @@ public abstract class UimaContext_ImplBase implements UimaContextAdmin {
     }
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.UimaContext#getConfigurationSnapshot()
+   */
+  @Override
+  public ConfigurationSnapshot getConfigurationSnapshot() {
+    ConfigurationManager configurationManager = getConfigurationManager();
+    if (configurationManager instanceof ConfigurationManagerImplBase) {
+      // published by the configuration manager, after validating the settings
+      ConfigurationSnapshot snapshot = ((ConfigurationManagerImplBase) configurationManager)
+              .getConfigurationSnapshot(getQualifiedContextName());
+      if (snapshot != null) {
+        return snapshot;
+      }
+    }
+    // no published snapshot, make one from the current values
+    return new ConfigurationSnapshot_impl(this);
+  }
+
   /**
    * (non-Javadoc)
    * 
@@ -119,6 +119,24 @@ public abstract class Common_hash_support {
     clearExisting();
   }
   
+  /**
+   * Size an empty table for an expected number of entries.
+   * The table is grown so adding them won't expand it, or shrunk if it is more than 4 times the needed size.
+   * Does nothing if the table is not empty.
+   * @param expectedSize the expected number of entries
+   */
+  public void presize(int expectedSize) {
+    if (size != 0 || removed != 0) {
+      return;
+    }
+    final int capacity = tableSpace(expectedSize, loadFactor);
+    final int len = keys_length();
+    if (len < capacity || (len > (capacity << 2) && len > MIN_CAPACITY_SHRINK)) {
+      newTable(capacity);
+      secondTimeShrinkable = false;
+    }
+  }
+  
   private void clearExisting() {
     clearKeysAndValues();
     size = 0;
@@ -468,8 +486,10 @@ public abstract class Common_hash_support {
     }
   }
 
-  // test case use
-  int getCapacity() {
+  /**
+   * @return the number of slots in the table, &gt;= size
+   */
+  public int getCapacity() {
     return keys_length();
   }
   
@@ -118,6 +118,13 @@ public class OrderedFsSet_array<T extends FeatureStructure> implements Iterable<
     return a_nextFreeslot - a_firstUsedslot;
   }
 
+  /**
+   * @return the length of the backing array, &gt;= size
+   */
+  public int getCapacity() {
+    return a.length;
+  }
+
   public boolean isEmpty() {
     return size() == 0;
   }
@@ -451,6 +458,25 @@ public class OrderedFsSet_array<T extends FeatureStructure> implements Iterable<
     
   }
   
+  /**
+   * Size the empty array for an expected number of items.
+   * The array is grown so adding them won't reallocate it, or shrunk if it is more than 4 times the needed size.
+   * Does nothing if not empty.
+   * @param expectedSize the expected number of items
+   */
+  public void presize(int expectedSize) {
+    if (!isEmpty()) {
+      return;
+    }
+    int len = a.length;
+    if (len < expectedSize || (len > (expectedSize << 2) && len > 128)) {
+      a = new TOP[Math.max(DEFAULT_SIZE, expectedSize)];
+      a_firstUsedslot = 0;
+      a_nextFreeslot = 0;
+      maxSize = 0;
+    }
+  }
+  
   /**
    * Guaranteed by caller to have an equal (withoutID) item, but might be the "end" item
    * searching up to find it.  
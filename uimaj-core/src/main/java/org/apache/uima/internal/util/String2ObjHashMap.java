@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.internal.util;
+
+import java.lang.reflect.Array;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A map&lt;String, T&gt;
+ * 
+ * The String counterpart of Int2ObjHashMap: an open addressing table, without the per entry
+ * objects of java.util.HashMap.
+ * 
+ * This impl is for use in a single thread case only
+ * 
+ * Supports shrinking (reallocating the big table)
+ * 
+ * Implements Map - like interface:
+ *   keys are non-null Strings
+ *     - null is reserved for the empty key slot
+ *     - a private String instance, compared by identity, is reserved for removed slots
+ *   
+ * values can be anything, but null is the value returned by get if not found so 
+ *   values probably should not be null
+ *   
+ * remove supported by replacing the value slot with null, and replacing the key slot with a "removed" token.
+ * A cleanout of removed items occurs when necessary.
+ * 
+ * @param <T> the type of the component type, must match the clazz in the constructor call
+ * @param <E> the type of the elements
+ */
+public class String2ObjHashMap<T, E extends T> extends Common_hash_support implements Iterable<Map.Entry<String, E>> {
+
+  /** compared by identity, never equal to a key in the table */
+  private static final String REMOVED_KEY = new String("");
+
+  private String [] keys;
+  private T [] values;  // this array constructed using the componentType
+
+  final private Class<T> componentType;  // needed to make new instances of the value array
+
+  public String2ObjHashMap(Class<T> clazz) {
+    this(clazz, MIN_SIZE);
+  }
+
+  public String2ObjHashMap(Class<T> clazz, int initialSizeBeforeExpanding) {
+    super(initialSizeBeforeExpanding);
+    this.componentType = clazz;
+    newTable(this.initialCapacity);
+  }
+
+  /** 
+   * Searches the keys for a match
+   * @param key -
+   * @return the probeAddr in keys array - The keys[probeAddr] is null if not found
+   */
+  private int findPosition(final String key) {
+    if (key == null) {  
+      throw new IllegalArgumentException("null is an invalid key");
+    }
+
+    return findPosition(
+
+        // key hash; String hash codes are cached
+        Misc.hashInt(key.hashCode()),
+
+        //is_eq_or_is_not_present
+        i -> keys[i] == null || (keys[i] != REMOVED_KEY && keys[i].equals(key)),
+
+        // is_removed_key
+        i -> keys[i] == REMOVED_KEY
+        );
+  }
+
+  public E get(String key) {
+    return (key == null) ? null : (E) values[findPosition(key)];
+  }
+
+  public boolean containsKey(String key) {
+    return key != null && keys[findPosition(key)] != null;
+  }
+
+  public E remove(String key) {
+    if (key == null) {
+      return null;
+    }
+    int pos = findPosition(key);
+    T v = values[pos];
+    if (keys[pos] != null) {
+      values[pos] = null;
+      keys[pos] = REMOVED_KEY;
+      commonRemove();
+    }
+    return (E) v;  
+  }
+
+  public T put(String key, T value) {
+    int i = findPosition(key);
+    final T prevValue = values[i];
+
+    if (keys[i] != null) { // key found
+      values[i] = value;
+      return prevValue;
+    }
+
+    if (found_removed != -1) {
+      i = found_removed;  // use the removed slot for the new value
+    } 
+
+    keys[i] = key;
+    values[i] = value;
+
+    commonPutOrAddNotFound();
+    return prevValue;
+  }
+
+  private void putInner(String key, T value) {
+    final int i = findPosition(key);
+    assert (keys[i] == null);
+    keys[i] = key;
+    values[i] = value;
+  }
+
+  @Override
+  protected void copy_to_new_table(
+      /* ignored */int newCapacity,
+      /* ignored */int oldCapacity,
+      CommonCopyOld2New commonCopy) {
+    String [] oldKeys = keys;
+    T [] oldValues = values;
+    commonCopy.apply(
+
+        // copyToNew 
+        i -> 
+          putInner(oldKeys[i], oldValues[i]),
+
+        // is_valid_old_key 
+        i ->  
+          oldKeys[i] != null && oldKeys[i] != REMOVED_KEY);
+  }
+
+  /**
+   * @return an iterator&lt;String&gt; over the keys in random order
+   */
+  public Iterator<String> keyIterator() {
+    return new PositionIterator<String>() {
+      @Override
+      String at(int pos) {
+        return keys[pos];
+      }
+    };
+  }
+
+  /**
+   * @return an iterator&lt;T&gt; over the values in random order
+   */
+  public Iterator<E> values() {
+    return new PositionIterator<E>() {
+      @Override
+      E at(int pos) {
+        return (E) values[pos];
+      }
+    };
+  }
+
+  /**
+   * @return an iterator over immutable entries, in random order
+   */
+  @Override
+  public Iterator<Map.Entry<String, E>> iterator() {
+    return new PositionIterator<Map.Entry<String, E>>() {
+      @Override
+      Map.Entry<String, E> at(int pos) {
+        return new AbstractMap.SimpleImmutableEntry<>(keys[pos], (E) values[pos]);
+      }
+    };
+  }
+
+  public T[] valuesArray() {
+    Iterator<E> it = values();
+    int size = size();
+    T[] r = (T[]) Array.newInstance(componentType, size);
+    for (int i = 0; i < size; i++) {
+      r[i] = it.next();
+    }
+    return r;
+  }
+
+  /**
+   * Iterates over the filled positions of the table
+   */
+  private abstract class PositionIterator<V> implements Iterator<V> {
+
+    /**
+     * Keep this always pointing to a non-null entry, or
+     * if not valid, outside the range
+     */
+    private int curPosition = moveToNextFilled(0);
+
+    abstract V at(int pos);
+
+    @Override
+    public boolean hasNext() {
+      return curPosition < keys.length;
+    }
+
+    @Override
+    public V next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      V r = at(curPosition);
+      curPosition = moveToNextFilled(curPosition + 1);
+      return r;
+    }
+  }
+
+  @Override
+  protected int keys_length() {
+    return keys.length;
+  }
+
+  @Override
+  protected boolean is_valid_key(int pos) {
+    return keys[pos] != null && keys[pos] != REMOVED_KEY;
+  }
+
+  @Override
+  protected void newKeysAndValues(int size) {
+    keys = new String[size];
+    values = (T[]) Array.newInstance(componentType, size);    
+  }
+
+  @Override
+  protected void clearKeysAndValues() {
+    Arrays.fill(keys, null);
+    Arrays.fill(values, null);
+  }
+
+}
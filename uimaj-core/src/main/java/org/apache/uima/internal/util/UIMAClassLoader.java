@@ -19,15 +19,20 @@
 
 package org.apache.uima.internal.util;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.StringTokenizer;
 
+import org.apache.uima.jcas.cas.TOP;
+
 /**
  * UIMAClassLoader is used as extension ClassLoader for UIMA to load additional components like
  * annotators and resources. The classpath of the classloader is specified as string.
@@ -79,6 +84,13 @@ public class UIMAClassLoader extends URLClassLoader {
   final private Object[] syncLocks = new Object[nbrLocks];
 
   private boolean isClosed = false;
+
+  /**
+   * When true, JCas classes on this loader's classpath that are byte-for-byte identical to the
+   * ones the parent loads are loaded by the parent. Used for PEARs which package their own copy of
+   * shared JCas classes, to avoid needing PEAR versions (trampolines) of Feature Structures.
+   */
+  private volatile boolean isShareIdenticalJCasClasses = false;
    
   /**
    * Transforms the string classpath to a URL array based classpath.
@@ -218,7 +230,10 @@ public class UIMAClassLoader extends URLClassLoader {
           if (MHLC.equals(name)) {
             c = defineClass(MHLC, methodHandlesLookupClass, 0, methodHandlesLookupClass.length);
           } else {
-            c = findClass(name);
+            c = isShareIdenticalJCasClasses ? findIdenticalJCasClassInParent(name) : null;
+            if (c == null) {
+              c = findClass(name);
+            }
           }
         } catch (ClassNotFoundException e) {
           // delegate class loading for this class-name
@@ -233,6 +248,63 @@ public class UIMAClassLoader extends URLClassLoader {
     }
   }
   
+  /**
+   * @param aShare true to have JCas classes which are identical to the parent's loaded by the parent
+   */
+  public void setShareIdenticalJCasClasses(boolean aShare) {
+    isShareIdenticalJCasClasses = aShare;
+  }
+
+  /**
+   * @return true if JCas classes which are identical to the parent's are loaded by the parent
+   */
+  public boolean isShareIdenticalJCasClasses() {
+    return isShareIdenticalJCasClasses;
+  }
+
+  /**
+   * Verifies, when the class is first loaded, that this loader's version of a class is byte-for-byte
+   * the same as the parent's, and that it is a JCas class.
+   * @param name the class name
+   * @return the parent's class, or null if this loader should load its own version
+   */
+  private Class<?> findIdenticalJCasClassInParent(String name) {
+    final ClassLoader parent = getParent();
+    if (null == parent) {
+      return null;
+    }
+    final String path = name.replace('.', '/') + ".class";
+    final URL local = findResource(path);
+    if (null == local) {
+      return null;  // not on this classpath, delegated anyway
+    }
+    final URL inParent = parent.getResource(path);
+    if (null == inParent) {
+      return null;
+    }
+    try {
+      if (!Arrays.equals(readAll(local), readAll(inParent))) {
+        return null;
+      }
+      Class<?> pc = parent.loadClass(name);
+      return TOP.class.isAssignableFrom(pc) ? pc : null;
+    } catch (IOException | ClassNotFoundException | LinkageError e) {
+      return null;  // load our own version
+    }
+  }
+
+  private static byte[] readAll(URL url) throws IOException {
+    try (InputStream is = url.openStream()) {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream(4096);
+      byte[] buf = new byte[4096];
+      int n;
+      while ((n = is.read(buf)) != -1) {
+        baos.write(buf, 0, n);
+      }
+      return baos.toByteArray();
+    }
+  }
+
   /* 
    * loads resource from this class loader first, if possible
    * (non-Javadoc)
@@ -0,0 +1,527 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.internal.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * A SAX ContentHandler that writes unformatted XML 1.0 as UTF-8 bytes directly to an OutputStream,
+ * without going through a JAXP Transformer.
+ *
+ * The output is byte for byte what the JDK's built-in identity Transformer, used by
+ * {@link org.apache.uima.util.XMLSerializer} without formatting, writes for the same events:
+ *   - no newline after the XML declaration, empty elements written as &lt;x/&gt;
+ *   - in text, &amp; &lt; &gt; \r and the chars 0x7F - 0x9F are written as references,
+ *     \n as the platform line separator
+ *   - in attribute values, &amp; &lt; &gt; &quot; \n \r \t are written as references
+ *   - supplementary characters are written as numeric character references
+ *   - namespace declarations are merged into the attributes in the same order
+ *
+ * Like the XMLSerializer's content handler, attribute values and character content are
+ * checked for characters not allowed in XML 1.0, unless validation is turned off.
+ *
+ * The byte buffer is kept per thread and reused for the next document.
+ *
+ * Not thread safe; one instance writes one document.
+ */
+public final class Utf8XmlWriter implements ContentHandler {
+
+  private static final int BUFFER_SIZE = 1 << 15;
+
+  private static final byte[] XML_DECLARATION = ascii("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+  private static final byte[] AMP = ascii("&amp;");
+  private static final byte[] LT = ascii("&lt;");
+  private static final byte[] GT = ascii("&gt;");
+  private static final byte[] QUOT = ascii("&quot;");
+  private static final byte[] LINE_SEPARATOR = ascii(System.getProperty("line.separator"));
+
+  /** buffers are taken out while writing a document, and given back at the end */
+  private static final ThreadLocal<byte[]> buffers = new ThreadLocal<>();
+
+  private final OutputStream out;
+
+  private final boolean isValidate;
+
+  private byte[] buf;
+
+  private int pos = 0;
+
+  /** the last start tag is waiting for its "&gt;" or, if the element turns out to be empty, "/&gt;" */
+  private boolean isStartTagOpen = false;
+
+  /** namespace bindings in scope, innermost last */
+  private final ArrayList<NsBinding> nsBindings = new ArrayList<>();
+
+  /** prefix, uri pairs from startPrefixMapping, waiting for the next start tag */
+  private final ArrayList<String> pendingNs = new ArrayList<>();
+
+  /** qName, value pairs of the start tag being written */
+  private final ArrayList<String> attrs = new ArrayList<>();
+
+  private boolean isRootStarted = false;
+
+  private int depth = 0;
+
+  /**
+   * @param out where to write the UTF-8 encoded XML
+   * @param isValidate true to throw a SAXParseException when trying to write a character not allowed in XML 1.0
+   */
+  public Utf8XmlWriter(OutputStream out, boolean isValidate) {
+    this.out = out;
+    this.isValidate = isValidate;
+    byte[] b = buffers.get();
+    if (b == null) {
+      b = new byte[BUFFER_SIZE];
+    } else {
+      buffers.set(null);  // in case another document is written on this thread before this one finishes
+    }
+    buf = b;
+  }
+
+  @Override
+  public void setDocumentLocator(Locator locator) {
+  }
+
+  @Override
+  public void startDocument() throws SAXException {
+    writeBytes(XML_DECLARATION);
+  }
+
+  @Override
+  public void endDocument() throws SAXException {
+    closeStartTag();
+    try {
+      flushBuffer();
+      out.flush();
+    } catch (IOException e) {
+      throw new SAXException(e);
+    }
+    buffers.set(buf);
+  }
+
+  @Override
+  public void startPrefixMapping(String prefix, String uri) throws SAXException {
+    pendingNs.add(prefix);
+    pendingNs.add(uri);
+  }
+
+  /**
+   * Like the Transformer, bindings end with the element they are declared on
+   */
+  @Override
+  public void endPrefixMapping(String prefix) throws SAXException {
+  }
+
+  /**
+   * The attributes are collected first, because the Transformer merges namespace declarations into them:
+   *   - declarations from startPrefixMapping come first, except for the root element, where they come last
+   *   - then a declaration of the element's prefix, if not in scope
+   *   - then the attributes; an attribute with the same name as one already there replaces its value
+   */
+  @Override
+  public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+    closeStartTag();
+    depth++;
+    attrs.clear();
+    final boolean isRoot = !isRootStarted;
+    isRootStarted = true;
+
+    if (!isRoot) {
+      declarePendingNs();
+    }
+
+    if (uri != null && uri.length() > 0) {
+      int colon = qName.indexOf(':');
+      String prefix = (colon < 0) ? "" : qName.substring(0, colon);
+      if (!uri.equals(lookupNs(prefix))) {
+        nsBindings.add(new NsBinding(prefix, uri, depth));
+        addAttr(xmlnsName(prefix), uri, true);
+      }
+    }
+
+    for (int i = 0; i < atts.getLength(); i++) {
+      String name = atts.getQName(i);
+      addAttr(name, atts.getValue(i), name.startsWith("xmlns"));
+    }
+
+    if (isRoot) {
+      declarePendingNs();
+    }
+
+    ensure(1);
+    buf[pos++] = '<';
+    writeName(qName);
+    for (int i = 0; i < attrs.size(); i += 2) {
+      ensure(1);
+      buf[pos++] = ' ';
+      writeName(attrs.get(i));
+      ensure(2);
+      buf[pos++] = '=';
+      buf[pos++] = '"';
+      writeAttributeValue(attrs.get(i + 1));
+      ensure(1);
+      buf[pos++] = '"';
+    }
+    isStartTagOpen = true;
+  }
+
+  @Override
+  public void endElement(String uri, String localName, String qName) throws SAXException {
+    if (isStartTagOpen) {
+      isStartTagOpen = false;
+      ensure(2);
+      buf[pos++] = '/';
+      buf[pos++] = '>';
+    } else {
+      ensure(2);
+      buf[pos++] = '<';
+      buf[pos++] = '/';
+      writeName(qName);
+      ensure(1);
+      buf[pos++] = '>';
+    }
+    for (int i = nsBindings.size() - 1; i >= 0 && nsBindings.get(i).depth == depth; i--) {
+      nsBindings.remove(i);
+    }
+    depth--;
+  }
+
+  @Override
+  public void characters(char[] ch, int start, int length) throws SAXException {
+    if (length == 0) {
+      return;
+    }
+    closeStartTag();
+    final int end = start + length;
+    for (int i = start; i < end; i++) {
+      final char c = ch[i];
+      if (c < 0x7F) {
+        if (c >= 0x20) {
+          switch (c) {
+          case '&': writeBytes(AMP); break;
+          case '<': writeBytes(LT); break;
+          case '>': writeBytes(GT); break;
+          default:
+            ensure(1);
+            buf[pos++] = (byte) c;
+          }
+        } else if (c == '\n') {
+          writeBytes(LINE_SEPARATOR);
+        } else if (c == '\t') {
+          ensure(1);
+          buf[pos++] = (byte) c;
+        } else {
+          if (c != '\r') {
+            invalidChar(ch, start, length, i);
+          }
+          writeCharRef(c);
+        }
+      } else if (c <= 0x9F) {
+        writeCharRef(c);
+      } else if (Character.isSurrogate(c)) {
+        i = writeSurrogates(ch, start, length, i);
+      } else {
+        writeNonAscii(ch, start, length, i, c);
+      }
+    }
+  }
+
+  @Override
+  public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+    characters(ch, start, length);
+  }
+
+  @Override
+  public void processingInstruction(String target, String data) throws SAXException {
+    closeStartTag();
+    writeBytes(ascii("<?"));
+    writeName(target);
+    if (data != null && data.length() > 0) {
+      ensure(1);
+      buf[pos++] = ' ';
+      writeName(data);
+    }
+    writeBytes(ascii("?>"));
+  }
+
+  @Override
+  public void skippedEntity(String name) throws SAXException {
+  }
+
+  /* **********************
+   *   Internal methods   *
+   * **********************/
+
+  private void closeStartTag() throws SAXException {
+    if (isStartTagOpen) {
+      isStartTagOpen = false;
+      ensure(1);
+      buf[pos++] = '>';
+    }
+  }
+
+  /**
+   * Declare the namespaces from startPrefixMapping, unless already in scope
+   */
+  private void declarePendingNs() {
+    for (int i = 0; i < pendingNs.size(); i += 2) {
+      String prefix = pendingNs.get(i);
+      String uri = pendingNs.get(i + 1);
+      if (prefix.startsWith("xml")) {
+        continue;
+      }
+      NsBinding b = lookupBinding(prefix);
+      if (b != null && (b.uri.equals(uri) || b.depth == depth)) {
+        continue;
+      }
+      nsBindings.add(new NsBinding(prefix, uri, depth));
+      if (prefix.length() == 0 || uri.length() > 0) {
+        addAttr(xmlnsName(prefix), uri, true);
+      }
+    }
+    pendingNs.clear();
+  }
+
+  private NsBinding lookupBinding(String prefix) {
+    for (int i = nsBindings.size() - 1; i >= 0; i--) {
+      NsBinding b = nsBindings.get(i);
+      if (b.prefix.equals(prefix)) {
+        return b;
+      }
+    }
+    return null;
+  }
+
+  private String lookupNs(String prefix) {
+    NsBinding b = lookupBinding(prefix);
+    return (b == null) ? null : b.uri;
+  }
+
+  private static String xmlnsName(String prefix) {
+    return (prefix.length() == 0) ? "xmlns" : "xmlns:" + prefix;
+  }
+
+  /**
+   * @param isMaybeDuplicate true for namespace declarations, which may have been added already
+   */
+  private void addAttr(String name, String value, boolean isMaybeDuplicate) {
+    if (isMaybeDuplicate) {
+      for (int i = 0; i < attrs.size(); i += 2) {
+        if (attrs.get(i).equals(name)) {
+          attrs.set(i + 1, value);
+          return;
+        }
+      }
+    }
+    attrs.add(name);
+    attrs.add(value);
+  }
+
+  /**
+   * Names are written without escaping or checking
+   */
+  private void writeName(String s) throws SAXException {
+    final int len = s.length();
+    for (int i = 0; i < len; i++) {
+      final char c = s.charAt(i);
+      if (c < 0x80) {
+        ensure(1);
+        buf[pos++] = (byte) c;
+      } else {
+        writeUtf8(s.codePointAt(i));
+        if (Character.isHighSurrogate(c)) {
+          i++;
+        }
+      }
+    }
+  }
+
+  private void writeAttributeValue(String s) throws SAXException {
+    if (s == null) {
+      return;
+    }
+    final int len = s.length();
+    for (int i = 0; i < len; i++) {
+      final char c = s.charAt(i);
+      if (c < 0x80) {
+        if (c >= 0x20) {
+          switch (c) {
+          case '&': writeBytes(AMP); break;
+          case '<': writeBytes(LT); break;
+          case '>': writeBytes(GT); break;
+          case '"': writeBytes(QUOT); break;
+          default:
+            ensure(1);
+            buf[pos++] = (byte) c;
+          }
+        } else {
+          if (c != '\n' && c != '\r' && c != '\t') {
+            invalidChar(s, i);
+          }
+          writeCharRef(c);
+        }
+      } else if (Character.isSurrogate(c)) {
+        if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+          writeCharRef(Character.toCodePoint(c, s.charAt(++i)));
+        } else {
+          invalidChar(s, i);
+          writeCharRef(c);
+        }
+      } else {
+        if (c >= 0xFFFE) {
+          invalidChar(s, i);
+        }
+        writeUtf8(c);
+      }
+    }
+  }
+
+  private int writeSurrogates(char[] ch, int start, int length, int i) throws SAXException {
+    final char c = ch[i];
+    if (Character.isHighSurrogate(c) && i + 1 < start + length && Character.isLowSurrogate(ch[i + 1])) {
+      writeCharRef(Character.toCodePoint(c, ch[i + 1]));
+      return i + 1;
+    }
+    invalidChar(ch, start, length, i);
+    writeCharRef(c);
+    return i;
+  }
+
+  private void writeNonAscii(char[] ch, int start, int length, int i, char c) throws SAXException {
+    if (c >= 0xFFFE) {
+      invalidChar(ch, start, length, i);
+    }
+    writeUtf8(c);
+  }
+
+  private void writeUtf8(int c) throws SAXException {
+    ensure(4);
+    if (c < 0x800) {
+      buf[pos++] = (byte) (0xC0 | (c >> 6));
+      buf[pos++] = (byte) (0x80 | (c & 0x3F));
+    } else if (c < 0x10000) {
+      buf[pos++] = (byte) (0xE0 | (c >> 12));
+      buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+      buf[pos++] = (byte) (0x80 | (c & 0x3F));
+    } else {
+      buf[pos++] = (byte) (0xF0 | (c >> 18));
+      buf[pos++] = (byte) (0x80 | ((c >> 12) & 0x3F));
+      buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+      buf[pos++] = (byte) (0x80 | (c & 0x3F));
+    }
+  }
+
+  /**
+   * write &amp;#nnn; in decimal
+   */
+  private void writeCharRef(int c) throws SAXException {
+    ensure(10);
+    buf[pos++] = '&';
+    buf[pos++] = '#';
+    int divisor = 1;
+    while (divisor * 10 <= c) {
+      divisor *= 10;
+    }
+    for (; divisor > 0; divisor /= 10) {
+      buf[pos++] = (byte) ('0' + (c / divisor) % 10);
+    }
+    buf[pos++] = ';';
+  }
+
+  private void writeBytes(byte[] bytes) throws SAXException {
+    ensure(bytes.length);
+    System.arraycopy(bytes, 0, buf, pos, bytes.length);
+    pos += bytes.length;
+  }
+
+  private void ensure(int n) throws SAXException {
+    if (pos + n > buf.length) {
+      try {
+        flushBuffer();
+      } catch (IOException e) {
+        throw new SAXException(e);
+      }
+    }
+  }
+
+  private void flushBuffer() throws IOException {
+    if (pos > 0) {
+      out.write(buf, 0, pos);
+      pos = 0;
+    }
+  }
+
+  private static class NsBinding {
+    final String prefix;
+    final String uri;
+    /** the depth of the element declaring it */
+    final int depth;
+
+    NsBinding(String prefix, String uri, int depth) {
+      this.prefix = prefix;
+      this.uri = uri;
+      this.depth = depth;
+    }
+  }
+
+  private static byte[] ascii(String s) {
+    byte[] r = new byte[s.length()];
+    for (int i = 0; i < r.length; i++) {
+      r[i] = (byte) s.charAt(i);
+    }
+    return r;
+  }
+
+  /* ***************************************************************
+   * Same messages as the XMLSerializer's CharacterValidatingContentHandler
+   * ***************************************************************/
+
+  private void invalidChar(String s, int index) throws SAXParseException {
+    if (isValidate) {
+      String startStr = (index == 0)
+                       ? "[The Very First Character]"
+                       : s.substring(0, Math.min(index, Math.min(100,  s.length())));
+      throw invalidCharException((int)s.charAt(index), index, startStr);
+    }
+  }
+
+  private void invalidChar(char[] ch, int start, int length, int index) throws SAXParseException {
+    if (isValidate) {
+      String startStr = (index == 0)
+          ? "[The Very First Character]"
+          : new String(ch).substring(0, Math.min(index, Math.min(100,  ch.length)));
+      throw invalidCharException((int)ch[index], index, startStr);
+    }
+  }
+
+  private static SAXParseException invalidCharException(int c, int index, String startStr) {
+    String msg =  String.format("Trying to serialize non-XML %s character: 0x%x at offset %,d in string starting with %s",
+        "1.0", c, index, startStr);
+    return new SAXParseException(msg, null);
+  }
+}
@@ -20,6 +20,7 @@
 package org.apache.uima.jcas;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.ListIterator;
@@ -715,6 +716,26 @@ public interface JCas extends AbstractCas {
    */
   InputStream getSofaDataStream();
 
+  /**
+   * Get the Sofa data as a read only buffer, without copying it where possible.
+   * 
+   * @return A buffer over the Sofa Data.
+   * @see org.apache.uima.cas.SofaFS#getSofaDataBuffer()
+   */
+  default ByteBuffer getSofaDataBuffer() {
+    return getCas().getSofaDataBuffer();
+  }
+
+  /**
+   * Get the Sofa data as text, without creating a String where possible.
+   * 
+   * @return A text view of the Sofa Data.
+   * @see org.apache.uima.cas.SofaFS#getSofaDataText()
+   */
+  default CharSequence getSofaDataText() {
+    return getCas().getSofaDataText();
+  }
+
   /**
    * Get the mime type of the Sofa data being analyzed.
    * 
@@ -73,6 +73,7 @@ public final class BooleanArray extends TOP implements CommonPrimitiveArray<Bool
   public BooleanArray(JCas jcas, int length) {
     super(jcas);
     theArray = new boolean[length];
+    _casView.addArrayBytes(length, 1);
 
     if (CASImpl.traceFSs) {  // tracing done after array setting, skipped in super class
       _casView.traceFSCreate(this);
@@ -91,6 +92,7 @@ public final class BooleanArray extends TOP implements CommonPrimitiveArray<Bool
   public BooleanArray(TypeImpl t, CASImpl c, int l) {
     super(t, c);
     theArray = new boolean[l];
+    _casView.addArrayBytes(l, 1);
     if (CASImpl.traceFSs) { // tracing done after array setting, skipped in super class
       _casView.traceFSCreate(this);
     }
@@ -70,6 +70,7 @@ public final class ByteArray extends TOP implements CommonPrimitiveArray<Byte>,
   public ByteArray(JCas jcas, int length) {
     super(jcas);  
     theArray = new byte[length];
+    _casView.addArrayBytes(length, Byte.BYTES);
     if (CASImpl.traceFSs) { // tracing done after array setting, skipped in super class
       _casView.traceFSCreate(this);
     }
@@ -88,6 +89,7 @@ public final class ByteArray extends TOP implements CommonPrimitiveArray<Byte>,
   public ByteArray(TypeImpl t, CASImpl c, int length) {
     super(t, c);  
     theArray = new byte[length];
+    _casView.addArrayBytes(length, Byte.BYTES);
     if (CASImpl.traceFSs) { // tracing done after array setting, skipped in super class
       _casView.traceFSCreate(this);
     }
@@ -75,6 +75,7 @@ public final class DoubleArray extends TOP implements CommonPrimitiveArray<Doubl
   public DoubleArray(JCas jcas, int length) {
     super(jcas);
     theArray = new double[length];
+    _casView.addArrayBytes(length, Double.BYTES);
     if (CASImpl.traceFSs) { // tracing done after array setting, skipped in super class
       _casView.traceFSCreate(this);
     }
@@ -93,6 +94,7 @@ public final class DoubleArray extends TOP implements CommonPrimitiveArray<Doubl
   public DoubleArray(TypeImpl t, CASImpl c, int length) {
     super(t, c);  
     theArray = new double[length];
+    _casView.addArrayBytes(length, Double.BYTES);
     if (CASImpl.traceFSs) { // tracing done after array setting, skipped in super class
       _casView.traceFSCreate(this);
     }
@@ -34,6 +34,7 @@ import org.apache.uima.cas.CASRuntimeException;
 import org.apache.uima.cas.CommonArrayFS;
 import org.apache.uima.cas.FeatureStructure;
 import org.apache.uima.cas.impl.CASImpl;
+import org.apache.uima.cas.impl.CasMemoryFootprint;
 import org.apache.uima.cas.impl.TypeImpl;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.JCasRegistry;
@@ -86,6 +87,7 @@ public final class FSArray<T extends FeatureStructure> extends TOP
     super(jcas);
     _casView.validateArraySize(length);
     theArray = new TOP[length];
+    _casView.addArrayBytes(length, CasMemoryFootprint.REFERENCE_BYTES);
 
     if (CASImpl.traceFSs) { // tracing done after array setting, skipped in super class
       _casView.traceFSCreate(this);
@@ -106,6 +108,7 @@ public final class FSArray<T extends FeatureStructure> extends TOP
     super(t, c);  
     _casView.validateArraySize(length);
     theArray = new TOP[length];
+    _casView.addArrayBytes(length, CasMemoryFootprint.REFERENCE_BYTES);
     
     if (CASImpl.traceFSs) { // tracing done after array setting, skipped in super class
       _casView.traceFSCreate(this);
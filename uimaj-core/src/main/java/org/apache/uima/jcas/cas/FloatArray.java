@@ -72,6 +72,7 @@ public final class FloatArray extends TOP
   public FloatArray(JCas jcas, int length) {
     super(jcas);
     theArray = new float[length];
+    _casView.addArrayBytes(length, Float.BYTES);
     if (CASImpl.traceFSs) { // tracing done after array setting, skipped in super class
       _casView.traceFSCreate(this);
     }
@@ -90,6 +91,7 @@ public final class FloatArray extends TOP
   public FloatArray(TypeImpl t, CASImpl c, int length) {
     super(t, c);  
     theArray = new float[length];
+    _casView.addArrayBytes(length, Float.BYTES);
     if (CASImpl.traceFSs) { // tracing done after array setting, skipped in super class
       _casView.traceFSCreate(this);
     }
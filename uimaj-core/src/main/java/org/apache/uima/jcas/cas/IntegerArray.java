@@ -74,6 +74,7 @@ public final class IntegerArray extends TOP implements CommonPrimitiveArray<Inte
   public IntegerArray(JCas jcas, int length) {
     super(jcas);
     theArray = new int[length];
+    _casView.addArrayBytes(length, Integer.BYTES);
     if (CASImpl.traceFSs) { // tracing done after array setting, skipped in super class
       _casView.traceFSCreate(this);
     }
@@ -92,6 +93,7 @@ public final class IntegerArray extends TOP implements CommonPrimitiveArray<Inte
   public IntegerArray(TypeImpl t, CASImpl c, int length) {
     super(t, c);  
     theArray = new int[length];
+    _casView.addArrayBytes(length, Integer.BYTES);
     if (CASImpl.traceFSs) { // tracing done after array setting, skipped in super class
       _casView.traceFSCreate(this);
     }
@@ -0,0 +1,354 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.jcas.cas;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator.OfInt;
+
+import org.apache.uima.UimaSerializable;
+import org.apache.uima.cas.impl.CASImpl;
+import org.apache.uima.cas.impl.FeatureStructureImplC;
+import org.apache.uima.cas.impl.TypeImpl;
+import org.apache.uima.cas.impl.TypeSystemImpl;
+import org.apache.uima.internal.util.IntHashSet;
+import org.apache.uima.internal.util.IntListIterator;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.JCasRegistry;
+
+/**
+ * A hash set of ints, for UIMA
+ *   - like HashSet&lt;Integer&gt;, but storing ints in an open addressing table, without boxing
+ *   - all int values may be stored
+ *
+ * Implementation notes:
+ *   - Uses UimaSerializable APIs, saving the values to an IntegerArray feature
+ *   - the IntHashSet it uses reserves the values 0 and Integer.MIN_VALUE; these are kept
+ *     as flags instead
+ */
+public class IntegerHashSet extends TOP implements
+                          Iterable<Integer>,
+                          UimaSerializable, Cloneable {
+
+  /** @generated
+   * @ordered
+   */
+  @SuppressWarnings ("hiding")
+  public final static String _TypeName = "org.apache.uima.jcas.cas.IntegerHashSet";
+
+  /** @generated
+   * @ordered
+   */
+  @SuppressWarnings ("hiding")
+  public final static int typeIndexID = JCasRegistry.register(IntegerHashSet.class);
+  /** @generated
+   * @ordered
+   */
+  @SuppressWarnings ("hiding")
+  public final static int type = typeIndexID;
+  /** @generated
+   * @return index of the type
+   */
+  @Override
+  public              int getTypeIndexID() {return typeIndexID;}
+
+  private boolean isPendingInit = false;
+  private boolean isSaveNeeded = false;
+
+  /** replaced, not cleared, when initialized from the CAS data, because a clone starts out sharing it */
+  private IntHashSet intHashSet;
+  private boolean hasZero = false;
+  private boolean hasMinValue = false;
+
+  /* *******************
+   *   Feature Offsets *
+   * *******************/
+
+  public final static String _FeatName_intArray = "intArray";
+
+
+  /* Feature Adjusted Offsets */
+  private final static CallSite _FC_intArray = TypeSystemImpl.createCallSiteForBuiltIn(IntegerHashSet.class, "intArray");
+  private final static MethodHandle _FH_intArray = _FC_intArray.dynamicInvoker();
+
+  /** Never called.  Disable default constructor
+   * @generated */
+  protected IntegerHashSet() {
+  }
+
+  /** Internal - constructor used by generator
+   * @generated
+   * @param casImpl the CAS this Feature Structure belongs to
+   * @param type the type of this Feature Structure
+   */
+  public IntegerHashSet(TypeImpl type, CASImpl casImpl) {
+    super(type, casImpl);
+    intHashSet = new IntHashSet();
+
+    if (CASImpl.traceFSs) { // tracing done after array setting, skipped in super class
+      _casView.traceFSCreate(this);
+    }
+  }
+
+  /** @generated
+   * @param jcas JCas to which this Feature Structure belongs
+   */
+  public IntegerHashSet(JCas jcas) {
+    super(jcas);
+    intHashSet = new IntHashSet();
+
+    if (CASImpl.traceFSs) { // tracing done after array setting, skipped in super class
+      _casView.traceFSCreate(this);
+    }
+  }
+
+  /**
+   * Make a new IntegerHashSet with an initial capacity.
+   *
+   * @param jcas The JCas
+   * @param length the number of values which can be added before expanding
+   */
+  public IntegerHashSet(JCas jcas, int length) {
+    super(jcas);
+    _casView.validateArraySize(length);
+    intHashSet = new IntHashSet(length);
+
+    if (CASImpl.traceFSs) { // tracing done after array setting, skipped in super class
+      _casView.traceFSCreate(this);
+    }
+  }
+
+  //*--------------*
+  //* Feature: intArray
+
+  /** getter for intArray - internal use
+   * @generated
+   * @return value of the feature
+   */
+  private IntegerArray getIntArray() { return (IntegerArray)(_getFeatureValueNc(wrapGetIntCatchException(_FH_intArray)));}
+
+  /** setter for intArray - internal use
+   * @generated
+   * @param v value to set into the feature
+   */
+  private void setIntArray(IntegerArray v) {
+    _setFeatureValueNcWj(wrapGetIntCatchException(_FH_intArray), v);
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.uima.UimaSerializable#_init_from_cas_data()
+   */
+  @Override
+  public void _init_from_cas_data() {
+    isPendingInit = true;
+  }
+
+  private void maybeLazyInit() {
+    if (isPendingInit) {
+      lazyInit();
+    }
+  }
+
+  private void lazyInit() {
+    isPendingInit = false;
+    IntegerArray ia = getIntArray();
+    int size = (null == ia) ? 0 : ia.size();
+    intHashSet = new IntHashSet(Math.max(10, size));
+    hasZero = hasMinValue = false;
+    for (int i = 0; i < size; i++) {
+      addNoSave(ia.get(i));
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.uima.UimaSerializable#_save_to_cas_data()
+   */
+  @Override
+  public void _save_to_cas_data() {
+    if (isSaveNeeded) {
+      isSaveNeeded = false;
+      IntegerArray ia = getIntArray();
+      int[] values = toArray();
+      if (ia == null || ia.size() != values.length) {
+        ia = new IntegerArray(_casView.getJCasImpl(), values.length);
+        setIntArray(ia);
+      }
+
+      // using element by element instead of bulk operations
+      //   in case ia was preallocated and right size, may need journaling
+      for (int i = 0; i < values.length; i++) {
+        if (ia.get(i) != values[i]) {
+          ia.set(i, values[i]);
+        }
+      }
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.uima.UimaSerializable#_superClone()
+   */
+  @Override
+  public FeatureStructureImplC _superClone() { return clone();}  // enable common clone
+
+  /**
+   * @param v the value to add
+   * @return true if the set did not already contain the value
+   */
+  public boolean add(int v) {
+    maybeLazyInit();
+    boolean r = addNoSave(v);
+    if (r) {
+      isSaveNeeded = true;
+    }
+    return r;
+  }
+
+  private boolean addNoSave(int v) {
+    if (v == 0) {
+      boolean r = !hasZero;
+      hasZero = true;
+      return r;
+    }
+    if (v == Integer.MIN_VALUE) {
+      boolean r = !hasMinValue;
+      hasMinValue = true;
+      return r;
+    }
+    return intHashSet.add(v);
+  }
+
+  /**
+   * @param v the value to test
+   * @return true if the set contains the value
+   */
+  public boolean contains(int v) {
+    maybeLazyInit();
+    return (v == 0)
+             ? hasZero
+             : (v == Integer.MIN_VALUE)
+                 ? hasMinValue
+                 : intHashSet.contains(v);
+  }
+
+  /**
+   * @param v the value to remove
+   * @return true if the set contained the value
+   */
+  public boolean remove(int v) {
+    maybeLazyInit();
+    boolean r;
+    if (v == 0) {
+      r = hasZero;
+      hasZero = false;
+    } else if (v == Integer.MIN_VALUE) {
+      r = hasMinValue;
+      hasMinValue = false;
+    } else {
+      r = intHashSet.remove(v);
+    }
+    if (r) {
+      isSaveNeeded = true;
+    }
+    return r;
+  }
+
+  public int size() {
+    maybeLazyInit();
+    return intHashSet.size() + (hasZero ? 1 : 0) + (hasMinValue ? 1 : 0);
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  public void clear() {
+    if (size() == 0) return;
+    isSaveNeeded = true;
+    intHashSet.clear();
+    hasZero = hasMinValue = false;
+  }
+
+  /**
+   * @return the values, in no particular order
+   */
+  public int[] toArray() {
+    maybeLazyInit();
+    int[] a = intHashSet.toIntArray();
+    int extra = (hasZero ? 1 : 0) + (hasMinValue ? 1 : 0);
+    if (extra == 0) {
+      return a;
+    }
+    int[] r = new int[a.length + extra];
+    System.arraycopy(a, 0, r, 0, a.length);
+    int i = a.length;
+    if (hasZero) {
+      r[i++] = 0;
+    }
+    if (hasMinValue) {
+      r[i] = Integer.MIN_VALUE;
+    }
+    return r;
+  }
+
+  /**
+   * @return an iterator over the values, in no particular order; the set must not be modified while iterating
+   */
+  @Override
+  public OfInt iterator() {
+    maybeLazyInit();
+    final IntListIterator it = intHashSet.iterator();
+    return new OfInt() {
+
+      boolean isZeroDone = !hasZero;
+      boolean isMinValueDone = !hasMinValue;
+
+      @Override
+      public boolean hasNext() {
+        return it.hasNext() || !isZeroDone || !isMinValueDone;
+      }
+
+      @Override
+      public int nextInt() {
+        if (it.hasNext()) {
+          return it.nextNvc();
+        }
+        if (!isZeroDone) {
+          isZeroDone = true;
+          return 0;
+        }
+        if (!isMinValueDone) {
+          isMinValueDone = true;
+          return Integer.MIN_VALUE;
+        }
+        throw new NoSuchElementException();
+      }
+    };
+  }
+
+  /* (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    return "IntegerHashSet [isPendingInit=" + isPendingInit + ", isSaveNeeded=" + isSaveNeeded
+        + ", size=" + size() + "]";
+  }
+}
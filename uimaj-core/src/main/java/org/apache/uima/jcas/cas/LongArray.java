@@ -75,6 +75,7 @@ public final class LongArray extends TOP implements CommonPrimitiveArray<Long>,
   public LongArray(JCas jcas, int length) {
     super(jcas);
     theArray = new long[length];
+    _casView.addArrayBytes(length, Long.BYTES);
     if (CASImpl.traceFSs) { // tracing done after array setting, skipped in super class
       _casView.traceFSCreate(this);
     }
@@ -93,6 +94,7 @@ public final class LongArray extends TOP implements CommonPrimitiveArray<Long>,
   public LongArray(TypeImpl t, CASImpl c, int length) {
     super(t, c);  
     theArray = new long[length];
+    _casView.addArrayBytes(length, Long.BYTES);
     if (CASImpl.traceFSs) { // tracing done after array setting, skipped in super class
       _casView.traceFSCreate(this);
     }
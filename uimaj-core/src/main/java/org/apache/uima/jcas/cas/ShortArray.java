@@ -70,6 +70,7 @@ public final class ShortArray extends TOP implements CommonPrimitiveArray<Short>
   public ShortArray(JCas jcas, int length) {
     super(jcas);
     theArray = new short[length];
+    _casView.addArrayBytes(length, Short.BYTES);
     if (CASImpl.traceFSs) { // tracing done after array setting, skipped in super class
       _casView.traceFSCreate(this);
     }
@@ -88,6 +89,7 @@ public final class ShortArray extends TOP implements CommonPrimitiveArray<Short>
   public ShortArray(TypeImpl t, CASImpl c, int length) {
     super(t, c);  
     theArray = new short[length];
+    _casView.addArrayBytes(length, Short.BYTES);
     if (CASImpl.traceFSs) { // tracing done after array setting, skipped in super class
       _casView.traceFSCreate(this);
     }
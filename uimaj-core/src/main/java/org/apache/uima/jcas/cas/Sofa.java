@@ -20,6 +20,7 @@
 package org.apache.uima.jcas.cas;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.lang.invoke.CallSite;
 import java.lang.invoke.MethodHandle;
 
@@ -74,6 +75,12 @@ public class Sofa extends TOP implements SofaFSImpl {
   private final static MethodHandle _FH_sofaArray = _FC_sofaArray.dynamicInvoker();
   private final static MethodHandle _FH_sofaString = _FC_sofaString.dynamicInvoker();
   private final static MethodHandle _FH_sofaURI = _FC_sofaURI.dynamicInvoker();
+
+  /** the data of a remote Sofa, read or memory mapped on first access; the URI can't change once set */
+  private ByteBuffer remoteSofaData;
+
+  /** the text of a remote Sofa, decoded on first access; dropped when the mime type changes */
+  private CharSequence remoteSofaText;
   
 //  private final int _F_sofaNum;
 //  private final String _F_sofaID;  // view name or _InitialView
@@ -249,6 +256,56 @@ public class Sofa extends TOP implements SofaFSImpl {
   public InputStream getSofaDataStream() {
     return _casView.getSofaDataStream(this);
   }
+
+  @Override
+  public ByteBuffer getSofaDataBuffer() {
+    return _casView.getSofaDataBuffer(this);
+  }
+
+  @Override
+  public CharSequence getSofaDataText() {
+    return _casView.getSofaDataText(this);
+  }
+
+  /**
+   * Internal use: the data of a remote Sofa, read or memory mapped once
+   * @return the data, or null if not yet read
+   */
+  public ByteBuffer _getRemoteSofaData() {
+    return remoteSofaData;
+  }
+
+  /**
+   * Internal use
+   * @param data the data of a remote Sofa, read or memory mapped once
+   */
+  public void _setRemoteSofaData(ByteBuffer data) {
+    remoteSofaData = data;
+  }
+
+  /**
+   * Internal use: the text of a remote Sofa, decoded once
+   * @return the text, or null if not yet decoded
+   */
+  public CharSequence _getRemoteSofaText() {
+    return remoteSofaText;
+  }
+
+  /**
+   * Internal use
+   * @param text the text of a remote Sofa, decoded once
+   */
+  public void _setRemoteSofaText(CharSequence text) {
+    remoteSofaText = text;
+  }
+
+  /**
+   * Internal use: drops the data and text of a remote Sofa read so far, when the CAS is reset
+   */
+  public void _clearRemoteSofaData() {
+    remoteSofaData = null;
+    remoteSofaText = null;
+  }
 	
   /**
    * These getter methods are for creating method handle access
@@ -282,5 +339,8 @@ public class Sofa extends TOP implements SofaFSImpl {
 	  throw new CASRuntimeException(CASRuntimeException.SOFADATA_ALREADY_SET, msg);
 	}
 
-	public void setMimeType(String v) { _setStringValueNcWj(wrapGetIntCatchException(_FH_mimeType), v); }
+	public void setMimeType(String v) {
+	  remoteSofaText = null;  // the charset may change
+	  _setStringValueNcWj(wrapGetIntCatchException(_FH_mimeType), v);
+	}
 }
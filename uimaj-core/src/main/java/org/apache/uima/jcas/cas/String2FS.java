@@ -0,0 +1,381 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.jcas.cas;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.uima.UimaSerializableFSs;
+import org.apache.uima.cas.impl.CASImpl;
+import org.apache.uima.cas.impl.FeatureStructureImplC;
+import org.apache.uima.cas.impl.TypeImpl;
+import org.apache.uima.cas.impl.TypeSystemImpl;
+import org.apache.uima.internal.util.String2ObjHashMap;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.JCasRegistry;
+
+/**
+ * A map from Strings to Feature Structures
+ *
+ * Implementation notes:
+ *   - Uses UimaSerializable APIs, saving the keys and values to a StringArray and an FSArray feature
+ *   - Backed by an open addressing String2ObjHashMap, like Int2FS is by an Int2ObjHashMap
+ */
+public class String2FS <T extends TOP> extends TOP implements
+                            UimaSerializableFSs,
+                            Cloneable {
+
+  /** @generated
+   * @ordered
+   */
+  @SuppressWarnings ("hiding")
+  public final static String _TypeName = "org.apache.uima.jcas.cas.String2FS";
+
+  /** @generated
+   * @ordered
+   */
+  @SuppressWarnings ("hiding")
+  public final static int typeIndexID = JCasRegistry.register(String2FS.class);
+  /** @generated
+   * @ordered
+   */
+  @SuppressWarnings ("hiding")
+  public final static int type = typeIndexID;
+  /** @generated
+   * @return index of the type
+   */
+  @Override
+  public              int getTypeIndexID() {return typeIndexID;}
+
+  private boolean isPendingInit = false;
+  private boolean isSaveNeeded = false;
+
+  /** replaced, not cleared, when initialized from the CAS data, because a clone starts out sharing it */
+  private String2ObjHashMap<TOP, T> string2FS;
+
+  /* *******************
+   *   Feature Offsets *
+   * *******************/
+
+  public final static String _FeatName_fsArray = "fsArray";
+
+
+  /* Feature Adjusted Offsets */
+  private final static CallSite _FC_fsArray = TypeSystemImpl.createCallSiteForBuiltIn(String2FS.class, "fsArray");
+  private final static MethodHandle _FH_fsArray = _FC_fsArray.dynamicInvoker();
+
+  public final static String _FeatName_stringArray = "stringArray";
+
+
+  /* Feature Adjusted Offsets */
+  private final static CallSite _FC_stringArray = TypeSystemImpl.createCallSiteForBuiltIn(String2FS.class, "stringArray");
+  private final static MethodHandle _FH_stringArray = _FC_stringArray.dynamicInvoker();
+
+  /** Never called.  Disable default constructor
+   * @generated */
+  protected String2FS() {
+  }
+
+  /** Internal - constructor used by generator
+   * @generated
+   * @param casImpl the CAS this Feature Structure belongs to
+   * @param type the type of this Feature Structure
+   */
+  public String2FS(TypeImpl type, CASImpl casImpl) {
+    super(type, casImpl);
+    string2FS = new String2ObjHashMap<>(TOP.class);
+
+    if (CASImpl.traceFSs) { // tracing done after array setting, skipped in super class
+      _casView.traceFSCreate(this);
+    }
+  }
+
+  /** @generated
+   * @param jcas JCas to which this Feature Structure belongs
+   */
+  public String2FS(JCas jcas) {
+    super(jcas);
+    string2FS = new String2ObjHashMap<>(TOP.class);
+
+    if (CASImpl.traceFSs) { // tracing done after array setting, skipped in super class
+      _casView.traceFSCreate(this);
+    }
+  }
+
+  /**
+   * Make a new String2FS map with an initial capacity.
+   *
+   * @param jcas The JCas
+   * @param length initial size
+   */
+  public String2FS(JCas jcas, int length) {
+    super(jcas);
+    _casView.validateArraySize(length);
+    string2FS = new String2ObjHashMap<>(TOP.class, length);
+
+    if (CASImpl.traceFSs) { // tracing done after array setting, skipped in super class
+      _casView.traceFSCreate(this);
+    }
+  }
+
+  //*--------------*
+  //* Feature: fsArray
+
+  /** getter for fsArray - internal use
+   * @generated
+   * @return value of the feature
+   */
+  private FSArray<T> getFsArray() { return (FSArray<T>)(_getFeatureValueNc(wrapGetIntCatchException(_FH_fsArray)));}
+
+  /** setter for fsArray - internal use
+   * @generated
+   * @param v value to set into the feature
+   */
+  private void setFsArray(FSArray<T> v) {
+    _setFeatureValueNcWj(wrapGetIntCatchException(_FH_fsArray), v);
+  }
+
+  /** getter for stringArray - internal use
+   * @generated
+   * @return value of the feature
+   */
+  private StringArray getStringArray() { return (StringArray)(_getFeatureValueNc(wrapGetIntCatchException(_FH_stringArray)));}
+
+  /** setter for stringArray - internal use
+   * @generated
+   * @param v value to set into the feature
+   */
+  private void setStringArray(StringArray v) {
+    _setFeatureValueNcWj(wrapGetIntCatchException(_FH_stringArray), v);
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.uima.UimaSerializable#_init_from_cas_data()
+   */
+  @Override
+  public void _init_from_cas_data() {
+    isPendingInit = true;
+  }
+
+  private void maybeLazyInit() {
+    if (isPendingInit) {
+      lazyInit();
+    }
+  }
+
+  private void lazyInit() {
+    isPendingInit = false;
+    FSArray<T> a = getFsArray();
+    StringArray sa = getStringArray();
+    int size = (null == sa) ? 0 : sa.size();
+    string2FS = new String2ObjHashMap<>(TOP.class, size);
+
+    for (int i = 0; i < size; i++) {
+      string2FS.put(sa.get(i), a.get(i));
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.uima.UimaSerializable#_save_to_cas_data()
+   */
+  @Override
+  public void _save_to_cas_data() {
+    if (isSaveNeeded) {
+      isSaveNeeded = false;
+      FSArray<T> fsa = getFsArray();
+      StringArray sa = getStringArray();
+      int newSize = string2FS.size();
+      if (fsa == null || fsa.size() != newSize) {
+        fsa = new FSArray<>(_casView.getJCasImpl(), newSize);
+        setFsArray(fsa);
+        sa = new StringArray(_casView.getJCasImpl(), newSize);
+        setStringArray(sa);
+      }
+
+      // using element by element instead of bulk operations
+      //   in case the arrays were preallocated and right size, may need journaling
+      int i = 0;
+      for (Entry<String, T> e : string2FS) {
+        String key = e.getKey();
+        if (!key.equals(sa.get(i))) {
+          sa.set(i, key);
+        }
+        T fs = e.getValue();
+        if (fsa.get(i) != fs) {
+          fsa.set_without_PEAR_conversion(i, fs);
+        }
+        i++;
+      }
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.uima.UimaSerializable#_superClone()
+   */
+  @Override
+  public FeatureStructureImplC _superClone() { return clone();}  // enable common clone
+
+  // no non-default equals and hashcode - is very expensive
+
+  /* (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    final int maxLen = 10;
+    maybeLazyInit();
+    StringBuilder builder = new StringBuilder();
+    builder.append("String2FS [isSaveNeeded=").append(isSaveNeeded).append(", string2FS=[");
+    int i = 0;
+    for (Iterator<Entry<String, T>> it = string2FS.iterator(); it.hasNext() && i < maxLen; i++) {
+      if (i > 0)
+        builder.append(", ");
+      builder.append(it.next());
+    }
+    builder.append("]]");
+    return builder.toString();
+  }
+
+  public int size() {
+    maybeLazyInit();
+    return string2FS.size();
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * @param key the key; must not be null
+   * @return true if the map has an entry for the key
+   */
+  public boolean containsKey(String key) {
+    maybeLazyInit();
+    return string2FS.containsKey(key);
+  }
+
+  public boolean containsValue(Object value) {
+    if (!(value instanceof TOP)) {
+      return false;
+    }
+    maybeLazyInit();
+    for (Iterator<T> it = string2FS.values(); it.hasNext();) {
+      if (it.next() == value) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @param key the key
+   * @return the Feature Structure for the key, or null if none
+   */
+  public T get(String key) {
+    maybeLazyInit();
+    return string2FS.get(key);
+  }
+
+  /**
+   * @param key the key; must not be null
+   * @param value the Feature Structure for the key
+   * @return the previous Feature Structure for the key, or null if none
+   */
+  public T put(String key, T value) {
+    if (null == key) {
+      throw new NullPointerException("key");
+    }
+    maybeLazyInit();
+    isSaveNeeded = true;
+    return (T) string2FS.put(key, value);
+  }
+
+  /**
+   * @param key the key
+   * @return the removed Feature Structure for the key, or null if none
+   */
+  public T remove(String key) {
+    maybeLazyInit();
+    isSaveNeeded = true;
+    return string2FS.remove(key);
+  }
+
+  public void clear() {
+    if (size() == 0) return;
+    isSaveNeeded = true;
+    string2FS.clear();
+  }
+
+  /**
+   * @return an unmodifiable view of the keys
+   */
+  public Set<String> keySet() {
+    maybeLazyInit();
+    return new AbstractSet<String>() {
+      @Override
+      public Iterator<String> iterator() {
+        return string2FS.keyIterator();
+      }
+
+      @Override
+      public int size() {
+        return string2FS.size();
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        return (o instanceof String) && string2FS.containsKey((String) o);
+      }
+    };
+  }
+
+  /**
+   * @return an unmodifiable view of the values
+   */
+  public Collection<T> values() {
+    maybeLazyInit();
+    return new AbstractCollection<T>() {
+      @Override
+      public Iterator<T> iterator() {
+        return string2FS.values();
+      }
+
+      @Override
+      public int size() {
+        return string2FS.size();
+      }
+    };
+  }
+
+  /**
+   * @return an iterator over unmodifiable entries of the map
+   */
+  public Iterator<Map.Entry<String, T>> iterator() {
+    maybeLazyInit();
+    return string2FS.iterator();
+  }
+}
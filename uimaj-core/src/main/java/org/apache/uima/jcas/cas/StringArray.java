@@ -27,6 +27,7 @@ import java.util.stream.Stream;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.CommonArrayFS;
 import org.apache.uima.cas.impl.CASImpl;
+import org.apache.uima.cas.impl.CasMemoryFootprint;
 import org.apache.uima.cas.impl.StringArrayFSImpl;
 import org.apache.uima.cas.impl.TypeImpl;
 import org.apache.uima.internal.util.Misc;
@@ -72,6 +73,7 @@ public final class StringArray extends TOP implements Iterable<String>, CommonPr
   public StringArray(JCas jcas, int length) {
     super(jcas);
     theArray = new String[length];
+    _casView.addArrayBytes(length, CasMemoryFootprint.REFERENCE_BYTES);
     if (CASImpl.traceFSs) { // tracing done after array setting, skipped in super class
       _casView.traceFSCreate(this);
     }
@@ -90,6 +92,7 @@ public final class StringArray extends TOP implements Iterable<String>, CommonPr
   public StringArray(TypeImpl t, CASImpl c, int length) {
     super(t, c);  
     theArray = new String[length];
+    _casView.addArrayBytes(length, CasMemoryFootprint.REFERENCE_BYTES);
     if (CASImpl.traceFSs) { // tracing done after array setting, skipped in super class
       _casView.traceFSCreate(this);
     }
@@ -109,6 +112,7 @@ public final class StringArray extends TOP implements Iterable<String>, CommonPr
    * @see org.apache.uima.cas.StringArrayFS#set(int, String)
    */
   public void set(int i, String v) {
+    _casView.updateStringChars(theArray[i], v);
     theArray[i] = v;
     _casView.maybeLogArrayUpdate(this, null, i);
   }
@@ -117,6 +121,7 @@ public final class StringArray extends TOP implements Iterable<String>, CommonPr
    * @see org.apache.uima.cas.StringArrayFS#copyFromArray(String[], int, int, int)
    */
   public void copyFromArray(String[] src, int srcPos, int destPos, int length) {
+    _casView.updateStringChars(theArray, destPos, src, srcPos, length);
     System.arraycopy(src, srcPos, theArray, destPos, length);
     _casView.maybeLogArrayUpdates(this, destPos, length);
   }
@@ -151,6 +156,7 @@ public final class StringArray extends TOP implements Iterable<String>, CommonPr
   @Override
   public void copyValuesFrom(CommonArrayFS v) {
     StringArray bv = (StringArray) v;
+    _casView.updateStringChars(theArray, 0, bv.theArray, 0, theArray.length);
     System.arraycopy(bv.theArray,  0,  theArray, 0, theArray.length);
     _casView.maybeLogArrayUpdates(this, 0, size());
   }
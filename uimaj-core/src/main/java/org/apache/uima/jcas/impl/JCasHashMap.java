@@ -367,7 +367,10 @@ public class JCasHashMap implements Iterable<TOP> {
     return r;
   }
   
-  int getCapacity() {
+  /**
+   * @return the total number of slots in the tables of the sub maps
+   */
+  public int getCapacity() {
     int r = 0;
     for (JCasHashMapSubMap subMap : subMaps) {
       r += subMap.table.length;
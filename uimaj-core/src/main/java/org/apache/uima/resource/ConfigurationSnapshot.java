@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.resource;
+
+/**
+ * An immutable view of the values of the configuration parameters of a context, as they were when
+ * the snapshot was taken. Links to overriding parameters, the default group and the search
+ * strategy of the context are resolved when the snapshot is taken, so getting a value is a single
+ * map lookup, and never locks.
+ * <p>
+ * Get the current snapshot from {@link org.apache.uima.UimaContext#getConfigurationSnapshot()}; a
+ * new one is made after the component is reconfigured. Values set with
+ * <code>setConfigParameterValue</code> are not seen by a snapshot until <code>reconfigure()</code>
+ * has been called.
+ * <p>
+ * Array values are shared with the configuration, and must not be modified.
+ */
+public interface ConfigurationSnapshot {
+
+  /**
+   * Gets the value of a parameter, as {@link org.apache.uima.UimaContext#getConfigParameterValue(String)}
+   * does.
+   *
+   * @param aParamName
+   *          the name of a parameter
+   * @return the value of the parameter, <code>null</code> if it has no value or is not declared
+   */
+  public Object getValue(String aParamName);
+
+  /**
+   * Gets the value of a parameter in a group, as
+   * {@link org.apache.uima.UimaContext#getConfigParameterValue(String, String)} does, including
+   * the fallback to other groups given by the context's search strategy.
+   *
+   * @param aGroupName
+   *          the name of a group
+   * @param aParamName
+   *          the name of a parameter in the group
+   * @return the value of the parameter, <code>null</code> if it has no value or is not declared
+   */
+  public Object getValue(String aGroupName, String aParamName);
+
+  /**
+   * @param aParamName
+   *          the name of a String parameter
+   * @return the value, or <code>null</code> if none
+   * @throws ClassCastException
+   *           if the parameter is not a single valued String
+   */
+  public String getString(String aParamName);
+
+  /**
+   * @param aParamName
+   *          the name of a multi-valued String parameter
+   * @return the values, or <code>null</code> if none
+   * @throws ClassCastException
+   *           if the parameter is not a multi-valued String
+   */
+  public String[] getStringArray(String aParamName);
+
+  /**
+   * @param aParamName
+   *          the name of a Boolean parameter
+   * @param aDefault
+   *          the value to return if the parameter has no value
+   * @return the value of the parameter
+   * @throws ClassCastException
+   *           if the parameter is not a single valued Boolean
+   */
+  public boolean getBoolean(String aParamName, boolean aDefault);
+
+  /**
+   * @param aParamName
+   *          the name of an Integer parameter
+   * @param aDefault
+   *          the value to return if the parameter has no value
+   * @return the value of the parameter
+   * @throws ClassCastException
+   *           if the parameter is not a single valued Integer
+   */
+  public int getInt(String aParamName, int aDefault);
+
+  /**
+   * @param aParamName
+   *          the name of a Float parameter
+   * @param aDefault
+   *          the value to return if the parameter has no value
+   * @return the value of the parameter
+   * @throws ClassCastException
+   *           if the parameter is not a single valued Float
+   */
+  public float getFloat(String aParamName, float aDefault);
+
+  /**
+   * @return the names of the parameters not in any group, in declaration order
+   */
+  public String[] getParameterNames();
+
+  /**
+   * @return the names of the declared groups
+   */
+  public String[] getGroupNames();
+}
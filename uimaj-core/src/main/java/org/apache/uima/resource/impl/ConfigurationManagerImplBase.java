@@ -24,11 +24,13 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.uima.UIMAFramework;
 import org.apache.uima.UIMARuntimeException;
 import org.apache.uima.UIMA_IllegalStateException;
 import org.apache.uima.resource.ConfigurationManager;
+import org.apache.uima.resource.ConfigurationSnapshot;
 import org.apache.uima.resource.ResourceConfigurationException;
 import org.apache.uima.resource.Session;
 import org.apache.uima.resource.metadata.ConfigurationGroup;
@@ -92,6 +94,12 @@ public abstract class ConfigurationManagerImplBase implements ConfigurationManag
    */
   private volatile Session mSession = null;
 
+  /**
+   * Map from context name to the snapshot of its validated configuration. Replaced when the context
+   * is created and after each successful reconfigure.
+   */
+  private final Map<String, ConfigurationSnapshot> mContextNameToSnapshotMap = new ConcurrentHashMap<>();
+
 //  /**
 //   * Holds the externalOverrideSettings from the top-level Analysis Engine
 //   */
@@ -105,6 +113,18 @@ public abstract class ConfigurationManagerImplBase implements ConfigurationManag
   public void setSession(Session aSession) {
     mSession = aSession;
   }
+
+  /**
+   * Gets the snapshot of the configuration of a context, taken after its settings were last
+   * validated: when the context was created, or by the last successful reconfigure.
+   * 
+   * @param aContextName
+   *          the qualified name of the context
+   * @return the snapshot, or null if the context has not been created
+   */
+  public ConfigurationSnapshot getConfigurationSnapshot(String aContextName) {
+    return mContextNameToSnapshotMap.get(aContextName);
+  }
          
   /*
    * (non-Javadoc)
@@ -164,6 +184,7 @@ public abstract class ConfigurationManagerImplBase implements ConfigurationManag
 
     // validate
     validateConfigurationParameterSettings(aContextName);
+    mContextNameToSnapshotMap.put(aContextName, new ConfigurationSnapshot_impl(this, aContextName));
   }
   
   
@@ -254,8 +275,9 @@ public abstract class ConfigurationManagerImplBase implements ConfigurationManag
   public void reconfigure(String aContextName) throws ResourceConfigurationException {
     // This ConfigurationManager implementation sets parameter immediately on the calls to
     // setConfigParameterValue.
-    // This method only does validation
+    // This method only does validation, and then publishes a new snapshot of the configuration
     this.validateConfigurationParameterSettings(aContextName);
+    mContextNameToSnapshotMap.put(aContextName, new ConfigurationSnapshot_impl(this, aContextName));
   }
 
   /*
@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.resource.impl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.BiFunction;
+
+import org.apache.uima.UimaContext;
+import org.apache.uima.resource.ConfigurationManager;
+import org.apache.uima.resource.ConfigurationSnapshot;
+import org.apache.uima.resource.metadata.ConfigurationGroup;
+import org.apache.uima.resource.metadata.ConfigurationParameter;
+import org.apache.uima.resource.metadata.ConfigurationParameterDeclarations;
+
+/**
+ * Reference implementation of {@link ConfigurationSnapshot}. All values are looked up from the
+ * {@link ConfigurationManager}, or the {@link UimaContext}, in the constructor; the instance is not
+ * modified afterwards.
+ */
+public final class ConfigurationSnapshot_impl implements ConfigurationSnapshot {
+
+  private static final String[] EMPTY_STRING_ARRAY = new String[0];
+
+  private final String[] mParameterNames;
+
+  private final String[] mGroupNames;
+
+  /** values looked up without a group, for all declared parameters */
+  private final Map<String, Object> mValues = new HashMap<>();
+
+  /** values looked up in each declared group, for all declared parameters */
+  private final Map<String, Map<String, Object>> mGroupValues = new HashMap<>();
+
+  private final String mSearchStrategy;
+
+  private final String mDefaultGroup;
+
+  /**
+   * Take a snapshot of the configuration of a context, as the configuration manager has it.
+   *
+   * @param aConfigurationManager
+   *          the configuration manager
+   * @param aContextName
+   *          the qualified name of the context
+   */
+  public ConfigurationSnapshot_impl(ConfigurationManager aConfigurationManager,
+          String aContextName) {
+    ConfigurationParameterDeclarations decls = aConfigurationManager
+            .getConfigParameterDeclarations(aContextName);
+    mSearchStrategy = decls.getSearchStrategy();
+    mDefaultGroup = decls.getDefaultGroupName();
+
+    Set<String> allNames = new LinkedHashSet<>();
+    ConfigurationParameter[] params = decls.getConfigurationParameters();
+    mParameterNames = new String[(params == null) ? 0 : params.length];
+    for (int i = 0; i < mParameterNames.length; i++) {
+      mParameterNames[i] = params[i].getName();
+      allNames.add(mParameterNames[i]);
+    }
+    addNames(decls.getCommonParameters(), allNames);
+    Set<String> groupNames = new TreeSet<>();
+    ConfigurationGroup[] groups = decls.getConfigurationGroups();
+    if (groups != null) {
+      for (ConfigurationGroup group : groups) {
+        addNames(group.getConfigurationParameters(), allNames);
+        for (String groupName : group.getNames()) {
+          groupNames.add(groupName);
+        }
+      }
+    }
+    mGroupNames = groupNames.toArray(EMPTY_STRING_ARRAY);
+
+    putValues(allNames, (groupName, name) -> (groupName == null)
+            ? aConfigurationManager.getConfigParameterValue(aContextName + name)
+            : aConfigurationManager.getConfigParameterValue(aContextName + name, groupName));
+  }
+
+  /**
+   * Take a snapshot of the configuration of a context, using only the methods of
+   * {@link UimaContext}. The context doesn't tell its search strategy, so values of groups which
+   * are not declared are not in the snapshot.
+   *
+   * @param aContext
+   *          the context
+   */
+  public ConfigurationSnapshot_impl(UimaContext aContext) {
+    mSearchStrategy = ConfigurationParameterDeclarations.SEARCH_STRATEGY_NONE;
+    mDefaultGroup = null;
+    mParameterNames = aContext.getConfigParameterNames().clone();
+    mGroupNames = aContext.getConfigurationGroupNames().clone();
+
+    Set<String> allNames = new LinkedHashSet<>(Arrays.asList(mParameterNames));
+    for (String groupName : mGroupNames) {
+      allNames.addAll(Arrays.asList(aContext.getConfigParameterNames(groupName)));
+    }
+    putValues(allNames, (groupName, name) -> (groupName == null)
+            ? aContext.getConfigParameterValue(name)
+            : aContext.getConfigParameterValue(groupName, name));
+  }
+
+  /**
+   * Look up the values of all parameters, in no group and in each group.
+   *
+   * @param aNames
+   *          the names of all parameters, in any group
+   * @param aLookup
+   *          gets the value for a group, or null for none, and a parameter name
+   */
+  private void putValues(Set<String> aNames, BiFunction<String, String, Object> aLookup) {
+    // a value may come from another group than the ones a parameter is declared in, by fallback
+    for (String name : aNames) {
+      putIfNotNull(mValues, name, aLookup.apply(null, name));
+    }
+    for (String groupName : mGroupNames) {
+      Map<String, Object> values = new HashMap<>();
+      for (String name : aNames) {
+        putIfNotNull(values, name, aLookup.apply(groupName, name));
+      }
+      mGroupValues.put(groupName, values);
+    }
+  }
+
+  private static void addNames(ConfigurationParameter[] aParams, Set<String> aNames) {
+    if (aParams != null) {
+      for (ConfigurationParameter param : aParams) {
+        aNames.add(param.getName());
+      }
+    }
+  }
+
+  private static void putIfNotNull(Map<String, Object> aMap, String aName, Object aValue) {
+    if (aValue != null) {
+      aMap.put(aName, aValue);
+    }
+  }
+
+  @Override
+  public Object getValue(String aParamName) {
+    return mValues.get(aParamName);
+  }
+
+  @Override
+  public Object getValue(String aGroupName, String aParamName) {
+    if (aGroupName == null) {
+      return getValue(aParamName);
+    }
+    Map<String, Object> values = mGroupValues.get(aGroupName);
+    if (values != null) {
+      return values.get(aParamName);
+    }
+    // not a declared group: only fallbacks can find a value
+    if (ConfigurationParameterDeclarations.SEARCH_STRATEGY_LANGUAGE_FALLBACK
+            .equals(mSearchStrategy)) {
+      String groupName = aGroupName;
+      while (values == null) {
+        int truncateAt = Math.max(groupName.lastIndexOf('_'), groupName.lastIndexOf('-'));
+        if (truncateAt == -1) {
+          break;
+        }
+        groupName = groupName.substring(0, truncateAt);
+        values = mGroupValues.get(groupName);
+      }
+      if (values != null) {
+        return values.get(aParamName);
+      }
+    } else if (!ConfigurationParameterDeclarations.SEARCH_STRATEGY_DEFAULT_FALLBACK
+            .equals(mSearchStrategy)) {
+      return null;
+    }
+    values = (mDefaultGroup == null) ? null : mGroupValues.get(mDefaultGroup);
+    return (values == null) ? null : values.get(aParamName);
+  }
+
+  @Override
+  public String getString(String aParamName) {
+    return (String) mValues.get(aParamName);
+  }
+
+  @Override
+  public String[] getStringArray(String aParamName) {
+    return (String[]) mValues.get(aParamName);
+  }
+
+  @Override
+  public boolean getBoolean(String aParamName, boolean aDefault) {
+    Boolean v = (Boolean) mValues.get(aParamName);
+    return (v == null) ? aDefault : v;
+  }
+
+  @Override
+  public int getInt(String aParamName, int aDefault) {
+    Integer v = (Integer) mValues.get(aParamName);
+    return (v == null) ? aDefault : v;
+  }
+
+  @Override
+  public float getFloat(String aParamName, float aDefault) {
+    Float v = (Float) mValues.get(aParamName);
+    return (v == null) ? aDefault : v;
+  }
+
+  @Override
+  public String[] getParameterNames() {
+    return mParameterNames.clone();
+  }
+
+  @Override
+  public String[] getGroupNames() {
+    return mGroupNames.clone();
+  }
+}
@@ -64,8 +64,8 @@ public interface FsIndexDescription extends MetaDataObject {
   public void setTypeName(String aTypeName);
 
   /**
-   * Gets the "kind" of index. There are currently three kinds of indexes - "sorted", "set", and
-   * "bag" (see {@link org.apache.uima.cas.FSIndex} for definitions). If this is <code>null</code>,
+   * Gets the "kind" of index. There are currently four kinds of indexes - "sorted", "set", "bag",
+   * and "hash" (see {@link org.apache.uima.cas.FSIndex} for definitions). If this is <code>null</code>,
    * "sorted" is assumed as the default.
    * 
    * @return the kind of index
@@ -73,7 +73,7 @@ public interface FsIndexDescription extends MetaDataObject {
   public String getKind();
 
   /**
-   * Sets the "kind" of index. There are currently three kinds of indexes - sorted, set, and bag
+   * Sets the "kind" of index. There are currently four kinds of indexes - sorted, set, bag, and hash
    * (see {@link org.apache.uima.cas.FSIndex} for definitions). If this is <code>null</code>,
    * "sorted" is assumed as the default.
    * 
@@ -119,4 +119,11 @@ public interface FsIndexDescription extends MetaDataObject {
    * @see org.apache.uima.cas.FSIndex
    */
   public static final String KIND_BAG = "bag";
+
+  /**
+   * Identifies a Hash index.
+   * 
+   * @see org.apache.uima.cas.FSIndex
+   */
+  public static final String KIND_HASH = "hash";
 }
@@ -38,7 +38,6 @@ import org.apache.uima.resource.metadata.FsIndexDescription;
 import org.apache.uima.resource.metadata.Import;
 import org.apache.uima.resource.metadata.ResourceMetaData;
 import org.apache.uima.util.InvalidXMLException;
-import org.apache.uima.util.XMLInputSource;
 import org.apache.uima.util.XMLizable;
 
 /**
@@ -269,9 +268,7 @@ public class FsIndexCollection_impl extends MetaDataObject_impl implements FsInd
         // Add the URLs parsed for this cached object to the list already-parsed (UIMA-5058)
         aAlreadyImportedFsIndexCollectionURLs.addAll(importUrlsCache.get(urlString));
       } else {   
-        XMLInputSource input;
-        input = new XMLInputSource(aURL);
-        desc = UIMAFramework.getXMLParser().parseFsIndexCollection(input);
+        desc = SharedImportCache.parse(aURL, FsIndexCollection.class, UIMAFramework.getXMLParser()::parseFsIndexCollection);
         TreeSet<String> previouslyImported = new TreeSet<>(aAlreadyImportedFsIndexCollectionURLs);
         desc.resolveImports(aAlreadyImportedFsIndexCollectionURLs, aResourceManager);
         importCache.put(urlString, desc);
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.resource.metadata.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.uima.UIMARuntimeException;
+import org.apache.uima.resource.metadata.MetaDataObject;
+import org.apache.uima.util.InvalidXMLException;
+import org.apache.uima.util.Misc;
+import org.apache.uima.util.XMLInputSource;
+import org.apache.uima.util.XMLizable;
+
+/**
+ * A JVM-wide cache of imported descriptors (type systems, type priorities, index collections),
+ * as they are after XML parsing, before any import resolution.
+ *
+ * This sits below the per-ResourceManager import cache: many ResourceManagers (one per PEAR,
+ * per pipeline, ...) importing the same descriptor only parse it once.
+ *
+ * The key is the kind of descriptor plus a digest of the bytes of the descriptor, so
+ *   - the same descriptor content at different URLs is parsed once, and
+ *   - a descriptor whose content has changed is reparsed.
+ *
+ * The cached object is never handed out; callers get a clone, with its source URL set to the URL
+ * being imported.  Import resolution, which depends on the ResourceManager, is done on the clone by the caller.
+ *
+ * Concurrent lookups don't block each other.  Two threads missing on the same key may both parse;
+ * the first one to finish is kept.
+ *
+ * The number of entries is bounded; when full, the least recently used entries are evicted.
+ */
+public final class SharedImportCache {
+
+  /**
+   * Define this JVM property to disable the JVM-wide cache of parsed imported descriptors.
+   */
+  public static final String DISABLE_SHARED_IMPORT_CACHE = "uima.disable_shared_import_cache";
+
+  /**
+   * Set this JVM property to the maximum number of parsed descriptors to keep, default is 1000.
+   */
+  public static final String SHARED_IMPORT_CACHE_SIZE = "uima.shared_import_cache_size";
+
+  private static final boolean IS_DISABLED = Misc.getNoValueSystemProperty(DISABLE_SHARED_IMPORT_CACHE);
+
+  private static final int MAX_SIZE = Math.max(1, Integer.getInteger(SHARED_IMPORT_CACHE_SIZE, 1000));
+
+  /**
+   * Parses a descriptor; XMLParser methods have this shape
+   */
+  @FunctionalInterface
+  public interface DescriptorParser<T extends XMLizable> {
+    T parse(XMLInputSource input) throws InvalidXMLException;
+  }
+
+  private static class Entry {
+    final XMLizable parsed;
+    volatile long lastUsed;
+
+    Entry(XMLizable parsed, long lastUsed) {
+      this.parsed = parsed;
+      this.lastUsed = lastUsed;
+    }
+  }
+
+  private static final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+  /** logical clock for LRU */
+  private static final AtomicLong clock = new AtomicLong();
+
+  /** only one thread evicts at a time */
+  private static final AtomicBoolean evicting = new AtomicBoolean(false);
+
+  private SharedImportCache() {} // no instances
+
+  /**
+   * Get a parsed descriptor for a URL, parsing it only if an equal descriptor is not in the cache
+   *
+   * @param <T> the kind of descriptor
+   * @param aURL the URL of the descriptor
+   * @param aKind the kind of descriptor
+   * @param aParser the parser to use if the descriptor is not in the cache
+   * @return a new instance of the parsed descriptor, not shared with other callers, with its source URL set to aURL
+   * @throws InvalidXMLException if the parse fails
+   * @throws IOException if the descriptor can't be read
+   */
+  public static <T extends XMLizable> T parse(URL aURL, Class<T> aKind, DescriptorParser<T> aParser)
+      throws InvalidXMLException, IOException {
+    if (IS_DISABLED) {
+      return aParser.parse(new XMLInputSource(aURL));
+    }
+
+    byte[] bytes = readAll(new XMLInputSource(aURL).getInputStream());
+    String key = aKind.getName() + ':' + digest(bytes);
+    long now = clock.incrementAndGet();
+
+    Entry e = cache.get(key);
+    if (null == e) {
+      T parsed = aParser.parse(new XMLInputSource(aURL, new ByteArrayInputStream(bytes)));
+      Entry prev = cache.putIfAbsent(key, e = new Entry(parsed, now));
+      if (null != prev) {
+        e = prev;  // another thread won the race, use its version
+      } else if (cache.size() > MAX_SIZE) {
+        evict();
+      }
+    }
+    e.lastUsed = now;
+
+    T r = aKind.cast(((MetaDataObject)e.parsed).clone());
+    if (r instanceof MetaDataObject_impl) {
+      ((MetaDataObject_impl)r).setSourceUrl(aURL);
+    }
+    return r;
+  }
+
+  /**
+   * Remove all entries
+   */
+  public static void clear() {
+    cache.clear();
+  }
+
+  /**
+   * @return the number of parsed descriptors in the cache
+   */
+  public static int size() {
+    return cache.size();
+  }
+
+  /**
+   * Evict the least recently used quarter of the entries.
+   * Done by one thread at a time; others proceed without waiting.
+   */
+  private static void evict() {
+    if (!evicting.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      List<Map.Entry<String, Entry>> entries = new ArrayList<>(cache.entrySet());
+      if (entries.size() <= MAX_SIZE) {
+        return;
+      }
+      entries.sort((e1, e2) -> Long.compare(e1.getValue().lastUsed, e2.getValue().lastUsed));
+      int nbrToEvict = entries.size() - MAX_SIZE + (MAX_SIZE >> 2);
+      for (int i = 0; i < nbrToEvict && i < entries.size(); i++) {
+        cache.remove(entries.get(i).getKey());
+      }
+    } finally {
+      evicting.set(false);
+    }
+  }
+
+  private static byte[] readAll(InputStream is) throws IOException {
+    try (InputStream in = is) {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream(8192);
+      byte[] buf = new byte[8192];
+      int n;
+      while ((n = in.read(buf)) != -1) {
+        baos.write(buf, 0, n);
+      }
+      return baos.toByteArray();
+    }
+  }
+
+  private static String digest(byte[] bytes) {
+    try {
+      byte[] d = MessageDigest.getInstance("SHA-256").digest(bytes);
+      StringBuilder sb = new StringBuilder(d.length * 2);
+      for (byte b : d) {
+        sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new UIMARuntimeException(e);  // SHA-256 is required to be present in all JVMs
+    }
+  }
+}
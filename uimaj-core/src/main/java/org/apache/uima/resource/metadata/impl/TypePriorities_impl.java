@@ -39,7 +39,6 @@ import org.apache.uima.resource.metadata.TypePriorities;
 import org.apache.uima.resource.metadata.TypePriorityList;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
 import org.apache.uima.util.InvalidXMLException;
-import org.apache.uima.util.XMLInputSource;
 import org.apache.uima.util.XMLizable;
 import org.xml.sax.SAXException;
 
@@ -276,9 +275,7 @@ public class TypePriorities_impl extends MetaDataObject_impl implements TypePrio
         // Add the URLs parsed for this cached object to the list already-parsed (UIMA-5058)
         aAlreadyImportedTypePrioritiesURLs.addAll(importUrlsCache.get(urlString));
       } else {   
-        XMLInputSource input;
-        input = new XMLInputSource(aURL);
-        desc = UIMAFramework.getXMLParser().parseTypePriorities(input);
+        desc = SharedImportCache.parse(aURL, TypePriorities.class, UIMAFramework.getXMLParser()::parseTypePriorities);
         TreeSet<String> previouslyImported = new TreeSet<>(aAlreadyImportedTypePrioritiesURLs);
         desc.resolveImports(aAlreadyImportedTypePrioritiesURLs, aResourceManager);
         importCache.put(urlString, desc);
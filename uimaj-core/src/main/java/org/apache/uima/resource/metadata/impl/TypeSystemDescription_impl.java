@@ -38,7 +38,6 @@ import org.apache.uima.resource.metadata.ResourceMetaData;
 import org.apache.uima.resource.metadata.TypeDescription;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
 import org.apache.uima.util.InvalidXMLException;
-import org.apache.uima.util.XMLInputSource;
 import org.apache.uima.util.XMLizable;
 
 /**
@@ -271,9 +270,7 @@ public class TypeSystemDescription_impl extends MetaDataObject_impl implements
         // Add the URLs parsed for this cached object to the list already-parsed (UIMA-5058)
         aAlreadyImportedTypeSystemURLs.addAll(importUrlsCache.get(urlString));
       } else {   
-        XMLInputSource input;
-        input = new XMLInputSource(aURL);
-        desc = UIMAFramework.getXMLParser().parseTypeSystemDescription(input);
+        desc = SharedImportCache.parse(aURL, TypeSystemDescription.class, UIMAFramework.getXMLParser()::parseTypeSystemDescription);
         TreeSet<String> previouslyImported = new TreeSet<>(aAlreadyImportedTypeSystemURLs);
         desc.resolveImports(aAlreadyImportedTypeSystemURLs, aResourceManager);
         importCache.put(urlString, desc);
@@ -19,17 +19,17 @@
 package org.apache.uima.util;
 
 import java.util.ArrayDeque;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Deque;
-import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.Map;
 
 import org.apache.uima.UIMARuntimeException;
 import org.apache.uima.UimaSerializable;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.CASRuntimeException;
 import org.apache.uima.cas.CommonArrayFS;
+import org.apache.uima.cas.FSIndexRepository;
 import org.apache.uima.cas.FeatureStructure;
 import org.apache.uima.cas.SofaFS;
 import org.apache.uima.cas.impl.CASImpl;
@@ -37,8 +37,7 @@ import org.apache.uima.cas.impl.FeatureImpl;
 import org.apache.uima.cas.impl.TypeImpl;
 import org.apache.uima.cas.impl.TypeSystemImpl;
 import org.apache.uima.internal.util.Int2ObjListMap;
-import org.apache.uima.internal.util.PositiveIntSet;
-import org.apache.uima.internal.util.PositiveIntSet_impl;
+import org.apache.uima.internal.util.IntVector;
 import org.apache.uima.jcas.cas.AnnotationBase;
 import org.apache.uima.jcas.cas.CommonPrimitiveArray;
 import org.apache.uima.jcas.cas.FSArray;
@@ -83,6 +82,16 @@ public class CasCopier {
   
   private static final TypeImpl MISSING_TYPE = TypeImpl.singleton;
   private static final FeatureImpl MISSING_FEAT = FeatureImpl.singleton;
+
+  /**
+   * Orders the indexed FSs of a view for bulk copying: by type, and within a type, by id.
+   * This has the copies of one type created and filled in one run, and keeps their relative id order,
+   *   so they arrive at the target sorted indexes in sort order.
+   */
+  private static final Comparator<TOP> BY_TYPE_AND_ID = (fs1, fs2) -> {
+    int c = Integer.compare(fs1._getTypeCode(), fs2._getTypeCode());
+    return (c != 0) ? c : Integer.compare(fs1._id(), fs2._id());
+  };
   
 //  private static final int FRC_SKIP = 0;  // is the default, must be 0
 //  private static final int FRC_STRING = 1;
@@ -250,11 +259,19 @@ public class CasCopier {
   final private boolean lenient; //true: ignore feature structures and features that are not defined in the destination CAS
 
   /**
-   * key is source FS, value is target FS 
+   * index is the source FS's id, value is target FS 
    * Target not set for SofaFSs
    * Target not set if lenient specified and src type isn't in target
+   * Starts small, and grows on demand up to the highest source id copied.
+   */
+  private TOP[] mFsMap;
+
+  private static final int INITIAL_FS_MAP_SIZE = 64;
+
+  /**
+   * the ids set in mFsMap, so {@link #forgetCopies()} doesn't have to clear all of it
    */
-  final private Map<TOP, TOP> mFsMap;  // is identity hash map
+  private final IntVector mCopiedIds = new IntVector();
   
   /**
    * Deferred calls to copy Features of a FS
@@ -296,8 +313,8 @@ public class CasCopier {
    */
   public CasCopier(CAS aSrcCas, CAS aDestCas, boolean lenient) {
 
-    mFsMap = new IdentityHashMap<>(((CASImpl)(aSrcCas.getLowLevelCAS())).getLastUsedFsId());
     originalSrcCas = (CASImpl)aSrcCas.getLowLevelCAS();
+    mFsMap = new TOP[INITIAL_FS_MAP_SIZE];  // grows on demand, see putCopy
     originalTgtCas = (CASImpl)aDestCas.getLowLevelCAS();
     
     srcTsi = originalSrcCas.getTypeSystemImpl();
@@ -561,56 +578,46 @@ public class CasCopier {
         }
       }
   
-      // now copy indexed FS, but keep track so we don't index anything more than once
-      // values are fs._id's
-      //   Note: mFsMap might be used for this, but it doesn't index several kinds of FSs
-      //         see the javadoc for this field for details
-      // NOTE: FeatureStructure hashcode / equals use the fs._id's
-      
-      final PositiveIntSet indexedFsAlreadyCopied = new PositiveIntSet_impl();
-      
-      // The indexedFsAlreadyCopied set starts out "cleared", but 
-      //   we don't clear the cas copier instance map "mFsMap" here, in order to skip actually copying the
+      // now copy indexed FS, in three passes:
+      //   - create the copies of all indexed FSs, in type and id order;
+      //     filling in their features is deferred, and so done in the same order
+      //   - fill in the features, copying referenced FSs as they are found
+      //   - add the copies to the target indexes, in the same order.
+      //     This is still one addFS per copy, not a bulk load of the sorted indexes: 
+      //     type and id order is only the sort order of an index when the FSs were created
+      //     in that order (e.g. annotations created left to right), and only then do the
+      //     adds append at the end of the sorted index arrays.
+      // The cas copier instance map "mFsMap" is not cleared here, in order to skip actually copying the
       //   FSs when doing a full CAS copy with multiple views - the 2nd and subsequent
       //   views don't copy, but they do index.
       
-      Collection<TOP> c = srcCasViewImpl.getIndexRepository().getIndexedFSs();
-  //    LowLevelIterator it = ((FSIndexRepositoryImpl)(srcCasViewImpl.getIndexRepository())).ll_getAllIndexedFS(srcTsi.getTopType());
-  
-      for (final TOP fs : c) {
-  //      System.out.format("debug  id: %,d  type: %s%n", fs.id(), fs._getTypeImpl().getShortName());
-  //    Iterator<LowLevelIndex> indexes = srcCasViewImpl.getIndexRepository().ll_getIndexes();
-  //    while (indexes.hasNext()) {
-  //      LowLevelIndex index = indexes.next();
-  //      LowLevelIterator iter = index.ll_iterator();
-  //      while (iter.isValid()) {
-  //        final int fs = iter.ll_get();
-  //        iter.moveToNext();
-        if (!indexedFsAlreadyCopied.contains(fs._id())) {
-          final TOP copyOfFs = copyFs2(fs);
-          // If the lenient option is used, it's possible that no FS was
-          // created (e.g., FS is not defined in the target CAS. So ignore
-          // this FS in the source CAS and move on to the next FS.
-          if (lenient && copyOfFs == null) {
-            continue; // Move to the next FS in the source CAS
-          }
-          // otherwise, won't be null (error thrown instead)
-  
-          // check for annotations with null Sofa reference - this can happen
-          // if the annotations were created with the Low Level CAS API. If the
-          // Sofa reference isn't set, attempting to add the FS to the indexes
-          // will fail.
-  //        if (fs instanceof AnnotationBase) {
-  //          AnnotationBase fsAb = (AnnotationBase) fs;
-  //          int sofaRef = tgtCasViewImpl.ll_getRefValue(copyOfFs, mDestSofaFeatureCode);
-  //          if (0 == sofaRef) {
-  //            tgtCasViewImpl.ll_setRefValue(copyOfFs, mDestSofaFeatureCode, tgtCasViewImpl.getSofaRef());
-  //          }
-  //        }
-  
-          tgtCasViewImpl.getIndexRepository().addFS(copyOfFs);
-          indexedFsAlreadyCopied.add(fs._id());
+      final TOP[] srcFss = srcCasViewImpl.getIndexRepository().getIndexedFSs().toArray(new TOP[0]);
+      Arrays.sort(srcFss, BY_TYPE_AND_ID);
+      final TOP[] copies = new TOP[srcFss.length];
+      int nbrCopies = 0;
+      TOP prevFs = null;
+      
+      for (final TOP fs : srcFss) {
+        if (fs == prevFs) {
+          continue;  // don't index anything more than once
+        }
+        prevFs = fs;
+        final TOP copyOfFs = copyFsInner(fs);  // doesn't copy the slot values, but enqueues them
+        // If the lenient option is used, it's possible that no FS was
+        // created (e.g., FS is not defined in the target CAS. So ignore
+        // this FS in the source CAS and move on to the next FS.
+        if (lenient && copyOfFs == null) {
+          continue; // Move to the next FS in the source CAS
         }
+        // otherwise, won't be null (error thrown instead)
+        copies[nbrCopies++] = copyOfFs;
+      }
+      
+      copyQueuedFeatures();
+      
+      final FSIndexRepository tgtIr = tgtCasViewImpl.getIndexRepository();
+      for (int i = 0; i < nbrCopies; i++) {
+        tgtIr.addFS(copies[i]);
       }
     } finally {
       srcCasViewImpl = null;  // needed to make copyFS subsequently work.
@@ -672,12 +679,16 @@ public class CasCopier {
   private TOP copyFs2(TOP aFS) {
     
     TOP copy = copyFsInner(aFS);  // doesn't copy the slot values, but enqueues them
+    copyQueuedFeatures();
+    return copy;
+  }
+  
+  private void copyQueuedFeatures() {
     // the iteration is done this way because the body can add more to the queue
     while (fsToDo.size() > 0) {
       Runnable r = fsToDo.removeFirst();
       r.run();
     }
-    return copy;
   }
   
   private TOP copyFs2Fs(TOP fs) {
@@ -701,7 +712,7 @@ public class CasCopier {
 //    assert (casViewsInSameCas(aFS.getCAS(), originalSrcCas));
 
     // check if we already copied this FS
-    TOP copy = mFsMap.get(srcFs);
+    TOP copy = getCopy(srcFs);
     if (copy != null) {
       return copy;
     }
@@ -783,7 +794,7 @@ public class CasCopier {
     if (srcFs instanceof CommonArrayFS) {
       copy = copyArray(srcFs);
       if (copy != null) { // can be null if trying to copy MyFs[] and type doesn't exist in target type system
-        mFsMap.put(srcFs, copy);
+        putCopy(srcFs, copy);
       }
       return copy;
     }
@@ -801,7 +812,7 @@ public class CasCopier {
     TOP tgtFs = tgtView.createFS(tgtTi);
 
     // add to map so we don't try to copy this more than once
-    mFsMap.put((TOP)srcFs, tgtFs);
+    putCopy(srcFs, tgtFs);
 
     fsToDo.addLast(() -> {
       if (srcFs instanceof UimaSerializable) {
@@ -976,7 +987,7 @@ public class CasCopier {
    * @return true if the given FS has already been copied using this CasCopier.
    */
   public boolean alreadyCopied(TOP aFS) {
-    return mFsMap.get(aFS) != null;
+    return getCopy(aFS) != null;
   }
   
   /**
@@ -989,7 +1000,35 @@ public class CasCopier {
    */
   public boolean alreadyCopied(int aFS) {
     TOP fs = originalSrcCas.getFsFromId(aFS);
-    return mFsMap.get(fs) != null;
+    return getCopy(fs) != null;
+  }
+  
+  private TOP getCopy(TOP srcFs) {
+    final int id = srcFs._id();
+    return (id < mFsMap.length) ? mFsMap[id] : null;
+  }
+  
+  private void putCopy(TOP srcFs, TOP copy) {
+    final int id = srcFs._id();
+    if (id >= mFsMap.length) {
+      // the source CAS got more FSs since this copier was created
+      mFsMap = Arrays.copyOf(mFsMap, Math.max(id + 1, mFsMap.length << 1));
+    }
+    mFsMap[id] = copy;
+    mCopiedIds.add(id);
+  }
+
+  /**
+   * Forgets the copies made so far, so that FSs are copied again. Used to copy into a target CAS
+   * again after it was reset, without making a new CasCopier; this takes time proportional to the
+   * number of FSs copied, rather than to the highest id of the source CAS.
+   */
+  void forgetCopies() {
+    final int[] ids = mCopiedIds.getArray();
+    for (int i = 0, size = mCopiedIds.size(); i < size; i++) {
+      mFsMap[ids[i]] = null;
+    }
+    mCopiedIds.removeAllElements();
   }
 
 
@@ -1018,17 +1057,19 @@ public class CasCopier {
     
     FSArray fsArray = (FSArray) tgtCasViewImpl.createArray(tgtTi, size);
 
-    // we do a direct recursive call here because the depth of this is limited to the depth of array nesting
-    // Contrast with normal FS copying, where the depth could be very large (e.g. FS Lists)
-    int i = 0;
-    TOP[] tgtArray = fsArray._getTheArray();
-    
-    for (TOP srcItem : ((FSArray)srcFS)._getTheArray()) {
-      if (null != srcItem) {
-        tgtArray[i] = copyFsInner(srcItem);
+    // the elements are copied later, like the features of other FSs, so that
+    //   bulk copying creates all the indexed FSs before any FS they refer to
+    fsToDo.addLast(() -> {
+      int i = 0;
+      TOP[] tgtArray = fsArray._getTheArray();
+      
+      for (TOP srcItem : ((FSArray)srcFS)._getTheArray()) {
+        if (null != srcItem) {
+          tgtArray[i] = copyFsInner(srcItem);
+        }
+        i++;
       }
-      i++;
-    }
+    });
 
     return fsArray;
   }
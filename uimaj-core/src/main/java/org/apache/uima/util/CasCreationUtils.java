@@ -25,10 +25,10 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.PriorityQueue;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Timer;
@@ -730,74 +730,63 @@ public class CasCreationUtils {
         // that it isn't guaranteed that a supertype will occur in the Types list
         // before its subtype.
 
-        // Build a linked list of type descriptions. We will make multiple passes
-        // over this, adding types to the CAS and removing them from the linked
-        // list. We continue until the list is empty or we cannot make any
-        // progress.
-        LinkedList<TypeDescription> typeList = new LinkedList<>();
-        typeList.addAll(Arrays.asList(types));
-        int numTypes = typeList.size();
-        int lastNumTypes;
-        List<TypeDescription> typesInOrderOfCreation = new LinkedList<>();
-        do {
-          lastNumTypes = numTypes;
-          Iterator<TypeDescription> it = typeList.iterator();
-          while (it.hasNext()) {
-            TypeDescription curTypeDesc = it.next();
-            String typeName = curTypeDesc.getName();
-            // type does not exist - add it under the appropriate supertype
-            String superTypeName = curTypeDesc.getSupertypeName();
-            if (superTypeName == null) {
+        // Add types when their supertypes are defined, in the order of multiple passes
+        // over the list, until all are added or a pass makes no progress.
+        List<TypeDescription> typesInOrderOfCreation = new ArrayList<>(types.length);
+        List<TypeDescription> typeList = addSupertypesFirst(Arrays.asList(types), curTypeDesc -> {
+          String typeName = curTypeDesc.getName();
+          // type does not exist - add it under the appropriate supertype
+          String superTypeName = curTypeDesc.getSupertypeName();
+          if (superTypeName == null) {
+            throw new ResourceInitializationException(
+                ResourceInitializationException.NO_SUPERTYPE, new Object[] { typeName,
+                    curTypeDesc.getSourceUrlString() });
+          }
+          // Check if it's a built-in type: must not change supertype!
+          Type builtIn = typeSystemMgr.getType(typeName);
+          if (builtIn != null) {
+            if (!superTypeName.equals(typeSystemMgr.getParent(builtIn).getName())) {
               throw new ResourceInitializationException(
-                  ResourceInitializationException.NO_SUPERTYPE, new Object[] { typeName,
+                  ResourceInitializationException.REDEFINING_BUILTIN_TYPE, new Object[] {
+                      typeSystemMgr.getParent(builtIn), typeName, superTypeName,
                       curTypeDesc.getSourceUrlString() });
             }
-            // Check if it's a built-in type: must not change supertype!
-            Type builtIn = typeSystemMgr.getType(typeName);
-            if (builtIn != null) {
-              if (!superTypeName.equals(typeSystemMgr.getParent(builtIn).getName())) {
-                throw new ResourceInitializationException(
-                    ResourceInitializationException.REDEFINING_BUILTIN_TYPE, new Object[] {
-                        typeSystemMgr.getParent(builtIn), typeName, superTypeName,
-                        curTypeDesc.getSourceUrlString() });
-              }
+          }
+          Type supertype = typeSystemMgr.getType(superTypeName);
+          if (supertype == null) {
+            return false;
+          }
+          // supertype is defined, so add to CAS type system
+          // check for special "enumerated types" that extend String
+          if (curTypeDesc.getSupertypeName().equals(CAS.TYPE_NAME_STRING)) {
+            AllowedValue[] vals = curTypeDesc.getAllowedValues();
+            if (vals == null) {
+              throw new ResourceInitializationException(
+                  ResourceInitializationException.MISSING_ALLOWED_VALUES, new Object[] {
+                      typeName, curTypeDesc.getSourceUrlString() });
             }
-            Type supertype = typeSystemMgr.getType(superTypeName);
-            if (supertype != null) {
-              // supertype is defined, so add to CAS type system
-              // check for special "enumerated types" that extend String
-              if (curTypeDesc.getSupertypeName().equals(CAS.TYPE_NAME_STRING)) {
-                AllowedValue[] vals = curTypeDesc.getAllowedValues();
-                if (vals == null) {
-                  throw new ResourceInitializationException(
-                      ResourceInitializationException.MISSING_ALLOWED_VALUES, new Object[] {
-                          typeName, curTypeDesc.getSourceUrlString() });
-                }
-                String[] valStrs = new String[vals.length];
-                for (int i = 0; i < valStrs.length; i++) {
-                  valStrs[i] = vals[i].getString();
-                }
-                typeSystemMgr.addStringSubtype(typeName, valStrs);
-              } else // a "normal" type
-              {
-                // make sure that allowed values are NOT specified for non-string subtypes
-                if (curTypeDesc.getAllowedValues() != null
-                    && curTypeDesc.getAllowedValues().length > 0) {
-                  throw new ResourceInitializationException(
-                      ResourceInitializationException.ALLOWED_VALUES_ON_NON_STRING_TYPE,
-                      new Object[] { typeName, curTypeDesc.getSourceUrlString() });
-                }
-                typeSystemMgr.addType(typeName, supertype);
-              }
-              // remove from list of type descriptions and add it to the typesInOrderOfCreation list
-              // for later processing
-              it.remove();
-              typesInOrderOfCreation.add(curTypeDesc);
+            String[] valStrs = new String[vals.length];
+            for (int i = 0; i < valStrs.length; i++) {
+              valStrs[i] = vals[i].getString();
+            }
+            typeSystemMgr.addStringSubtype(typeName, valStrs);
+          } else // a "normal" type
+          {
+            // make sure that allowed values are NOT specified for non-string subtypes
+            if (curTypeDesc.getAllowedValues() != null
+                && curTypeDesc.getAllowedValues().length > 0) {
+              throw new ResourceInitializationException(
+                  ResourceInitializationException.ALLOWED_VALUES_ON_NON_STRING_TYPE,
+                  new Object[] { typeName, curTypeDesc.getSourceUrlString() });
             }
+            typeSystemMgr.addType(typeName, supertype);
           }
-          numTypes = typeList.size();
-        } while (numTypes > 0 && numTypes != lastNumTypes);
-        // we quit the above loop either when we've added all types or when
+          // add it to the typesInOrderOfCreation list for later processing
+          typesInOrderOfCreation.add(curTypeDesc);
+          return true;
+        });
+        int numTypes = typeList.size();
+        // we get here either when we've added all types or when
         // we went through the entire list without successfully finding any
         // supertypes. In the latter case, throw an exception. Since there
         // can be more than one such type, we look for one that does not have
@@ -827,7 +816,7 @@ public class CasCreationUtils {
         if (numTypes > 0) {
           // We get here in either of two cases: there was only one problematic
           // type definition, or there was a cycle.
-          TypeDescription firstFailed = typeList.getFirst();
+          TypeDescription firstFailed = typeList.get(0);
           throw new ResourceInitializationException(
               ResourceInitializationException.UNDEFINED_SUPERTYPE, new Object[] {
                   firstFailed.getSupertypeName(), firstFailed.getName(),
@@ -956,6 +945,8 @@ public class CasCreationUtils {
             kind = FSIndex.SET_INDEX;
           else if (kindStr.equals(FsIndexDescription.KIND_SORTED))
             kind = FSIndex.SORTED_INDEX;
+          else if (kindStr.equals(FsIndexDescription.KIND_HASH))
+            kind = FSIndex.HASH_INDEX;
         }
 
         Type type = tsm.getType(aIndexes[i].getTypeName());
@@ -1113,11 +1104,9 @@ public class CasCreationUtils {
     
     // In order to properly handle the supertype merging, we need to make sure
     // that we process the supertype definitions before the subtypes. To do this,
-    // we build a linked list of type descriptions, and make multiple passes
-    // over this, adding types to the merged type system when their supertypes
-    // become defined.  We continue until the list is empty or we cannot make any
-    // progress.
-    LinkedList<TypeDescription> typeList = new LinkedList<>();
+    // we add types to the merged type system when their supertypes become defined,
+    // in the order of repeated passes over the list of type descriptions.
+    List<TypeDescription> typeList = new ArrayList<>();
     Iterator<? extends TypeSystemDescription> it = aTypeSystems.iterator();
     while (it.hasNext()) {
       TypeSystemDescription ts = it.next();
@@ -1131,28 +1120,21 @@ public class CasCreationUtils {
         typeList.addAll(Arrays.asList(types));
       }
     }
-    int lastNumTypes;
-    do {
-      lastNumTypes = typeList.size();
-      Iterator<TypeDescription> typeIter = typeList.iterator();
-      while (typeIter.hasNext()) {
-        TypeDescription type = typeIter.next();
-        String supertypeName = type.getSupertypeName();
-        if (supertypeName.startsWith("uima.cas") || supertypeName.startsWith("uima.tcas") || typeNameMap.containsKey(supertypeName)) {
-          //supertype is defined, ok to proceed
-          //check if type is already defined 
-          addTypeToMergedTypeSystem(aOutputMergedTypes, typeNameMap, type);
-          typeIter.remove();
-        }
+    List<TypeDescription> notAdded = addSupertypesFirst(typeList, type -> {
+      String supertypeName = type.getSupertypeName();
+      if (supertypeName.startsWith("uima.cas") || supertypeName.startsWith("uima.tcas") || typeNameMap.containsKey(supertypeName)) {
+        //supertype is defined, ok to proceed
+        //check if type is already defined 
+        addTypeToMergedTypeSystem(aOutputMergedTypes, typeNameMap, type);
+        return true;
       }
-    } while (typeList.size() > 0 && typeList.size() != lastNumTypes);
+      return false;
+    });
       
-    //At this point, if the typeList is not empty, then we either have a type with an undefined supertype, or a cycle.
+    //At this point, if notAdded is not empty, then we either have a type with an undefined supertype, or a cycle.
     //We go ahead and merge the type definitions anyway - these problems will be caught at CAS creation time. Undefined supertypes 
     //may be OK at this stage - this type system will have to be further merged before it can be used.
-    Iterator<TypeDescription> typeIter = typeList.iterator();
-    while (typeIter.hasNext()) {
-      TypeDescription type = typeIter.next();
+    for (TypeDescription type : notAdded) {
       addTypeToMergedTypeSystem(aOutputMergedTypes, typeNameMap, type);
     }    
 
@@ -1165,6 +1147,75 @@ public class CasCreationUtils {
     return result;
   }
 
+  /**
+   * Adds a type, if its supertype is defined
+   */
+  @FunctionalInterface
+  private interface TypeAdder {
+    /**
+     * @param aType the type to add
+     * @return true if added, false if the supertype is not (yet) defined
+     * @throws ResourceInitializationException if the type is in error
+     */
+    boolean add(TypeDescription aType) throws ResourceInitializationException;
+  }
+
+  /**
+   * Adds types in the same order as making repeated passes over the list, each pass trying to add
+   * the types not yet added, in list order, until all are added or a pass adds none.
+   * 
+   * Instead of re-scanning the list, a type whose supertype is not defined waits for a type of that
+   * name to be added, and is then tried again, in this pass if it follows that type in the list,
+   * otherwise in the next pass.  This is linear in the number of types, rather than proportional
+   * to the number of types times the number of passes, which can be as large as the depth of the
+   * type hierarchy when subtypes are listed before supertypes.
+   * 
+   * @param aTypes the types to add
+   * @param aAdder adds a type if its supertype is defined
+   * @return the types not added, in list order
+   * @throws ResourceInitializationException from the adder
+   */
+  private static List<TypeDescription> addSupertypesFirst(List<TypeDescription> aTypes, TypeAdder aAdder)
+      throws ResourceInitializationException {
+    final int nbrTypes = aTypes.size();
+    final boolean[] isAdded = new boolean[nbrTypes];
+    // key is a supertype name, value is the positions of the types waiting for it
+    final Map<String, List<Integer>> waiting = new HashMap<>();
+    PriorityQueue<Integer> thisPass = new PriorityQueue<>(Math.max(1, nbrTypes));
+    PriorityQueue<Integer> nextPass = new PriorityQueue<>();
+    for (int i = 0; i < nbrTypes; i++) {
+      thisPass.add(i);
+    }
+    while (!thisPass.isEmpty()) {
+      while (!thisPass.isEmpty()) {
+        final int i = thisPass.poll();
+        TypeDescription type = aTypes.get(i);
+        if (aAdder.add(type)) {
+          isAdded[i] = true;
+          List<Integer> waitingForType = waiting.remove(type.getName());
+          if (waitingForType != null) {
+            for (int w : waitingForType) {
+              ((w > i) ? thisPass : nextPass).add(w);
+            }
+          }
+        } else {
+          waiting.computeIfAbsent(type.getSupertypeName(), k -> new ArrayList<>()).add(i);
+        }
+      }
+      PriorityQueue<Integer> t = thisPass;
+      thisPass = nextPass;
+      nextPass = t;
+    }
+
+    List<TypeDescription> notAdded = new ArrayList<>();
+    for (int i = 0; i < nbrTypes; i++) {
+      if (!isAdded[i]) {
+        notAdded.add(aTypes.get(i));
+      }
+    }
+    return notAdded;
+  }
+
   private static void addTypeToMergedTypeSystem(Map<String, Set<String>> aOutputMergedTypes, Map<String,TypeDescription> typeNameMap, TypeDescription type) throws ResourceInitializationException {
     String typeName = type.getName();
     String supertypeName = type.getSupertypeName();
@@ -1710,6 +1761,10 @@ public class CasCreationUtils {
     if (existingFeatures == null) {
       existingFeatures = EMPTY_FEAT_DESC_ARRAY;
     }
+    Map<String, FeatureDescription> existingFeaturesByName = new HashMap<>();
+    for (FeatureDescription fd : existingFeatures) {
+      existingFeaturesByName.putIfAbsent(fd.getName(), fd);
+    }
 
     for (int i = 0; i < aFeatures.length; i++) {
       String featName = aFeatures[i].getName();
@@ -1718,19 +1773,14 @@ public class CasCreationUtils {
       Boolean multiRefsAllowed = aFeatures[i].getMultipleReferencesAllowed();
 
       // see if a feature already exists with this name
-      FeatureDescription feat = null;
-      for (int j = 0; j < existingFeatures.length; j++) {
-        if (existingFeatures[j].getName().equals(featName)) {
-          feat = existingFeatures[j];
-          break;
-        }
-      }
+      FeatureDescription feat = existingFeaturesByName.get(featName);
 
       if (feat == null) {
         // doesn't exist; add it
         FeatureDescription featDesc = aType.addFeature(featName, aFeatures[i].getDescription(),
             rangeTypeName, elementTypeName, multiRefsAllowed);
         featDesc.setSourceUrl(aFeatures[i].getSourceUrl());
+        existingFeaturesByName.put(featName, featDesc);
       } else {// feature does exist
         // check that the range types match
         if (!feat.getRangeTypeName().equals(rangeTypeName)) {
@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Feature;
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.jcas.cas.TOP;
+import org.apache.uima.jcas.tcas.Annotation;
+
+/**
+ * Packs many small documents into one CAS, to avoid the fixed per CAS cost of processing and
+ * resetting a CAS for each of them.
+ *
+ * The texts of the documents are concatenated, separated by a separator string, to form the
+ * document text of the initial view of the packed CAS.  Each document, or segment, is marked by a
+ * DocumentAnnotation covering its text, in addition to the DocumentAnnotation of the CAS which
+ * covers the whole text.  The language of a document, if given, is kept in its segment.
+ *
+ * The packed CAS can be processed by an ordinary Analysis Engine; afterwards
+ * {@link #unpackAll(CAS, CAS, ObjIntConsumer)} copies the annotations covered by each segment into
+ * a CAS of their own, with their offsets relative to the segment's text.
+ * This works for annotators which don't produce annotations spanning more than one document,
+ * which the separator is meant to prevent.
+ */
+public class CasPacker {
+
+  /** the default separator, which splits paragraphs and sentences for typical annotators */
+  public static final String DEFAULT_SEPARATOR = "\n\n";
+
+  private final String separator;
+
+  /**
+   * Creates a CasPacker using the {@link #DEFAULT_SEPARATOR}
+   */
+  public CasPacker() {
+    this(DEFAULT_SEPARATOR);
+  }
+
+  /**
+   * @param aSeparator the string put between the texts of the packed documents
+   */
+  public CasPacker(String aSeparator) {
+    separator = aSeparator;
+  }
+
+  /**
+   * Resets a CAS and packs documents, without languages, into its initial view.
+   *
+   * @param aCas the CAS to pack into
+   * @param aTexts the texts of the documents
+   * @return the segments, one DocumentAnnotation per document, in the order of the texts
+   */
+  public List<AnnotationFS> pack(CAS aCas, List<String> aTexts) {
+    return pack(aCas, aTexts, null);
+  }
+
+  /**
+   * Resets a CAS and packs documents into its initial view.
+   *
+   * @param aCas the CAS to pack into
+   * @param aTexts the texts of the documents
+   * @param aLanguages the languages of the documents, in the order of the texts, or null if not
+   *          known; a null element leaves the language of that document unset
+   * @return the segments, one DocumentAnnotation per document, in the order of the texts
+   */
+  public List<AnnotationFS> pack(CAS aCas, List<String> aTexts, List<String> aLanguages) {
+    if (aLanguages != null && aLanguages.size() != aTexts.size()) {
+      throw new IllegalArgumentException("Got " + aLanguages.size() + " languages for "
+          + aTexts.size() + " texts");
+    }
+    aCas.reset();
+    CAS view = aCas.getView(CAS.NAME_DEFAULT_SOFA);
+
+    StringBuilder sb = new StringBuilder();
+    int[] begins = new int[aTexts.size()];
+    for (int i = 0; i < aTexts.size(); i++) {
+      if (i > 0) {
+        sb.append(separator);
+      }
+      begins[i] = sb.length();
+      sb.append(aTexts.get(i));
+    }
+    view.setDocumentText(sb.toString());
+    view.getDocumentAnnotation();  // create the document annotation before the segments, so it stays the first one
+
+    TypeSystem ts = view.getTypeSystem();
+    Type documentAnnotationType = ts.getType(CAS.TYPE_NAME_DOCUMENT_ANNOTATION);
+    Feature languageFeature = ts.getFeatureByFullName(CAS.FEATURE_FULL_NAME_LANGUAGE);
+    List<AnnotationFS> segments = new ArrayList<>(aTexts.size());
+    for (int i = 0; i < aTexts.size(); i++) {
+      AnnotationFS segment = view.createAnnotation(documentAnnotationType, begins[i],
+          begins[i] + aTexts.get(i).length());
+      if (aLanguages != null && aLanguages.get(i) != null) {
+        segment.setStringValue(languageFeature, aLanguages.get(i));
+      }
+      view.addFsToIndexes(segment);
+      segments.add(segment);
+    }
+    return segments;
+  }
+
+  /**
+   * Gets the segments of a packed CAS from its index. This includes any DocumentAnnotation, or
+   * instance of a subtype, added after packing, e.g. by an annotator; use the segments returned by
+   * {@link #pack(CAS, List)} where they are available.
+   *
+   * @param aCas a CAS packed by {@link #pack(CAS, List)}, with no other DocumentAnnotations added
+   * @return the segments, one DocumentAnnotation per document, in the order of the documents
+   */
+  public static List<AnnotationFS> getSegments(CAS aCas) {
+    CAS view = aCas.getView(CAS.NAME_DEFAULT_SOFA);
+    AnnotationFS documentAnnotation = view.getDocumentAnnotation();
+    List<AnnotationFS> segments = new ArrayList<>();
+    FSIterator<AnnotationFS> it = view.getAnnotationIndex(documentAnnotation.getType()).iterator();
+    for (; it.isValid(); it.moveToNext()) {
+      AnnotationFS fs = it.get();
+      if (fs != documentAnnotation) {
+        segments.add(fs);
+      }
+    }
+    return segments;
+  }
+
+  /**
+   * Resets a CAS and copies one document of a packed CAS into its initial view: the text and
+   * language of the document, and the annotations covered by its segment other than
+   * DocumentAnnotations, with their offsets made relative to the document text.
+   *
+   * FSs referenced by the copied annotations are copied too; annotations among them which are not
+   * covered by the segment keep their offsets.  FSs which are not annotations are not copied
+   * unless referenced.
+   *
+   * This makes a new {@link CasCopier}, whose map of copies grows to the highest id of the FSs
+   * copied; use {@link #unpackAll(CAS, List, CAS, ObjIntConsumer)} to unpack all the documents with
+   * one.
+   *
+   * @param aPackedCas the packed CAS
+   * @param aSegment the segment of the document
+   * @param aTargetCas the CAS to copy the document into; it may have a different type system
+   *          if it defines all the types of the copied FSs
+   */
+  public static void unpack(CAS aPackedCas, AnnotationFS aSegment, CAS aTargetCas) {
+    aTargetCas.reset();
+    CAS srcView = aPackedCas.getView(CAS.NAME_DEFAULT_SOFA);
+    CAS tgtView = aTargetCas.getView(CAS.NAME_DEFAULT_SOFA);
+    unpack(srcView, aSegment, tgtView, new CasCopier(srcView, tgtView));
+  }
+
+  /**
+   * Copies each document of a packed CAS, in turn, into the target CAS, as
+   * {@link #unpackAll(CAS, List, CAS, ObjIntConsumer)} does, taking the segments from
+   * {@link #getSegments(CAS)}.
+   *
+   * @param aPackedCas the packed CAS
+   * @param aTargetCas the CAS to copy each document into
+   * @param aConsumer called after each document is copied into the target CAS, with the target CAS
+   *          and the index of the segment of the document
+   */
+  public static void unpackAll(CAS aPackedCas, CAS aTargetCas, ObjIntConsumer<CAS> aConsumer) {
+    unpackAll(aPackedCas, getSegments(aPackedCas), aTargetCas, aConsumer);
+  }
+
+  /**
+   * Copies each document of a packed CAS, in turn, into the target CAS, as
+   * {@link #unpack(CAS, AnnotationFS, CAS)} does, and calls the consumer after each. The same
+   * CasCopier is used for all the documents.
+   *
+   * @param aPackedCas the packed CAS
+   * @param aSegments the segments of the documents, as returned by {@link #pack(CAS, List)}
+   * @param aTargetCas the CAS to copy each document into
+   * @param aConsumer called after each document is copied into the target CAS, with the target CAS
+   *          and the index of the segment of the document
+   */
+  public static void unpackAll(CAS aPackedCas, List<AnnotationFS> aSegments, CAS aTargetCas,
+      ObjIntConsumer<CAS> aConsumer) {
+    CAS srcView = aPackedCas.getView(CAS.NAME_DEFAULT_SOFA);
+    CAS tgtView = aTargetCas.getView(CAS.NAME_DEFAULT_SOFA);
+    CasCopier copier = new CasCopier(srcView, tgtView);
+    for (int i = 0; i < aSegments.size(); i++) {
+      // the copies of the previous document are removed by the reset
+      aTargetCas.reset();
+      copier.forgetCopies();
+      unpack(srcView, aSegments.get(i), tgtView, copier);
+      aConsumer.accept(aTargetCas, i);
+    }
+  }
+
+  private static void unpack(CAS srcView, AnnotationFS aSegment, CAS tgtView, CasCopier copier) {
+    TypeSystem ts = srcView.getTypeSystem();
+    tgtView.setDocumentText(aSegment.getCoveredText());
+    String language = aSegment.getStringValue(ts.getFeatureByFullName(CAS.FEATURE_FULL_NAME_LANGUAGE));
+    if (language != null) {
+      tgtView.setDocumentLanguage(language);
+    }
+
+    final int offset = aSegment.getBegin();
+    final Type documentAnnotationType = ts.getType(CAS.TYPE_NAME_DOCUMENT_ANNOTATION);
+    List<Annotation> copies = new ArrayList<>();
+    for (Annotation a : srcView.<Annotation>getAnnotationIndex().select().coveredBy(aSegment)) {
+      if (ts.subsumes(documentAnnotationType, a.getType())) {
+        continue;
+      }
+      TOP copy = copier.copyFs(a);
+      if (copy instanceof Annotation) {
+        copies.add((Annotation) copy);
+      }
+    }
+    for (Annotation copy : copies) {
+      copy.setBegin(copy.getBegin() - offset);
+      copy.setEnd(copy.getEnd() - offset);
+      tgtView.addFsToIndexes(copy);
+    }
+  }
+
+  /**
+   * Processes documents, without languages, with an Analysis Engine, packing them into one CAS at
+   * a time.
+   *
+   * @param aAe the Analysis Engine to process the packed CASs; it must not output new CASs
+   * @param aPackedCas the CAS to pack the documents into
+   * @param aTargetCas the CAS the results of each document are copied into
+   * @param aTexts the documents
+   * @param aPackSize the maximum number of documents packed into one CAS
+   * @param aConsumer called after each document is copied into the target CAS, with the target CAS
+   *          and the index of the document
+   * @throws AnalysisEngineProcessException if the Analysis Engine fails
+   */
+  public void process(AnalysisEngine aAe, CAS aPackedCas, CAS aTargetCas, List<String> aTexts,
+      int aPackSize, ObjIntConsumer<CAS> aConsumer) throws AnalysisEngineProcessException {
+    process(aAe, aPackedCas, aTargetCas, aTexts, null, aPackSize, aConsumer);
+  }
+
+  /**
+   * Processes documents with an Analysis Engine, packing them into one CAS at a time.
+   *
+   * @param aAe the Analysis Engine to process the packed CASs; it must not output new CASs
+   * @param aPackedCas the CAS to pack the documents into
+   * @param aTargetCas the CAS the results of each document are copied into
+   * @param aTexts the documents
+   * @param aLanguages the languages of the documents, or null if not known
+   * @param aPackSize the maximum number of documents packed into one CAS
+   * @param aConsumer called after each document is copied into the target CAS, with the target CAS
+   *          and the index of the document
+   * @throws AnalysisEngineProcessException if the Analysis Engine fails
+   */
+  public void process(AnalysisEngine aAe, CAS aPackedCas, CAS aTargetCas, List<String> aTexts,
+      List<String> aLanguages, int aPackSize, ObjIntConsumer<CAS> aConsumer)
+      throws AnalysisEngineProcessException {
+    for (int first = 0; first < aTexts.size(); first += aPackSize) {
+      int end = Math.min(aTexts.size(), first + aPackSize);
+      // DocumentAnnotations added by the Analysis Engine are not segments
+      List<AnnotationFS> segments = pack(aPackedCas, aTexts.subList(first, end),
+          (aLanguages == null) ? null : aLanguages.subList(first, end));
+      aAe.process(aPackedCas);
+      final int offset = first;
+      unpackAll(aPackedCas, segments, aTargetCas, (cas, i) -> aConsumer.accept(cas, offset + i));
+    }
+  }
+}
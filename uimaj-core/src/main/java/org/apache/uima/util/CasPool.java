@@ -34,6 +34,7 @@ import org.apache.uima.UIMAFramework;
 import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.impl.CASImpl;
+import org.apache.uima.cas.impl.CasSizeProfile;
 import org.apache.uima.resource.CasDefinition;
 import org.apache.uima.resource.CasManager;
 import org.apache.uima.resource.ResourceInitializationException;
@@ -86,8 +87,21 @@ public class CasPool {
   // a fair lock to prevent starvation of a thread
   final private Semaphore permits;
   
+  /**
+   * null unless adaptive presizing is enabled by the performance tuning settings
+   */
+  final private CasSizeProfile mSizeProfile;
+  
   private CasPool(int aNumInstances, Set<CAS> allInstances) {
+    this(aNumInstances, allInstances, null);
+  }
+  
+  private CasPool(int aNumInstances, Set<CAS> allInstances, Properties aPerformanceTuningSettings) {
     mNumInstances = aNumInstances;
+    mSizeProfile = (null != aPerformanceTuningSettings && !allInstances.isEmpty() &&
+                    "true".equalsIgnoreCase(aPerformanceTuningSettings.getProperty(UIMAFramework.ADAPTIVE_CAS_PRESIZING)))
+                     ? new CasSizeProfile(((CASImpl) allInstances.iterator().next()).getTypeSystemImpl())
+                     : null;
     permits = new Semaphore(mNumInstances, true);
     mAllInstances = allInstances;
     Set<CAS> free = Collections.newSetFromMap(new ConcurrentHashMap<>());
@@ -115,7 +129,8 @@ public class CasPool {
   public CasPool(int aNumInstances, Collection<? extends ProcessingResourceMetaData> aCollectionOfProcessingResourceMetaData,
           Properties aPerformanceTuningSettings, ResourceManager aResourceManager)
           throws ResourceInitializationException {
-    this(aNumInstances, fillPool(aNumInstances, aCollectionOfProcessingResourceMetaData, aPerformanceTuningSettings, aResourceManager));
+    this(aNumInstances, fillPool(aNumInstances, aCollectionOfProcessingResourceMetaData, aPerformanceTuningSettings, aResourceManager),
+         aPerformanceTuningSettings);
   }
   
 
@@ -137,7 +152,8 @@ public class CasPool {
          fillPool(aNumInstances, 
                   Collections.singletonList((ProcessingResourceMetaData) aAnalysisEngine.getMetaData()),
                   aAnalysisEngine.getPerformanceTuningSettings(),
-                  aAnalysisEngine.getResourceManager()));
+                  aAnalysisEngine.getResourceManager()),
+         aAnalysisEngine.getPerformanceTuningSettings());
   }
 
   /**
@@ -188,7 +204,7 @@ public class CasPool {
    */
   public CasPool(int aNumInstances, CasDefinition aCasDefinition,
           Properties aPerformanceTuningSettings) throws ResourceInitializationException {
-    this(aNumInstances, fillPool(aNumInstances, aCasDefinition, aPerformanceTuningSettings));
+    this(aNumInstances, fillPool(aNumInstances, aCasDefinition, aPerformanceTuningSettings), aPerformanceTuningSettings);
   }
 
   /**
@@ -207,7 +223,7 @@ public class CasPool {
    */
   public CasPool(int aNumInstances, CasManager aCasManager,
           Properties aPerformanceTuningSettings) throws ResourceInitializationException {
-    this(aNumInstances, fillPool(aNumInstances, aCasManager, aPerformanceTuningSettings));
+    this(aNumInstances, fillPool(aNumInstances, aCasManager, aPerformanceTuningSettings), aPerformanceTuningSettings);
   }
   
   /**
@@ -304,7 +320,11 @@ public class CasPool {
         ((CASImpl)cas).restoreClassLoaderUnlockCas(); 
         
         // reset CAS
-        cas.reset();
+        if (null == mSizeProfile) {
+          cas.reset();
+        } else {
+          mSizeProfile.resetAndPresize(cas);
+        }
         
         // Add the CAS to the end of the free instances List
         mFreeInstances.add(cas);
@@ -101,6 +101,21 @@ public class XMLInputSource {
     }
   }
 
+  /**
+   * Creates an XMLInputSource reading from an existing InputStream, which holds the contents of a
+   * URL, for example read ahead of parsing. The URL is used as the system id and as the base for
+   * resolving relative paths, as if the URL itself were read.
+   * 
+   * @param aURL
+   *          the URL the contents were read from
+   * @param aInputStream
+   *          input stream from which to read
+   */
+  public XMLInputSource(URL aURL, InputStream aInputStream) {
+    mURL = aURL;
+    mInputStream = aInputStream;
+  }
+
   /**
    * Creates an <code>XMLInputSource</code> from a URL.
    * 
@@ -0,0 +1,329 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.util.impl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.uima.util.ProcessTraceEvent;
+
+/**
+ * Aggregated timings of a forest of events, used by {@link ProcessTrace_impl} when sampling is
+ * enabled. Events are identified, as in {@link ProcessTrace_impl#aggregate}, by the component name
+ * and type of the event and of its enclosing events. For each, it counts the number of events, and
+ * keeps the total and maximum duration and a histogram of the durations. It also keeps the full
+ * events of the last {@link #SAMPLES_KEPT} sampled traces.
+ * <p>
+ * Recording and merging are lock free; a lock is only taken when an event is seen for the first
+ * time, to add its node.
+ */
+public class ProcessTraceStatistics implements Serializable {
+
+  private static final long serialVersionUID = -2409823526412760148L;
+
+  /**
+   * Number of histogram buckets. Bucket 0 counts events of duration 0; bucket i counts durations
+   * from 2<sup>i-1</sup> up to 2<sup>i</sup> - 1 milliseconds; the last bucket counts all longer
+   * durations.
+   */
+  public static final int HISTOGRAM_SIZE = 32;
+
+  /**
+   * Number of sampled traces whose events are kept.
+   */
+  public static final int SAMPLES_KEPT = 16;
+
+  private static final Node[] NO_NODES = new Node[0];
+
+  /**
+   * Aggregated timings of the events with the same component name and type under the same parent.
+   */
+  public static class Node implements Serializable {
+
+    private static final long serialVersionUID = 2687263604425131744L;
+
+    private final String mComponentName;
+
+    private final String mType;
+
+    private final String mDescription;
+
+    private volatile String mResultMessage;
+
+    private final LongAdder mCount = new LongAdder();
+
+    private final LongAdder mTotalDuration = new LongAdder();
+
+    private final AtomicLong mMaxDuration = new AtomicLong();
+
+    private final AtomicLongArray mHistogram = new AtomicLongArray(HISTOGRAM_SIZE);
+
+    /** copy on write, in order of first occurrence */
+    private volatile Node[] mSubNodes = NO_NODES;
+
+    Node(String aComponentName, String aType, String aDescription) {
+      mComponentName = aComponentName;
+      mType = aType;
+      mDescription = aDescription;
+    }
+
+    public String getComponentName() {
+      return mComponentName;
+    }
+
+    public String getType() {
+      return mType;
+    }
+
+    /**
+     * @return the description of the first event recorded
+     */
+    public String getDescription() {
+      return mDescription;
+    }
+
+    /**
+     * @return the result message of the last event recorded
+     */
+    public String getResultMessage() {
+      return mResultMessage;
+    }
+
+    public long getCount() {
+      return mCount.sum();
+    }
+
+    public long getTotalDuration() {
+      return mTotalDuration.sum();
+    }
+
+    public long getMaxDuration() {
+      return mMaxDuration.get();
+    }
+
+    /**
+     * @return a copy of the histogram of durations, see {@link ProcessTraceStatistics#HISTOGRAM_SIZE}
+     */
+    public long[] getHistogram() {
+      long[] r = new long[HISTOGRAM_SIZE];
+      for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+        r[i] = mHistogram.get(i);
+      }
+      return r;
+    }
+
+    public List<Node> getSubNodes() {
+      return Collections.unmodifiableList(Arrays.asList(mSubNodes));
+    }
+
+    /**
+     * Get the node for a sub-event, adding it if this is the first such event.
+     *
+     * @param aComponentName -
+     * @param aType -
+     * @param aDescription
+     *          the description, used if the node is added
+     * @return the node
+     */
+    Node getSubNode(String aComponentName, String aType, String aDescription) {
+      Node n = findSubNode(mSubNodes, aComponentName, aType);
+      if (n != null) {
+        return n;
+      }
+      synchronized (this) {
+        Node[] subNodes = mSubNodes;
+        n = findSubNode(subNodes, aComponentName, aType);
+        if (n == null) {
+          n = new Node(aComponentName, aType, aDescription);
+          subNodes = Arrays.copyOf(subNodes, subNodes.length + 1);
+          subNodes[subNodes.length - 1] = n;
+          mSubNodes = subNodes;
+        }
+        return n;
+      }
+    }
+
+    private static Node findSubNode(Node[] aNodes, String aComponentName, String aType) {
+      for (Node n : aNodes) {
+        if (n.mComponentName.equals(aComponentName) && n.mType.equals(aType)) {
+          return n;
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Record one event.
+     *
+     * @param aDuration
+     *          duration in milliseconds
+     * @param aResultMessage -
+     */
+    void record(long aDuration, String aResultMessage) {
+      mCount.increment();
+      mTotalDuration.add(aDuration);
+      updateMax(aDuration);
+      mHistogram.incrementAndGet(bucket(aDuration));
+      mResultMessage = aResultMessage;
+    }
+
+    private void updateMax(long aDuration) {
+      long max = mMaxDuration.get();
+      while (aDuration > max && !mMaxDuration.compareAndSet(max, aDuration)) {
+        max = mMaxDuration.get();
+      }
+    }
+
+    private void merge(Node aSrc) {
+      mCount.add(aSrc.getCount());
+      mTotalDuration.add(aSrc.getTotalDuration());
+      updateMax(aSrc.getMaxDuration());
+      for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+        long c = aSrc.mHistogram.get(i);
+        if (c != 0) {
+          mHistogram.addAndGet(i, c);
+        }
+      }
+      if (aSrc.mResultMessage != null) {
+        mResultMessage = aSrc.mResultMessage;
+      }
+      for (Node srcSub : aSrc.mSubNodes) {
+        getSubNode(srcSub.mComponentName, srcSub.mType, srcSub.mDescription).merge(srcSub);
+      }
+    }
+
+    private ProcessTraceEvent_impl toEvent() {
+      ProcessTraceEvent_impl evt = new ProcessTraceEvent_impl(mComponentName, mType, mDescription);
+      evt.setDuration((int) Math.min(getTotalDuration(), Integer.MAX_VALUE));
+      evt.setResultMessage(mResultMessage);
+      for (Node sub : mSubNodes) {
+        evt.addSubEvent(sub.toEvent());
+      }
+      return evt;
+    }
+  }
+
+  /** holds the top-level nodes; not itself an event */
+  private final Node mRoot = new Node(null, null, null);
+
+  /** ring of the top-level events of the last sampled traces */
+  private final AtomicReferenceArray<List<ProcessTraceEvent>> mSamples = new AtomicReferenceArray<>(
+          SAMPLES_KEPT);
+
+  /** number of samples added; the next one goes to this index modulo SAMPLES_KEPT */
+  private final AtomicLong mSampleCount = new AtomicLong();
+
+  /**
+   * @param aDuration
+   *          duration in milliseconds
+   * @return the histogram bucket for the duration
+   */
+  public static int bucket(long aDuration) {
+    return (aDuration <= 0) ? 0 : Math.min(64 - Long.numberOfLeadingZeros(aDuration), HISTOGRAM_SIZE - 1);
+  }
+
+  /**
+   * @return the nodes of the top-level events, in order of first occurrence
+   */
+  public List<Node> getNodes() {
+    return mRoot.getSubNodes();
+  }
+
+  Node getRoot() {
+    return mRoot;
+  }
+
+  /**
+   * Record an event and its sub-events.
+   *
+   * @param aParent
+   *          the node of the enclosing event, or the root
+   * @param aEvent
+   *          the event
+   */
+  void add(Node aParent, ProcessTraceEvent aEvent) {
+    Node n = aParent.getSubNode(aEvent.getComponentName(), aEvent.getType(),
+            aEvent.getDescription());
+    n.record(aEvent.getDuration(), aEvent.getResultMessage());
+    for (ProcessTraceEvent sub : aEvent.getSubEvents()) {
+      add(n, sub);
+    }
+  }
+
+  /**
+   * Keep the events of a sampled trace, replacing the oldest kept sample if there are already
+   * {@link #SAMPLES_KEPT}.
+   *
+   * @param aEvents
+   *          the top-level events of the trace, which must not be changed afterwards
+   */
+  void addSample(List<ProcessTraceEvent> aEvents) {
+    mSamples.set((int) (mSampleCount.getAndIncrement() % SAMPLES_KEPT), aEvents);
+  }
+
+  /**
+   * @return the top-level events of the last {@link #SAMPLES_KEPT} sampled traces, oldest first
+   */
+  public List<List<ProcessTraceEvent>> getSamples() {
+    long end = mSampleCount.get();
+    List<List<ProcessTraceEvent>> samples = new ArrayList<>(SAMPLES_KEPT);
+    for (long i = Math.max(0, end - SAMPLES_KEPT); i < end; i++) {
+      List<ProcessTraceEvent> sample = mSamples.get((int) (i % SAMPLES_KEPT));
+      if (sample != null) {
+        samples.add(sample);
+      }
+    }
+    return samples;
+  }
+
+  /**
+   * Add the counts and samples of other statistics to these.
+   *
+   * @param aStatistics
+   *          the statistics to add
+   */
+  public void add(ProcessTraceStatistics aStatistics) {
+    for (Node srcSub : aStatistics.mRoot.mSubNodes) {
+      mRoot.getSubNode(srcSub.mComponentName, srcSub.mType, srcSub.mDescription).merge(srcSub);
+    }
+    for (List<ProcessTraceEvent> sample : aStatistics.getSamples()) {
+      addSample(sample);
+    }
+  }
+
+  /**
+   * @return new events, one per node, whose durations are the total durations of the nodes
+   */
+  public List<ProcessTraceEvent> toEvents() {
+    Node[] nodes = mRoot.mSubNodes;
+    List<ProcessTraceEvent> events = new ArrayList<>(nodes.length);
+    for (Node n : nodes) {
+      events.add(n.toEvent());
+    }
+    return events;
+  }
+}
@@ -20,6 +20,7 @@
 package org.apache.uima.util.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
@@ -60,6 +61,38 @@ public class ProcessTrace_impl implements ProcessTrace {
    */
   private boolean mEnabled;
 
+  /**
+   * If greater than 0, the trace is in sampling mode, and only 1 in this many traces keeps event
+   * objects. See {@link UIMAFramework#PROCESS_TRACE_SAMPLE_RATE}.
+   */
+  private int mSampleRate;
+
+  /**
+   * In sampling mode, the events of this trace if it was not sampled; its event lists are then
+   * unused. Taken from, and on {@link #clear()} given back to, the spare of the thread.
+   */
+  private Records mRecords;
+
+  /**
+   * In sampling mode, the timings of the traces aggregated into this one. Created on the first
+   * call of {@link #aggregate(ProcessTrace)}.
+   */
+  private volatile ProcessTraceStatistics mStatistics;
+
+  /**
+   * Per thread state of sampling mode: the count of traces started, to pick the ones to sample,
+   * and the Records of the last cleared trace, for the next trace which is not sampled.
+   */
+  private static final ThreadLocal<ThreadSampling> threadSampling = ThreadLocal
+          .withInitial(ThreadSampling::new);
+
+  private static class ThreadSampling {
+    /** number of traces started on this thread, modulo the sample rate */
+    int count;
+
+    Records spare;
+  }
+
   /**
    * Create a ProcessTrace_impl using the framework's default timer.
    */
@@ -82,12 +115,10 @@ public class ProcessTrace_impl implements ProcessTrace {
    *          disabled.
    */
   public ProcessTrace_impl(Properties aPerformanceTuningSettings) {
-//    if (aPerformanceTuningSettings == null) {
-//      aPerformanceTuningSettings = UIMAFramework.getDefaultPerformanceTuningProperties();
-//    }
-    this("true".equalsIgnoreCase(
-        ((aPerformanceTuningSettings == null) ? UIMAFramework.getDefaultPerformanceTuningProperties() : aPerformanceTuningSettings)
-        .getProperty(UIMAFramework.PROCESS_TRACE_ENABLED)));
+    this((UimaTimer) null, aPerformanceTuningSettings);
+    if (mEnabled) {
+      mTimer = UIMAFramework.newTimer();
+    }
   }
 
   /**
@@ -116,6 +147,80 @@ public class ProcessTrace_impl implements ProcessTrace {
     }
     mEnabled = "true".equalsIgnoreCase(aPerformanceTuningSettings
             .getProperty(UIMAFramework.PROCESS_TRACE_ENABLED));
+    String sampleRate = aPerformanceTuningSettings
+            .getProperty(UIMAFramework.PROCESS_TRACE_SAMPLE_RATE);
+    if (mEnabled && sampleRate != null) {
+      mSampleRate = Integer.parseInt(sampleRate.trim());
+      if (mSampleRate > 0) {
+        startSample();
+      }
+    }
+  }
+
+  /**
+   * Decide whether this trace, up to the next {@link #clear()}, is sampled. If not, its events are
+   * recorded in the thread's spare Records, or new ones.
+   */
+  private void startSample() {
+    ThreadSampling ts = threadSampling.get();
+    if (ts.count != 0) {
+      mRecords = (ts.spare != null) ? ts.spare : new Records();
+      ts.spare = null;
+    }
+    ts.count = (ts.count + 1) % mSampleRate;
+  }
+
+  /**
+   * @return true if this trace is in sampling mode. Its {@link #aggregate(ProcessTrace)} may then
+   *         be called from several threads without locking.
+   */
+  public boolean isSampling() {
+    return mSampleRate > 0;
+  }
+
+  /**
+   * In sampling mode, gets the timings of all events of this trace: its own and those aggregated
+   * into it. These also keep the events of the last sampled traces, see
+   * {@link #getSampledEvents()}.
+   * 
+   * @return new statistics, or null if this trace is not in sampling mode
+   */
+  public ProcessTraceStatistics getStatistics() {
+    if (mSampleRate <= 0) {
+      return null;
+    }
+    ProcessTraceStatistics all = new ProcessTraceStatistics();
+    ProcessTraceStatistics aggregated = mStatistics;
+    if (aggregated != null) {
+      all.add(aggregated);
+    }
+    addOwnEventsTo(all);
+    return all;
+  }
+
+  /**
+   * In sampling mode, gets the full events of the last sampled traces: those aggregated into this
+   * one, directly or through other traces, and this one, if sampled.
+   * 
+   * @return the top-level events of each of the last
+   *         {@link ProcessTraceStatistics#SAMPLES_KEPT} sampled traces, oldest first, or null if
+   *         this trace is not in sampling mode
+   */
+  public List<List<ProcessTraceEvent>> getSampledEvents() {
+    ProcessTraceStatistics statistics = getStatistics();
+    return (statistics == null) ? null : statistics.getSamples();
+  }
+
+  private void addOwnEventsTo(ProcessTraceStatistics aStatistics) {
+    if (mRecords != null) {
+      mRecords.addTo(aStatistics);
+    } else if (!mEventList.isEmpty()) {
+      for (ProcessTraceEvent event : mEventList) {
+        aStatistics.add(aStatistics.getRoot(), event);
+      }
+      // the event objects aren't changed after they are closed; the list is, by clear()
+      aStatistics.addSample(new ArrayList<>(mEventList));
+    }
   }
 
   /**
@@ -123,7 +228,9 @@ public class ProcessTrace_impl implements ProcessTrace {
    *      java.lang.String)
    */
   public void startEvent(String aComponentName, String aEventType, String aDescription) {
-    if (mEnabled) {
+    if (mRecords != null) {
+      mRecords.start(aComponentName, aEventType, aDescription, mTimer.getTimeInMillis());
+    } else if (mEnabled) {
       // DEBUG System.out.println("startEvent(" + aComponentName + "," + aEventType + ")");
       ProcessTraceEvent_impl evt = new ProcessTraceEvent_impl(aComponentName, aEventType,
               aDescription);
@@ -137,7 +244,12 @@ public class ProcessTrace_impl implements ProcessTrace {
    *      java.lang.String)
    */
   public void endEvent(String aComponentName, String aEventType, String aResultMessage) {
-    if (mEnabled) {
+    if (mRecords != null) {
+      if (!mRecords.end(aComponentName, aEventType, aResultMessage, mTimer.getTimeInMillis())) {
+        throw new UIMA_IllegalStateException(UIMA_IllegalStateException.REQUIRED_METHOD_CALL,
+                new Object[] { "startEvent", "endEvent" });
+      }
+    } else if (mEnabled) {
       // DEBUG System.out.println("endEvent(" + aComponentName + "," + aEventType + ")");
 
       // look for matching event on mOpenEvents stack. If found, close it and
@@ -194,7 +306,10 @@ public class ProcessTrace_impl implements ProcessTrace {
    */
   public void addEvent(String aComponentName, String aType, String aDescription, int aDuration,
           String aResultMsg) {
-    if (mEnabled) {
+    if (mRecords != null) {
+      mRecords.add(mRecords.openParent(), aComponentName, aType, aDescription, aDuration,
+              aResultMsg);
+    } else if (mEnabled) {
       // create event
       ProcessTraceEvent_impl evt = new ProcessTraceEvent_impl(aComponentName, aType, aDescription);
       evt.setDuration(aDuration);
@@ -209,7 +324,9 @@ public class ProcessTrace_impl implements ProcessTrace {
    * @see org.apache.uima.util.ProcessTrace#addEvent(org.apache.uima.util.ProcessTraceEvent)
    */
   public void addEvent(ProcessTraceEvent aEvent) {
-    if (mEnabled) {
+    if (mRecords != null) {
+      mRecords.add(mRecords.openParent(), aEvent);
+    } else if (mEnabled) {
       if (!mOpenEvents.isEmpty()) {
         ProcessTraceEvent_impl owner = mOpenEvents.peek();
         owner.addSubEvent(aEvent);
@@ -233,6 +350,10 @@ public class ProcessTrace_impl implements ProcessTrace {
    * @see org.apache.uima.util.ProcessTrace#getEvents()
    */
   public List<ProcessTraceEvent> getEvents() {
+    // in sampling mode, events with the same name and type are aggregated
+    if (mRecords != null || mStatistics != null) {
+      return getStatistics().toEvents();
+    }
     return mEventList;
   }
 
@@ -288,13 +409,48 @@ public class ProcessTrace_impl implements ProcessTrace {
    */
   public void clear() {
     mEventList.clear();
+    if (mRecords != null) {
+      mRecords.clearClosed();
+    }
+    mStatistics = null;
+    if (mSampleRate > 0 && mOpenEvents.isEmpty()
+            && (mRecords == null || mRecords.openParent() < 0)) {
+      // nothing left, so the next events of this trace count as a new trace to sample or not
+      if (mRecords != null) {
+        threadSampling.get().spare = mRecords;
+        mRecords = null;
+      }
+      startSample();
+    }
   }
 
   /**
    * @see org.apache.uima.util.ProcessTrace#aggregate(org.apache.uima.util.ProcessTrace)
    */
   public void aggregate(ProcessTrace aProcessTrace) {
-    if (mEnabled) {
+    if (mSampleRate > 0) {
+      ProcessTraceStatistics statistics = mStatistics;
+      if (statistics == null) {
+        synchronized (this) {
+          statistics = mStatistics;
+          if (statistics == null) {
+            mStatistics = statistics = new ProcessTraceStatistics();
+          }
+        }
+      }
+      if (aProcessTrace instanceof ProcessTrace_impl
+              && ((ProcessTrace_impl) aProcessTrace).mSampleRate > 0) {
+        ProcessTrace_impl src = (ProcessTrace_impl) aProcessTrace;
+        src.addOwnEventsTo(statistics);
+        if (src.mStatistics != null) {
+          statistics.add(src.mStatistics);
+        }
+      } else {
+        for (ProcessTraceEvent event : aProcessTrace.getEvents()) {
+          statistics.add(statistics.getRoot(), event);
+        }
+      }
+    } else if (mEnabled) {
       List<ProcessTraceEvent> newEventList = aProcessTrace.getEvents();
 
       // iterate over new events
@@ -432,4 +588,151 @@ public class ProcessTrace_impl implements ProcessTrace {
       }
     }
   }
+
+  /**
+   * The events of a trace in sampling mode which was not sampled, kept in arrays instead of event
+   * objects, in the order they were started. Closed events have a duration of 0 or more.
+   */
+  private static class Records implements java.io.Serializable {
+    private static final long serialVersionUID = -5521012883465021312L;
+
+    private String[] componentNames = new String[16];
+
+    private String[] types = new String[16];
+
+    private String[] descriptions = new String[16];
+
+    private String[] resultMessages = new String[16];
+
+    /** index of the enclosing event, or -1 */
+    private int[] parents = new int[16];
+
+    private long[] startTimes = new long[16];
+
+    /** -1 while open */
+    private int[] durations = new int[16];
+
+    private int size;
+
+    /** indexes of the open events */
+    private int[] open = new int[8];
+
+    private int openSize;
+
+    int openParent() {
+      return (openSize == 0) ? -1 : open[openSize - 1];
+    }
+
+    private int add(int aParent, String aComponentName, String aType, String aDescription,
+            int aDuration, String aResultMessage) {
+      if (size == parents.length) {
+        int newLength = size * 2;
+        componentNames = Arrays.copyOf(componentNames, newLength);
+        types = Arrays.copyOf(types, newLength);
+        descriptions = Arrays.copyOf(descriptions, newLength);
+        resultMessages = Arrays.copyOf(resultMessages, newLength);
+        parents = Arrays.copyOf(parents, newLength);
+        startTimes = Arrays.copyOf(startTimes, newLength);
+        durations = Arrays.copyOf(durations, newLength);
+      }
+      componentNames[size] = aComponentName;
+      types[size] = aType;
+      descriptions[size] = aDescription;
+      resultMessages[size] = aResultMessage;
+      parents[size] = aParent;
+      startTimes[size] = 0;
+      durations[size] = aDuration;
+      return size++;
+    }
+
+    void add(int aParent, ProcessTraceEvent aEvent) {
+      int i = add(aParent, aEvent.getComponentName(), aEvent.getType(), aEvent.getDescription(),
+              aEvent.getDuration(), aEvent.getResultMessage());
+      for (ProcessTraceEvent sub : aEvent.getSubEvents()) {
+        add(i, sub);
+      }
+    }
+
+    void start(String aComponentName, String aType, String aDescription, long aTime) {
+      int i = add(openParent(), aComponentName, aType, aDescription, -1, null);
+      startTimes[i] = aTime;
+      if (openSize == open.length) {
+        open = Arrays.copyOf(open, openSize * 2);
+      }
+      open[openSize++] = i;
+    }
+
+    /**
+     * Close the innermost open event with the name and type, and all open events within it.
+     * 
+     * @return false if there is no such open event
+     */
+    boolean end(String aComponentName, String aType, String aResultMessage, long aTime) {
+      int match = openSize - 1;
+      while (match >= 0 && !(aComponentName.equals(componentNames[open[match]])
+              && aType.equals(types[open[match]]))) {
+        match--;
+      }
+      if (match < 0) {
+        return false;
+      }
+      for (int j = match; j < openSize; j++) {
+        int i = open[j];
+        resultMessages[i] = aResultMessage;
+        durations[i] = (int) (aTime - startTimes[i]);
+      }
+      openSize = match;
+      return true;
+    }
+
+    /**
+     * Record the closed top-level events, and their sub-events, in the statistics.
+     */
+    void addTo(ProcessTraceStatistics aStatistics) {
+      ProcessTraceStatistics.Node[] nodes = new ProcessTraceStatistics.Node[size];
+      for (int i = 0; i < size; i++) {
+        ProcessTraceStatistics.Node parent = (parents[i] < 0) ? aStatistics.getRoot()
+                : nodes[parents[i]];
+        // skip open events, and events within them
+        if (parent == null || durations[i] < 0) {
+          continue;
+        }
+        nodes[i] = parent.getSubNode(componentNames[i], types[i], descriptions[i]);
+        nodes[i].record(durations[i], resultMessages[i]);
+      }
+    }
+
+    /**
+     * Remove the closed top-level events and their sub-events, keeping the open events.
+     */
+    void clearClosed() {
+      int[] newIndex = new int[size];
+      int newSize = 0;
+      for (int i = 0; i < size; i++) {
+        int parent = parents[i];
+        boolean keep = (parent < 0) ? durations[i] < 0 : newIndex[parent] >= 0;
+        if (!keep) {
+          newIndex[i] = -1;
+          continue;
+        }
+        newIndex[i] = newSize;
+        componentNames[newSize] = componentNames[i];
+        types[newSize] = types[i];
+        descriptions[newSize] = descriptions[i];
+        resultMessages[newSize] = resultMessages[i];
+        parents[newSize] = (parent < 0) ? -1 : newIndex[parent];
+        startTimes[newSize] = startTimes[i];
+        durations[newSize] = durations[i];
+        newSize++;
+      }
+      for (int j = 0; j < openSize; j++) {
+        open[j] = newIndex[open[j]];
+      }
+      Arrays.fill(componentNames, newSize, size, null);
+      Arrays.fill(types, newSize, size, null);
+      Arrays.fill(descriptions, newSize, size, null);
+      Arrays.fill(resultMessages, newSize, size, null);
+      size = newSize;
+    }
+  }
 }
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.analysis_engine.impl;
+
+import java.io.File;
+
+import org.apache.uima.Constants;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.analysis_component.CacheableAnalysisComponent;
+import org.apache.uima.analysis_component.JCasAnnotator_ImplBase;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.apache.uima.resource.metadata.Capability;
+import org.apache.uima.resource.metadata.impl.Capability_impl;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests replaying cached annotator results.
+ */
+public class AnnotatorResultCacheTest extends TestCase {
+
+  /**
+   * Annotates space separated tokens, and modifies the preexisting document annotation
+   */
+  public static class CountingAnnotator extends JCasAnnotator_ImplBase
+          implements CacheableAnalysisComponent {
+    static int processCount = 0;
+
+    @Override
+    public void process(JCas jcas) {
+      processCount++;
+      String text = jcas.getDocumentText();
+      int begin = 0;
+      for (int i = 0; i <= text.length(); i++) {
+        if (i == text.length() || text.charAt(i) == ' ') {
+          new Annotation(jcas, begin, i).addToIndexes();
+          begin = i + 1;
+        }
+      }
+      jcas.setDocumentLanguage("x-annotated");
+    }
+  }
+
+  /**
+   * The same annotator, not declared cacheable
+   */
+  public static class UncachedAnnotator extends JCasAnnotator_ImplBase {
+    @Override
+    public void process(JCas jcas) {
+      CountingAnnotator.processCount++;
+    }
+  }
+
+  private File dir;
+
+  protected void setUp() throws Exception {
+    dir = File.createTempFile("annotatorResultCache", "");
+    dir.delete();
+    dir.mkdirs();
+    System.setProperty(AnnotatorResultCache.ANNOTATOR_RESULT_CACHE_DIR, dir.getPath());
+    CountingAnnotator.processCount = 0;
+  }
+
+  protected void tearDown() throws Exception {
+    System.clearProperty(AnnotatorResultCache.ANNOTATOR_RESULT_CACHE_DIR);
+    AnnotatorResultCache.getInstance(dir, 0).clear();
+    dir.delete();
+  }
+
+  public void testReplay() throws Exception {
+    AnalysisEngine ae = produce(CountingAnnotator.class);
+    JCas jcas = ae.newJCas();
+
+    jcas.setDocumentText("a bc d");
+    ae.process(jcas);
+    assertEquals(1, CountingAnnotator.processCount);
+    String expected = describe(jcas);
+
+    // same input, replayed
+    jcas.reset();
+    jcas.setDocumentText("a bc d");
+    ae.process(jcas);
+    assertEquals(1, CountingAnnotator.processCount);
+    assertEquals(expected, describe(jcas));
+    // the marker was released, so the CAS can be marked again
+    jcas.getCas().createMarker();
+
+    // a different input is processed
+    jcas.reset();
+    jcas.setDocumentText("a bc de");
+    ae.process(jcas);
+    assertEquals(2, CountingAnnotator.processCount);
+
+    // a different input type value is processed
+    jcas.reset();
+    jcas.setDocumentText("a bc d");
+    jcas.setDocumentLanguage("en");
+    ae.process(jcas);
+    assertEquals(3, CountingAnnotator.processCount);
+    assertEquals(3, AnnotatorResultCache.getInstance(dir, 0).size());
+    ae.destroy();
+  }
+
+  public void testNotCacheable() throws Exception {
+    AnalysisEngine ae = produce(UncachedAnnotator.class);
+    JCas jcas = ae.newJCas();
+    jcas.setDocumentText("a bc d");
+    ae.process(jcas);
+    jcas.reset();
+    jcas.setDocumentText("a bc d");
+    ae.process(jcas);
+    assertEquals(2, CountingAnnotator.processCount);
+    assertEquals(0, AnnotatorResultCache.getInstance(dir, 0).size());
+    ae.destroy();
+  }
+
+  public void testSampledAfterMisses() throws Exception {
+    AnalysisEngine ae = produce(CountingAnnotator.class);
+    JCas jcas = ae.newJCas();
+    for (int i = 0; i < 100; i++) {
+      jcas.reset();
+      jcas.setDocumentText("doc " + i);
+      ae.process(jcas);
+    }
+    assertEquals(100, AnnotatorResultCache.getInstance(dir, 0).size());
+
+    // no hit in a whole window, the next CASes are not looked up
+    jcas.reset();
+    jcas.setDocumentText("doc 0");
+    ae.process(jcas);
+    assertEquals(101, CountingAnnotator.processCount);
+    assertEquals(100, AnnotatorResultCache.getInstance(dir, 0).size());
+
+    // but one per window is, and a hit resumes looking up every CAS
+    for (int i = 1; i < 99; i++) {
+      jcas.reset();
+      jcas.setDocumentText("other " + i);
+      ae.process(jcas);
+    }
+    jcas.reset();
+    jcas.setDocumentText("doc 1");
+    ae.process(jcas);
+    assertEquals(199, CountingAnnotator.processCount);
+    jcas.reset();
+    jcas.setDocumentText("doc 2");
+    ae.process(jcas);
+    assertEquals(199, CountingAnnotator.processCount);
+    ae.destroy();
+  }
+
+  public void testLruEviction() throws Exception {
+    File evictDir = new File(dir, "evict");
+    AnnotatorResultCache cache = AnnotatorResultCache.getInstance(evictDir, 10);
+    cache.put("a", new byte[4]);
+    cache.put("b", new byte[4]);
+    assertNotNull(cache.get("a"));  // b is now the least recently used
+    cache.put("c", new byte[4]);
+    assertNull(cache.get("b"));
+    assertNotNull(cache.get("a"));
+    assertNotNull(cache.get("c"));
+    assertEquals(2, cache.size());
+    cache.clear();
+    evictDir.delete();
+  }
+
+  private static AnalysisEngine produce(Class<?> aAnnotatorClass) throws Exception {
+    AnalysisEngineDescription desc = UIMAFramework.getResourceSpecifierFactory().createAnalysisEngineDescription();
+    desc.setFrameworkImplementation(Constants.JAVA_FRAMEWORK_NAME);
+    desc.setPrimitive(true);
+    desc.setAnnotatorImplementationName(aAnnotatorClass.getName());
+    desc.getMetaData().setName("Counting Annotator");
+    Capability cap = new Capability_impl();
+    cap.addInputType(CAS.TYPE_NAME_DOCUMENT_ANNOTATION, true);
+    cap.addOutputType(CAS.TYPE_NAME_ANNOTATION, true);
+    desc.getAnalysisEngineMetaData().setCapabilities(new Capability[] { cap });
+    return UIMAFramework.produceAnalysisEngine(desc);
+  }
+
+  private static String describe(JCas jcas) {
+    StringBuilder sb = new StringBuilder(jcas.getDocumentLanguage());
+    for (Annotation a : jcas.getAnnotationIndex()) {
+      sb.append(' ').append(a.getType().getShortName()).append(a.getBegin()).append('-').append(a.getEnd());
+    }
+    return sb.toString();
+  }
+}
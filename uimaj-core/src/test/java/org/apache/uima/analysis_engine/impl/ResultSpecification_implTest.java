@@ -31,7 +31,9 @@ import java.util.Vector;
 import org.apache.uima.UIMAFramework;
 import org.apache.uima.analysis_engine.ResultSpecification;
 import org.apache.uima.analysis_engine.TypeOrFeature;
+import org.apache.uima.cas.Feature;
 import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.admin.CASFactory;
 import org.apache.uima.cas.admin.CASMgr;
 import org.apache.uima.cas.admin.TypeSystemMgr;
@@ -541,6 +543,63 @@ public class ResultSpecification_implTest extends TestCase {
     }
   }
 
+  public void testContainsByTypeAndFeatureCode() throws Exception {
+    try {
+      ResultSpecification_impl rs = new ResultSpecification_impl();
+      rs.addCapabilities(capabilities);
+
+      // create and commit a Type System
+      CASMgr casMgr = CASFactory.createCAS();
+      TypeSystemMgr tsMgr = casMgr.getTypeSystemMgr();
+      Type fakeType = tsMgr.addType("FakeType", tsMgr.getTopType());
+      Type anotherType = tsMgr.addType("AnotherType", tsMgr.getTopType());
+      tsMgr.addFeature("FakeFeature", fakeType, tsMgr.getTopType());
+      tsMgr.addFeature("FakeFeature2", fakeType, tsMgr.getTopType());
+      tsMgr.addFeature("AnotherFeature", anotherType, tsMgr.getTopType());
+      tsMgr.addType("SubType", fakeType);
+      TypeSystem ts = tsMgr.commit();
+      rs.setTypeSystem(ts);
+
+      fakeType = ts.getType("FakeType");
+      anotherType = ts.getType("AnotherType");
+      Type subType = ts.getType("SubType");
+      Feature fakeFeature = ts.getFeatureByFullName("FakeType:FakeFeature");
+      Feature fakeFeature2 = ts.getFeatureByFullName("FakeType:FakeFeature2");
+      Feature anotherFeature = ts.getFeatureByFullName("AnotherType:AnotherFeature");
+
+      // check, repeating to use the per language compiled forms, and comparing with the name based results
+      for (int i = 0; i < 2; i++) {
+        for (String lang : new String[] {null, "x-unspecified", "en", "en-us", "EN_US", "ja", "fr"}) {
+          for (Type t : new Type[] {fakeType, anotherType, subType, ts.getTopType()}) {
+            Assert.assertEquals(rs.containsType(t.getName(), lang), rs.containsType(t, lang));
+          }
+          for (Feature f : new Feature[] {fakeFeature, fakeFeature2, anotherFeature}) {
+            Assert.assertEquals(rs.containsFeature(f.getName(), lang), rs.containsFeature(f, lang));
+          }
+        }
+      }
+      Assert.assertFalse(rs.containsType(fakeType));
+      Assert.assertTrue(rs.containsType(fakeType, "en-us"));
+      Assert.assertTrue(rs.containsType(subType, "en"));
+      Assert.assertTrue(rs.containsType(anotherType));
+      Assert.assertTrue(rs.containsFeature(fakeFeature, "ja"));
+      Assert.assertFalse(rs.containsFeature(fakeFeature2, "ja"));
+      Assert.assertTrue(rs.containsFeature(anotherFeature));
+      
+      // updating the result spec invalidates the compiled forms
+      rs.addResultType("FakeType", false);
+      Assert.assertTrue(rs.containsType(fakeType));
+      Assert.assertTrue(rs.containsType(subType));
+      
+      ResultSpecification_impl rsClone = (ResultSpecification_impl) rs.clone();
+      rs.removeTypeOrFeature(t2);
+      Assert.assertFalse(rs.containsType(anotherType));
+      Assert.assertTrue(rsClone.containsType(anotherType));
+    } catch (Exception e) {
+      JUnitExtension.handleException(e);
+    }
+  }
+
   public void testXmlization() throws Exception {
     try {
       ResultSpecification_impl rs = new ResultSpecification_impl();
@@ -184,6 +184,17 @@ public class SequencerCapabilityLanguageTest extends TestCase {
             "SequencerTest/SequencerCapabilityLanguageExpectedEnResultSpec.txt", true);
   }
 
+  public void testSequencerParallelCapabilityLanguageEn() throws Exception {
+    // annotator1 and annotator2 may both output uima.tt.Lemma, so annotator2 runs after the others
+    runTest("SequencerTest/SequencerParallelCapabilityLanguageAggregate.xml", "en",
+            "SequencerTest/SequencerCapabilityLanguageExpectedParallelEn.txt", false);
+  }
+
+  public void testSequencerParallelCapabilityLanguageJaResultSpec() throws Exception {
+    runTest("SequencerTest/SequencerParallelCapabilityLanguageAggregate.xml", "ja",
+            "SequencerTest/SequencerCapabilityLanguageExpectedJaResultSpec.txt", true);
+  }
+
   public void testSequencerCapabilityLanguageJa() throws Exception {
     runTest("SequencerTest/SequencerCapabilityLanguageAggregate.xml", "ja",
             "SequencerTest/SequencerCapabilityLanguageExpectedJa.txt", false);
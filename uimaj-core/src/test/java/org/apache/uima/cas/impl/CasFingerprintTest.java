@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import java.util.Collections;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests structural CAS hashes, and their use in CasCompare.
+ */
+public class CasFingerprintTest extends TestCase {
+
+  private JCas jcas1;
+  private JCas jcas2;
+
+  protected void setUp() throws Exception {
+    jcas1 = CasCreationUtils.createCas((TypeSystemDescription) null, null, null).getJCas();
+    jcas2 = CasCreationUtils.createCas((TypeSystemDescription) null, null, null).getJCas();
+  }
+
+  public void testOrderAndIdIndependent() throws Exception {
+    jcas1.setDocumentText("some text");
+    new Annotation(jcas1, 0, 4).addToIndexes();
+    new Annotation(jcas1, 5, 9).addToIndexes();
+
+    new Annotation(jcas2, 5, 9);  // not indexed, not reachable, shifts the ids
+    jcas2.setDocumentText("some text");
+    new Annotation(jcas2, 5, 9).addToIndexes();
+    new Annotation(jcas2, 0, 4).addToIndexes();
+
+    CasFingerprint fp1 = CasFingerprint.of(jcas1.getCas());
+    CasFingerprint fp2 = CasFingerprint.of(jcas2.getCas());
+    assertEquals(fp1, fp2);
+    assertEquals(fp1.toString(), fp2.toString());
+    assertEquals(Integer.valueOf(2), fp1.getTypeCounts().get(CAS.TYPE_NAME_ANNOTATION));
+
+    CasCompare cc = new CasCompare(jcas1.getCasImpl(), jcas2.getCasImpl());
+    cc.compareByTypeHashes(true);
+    assertTrue(cc.compareCASes());
+  }
+
+  public void testDifferingTypes() throws Exception {
+    jcas1.setDocumentText("some text");
+    jcas2.setDocumentText("some text");
+    new Annotation(jcas1, 0, 4).addToIndexes();
+    new Annotation(jcas2, 0, 3).addToIndexes();
+
+    CasFingerprint fp1 = CasFingerprint.of(jcas1.getCas());
+    CasFingerprint fp2 = CasFingerprint.of(jcas2.getCas());
+    assertFalse(fp1.equals(fp2));
+    assertEquals(Collections.singleton(CAS.TYPE_NAME_ANNOTATION), fp1.differingTypes(fp2));
+
+    CasCompare cc = new CasCompare(jcas1.getCasImpl(), jcas2.getCasImpl());
+    cc.compareByTypeHashes(true);
+    assertFalse(cc.compareCASes());
+  }
+
+  public void testReferencedOrder() throws Exception {
+    for (JCas jcas : new JCas[] {jcas1, jcas2}) {
+      jcas.setDocumentText("some text");
+    }
+    Annotation a1 = new Annotation(jcas1, 0, 4);
+    Annotation b1 = new Annotation(jcas1, 5, 9);
+    FSArray<Annotation> fsa1 = new FSArray<>(jcas1, 2);
+    fsa1.set(0, a1);
+    fsa1.set(1, b1);
+    fsa1.addToIndexes();
+
+    Annotation a2 = new Annotation(jcas2, 0, 4);
+    Annotation b2 = new Annotation(jcas2, 5, 9);
+    FSArray<Annotation> fsa2 = new FSArray<>(jcas2, 2);
+    fsa2.set(0, b2);
+    fsa2.set(1, a2);
+    fsa2.addToIndexes();
+
+    CasFingerprint fp1 = CasFingerprint.of(jcas1.getCas());
+    CasFingerprint fp2 = CasFingerprint.of(jcas2.getCas());
+    // the annotations are the same, the array referencing them is not
+    assertEquals(Collections.singleton(CAS.TYPE_NAME_FS_ARRAY), fp1.differingTypes(fp2));
+  }
+
+  public void testView() throws Exception {
+    jcas1.setDocumentText("some text");
+    JCas other1 = jcas1.createView("other");
+    other1.setDocumentText("other text");
+    new Annotation(other1, 0, 5).addToIndexes();
+
+    jcas2.setDocumentText("some text");
+    JCas other2 = jcas2.createView("other");
+    other2.setDocumentText("other text");
+
+    assertEquals(CasFingerprint.ofView(jcas1.getCas()), CasFingerprint.ofView(jcas2.getCas()));
+    assertFalse(CasFingerprint.ofView(other1.getCas()).equals(CasFingerprint.ofView(other2.getCas())));
+    assertFalse(CasFingerprint.of(jcas1.getCas()).equals(CasFingerprint.of(jcas2.getCas())));
+  }
+}
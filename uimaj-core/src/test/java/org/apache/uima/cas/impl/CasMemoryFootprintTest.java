@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.IntegerArray;
+import org.apache.uima.jcas.cas.StringArray;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the incrementally maintained memory footprint of a CAS.
+ */
+public class CasMemoryFootprintTest extends TestCase {
+
+  private CASImpl cas;
+
+  private JCas jcas;
+
+  @Override
+  protected void setUp() throws Exception {
+    cas = (CASImpl) CasCreationUtils.createCas((TypeSystemDescription) null, null, null);
+    jcas = cas.getJCas();
+  }
+
+  public void testFsCountsAndBytes() throws Exception {
+    jcas.setDocumentText("0123456789");
+    CasMemoryFootprint before = cas.getMemoryFootprint();
+    assertEquals(1, before.getFsCount(CAS.TYPE_NAME_SOFA));
+    assertEquals(1, before.getFsCount(CAS.TYPE_NAME_DOCUMENT_ANNOTATION));
+    assertEquals(20, before.getSofaBytes());
+    assertTrue(before.getStringBytes() >= 20);
+
+    for (int i = 0; i < 100; i++) {
+      new Annotation(jcas, i, i + 1).addToIndexes();
+    }
+    CasMemoryFootprint after = cas.getMemoryFootprint();
+    assertEquals(100, after.getFsCount(CAS.TYPE_NAME_ANNOTATION));
+    assertEquals(before.getFsCount() + 100, after.getFsCount());
+    long annotationBytes = CasMemoryFootprint.fsBytes(cas.getTypeSystemImpl().annotType);
+    assertEquals(before.getFsBytes() + 100 * annotationBytes, after.getFsBytes());
+    assertTrue(after.getIndexBytes() >= before.getIndexBytes() + 100 * CasMemoryFootprint.REFERENCE_BYTES);
+    assertEquals(after.getFsBytes() + after.getArrayBytes() + after.getStringBytes() + after.getIndexBytes(),
+        after.getTotalBytes());
+  }
+
+  public void testArraysAndStrings() throws Exception {
+    CasMemoryFootprint before = cas.getMemoryFootprint();
+    new IntegerArray(jcas, 10);
+    assertEquals(before.getArrayBytes() + 56, cas.getMemoryFootprint().getArrayBytes());  // 16 + 10 * 4
+
+    StringArray sa = new StringArray(jcas, 2);
+    sa.set(0, "abc");
+    sa.set(0, "de");
+    sa.copyFromArray(new String[] {"fgh"}, 0, 1, 1);
+    assertEquals(before.getStringBytes() + 10, cas.getMemoryFootprint().getStringBytes());
+
+    Annotation a = new Annotation(jcas);
+    jcas.setDocumentText("text");
+    jcas.setDocumentLanguage("en");
+    long stringBytes = cas.getMemoryFootprint().getStringBytes();
+    cas.getDocumentAnnotation().setStringValue(
+        cas.getTypeSystem().getFeatureByFullName(CAS.FEATURE_FULL_NAME_LANGUAGE), "de-CH");
+    assertEquals(stringBytes + 6, cas.getMemoryFootprint().getStringBytes());
+    assertEquals(1, cas.getMemoryFootprint().getFsCount(a.getType().getName()));
+  }
+
+  public void testReset() throws Exception {
+    jcas.setDocumentText("some text");
+    new StringArray(jcas, 5).set(0, "abc");
+    cas.reset();
+    CasMemoryFootprint fp = cas.getMemoryFootprint();
+    assertEquals(0, fp.getFsCount());
+    assertTrue(fp.getFsCounts().isEmpty());
+    assertEquals(0, fp.getFsBytes());
+    assertEquals(0, fp.getArrayBytes());
+    assertEquals(0, fp.getStringBytes());
+    assertEquals(0, fp.getSofaBytes());
+    assertTrue(fp.getIndexBytes() > 0);  // the tables of the empty indexes
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import java.util.Collections;
+import java.util.Properties;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.apache.uima.resource.metadata.ProcessingResourceMetaData;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.CasPool;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests recording index sizes, and presizing indexes from them.
+ */
+public class CasSizeProfileTest extends TestCase {
+
+  private static void annotate(JCas jcas, int n) {
+    jcas.setDocumentText("some text");
+    for (int i = 0; i < n; i++) {
+      new Annotation(jcas, i % 9, 9).addToIndexes();
+    }
+  }
+
+  public void testHighWaterMarks() throws Exception {
+    CAS cas = CasCreationUtils.createCas((TypeSystemDescription) null, null, null);
+    CasSizeProfile profile = new CasSizeProfile(((CASImpl) cas).getTypeSystemImpl());
+
+    annotate(cas.getJCas(), 1000);
+    cas.getJCas().createView("other").setDocumentText("other");
+    profile.resetAndPresize(cas);
+    assertEquals(1000, profile.getHighWaterMark(CAS.NAME_DEFAULT_SOFA, CAS.TYPE_NAME_ANNOTATION));
+    assertEquals(1, profile.getHighWaterMark(CAS.NAME_DEFAULT_SOFA, CAS.TYPE_NAME_DOCUMENT_ANNOTATION));
+    assertEquals(1, profile.getHighWaterMark("other", CAS.TYPE_NAME_DOCUMENT_ANNOTATION));
+
+    // smaller documents decay the high-water mark
+    annotate(cas.getJCas(), 10);
+    profile.resetAndPresize(cas);
+    assertEquals(875, profile.getHighWaterMark(CAS.NAME_DEFAULT_SOFA, CAS.TYPE_NAME_ANNOTATION));
+    for (int i = 0; i < 40; i++) {
+      annotate(cas.getJCas(), 10);
+      profile.resetAndPresize(cas);
+    }
+    assertEquals(10, profile.getHighWaterMark(CAS.NAME_DEFAULT_SOFA, CAS.TYPE_NAME_ANNOTATION));
+
+    // the presized, then shrunk, indexes work
+    annotate(cas.getJCas(), 100);
+    assertEquals(101, cas.getAnnotationIndex().size());
+    Annotation prev = null;
+    for (Annotation a : cas.getJCas().getAnnotationIndex()) {
+      assertTrue(null == prev || prev.getBegin() <= a.getBegin());
+      prev = a;
+    }
+  }
+
+  public void testShrinkWhenTypeNoLongerUsed() throws Exception {
+    CAS cas = CasCreationUtils.createCas((TypeSystemDescription) null, null, null);
+    CasSizeProfile profile = new CasSizeProfile(((CASImpl) cas).getTypeSystemImpl());
+    FSIndexRepositoryImpl ir = ((CASImpl) cas.getView(CAS.NAME_DEFAULT_SOFA)).indexRepository;
+
+    annotate(cas.getJCas(), 1000);
+    profile.resetAndPresize(cas);
+    long presized = ir.getEstimatedBytes();
+
+    // an expected size of 0 shrinks the index back to its default size
+    ir.presize(new int[((CASImpl) cas).getTypeSystemImpl().getTypeArraySize()]);
+    assertTrue(ir.getEstimatedBytes() < presized / 4);
+
+    // as does the high-water mark decaying to 0, for documents without annotations
+    annotate(cas.getJCas(), 1000);
+    profile.resetAndPresize(cas);
+    for (int i = 0; i < 60; i++) {
+      annotate(cas.getJCas(), 0);
+      profile.resetAndPresize(cas);
+    }
+    assertEquals(0, profile.getHighWaterMark(CAS.NAME_DEFAULT_SOFA, CAS.TYPE_NAME_ANNOTATION));
+    assertTrue(ir.getEstimatedBytes() < presized / 4);
+  }
+
+  public void testCasPool() throws Exception {
+    ProcessingResourceMetaData md = UIMAFramework.getResourceSpecifierFactory().createProcessingResourceMetaData();
+    Properties tuning = new Properties();
+    tuning.setProperty(UIMAFramework.ADAPTIVE_CAS_PRESIZING, "true");
+    CasPool pool = new CasPool(2, Collections.singletonList(md), tuning, null);
+    for (int i = 0; i < 4; i++) {
+      CAS cas = pool.getCas();
+      annotate(cas.getJCas(), 100 * i);
+      assertEquals(100 * i + 1, cas.getAnnotationIndex().size());
+      pool.releaseCas(cas);
+    }
+    assertEquals(2, pool.getNumAvailable());
+  }
+}
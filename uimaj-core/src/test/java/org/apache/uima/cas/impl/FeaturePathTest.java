@@ -334,6 +334,55 @@ public class FeaturePathTest extends TestCase {
 
    }
 
+   /*
+    * Tests evaluation of paths which are always valid, and so are compiled, 
+    * with and without typeInit, and with FSs of other types
+    */
+   public void testCompiledFeaturePaths() throws Exception {
+
+      XMLInputSource in = new XMLInputSource(JUnitExtension
+            .getFile("featurePathTests/FeaturePathTestTypeSystem.xml"));
+      TypeSystemDescription typeSystemDescription = UIMAFramework
+            .getXMLParser().parseTypeSystemDescription(in);
+      CAS cas = CasCreationUtils.createCas(typeSystemDescription, null, null);
+      cas.setDocumentText("Sample Text");
+      AnnotationFS docAnnot = cas.getDocumentAnnotation();
+      Feature stringFeat = docAnnot.getType().getFeatureByBaseName("stringFeature");
+      Feature ref2Feat = docAnnot.getType().getFeatureByBaseName("refFeature2");
+      docAnnot.setStringValue(stringFeat, "MyExample");
+
+      String path = "/refFeature2/refFeature2/stringFeature";
+      FeaturePath typeInitPath = new FeaturePathImpl();
+      typeInitPath.initialize(path);
+      typeInitPath.typeInit(docAnnot.getType());
+      FeaturePath lazyPath = new FeaturePathImpl();  // compiled by the first evaluation
+      lazyPath.initialize(path);
+
+      for (FeaturePath featurePath : new FeaturePath[] { typeInitPath, lazyPath }) {
+        // null reference part way along the path
+        docAnnot.setFeatureValue(ref2Feat, null);
+        assertEquals(null, featurePath.getValueAsString(docAnnot));
+        assertEquals(null, featurePath.getFSValue(docAnnot));
+        assertEquals(TypeClass.TYPE_CLASS_FS, featurePath.getTypeClass(docAnnot));
+
+        docAnnot.setFeatureValue(ref2Feat, docAnnot);
+        assertEquals("MyExample", featurePath.getValueAsString(docAnnot));
+        assertEquals("MyExample", featurePath.getStringValue(docAnnot));
+        assertEquals(TypeClass.TYPE_CLASS_STRING, featurePath.getTypeClass(docAnnot));
+        assertEquals(stringFeat.getRange(), featurePath.getType(docAnnot));
+      }
+      
+      // FS of a type not having the features
+      try {
+        lazyPath.getValueAsString(cas.createAnnotation(cas.getAnnotationType(), 0, 1));
+        fail();
+      } catch (CASRuntimeException e) {
+        assertEquals("INVALID_FEATURE_PATH_FEATURE_NOT_DEFINED", e.getMessageKey());
+      }
+      // still evaluates the original type
+      assertEquals("MyExample", lazyPath.getValueAsString(docAnnot));
+   }
+
    /*
     * Tests the supported built-in functions for the feature path
     */
@@ -18,11 +18,14 @@
  */
 package org.apache.uima.cas.impl;
 
+import org.apache.uima.cas.Feature;
+import org.apache.uima.cas.Type;
 import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.test.CASInitializer;
 import org.apache.uima.cas.test.CASTestSetup;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.cas.TOP;
+import org.apache.uima.util.AutoCloseableNoException;
 
 import junit.framework.TestCase;
 
@@ -108,4 +111,33 @@ public class Id2FSTest extends TestCase {
 //    }
   }
 
+  public void testReleaseUnreachableFSs() {
+    cas.reset();
+    try (AutoCloseableNoException a = cas.ll_enableV2IdRefs(true)) {
+      Type tokenType = ts.getType(CASTestSetup.TOKEN_TYPE);
+      Type tokenTypeType = ts.getType(CASTestSetup.TOKEN_TYPE_TYPE);
+      Feature typeFeat = ts.getFeatureByFullName(CASTestSetup.TOKEN_TYPE_FEAT_Q);
+      jcas.setDocumentText("some text");
+
+      TOP token = cas.createAnnotation(tokenType, 0, 4);
+      TOP referenced = cas.createFS(tokenTypeType);
+      token.setFeatureValue(typeFeat, referenced);
+      cas.addFsToIndexes(token);
+      int tempId = cas.<TOP>createFS(tokenTypeType)._id();
+      int pinnedId = cas.ll_createFS(((TypeImpl) tokenTypeType).getCode());
+      assertNotNull(cas.getFsFromId(tempId));
+      
+      assertEquals(1, cas.releaseUnreachableFSs());
+      assertSame(token, cas.getFsFromId(token._id()));
+      assertSame(referenced, cas.getFsFromId(referenced._id()));
+      assertNotNull(cas.getFsFromId(pinnedId));
+      assertNotNull(cas.getFsFromId(cas.getSofa()._id()));
+      assertNull(cas.getFsFromId(tempId));
+      
+      // ids handed out by the low level APIs pin the FS
+      int tempRef = cas.ll_getFSRef(cas.createFS(tokenTypeType));
+      assertEquals(0, cas.releaseUnreachableFSs());
+      assertNotNull(cas.getFsFromId(tempRef));
+    }
+  }
 }
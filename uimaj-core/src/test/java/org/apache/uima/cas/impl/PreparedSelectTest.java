@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests that prepared selects give the same results as the equivalent select().
+ */
+public class PreparedSelectTest extends TestCase {
+
+  private JCas jcas;
+
+  protected void setUp() throws Exception {
+    jcas = CasCreationUtils.createCas((TypeSystemDescription) null, null, null).getJCas();
+    jcas.setDocumentText("0123456789012345678901234567890123456789");
+    Random r = new Random(1234);
+    for (int i = 0; i < 300; i++) {
+      int b = r.nextInt(40);
+      int e = b + r.nextInt(Math.min(41 - b, 8));  // some zero width
+      new Annotation(jcas, b, e).addToIndexes();
+    }
+    new Annotation(jcas, 3, 9).addToIndexes();
+    new Annotation(jcas, 3, 9).addToIndexes();  // duplicate bounds
+  }
+
+  private static List<Annotation> collect(PreparedSelect<Annotation> ps) {
+    List<Annotation> r = new ArrayList<>();
+    ps.forEach(r::add);
+    return r;
+  }
+
+  public void testCoveredBy() {
+    PreparedSelect<Annotation> ps = PreparedSelect.coveredBy(jcas, Annotation.class);
+    for (Annotation bounds : jcas.getAnnotationIndex()) {
+      List<Annotation> expected = jcas.select(Annotation.class).coveredBy(bounds).asList();
+      assertEquals(expected, collect(ps.bind(bounds)));
+      assertEquals(expected.size(), ps.count());
+      assertEquals(expected.isEmpty() ? null : expected.get(0), ps.get());
+    }
+    // the document annotation, a subtype, is included
+    assertEquals(jcas.getDocumentAnnotationFs(), ps.bind(0, 40).get());
+    assertEquals(jcas.getAnnotationIndex().size(), ps.count());
+  }
+
+  public void testCovering() {
+    PreparedSelect<Annotation> ps = PreparedSelect.covering(jcas, Annotation.class);
+    for (Annotation bounds : jcas.getAnnotationIndex()) {
+      List<Annotation> expected = jcas.select(Annotation.class).covering(bounds).asList();
+      assertEquals(expected, collect(ps.bind(bounds)));
+      assertEquals(expected.size(), ps.count());
+    }
+    assertEquals(1, ps.bind(0, 40).count());
+  }
+
+  public void testIteratorAndUpdates() {
+    PreparedSelect<Annotation> ps = PreparedSelect.coveredBy(jcas, Annotation.class).bind(3, 9);
+    List<Annotation> expected = jcas.select(Annotation.class).coveredBy(3, 9).asList();
+    List<Annotation> actual = new ArrayList<>();
+    for (Annotation a : ps) {
+      actual.add(a);
+    }
+    assertEquals(expected, actual);
+
+    // adding to the index while running doesn't disturb the selection; the next run sees the additions
+    ps.forEach(a -> new Annotation(jcas, 4, 5).addToIndexes());
+    assertEquals(2 * expected.size(), ps.count());
+  }
+}
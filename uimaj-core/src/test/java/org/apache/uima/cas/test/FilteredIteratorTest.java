@@ -25,6 +25,7 @@ import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.CASRuntimeException;
 import org.apache.uima.cas.ConstraintFactory;
 import org.apache.uima.cas.FSIndex;
+import org.apache.uima.cas.FSIntConstraint;
 import org.apache.uima.cas.FSIterator;
 import org.apache.uima.cas.FSMatchConstraint;
 import org.apache.uima.cas.FSStringConstraint;
@@ -561,6 +562,78 @@ public class FilteredIteratorTest extends TestCase {
    * FilteredIteratorTest(null); test.run(); }
    */
   
+  /**
+   * Constraints on begin and on the type are pushed down into the annotation index;
+   * check the results are the same as filtering every annotation
+   */
+  public void testBeginAndTypeConstraintPushDown() {
+    cas.setDocumentText("This is a test with a number of tokens in it.");
+    for (int i = 0; i < 40; i++) {
+      AnnotationFS token = cas.createAnnotation(tokenType, i, i + 1 + (i % 3));
+      token.setStringValue(lemmaFeat, (i % 2 == 0) ? "even" : "odd");
+      cas.getIndexRepository().addFS(token);
+      if (i % 10 == 0) {
+        cas.getIndexRepository().addFS(cas.createAnnotation(sentenceType, i, i + 10));
+      }
+    }
+    ConstraintFactory cf = cas.getConstraintFactory();
+    ArrayList<String> beginPath = new ArrayList<>();
+    beginPath.add(CAS.FEATURE_BASE_NAME_BEGIN);
+    ArrayList<String> lemmaPath = new ArrayList<>();
+    lemmaPath.add(lemmaFeat.getShortName());
+    
+    int[][] ranges = { {5, 12}, {0, 0}, {-3, 2}, {38, 100}, {20, 19}, {10, 10} };
+    for (int[] range : ranges) {
+      FSIntConstraint beginCons = cf.createIntConstraint();
+      beginCons.geq(range[0]);
+      beginCons.leq(range[1]);
+      FSMatchConstraint beginMatch = cf.embedConstraint(beginPath, beginCons);
+      
+      FSTypeConstraint typeCons = cf.createTypeConstraint();
+      typeCons.add(tokenType);
+      FSStringConstraint lemmaCons = cf.createStringConstraint();
+      lemmaCons.equals("even");
+      FSMatchConstraint lemmaMatch = cf.embedConstraint(lemmaPath, lemmaCons);
+      
+      checkSameAsFullScan(beginMatch, range, false, false);
+      checkSameAsFullScan(cf.and(typeCons, beginMatch), range, true, false);
+      checkSameAsFullScan(cf.and(cf.and(beginMatch, typeCons), lemmaMatch), range, true, true);
+    }
+  }
+  
+  private void checkSameAsFullScan(FSMatchConstraint cons, int[] range, boolean onlyTokens, boolean onlyEven) {
+    ArrayList<AnnotationFS> expected = new ArrayList<>();
+    for (AnnotationFS a : cas.getAnnotationIndex()) {
+      if (a.getBegin() >= range[0] && a.getBegin() <= range[1] &&
+          (!onlyTokens || a.getType() == tokenType) &&
+          (!onlyEven || "even".equals(a.getStringValue(lemmaFeat)))) {
+        expected.add(a);
+      }
+    }
+    
+    FSIterator<AnnotationFS> it = cas.createFilteredIterator(cas.getAnnotationIndex().iterator(), cons);
+    ArrayList<AnnotationFS> forward = new ArrayList<>();
+    for (it.moveToFirst(); it.isValid(); it.moveToNext()) {
+      forward.add(it.get());
+    }
+    assertEquals(cons.toString(), expected, forward);
+    
+    ArrayList<AnnotationFS> backward = new ArrayList<>();
+    for (it.moveToLast(); it.isValid(); it.moveToPrevious()) {
+      backward.add(0, it.get());
+    }
+    assertEquals(cons.toString(), expected, backward);
+    
+    if (!expected.isEmpty()) {
+      AnnotationFS last = expected.get(expected.size() - 1);
+      it.moveTo(last);
+      assertTrue(it.isValid());
+      assertEquals(last, it.get());
+      it.moveTo(cas.getDocumentAnnotation());  // sorts before all but the first 
+      assertTrue(it.isValid());
+    }
+  }
+
   // add enough tokens to make the total be > THRESHOLD_FOR_FLATTENING, ii is the current number...
   // this is so that the flattening can happen 
 //  private void expandBeyondFlatThreshold(int ii) {
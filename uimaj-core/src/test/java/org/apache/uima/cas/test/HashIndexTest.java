@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.uima.cas.test;
+
+import java.util.List;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.FSIndex;
+import org.apache.uima.cas.Feature;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.cas.Type;
+import org.apache.uima.resource.metadata.FsIndexDescription;
+import org.apache.uima.resource.metadata.FsIndexKeyDescription;
+import org.apache.uima.resource.metadata.TypeDescription;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.resource.metadata.impl.FsIndexDescription_impl;
+import org.apache.uima.resource.metadata.impl.FsIndexKeyDescription_impl;
+import org.apache.uima.resource.metadata.impl.TypeSystemDescription_impl;
+import org.apache.uima.util.CasCreationUtils;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests hash indexes, declared in an index description, keyed by one or two features
+ */
+public class HashIndexTest extends TestCase {
+
+  private CAS cas;
+
+  private Type entityType;
+
+  private Type subEntityType;
+
+  private Feature idFeat;
+
+  private Feature rankFeat;
+
+  protected void setUp() throws Exception {
+    TypeSystemDescription tsd = new TypeSystemDescription_impl();
+    TypeDescription entity = tsd.addType("test.Entity", "", CAS.TYPE_NAME_TOP);
+    entity.addFeature("id", "", CAS.TYPE_NAME_STRING);
+    entity.addFeature("rank", "", CAS.TYPE_NAME_INTEGER);
+    tsd.addType("test.SubEntity", "", "test.Entity");
+
+    FsIndexDescription byId = new FsIndexDescription_impl();
+    byId.setLabel("EntityById");
+    byId.setTypeName("test.Entity");
+    byId.setKind(FsIndexDescription.KIND_HASH);
+    byId.setKeys(new FsIndexKeyDescription[] { key("id") });
+
+    FsIndexDescription byIdRank = new FsIndexDescription_impl();
+    byIdRank.setLabel("EntityByIdRank");
+    byIdRank.setTypeName("test.Entity");
+    byIdRank.setKind(FsIndexDescription.KIND_HASH);
+    byIdRank.setKeys(new FsIndexKeyDescription[] { key("id"), key("rank") });
+
+    cas = CasCreationUtils.createCas(tsd, null, new FsIndexDescription[] { byId, byIdRank });
+    entityType = cas.getTypeSystem().getType("test.Entity");
+    subEntityType = cas.getTypeSystem().getType("test.SubEntity");
+    idFeat = entityType.getFeatureByBaseName("id");
+    rankFeat = entityType.getFeatureByBaseName("rank");
+  }
+
+  private static FsIndexKeyDescription key(String featureName) {
+    FsIndexKeyDescription key = new FsIndexKeyDescription_impl();
+    key.setFeatureName(featureName);
+    key.setComparator(FsIndexKeyDescription.STANDARD_COMPARE);
+    return key;
+  }
+
+  private FeatureStructure entity(Type type, String id, int rank) {
+    FeatureStructure fs = cas.createFS(type);
+    fs.setStringValue(idFeat, id);
+    fs.setIntValue(rankFeat, rank);
+    return fs;
+  }
+
+  public void testFind() throws Exception {
+    FeatureStructure a1 = entity(entityType, "a", 1);
+    FeatureStructure a2 = entity(subEntityType, "a", 2);
+    FeatureStructure b1 = entity(entityType, "b", 1);
+    cas.addFsToIndexes(a1);
+    cas.addFsToIndexes(a2);
+    cas.addFsToIndexes(b1);
+
+    FSIndex<FeatureStructure> byId = cas.getIndexRepository().getIndex("EntityById");
+    assertEquals(FSIndex.HASH_INDEX, byId.getIndexingStrategy());
+    assertEquals(3, byId.size());
+    assertEquals(b1, byId.find(entity(entityType, "b", 0)));
+    assertNull(byId.find(entity(entityType, "c", 0)));
+    assertTrue(byId.contains(entity(entityType, "a", 0)));
+
+    // all FSs with a key, including subtypes
+    List<FeatureStructure> as = byId.findAll(entity(entityType, "a", 0));
+    assertEquals(2, as.size());
+    assertTrue(as.contains(a1) && as.contains(a2));
+    assertEquals(1, byId.subType(subEntityType).findAll(entity(entityType, "a", 0)).size());
+
+    FSIndex<FeatureStructure> byIdRank = cas.getIndexRepository().getIndex("EntityByIdRank");
+    assertEquals(a2, byIdRank.find(entity(entityType, "a", 2)));
+    assertNull(byIdRank.find(entity(entityType, "b", 2)));
+
+    // the hash index holds all the FSs, so no default bag index is needed
+    assertEquals(3, cas.getIndexRepository().getIndexedFSs(entityType).size());
+  }
+
+  public void testRemoveAndKeyChange() throws Exception {
+    FeatureStructure a1 = entity(entityType, "a", 1);
+    FeatureStructure a2 = entity(entityType, "a", 2);
+    cas.addFsToIndexes(a1);
+    cas.addFsToIndexes(a2);
+    FSIndex<FeatureStructure> byId = cas.getIndexRepository().getIndex("EntityById");
+
+    cas.removeFsFromIndexes(a1);
+    assertEquals(1, byId.size());
+    assertEquals(a2, byId.find(entity(entityType, "a", 0)));
+
+    // changing an indexed key feature moves the FS to its new key
+    a2.setStringValue(idFeat, "z");
+    assertNull(byId.find(entity(entityType, "a", 0)));
+    assertEquals(a2, byId.find(entity(entityType, "z", 0)));
+    assertEquals(1, byId.size());
+
+    cas.getIndexRepository().removeAllIncludingSubtypes(entityType);
+    assertEquals(0, byId.size());
+    assertFalse(byId.contains(entity(entityType, "z", 0)));
+  }
+}
@@ -32,6 +32,8 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -69,6 +71,7 @@ import org.apache.uima.cas.impl.XCASSerializer;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.impl.SofaID_impl;
 import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.Sofa;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
 import org.apache.uima.test.junit_extension.JUnitExtension;
 import org.apache.uima.util.CasCreationUtils;
@@ -649,6 +652,67 @@ public class SofaTest extends TestCase {
     assertTrue(testFile.delete());
   }
   
+  public void testSofaDataBufferAndText() throws Exception {
+    // remote file data is memory mapped, and decoded using the charset of the mime type
+    File textFile = File.createTempFile("sofaText", ".txt");
+    textFile.deleteOnExit();  // may stay mapped until gc'd
+    try (OutputStream os = new FileOutputStream(textFile)) {
+      os.write("caf\u00e9 line 1\nline 2".getBytes(StandardCharsets.ISO_8859_1));
+    }
+    CAS remoteView = this.cas.createView("RemoteText");
+    remoteView.setSofaDataURI(textFile.toURI().toString(), "text/plain; charset=ISO-8859-1");
+    ByteBuffer buf = remoteView.getSofaDataBuffer();
+    assertEquals(textFile.length(), buf.remaining());
+    assertTrue(buf.isReadOnly());
+    CharSequence text = remoteView.getSofaDataText();
+    assertEquals("caf\u00e9 line 1\nline 2", text.toString());
+    assertEquals('\u00e9', text.charAt(3));
+    assertEquals("line 2", text.subSequence(12, 18).toString());
+    // decoded once
+    assertSame(text, remoteView.getSofaDataText());
+    // the stream reuses the mapped data
+    BufferedReader reader = new BufferedReader(new InputStreamReader(remoteView.getSofaDataStream(), StandardCharsets.ISO_8859_1));
+    assertEquals("caf\u00e9 line 1", reader.readLine());
+    reader.close();
+
+    // UTF-8 is the default
+    CAS utf8View = this.cas.createView("Utf8Text");
+    File utf8File = File.createTempFile("sofaUtf8", ".txt");
+    utf8File.deleteOnExit();
+    try (OutputStream os = new FileOutputStream(utf8File)) {
+      os.write("\u00fcber \u20ac".getBytes(StandardCharsets.UTF_8));
+    }
+    utf8View.setSofaDataURI(utf8File.toURI().toString(), "text/plain");
+    assertEquals("\u00fcber \u20ac", utf8View.getSofaDataText().toString());
+    // decoded once, each caller gets its own position
+    CharBuffer utf8Text = (CharBuffer) utf8View.getSofaDataText();
+    utf8Text.get();
+    assertEquals("\u00fcber \u20ac", utf8View.getSofaDataText().toString());
+
+    // local byte arrays are wrapped, not copied
+    CAS byteView = this.cas.createView("Bytes");
+    ByteArrayFS bytes = byteView.createByteArrayFS(3);
+    bytes.copyFromArray(new byte[] {1, 2, 3}, 0, 0, 3);
+    byteView.setSofaDataArray(bytes, "application/octet-stream");
+    ByteBuffer bytesBuf = byteView.getSofaDataBuffer();
+    assertEquals(3, bytesBuf.remaining());
+    bytes.set(1, (byte) 42);
+    assertEquals(42, bytesBuf.get(1));
+
+    // local strings are returned as is
+    CAS stringView = this.cas.createView("String");
+    stringView.setDocumentText("some text");
+    assertSame(stringView.getDocumentText(), stringView.getSofaDataText());
+
+    assertNull(this.cas.createView("NoData").getSofaDataBuffer());
+
+    // the data read and decoded is dropped on reset
+    Sofa remoteSofa = (Sofa) remoteView.getSofa();
+    this.cas.reset();
+    assertNull(remoteSofa._getRemoteSofaData());
+    assertNull(remoteSofa._getRemoteSofaText());
+  }
+
   public void testSetSofaDataArray() {
     final String TEST_MIME = "text/plain";    
     CAS testView = this.cas.createView("TestView");
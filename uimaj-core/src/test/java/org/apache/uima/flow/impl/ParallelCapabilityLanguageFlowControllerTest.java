@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.uima.flow.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.UimaContextAdmin;
+import org.apache.uima.analysis_engine.metadata.AnalysisEngineMetaData;
+import org.apache.uima.analysis_engine.metadata.CapabilityLanguageFlow;
+import org.apache.uima.analysis_engine.metadata.impl.AnalysisEngineMetaData_impl;
+import org.apache.uima.analysis_engine.metadata.impl.CapabilityLanguageFlow_impl;
+import org.apache.uima.cas.AbstractCas;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.flow.FinalStep;
+import org.apache.uima.flow.Flow;
+import org.apache.uima.flow.FlowController;
+import org.apache.uima.flow.FlowControllerContext;
+import org.apache.uima.flow.ParallelStepWithResultSpecs;
+import org.apache.uima.flow.SimpleStepWithResultSpec;
+import org.apache.uima.flow.Step;
+import org.apache.uima.resource.metadata.Capability;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.resource.metadata.impl.Capability_impl;
+import org.apache.uima.resource.metadata.impl.OperationalProperties_impl;
+import org.apache.uima.resource.metadata.impl.TypeSystemDescription_impl;
+import org.apache.uima.util.CasCreationUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelCapabilityLanguageFlowControllerTest {
+
+  private FlowController flowController;
+
+  private CAS cas;
+
+  @Before
+  public void setUp() throws Exception {
+    Map<String, AnalysisEngineMetaData> analysisEngineMetaDataMap = new HashMap<>();
+    analysisEngineMetaDataMap.put("tokenizer", delegate(new String[0], "test.Token"));
+    analysisEngineMetaDataMap.put("language", delegate(new String[0], "test.LanguageTag"));
+    analysisEngineMetaDataMap.put("tagger", delegate(new String[] { "test.Token" }, "test.Pos"));
+    // reads a supertype of what the tokenizer produces
+    analysisEngineMetaDataMap.put("chunker", delegate(new String[] { "test.Word" }, "test.Chunk"));
+    flowController = newFlowController(analysisEngineMetaDataMap,
+            new String[] { "tokenizer", "language", "tagger", "chunker" },
+            "test.Token", "test.LanguageTag", "test.Pos", "test.Chunk");
+
+    TypeSystemDescription tsd = new TypeSystemDescription_impl();
+    tsd.addType("test.Word", "", CAS.TYPE_NAME_ANNOTATION);
+    tsd.addType("test.Token", "", "test.Word");
+    tsd.addType("test.LanguageTag", "", CAS.TYPE_NAME_ANNOTATION);
+    tsd.addType("test.Pos", "", CAS.TYPE_NAME_ANNOTATION);
+    tsd.addType("test.Chunk", "", CAS.TYPE_NAME_ANNOTATION);
+    cas = CasCreationUtils.createCas(tsd, null, null);
+  }
+
+  private static FlowController newFlowController(
+          Map<String, AnalysisEngineMetaData> aAnalysisEngineMetaDataMap, String[] aFlow,
+          String... aOutputs) throws Exception {
+    AnalysisEngineMetaData aggregateMd = new AnalysisEngineMetaData_impl();
+    CapabilityLanguageFlow flow = new CapabilityLanguageFlow_impl();
+    flow.setCapabilityLanguageFlow(aFlow);
+    aggregateMd.setFlowConstraints(flow);
+    aggregateMd.setOperationalProperties(new OperationalProperties_impl());
+    aggregateMd.setCapabilities(new Capability[] { capability(new String[0], aOutputs) });
+
+    UimaContextAdmin rootContext = UIMAFramework.newUimaContext(UIMAFramework.getLogger(),
+            UIMAFramework.newDefaultResourceManager(), UIMAFramework.newConfigurationManager());
+    Map<String, String> sofaMappings = Collections.emptyMap();
+    FlowControllerContext fcContext = new FlowControllerContext_impl(rootContext,
+            "_FlowController", sofaMappings, aAnalysisEngineMetaDataMap, aggregateMd);
+    FlowController flowController = new ParallelCapabilityLanguageFlowController();
+    flowController.initialize(fcContext);
+    return flowController;
+  }
+
+  private static Capability capability(String[] aInputs, String... aOutputs) {
+    Capability capability = new Capability_impl();
+    for (String input : aInputs) {
+      capability.addInputType(input, true);
+    }
+    for (String output : aOutputs) {
+      capability.addOutputType(output, true);
+    }
+    capability.addSupportedLanguage("x-unspecified");
+    return capability;
+  }
+
+  private static AnalysisEngineMetaData delegate(String[] aInputs, String aOutput) {
+    AnalysisEngineMetaData md = new AnalysisEngineMetaData_impl();
+    md.setOperationalProperties(new OperationalProperties_impl());
+    md.setCapabilities(new Capability[] { capability(aInputs, aOutput) });
+    return md;
+  }
+
+  @Test
+  public void thatIndependentDelegatesShareAStep() throws Exception {
+    Flow flow = flowController.computeFlow((AbstractCas) cas);
+
+    Step step = flow.next();
+    assertThat(step).isInstanceOf(ParallelStepWithResultSpecs.class);
+    ParallelStepWithResultSpecs parallelStep = (ParallelStepWithResultSpecs) step;
+    assertThat(parallelStep.getAnalysisEngineKeys()).containsExactly("tokenizer", "language");
+    assertThat(parallelStep.getResultSpecification("tokenizer").containsType("test.Token"))
+            .isTrue();
+    assertThat(parallelStep.getResultSpecification("language").containsType("test.LanguageTag"))
+            .isTrue();
+
+    step = flow.next();
+    assertThat(step).isInstanceOf(ParallelStepWithResultSpecs.class);
+    assertThat(((ParallelStepWithResultSpecs) step).getAnalysisEngineKeys())
+            .containsExactly("tagger", "chunker");
+
+    assertThat(flow.next()).isInstanceOf(FinalStep.class);
+  }
+
+  @Test
+  public void thatDependentDelegatesGetSimpleSteps() throws Exception {
+    Map<String, AnalysisEngineMetaData> analysisEngineMetaDataMap = new HashMap<>();
+    analysisEngineMetaDataMap.put("tokenizer", delegate(new String[0], "test.Token"));
+    analysisEngineMetaDataMap.put("tagger", delegate(new String[] { "test.Token" }, "test.Pos"));
+    FlowController sequential = newFlowController(analysisEngineMetaDataMap,
+            new String[] { "tokenizer", "tagger" }, "test.Token", "test.Pos");
+
+    Flow flow = sequential.computeFlow((AbstractCas) cas);
+    Step step = flow.next();
+    assertThat(step).isInstanceOf(SimpleStepWithResultSpec.class);
+    assertThat(((SimpleStepWithResultSpec) step).getAnalysisEngineKey()).isEqualTo("tokenizer");
+    step = flow.next();
+    assertThat(step).isInstanceOf(SimpleStepWithResultSpec.class);
+    assertThat(((SimpleStepWithResultSpec) step).getAnalysisEngineKey()).isEqualTo("tagger");
+    assertThat(flow.next()).isInstanceOf(FinalStep.class);
+  }
+}
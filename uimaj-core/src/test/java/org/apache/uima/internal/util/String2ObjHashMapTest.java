@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.internal.util;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class String2ObjHashMapTest extends TestCase {
+
+  String2ObjHashMap<Integer, Integer> shm;
+
+  public void setUp() {
+    shm = new String2ObjHashMap<>(Integer.class);
+  }
+
+  public void testBasic() {
+    shm.put("a", 1);
+    shm.put("", 0);  // the empty String is a valid key
+    assertEquals(2, shm.size());
+    assertEquals(1, (int) shm.get("a"));
+    assertEquals(0, (int) shm.get(""));
+    assertTrue(shm.containsKey(""));
+    assertNull(shm.get("b"));
+    assertNull(shm.get(null));
+
+    assertEquals(1, (int) shm.put("a", 10));
+    assertEquals(2, shm.size());
+
+    assertNull(shm.remove("b"));
+    assertEquals(0, (int) shm.remove(""));
+    assertFalse(shm.containsKey(""));
+    assertEquals(1, shm.size());
+
+    for (Map.Entry<String, Integer> e : shm) {
+      assertEquals("a", e.getKey());
+      assertEquals(10, (int) e.getValue());
+    }
+
+    shm.clear();
+    assertEquals(0, shm.size());
+    assertFalse(shm.iterator().hasNext());
+  }
+
+  public void testRandomAgainstHashMap() {
+    Map<String, Integer> expected = new HashMap<>();
+    Random r = new Random(1234);
+    for (int i = 0; i < 100000; i++) {
+      String key = Integer.toString(r.nextInt(2000));
+      if (r.nextInt(3) == 0) {
+        assertEquals(expected.remove(key), shm.remove(key));
+      } else {
+        assertEquals(expected.put(key, i), shm.put(key, i));
+      }
+      assertEquals(expected.size(), shm.size());
+    }
+    for (Map.Entry<String, Integer> e : expected.entrySet()) {
+      assertEquals(e.getValue(), shm.get(e.getKey()));
+    }
+    int n = 0;
+    for (Iterator<String> it = shm.keyIterator(); it.hasNext(); n++) {
+      assertTrue(expected.containsKey(it.next()));
+    }
+    assertEquals(expected.size(), n);
+  }
+}
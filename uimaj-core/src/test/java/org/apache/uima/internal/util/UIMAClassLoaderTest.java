@@ -103,6 +103,21 @@ public class UIMAClassLoaderTest extends TestCase {
     assertEquals(this.getClass().getClassLoader(),testClass.getClassLoader());
   }
   
+  public void testShareIdenticalJCasClasses() throws Exception {
+    // a classpath with the same compiled classes the parent loads
+    URL testClasses = x.y.z.Token.class.getProtectionDomain().getCodeSource().getLocation();
+    ClassLoader parent = this.getClass().getClassLoader();
+
+    UIMAClassLoader cl = new UIMAClassLoader(new URL[] {testClasses}, parent);
+    assertNotSame(x.y.z.Token.class, cl.loadClass("x.y.z.Token"));
+
+    cl = new UIMAClassLoader(new URL[] {testClasses}, parent);
+    cl.setShareIdenticalJCasClasses(true);
+    assertSame(x.y.z.Token.class, cl.loadClass("x.y.z.Token"));
+    // not a JCas class, loaded by the UIMA class loader as usual
+    assertEquals(cl, cl.loadClass(this.getClass().getName()).getClassLoader());
+  }
+  
   public void testParallelClassLoading() throws Exception {
     final UIMAClassLoader cl = new UIMAClassLoader(this.testClassPath, this.getClass().getClassLoader());
     final Class<?>[] loadedClasses = new Class<?>[Misc.numberOfCores];
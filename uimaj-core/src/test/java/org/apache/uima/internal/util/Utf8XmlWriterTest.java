@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.internal.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.impl.XCASSerializer;
+import org.apache.uima.cas.impl.XmiCasSerializer;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
+import org.apache.uima.jcas.cas.StringArray;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.XMLSerializer;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import junit.framework.TestCase;
+
+/**
+ * The direct writer must produce exactly what the (JDK) Transformer does
+ */
+public class Utf8XmlWriterTest extends TestCase {
+
+  private interface Events {
+    void send(ContentHandler ch) throws SAXException;
+  }
+
+  private static byte[] viaTransformer(Events events) throws SAXException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    events.send(new XMLSerializer(os, false).getContentHandler());
+    return os.toByteArray();
+  }
+
+  private static byte[] direct(Events events) throws SAXException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    events.send(new Utf8XmlWriter(os, true));
+    return os.toByteArray();
+  }
+
+  private static void assertSameOutput(Events events) throws Exception {
+    byte[] expected = viaTransformer(events);
+    byte[] actual = direct(events);
+    if (!Arrays.equals(expected, actual)) {
+      assertEquals(new String(expected, "UTF-8"), new String(actual, "UTF-8"));
+      fail("same string, different bytes");
+    }
+  }
+
+  private static String allValidChars() {
+    StringBuilder sb = new StringBuilder();
+    for (char c = 1; c < 0xFFFE; c++) {
+      if ((c < 0x20 && c != '\t' && c != '\n' && c != '\r') || Character.isSurrogate(c)) {
+        continue;
+      }
+      sb.append(c);
+    }
+    sb.appendCodePoint(0x10000).appendCodePoint(0x1F600).appendCodePoint(0x10FFFF);
+    return sb.toString();
+  }
+
+  public void testEscapingAndEncoding() throws Exception {
+    final String s = allValidChars();
+    assertSameOutput(ch -> {
+      ch.startDocument();
+      AttributesImpl atts = new AttributesImpl();
+      atts.addAttribute("", "a", "a", "CDATA", s);
+      atts.addAttribute("", "e", "e", "CDATA", "");
+      ch.startElement("", "doc", "doc", atts);
+      ch.characters(s.toCharArray(), 0, s.length());
+      ch.characters("x&y".toCharArray(), 1, 1);
+      ch.endElement("", "doc", "doc");
+      ch.endDocument();
+    });
+  }
+
+  public void testElementsAndNamespaces() throws Exception {
+    assertSameOutput(ch -> {
+      ch.startDocument();
+      ch.startPrefixMapping("u", "http://u");   // declared after the attributes
+      ch.startPrefixMapping("v", "http://v");   // declared by an attribute
+      AttributesImpl atts = new AttributesImpl();
+      atts.addAttribute("", "x", "x", "CDATA", "1");
+      atts.addAttribute("http://www.w3.org/2000/xmlns/", "v", "xmlns:v", "CDATA", "http://v");
+      ch.startElement("", "a", "a", atts);
+      AttributesImpl y = new AttributesImpl();
+      y.addAttribute("", "y", "y", "CDATA", "2");
+      ch.startElement("http://w", "c", "w:c", y);  // undeclared prefix
+      ch.startElement("http://w", "d", "w:d", new AttributesImpl());
+      ch.characters(new char[0], 0, 0);
+      ch.endElement("http://w", "d", "w:d");
+      ch.endElement("http://w", "c", "w:c");
+      ch.startElement("http://w", "c", "w:c", new AttributesImpl());
+      ch.endElement("http://w", "c", "w:c");
+      ch.startPrefixMapping("u", "http://u");   // already in scope
+      ch.startElement("http://u", "f", "u:f", new AttributesImpl());
+      ch.characters("text".toCharArray(), 0, 4);
+      ch.endElement("http://u", "f", "u:f");
+      ch.endPrefixMapping("u");
+      ch.startPrefixMapping("q", "http://q");   // not on the root element
+      AttributesImpl q = new AttributesImpl();
+      q.addAttribute("", "y", "y", "CDATA", "3");
+      q.addAttribute("http://www.w3.org/2000/xmlns/", "q", "xmlns:q", "CDATA", "http://q");
+      ch.startElement("http://q", "h", "q:h", q);
+      ch.endElement("http://q", "h", "q:h");
+      ch.endPrefixMapping("q");
+      ch.startElement("http://z", "g", "g", new AttributesImpl());  // default namespace
+      ch.endElement("http://z", "g", "g");
+      ch.endPrefixMapping("u");
+      ch.endPrefixMapping("v");
+      ch.endElement("", "a", "a");
+      ch.endDocument();
+    });
+  }
+
+  public void testValidation() throws Exception {
+    String[] invalid = {"\u0001abc", "ab\u0000c", "ab\uD800c", "abc\uD800", "ab\uDC00\uD800c", "ab\uFFFFc"};
+    for (String s : invalid) {
+      assertSameException(ch -> {
+        ch.startDocument();
+        ch.startElement("", "a", "a", new AttributesImpl());
+        ch.characters(s.toCharArray(), 0, s.length());
+      });
+      assertSameException(ch -> {
+        ch.startDocument();
+        AttributesImpl atts = new AttributesImpl();
+        atts.addAttribute("", "x", "x", "CDATA", s);
+        ch.startElement("", "a", "a", atts);
+      });
+    }
+
+    // no validation
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    ContentHandler ch = new Utf8XmlWriter(os, false);
+    ch.startDocument();
+    ch.startElement("", "a", "a", new AttributesImpl());
+    ch.characters(invalid[0].toCharArray(), 0, 4);
+    ch.endElement("", "a", "a");
+    ch.endDocument();
+    assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?><a>&#1;abc</a>", os.toString("UTF-8"));
+  }
+
+  private static void assertSameException(Events events) {
+    String expected = null;
+    String actual = null;
+    try {
+      viaTransformer(events);
+    } catch (SAXException e) {
+      expected = e.getMessage();
+    }
+    try {
+      direct(events);
+    } catch (SAXParseException e) {
+      actual = e.getMessage();
+    } catch (SAXException e) {
+      fail(e.toString());
+    }
+    assertNotNull(expected);
+    assertEquals(expected, actual);
+  }
+
+  public void testCasSerializers() throws Exception {
+    JCas jcas = CasCreationUtils.createCas((TypeSystemDescription) null, null, null).getJCas();
+    String text = "a < b & \"c\" > d\r\n\te\u0085f\u00E9\u4E2D\uD83D\uDE00 " + new String(new char[50000]).replace('\0', 'x');
+    jcas.setDocumentText(text);
+    StringArray sa = new StringArray(jcas, 2);
+    sa.set(0, "q\"u&o<t>e\n\r\t");
+    sa.set(1, "\uD83D\uDE00\u0080");
+    FSArray<Annotation> fsa = new FSArray<>(jcas, 1);
+    fsa.set(0, new Annotation(jcas, 0, 1));
+    fsa.addToIndexes();
+    sa.addToIndexes();
+    for (int i = 0; i < 1000; i++) {
+      new Annotation(jcas, i, i + 10).addToIndexes();
+    }
+    CAS view = jcas.getCas().createView("other");
+    view.setSofaDataString("other <text>", "text/plain");
+
+    CAS cas = jcas.getCas();
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    new XmiCasSerializer(cas.getTypeSystem()).serialize(cas, new XMLSerializer(expected, false).getContentHandler());
+    ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    XmiCasSerializer.serialize(cas, actual);
+    assertTrue(Arrays.equals(expected.toByteArray(), actual.toByteArray()));
+
+    expected.reset();
+    new XCASSerializer(cas.getTypeSystem()).serialize(cas, new XMLSerializer(expected, false).getContentHandler());
+    actual.reset();
+    XCASSerializer.serialize(cas, actual);
+    assertTrue(Arrays.equals(expected.toByteArray(), actual.toByteArray()));
+  }
+}
@@ -117,6 +117,10 @@ public class CASTestSetup implements AnnotatorInitializer {
   
   public static final String INT_2_FS = "org.apache.uima.jcas.cas.Int2FS";
 
+  public static final String STRING_2_FS = "org.apache.uima.jcas.cas.String2FS";
+
+  public static final String INTEGER_HASH_SET = "org.apache.uima.jcas.cas.IntegerHashSet";
+
   /**
    * Constructor for CASTestSetup.
    */
@@ -244,6 +248,11 @@ public class CASTestSetup implements AnnotatorInitializer {
     Type int2FSType = tsm.addType(INT_2_FS, topType);
     tsm.addFeature("fsArray", int2FSType, typeArrayRef);
     tsm.addFeature("intArray",  int2FSType,  typeArrayInt);     
+    Type string2FSType = tsm.addType(STRING_2_FS, topType);
+    tsm.addFeature("fsArray", string2FSType, typeArrayRef);
+    tsm.addFeature("stringArray", string2FSType, tsm.getType(CAS.TYPE_NAME_STRING_ARRAY));
+    Type integerHashSetType = tsm.addType(INTEGER_HASH_SET, topType);
+    tsm.addFeature("intArray", integerHashSetType, typeArrayInt);
   }
 
   public void initIndexes(FSIndexRepositoryMgr irm, TypeSystem ts) {
@@ -19,15 +19,24 @@
 
 package org.apache.uima.jcas.test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.PrimitiveIterator.OfInt;
 
 import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.SerialFormat;
 import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.cas.FSArray;
 import org.apache.uima.jcas.cas.FSHashSet;
 import org.apache.uima.jcas.cas.FSLinkedHashSet;
 import org.apache.uima.jcas.cas.Int2FS;
+import org.apache.uima.jcas.cas.IntegerHashSet;
+import org.apache.uima.jcas.cas.String2FS;
+import org.apache.uima.jcas.cas.StringArray;
+import org.apache.uima.util.CasIOUtils;
 import org.apache.uima.util.IntEntry;
 
 import junit.framework.TestCase;
@@ -35,7 +44,7 @@ import x.y.z.EndOfSentence;
 import x.y.z.Token;
 
 /**
- * Test FSHashSet
+ * Test FSHashSet, and the other hashed semi-built-in collections
  * 
  */
 public class FSHashSetTest extends TestCase {
@@ -113,6 +122,92 @@ public class FSHashSetTest extends TestCase {
     assertEquals(fa.get(0), k.getValue());   
 
 	}
+
+	public void testBasicString2FS() {
+	  String2FS<Token> m = new String2FS<>(jcas);
+	  Token t1 = new Token(jcas);
+	  Token t2 = new Token(jcas);
+	  m.put("t1", t1);
+	  m.put("t2", t2);
+	  assertNull(m.put("t3", null));
+	  assertNull(m.remove("t3"));
+	  assertSame(t1, m.remove("t1"));
+
+	  assertEquals(1, m.size());
+	  assertSame(t2, m.get("t2"));
+	  assertNull(m.get("t1"));
+	  assertTrue(m.containsValue(t2));
+
+	  m._save_fsRefs_to_cas_data();
+	  FSArray fa = (FSArray) m.getFeatureValue(m.getType().getFeatureByBaseName("fsArray"));
+	  StringArray sa = (StringArray) m.getFeatureValue(m.getType().getFeatureByBaseName("stringArray"));
+	  assertEquals(t2, fa.get(0));
+	  assertEquals("t2", sa.get(0));
+	}
+
+	public void testBasicIntegerHashSet() {
+	  IntegerHashSet s = new IntegerHashSet(jcas);
+	  int[] values = {0, 1, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, 100000, -100000};
+	  for (int v : values) {
+	    assertTrue(s.add(v));
+	    assertFalse(s.add(v));
+	  }
+	  assertEquals(values.length, s.size());
+	  for (int v : values) {
+	    assertTrue(s.contains(v));
+	  }
+	  assertFalse(s.contains(2));
+
+	  int[] a = s.toArray();
+	  Arrays.sort(a);
+	  int[] expected = values.clone();
+	  Arrays.sort(expected);
+	  assertTrue(Arrays.equals(expected, a));
+	  int n = 0;
+	  for (OfInt it = s.iterator(); it.hasNext(); it.nextInt()) {
+	    n++;
+	  }
+	  assertEquals(values.length, n);
+
+	  assertTrue(s.remove(0));
+	  assertTrue(s.remove(Integer.MIN_VALUE));
+	  assertTrue(s.remove(1));
+	  assertFalse(s.remove(1));
+	  assertEquals(values.length - 3, s.size());
+	  s.clear();
+	  assertTrue(s.isEmpty());
+	}
+
+	public void testSerializeString2FSAndIntegerHashSet() throws Exception {
+	  jcas.setDocumentText("some text");
+	  Token t1 = new Token(jcas);
+	  t1.addToIndexes();
+	  String2FS<Token> m = new String2FS<>(jcas);
+	  m.put("t1", t1);
+	  m.addToIndexes();
+	  IntegerHashSet s = new IntegerHashSet(jcas);
+	  s.add(0);
+	  s.add(7);
+	  s.add(Integer.MIN_VALUE);
+	  s.addToIndexes();
+
+	  for (SerialFormat format : new SerialFormat[] {SerialFormat.XMI, SerialFormat.XCAS, SerialFormat.BINARY,
+	      SerialFormat.COMPRESSED, SerialFormat.COMPRESSED_FILTERED, SerialFormat.SERIALIZED}) {
+	    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+	    CasIOUtils.save(cas, baos, format);
+	    CAS cas2 = CASInitializer.initCas(new CASTestSetup(), null);
+	    CasIOUtils.load(new ByteArrayInputStream(baos.toByteArray()), cas2);
+	    JCas jcas2 = cas2.getJCas();
+
+	    String2FS<Token> m2 = jcas2.select(String2FS.class).get();
+	    Token t2 = m2.get("t1");
+	    assertNotNull(format.toString(), t2);
+	    assertSame(jcas2.select(Token.class).get(), t2);
+	    IntegerHashSet s2 = jcas2.select(IntegerHashSet.class).get();
+	    assertEquals(format.toString(), 3, s2.size());
+	    assertTrue(s2.contains(0) && s2.contains(7) && s2.contains(Integer.MIN_VALUE));
+	  }
+	}
 	
 
 }
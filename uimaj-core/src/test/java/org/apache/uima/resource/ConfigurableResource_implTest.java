@@ -19,11 +19,14 @@
 
 package org.apache.uima.resource;
 
+import java.util.Arrays;
 import java.util.Map;
 
 import org.apache.uima.UIMAFramework;
+import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.resource.impl.ConfigurationSnapshot_impl;
 import org.apache.uima.resource.impl.ResourceCreationSpecifier_impl;
 import org.apache.uima.resource.metadata.ConfigurationParameter;
 import org.apache.uima.resource.metadata.ResourceMetaData;
@@ -223,6 +226,77 @@ public class ConfigurableResource_implTest extends TestCase {
     }
   }
 
+  public void testConfigurationSnapshot() throws Exception {
+    XMLInputSource in = new XMLInputSource(JUnitExtension
+            .getFile("ConfigurableResourceImplTest/AnnotatorWithConfigurationGroups.xml"));
+    AnalysisEngineDescription desc = UIMAFramework.getXMLParser().parseAnalysisEngineDescription(in);
+    AnalysisEngine test = UIMAFramework.produceAnalysisEngine(desc);
+    UimaContext context = test.getUimaContext();
+
+    ConfigurationSnapshot snapshot = context.getConfigurationSnapshot();
+    Assert.assertSame(snapshot, context.getConfigurationSnapshot());
+    Assert.assertEquals("en", snapshot.getString("StringParam"));
+    Assert.assertEquals(42, snapshot.getInt("IntegerParam", 42));
+    Assert.assertNull(snapshot.getValue("NoSuchParam"));
+    Assert.assertTrue(Arrays.equals(context.getConfigurationGroupNames(), snapshot.getGroupNames()));
+
+    // same values as the context, including fallbacks to other groups
+    String[] paramNames = { "StringParam", "StringArrayParam", "IntegerParam",
+        "IntegerArrayParam", "FloatParam", "FloatArrayParam" };
+    String[] groupNames = { "en", "en-US", "en-GB", "en-US-x", "de", "de_CH", "zh", "zh-TW",
+        "x-unspecified", "fr", "" };
+    for (String paramName : paramNames) {
+      assertSameValue(context.getConfigParameterValue(paramName), snapshot.getValue(paramName));
+      for (String groupName : groupNames) {
+        assertSameValue(context.getConfigParameterValue(groupName, paramName),
+                snapshot.getValue(groupName, paramName));
+      }
+    }
+
+    // new values are seen after reconfigure
+    test.setConfigParameterValue("en", "StringParam", "changed");
+    Assert.assertEquals("en", snapshot.getString("StringParam"));
+    Assert.assertSame(snapshot, context.getConfigurationSnapshot());
+    test.reconfigure();
+    ConfigurationSnapshot newSnapshot = context.getConfigurationSnapshot();
+    Assert.assertNotSame(snapshot, newSnapshot);
+    Assert.assertEquals("changed", newSnapshot.getString("StringParam"));
+    Assert.assertEquals("changed", newSnapshot.getValue("en-GB", "StringParam"));
+    Assert.assertEquals("en", snapshot.getString("StringParam"));
+
+    // values which fail validation are never published
+    test.setConfigParameterValue("en", "IntegerParam", "not an integer");
+    try {
+      test.reconfigure();
+      Assert.fail();
+    } catch (ResourceConfigurationException e) {
+      // expected
+    }
+    Assert.assertSame(newSnapshot, context.getConfigurationSnapshot());
+    Assert.assertEquals(42, newSnapshot.getInt("IntegerParam", 0));
+
+    // the snapshot made through the UimaContext methods only, by default
+    ConfigurationSnapshot contextSnapshot = new ConfigurationSnapshot_impl(context);
+    Assert.assertTrue(Arrays.equals(context.getConfigParameterNames(),
+            contextSnapshot.getParameterNames()));
+    for (String paramName : paramNames) {
+      assertSameValue(context.getConfigParameterValue(paramName),
+              contextSnapshot.getValue(paramName));
+      for (String groupName : context.getConfigurationGroupNames()) {
+        assertSameValue(context.getConfigParameterValue(groupName, paramName),
+                contextSnapshot.getValue(groupName, paramName));
+      }
+    }
+  }
+
+  private static void assertSameValue(Object expected, Object actual) {
+    if (expected instanceof Object[]) {
+      Assert.assertTrue(Arrays.equals((Object[]) expected, (Object[]) actual));
+    } else {
+      Assert.assertEquals(expected, actual);
+    }
+  }
+
   /*
    * Test for Object getConfigParameterValue(String)
    */
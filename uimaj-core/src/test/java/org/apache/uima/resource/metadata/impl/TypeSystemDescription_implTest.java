@@ -20,6 +20,8 @@
 package org.apache.uima.resource.metadata.impl;
 
 import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
 import java.net.URL;
 
 import org.apache.uima.UIMAFramework;
@@ -179,6 +181,56 @@ public class TypeSystemDescription_implTest extends TestCase {
     }        
   }
 
+  public void testImportsSharedAcrossResourceManagers() throws Exception {
+    try {
+      File descriptor = JUnitExtension.getFile("TypeSystemDescriptionImplTest/TestTypeSystem.xml");
+      String dataPath = JUnitExtension.getFile("TypeSystemDescriptionImplTest/dataPathDir").getAbsolutePath();
+      SharedImportCache.clear();
+      
+      TypeSystemDescription[] resolved = new TypeSystemDescription[2];
+      for (int i = 0; i < 2; i++) {
+        TypeSystemDescription ts = UIMAFramework.getXMLParser().parseTypeSystemDescription(
+                new XMLInputSource(descriptor));
+        ResourceManager resMgr = UIMAFramework.newDefaultResourceManager();
+        resMgr.setDataPath(dataPath);
+        ts.resolveImports(resMgr);
+        assertEquals(13, ts.getTypes().length);
+        resolved[i] = ts;
+      }
+      
+      // 3 imported descriptors parsed once, each resource manager gets its own copy
+      assertEquals(3, SharedImportCache.size());
+      for (int i = 0; i < 13; i++) {
+        TypeDescription t0 = resolved[0].getTypes()[i];
+        TypeDescription t1 = resolved[1].getTypes()[i];
+        assertEquals(t0, t1);
+        assertNotSame(t0, t1);
+        assertEquals(t0.getSourceUrl(), t1.getSourceUrl());
+      }
+      
+      // updates to one don't affect the other
+      resolved[0].getTypes()[12].setDescription("changed");
+      assertFalse("changed".equals(resolved[1].getTypes()[12].getDescription()));
+    } catch (Exception e) {
+      JUnitExtension.handleException(e);
+    }        
+  }
+
+  public void testSharedImportCacheReportsDescriptorUrl() throws Exception {
+    File descriptor = File.createTempFile("BrokenTypeSystem", ".xml");
+    descriptor.deleteOnExit();
+    try (Writer w = new FileWriter(descriptor)) {
+      w.write("<typeSystemDescription xmlns=\"http://uima.apache.org/resourceSpecifier\"><types>");
+    }
+    try {
+      SharedImportCache.parse(descriptor.toURI().toURL(), TypeSystemDescription.class,
+          UIMAFramework.getXMLParser()::parseTypeSystemDescription);
+      fail();
+    } catch (InvalidXMLException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains(descriptor.getName()));
+    }
+  }
+
   public void testInvalidTypeSystem() throws Exception {
     File file = JUnitExtension.getFile("TypeSystemDescriptionImplTest/InvalidTypeSystem1.xml");
     TypeSystemDescription tsDesc = UIMAFramework.getXMLParser().parseTypeSystemDescription(
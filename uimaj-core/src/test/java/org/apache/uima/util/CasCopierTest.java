@@ -34,6 +34,7 @@ import org.apache.uima.cas.impl.CASImpl;
 import org.apache.uima.cas.impl.XCASDeserializer;
 import org.apache.uima.cas_data.impl.CasComparer;
 import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
 import org.apache.uima.jcas.cas.TOP;
 import org.apache.uima.jcas.tcas.Annotation;
 import org.apache.uima.resource.metadata.FsIndexDescription;
@@ -368,6 +369,41 @@ public class CasCopierTest extends TestCase {
 
   }
 
+  public void testCopyCasViewIndexOrderAndSharing() throws Exception {
+    JCas srcJCas = CasCreationUtils.createCas(typeSystem, new TypePriorities_impl(), indexes).getJCas();
+    srcJCas.setDocumentText("one two three");
+    // equal keys, so the index order depends on the ids
+    Annotation a = new Annotation(srcJCas, 4, 7);
+    Annotation b = new Annotation(srcJCas, 0, 3);
+    Annotation c = new Annotation(srcJCas, 4, 7);
+    FSArray<Annotation> fsa = new FSArray<>(srcJCas, 3);
+    fsa.set(0, c);
+    fsa.set(1, a);
+    fsa.set(2, c);
+    fsa.addToIndexes();
+    c.addToIndexes();
+    b.addToIndexes();
+    a.addToIndexes();
+    
+    CAS destCas = CasCreationUtils.createCas(typeSystem, new TypePriorities_impl(), indexes);
+    CasCopier.copyCas(srcJCas.getCas(), destCas, true);
+    CasComparer.assertEquals(srcJCas.getCas(), destCas);
+    
+    JCas destJCas = destCas.getJCas();
+    ArrayList<Annotation> copies = new ArrayList<>();
+    for (Annotation annot : destJCas.getAnnotationIndex()) {
+      copies.add(annot);
+    }
+    assertEquals(4, copies.size());
+    assertEquals(0, copies.get(1).getBegin());
+    
+    // the copies of a and c are in the same order as a and c, though c was referenced first
+    FSArray<?> fsaCopy = destJCas.getIndexedFSs(FSArray.class).iterator().next();
+    assertSame(copies.get(3), fsaCopy.get(0));
+    assertSame(copies.get(2), fsaCopy.get(1));
+    assertSame(fsaCopy.get(0), fsaCopy.get(2));
+  }
+
   public void testAnnotationWithNullSofaRef() throws Exception {
     CAS srcCas = CasCreationUtils.createCas(typeSystem, new TypePriorities_impl(), indexes);
     CAS srcCasView = srcCas.createView("TestView");
@@ -21,6 +21,8 @@ package org.apache.uima.util;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +36,7 @@ import org.apache.uima.cas.Type;
 import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.admin.CASFactory;
 import org.apache.uima.cas.admin.CASMgr;
+import org.apache.uima.cas.impl.TypeSystemImpl;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.resource.ResourceManager;
@@ -428,6 +431,57 @@ public class CasCreationUtilsTest extends TestCase {
     }
   }
 
+  public void testSetupTypeSystemOrder() throws Exception {
+    // types are created in the order of repeated passes over the list
+    TypeSystemDescription tsd = new TypeSystemDescription_impl();
+    tsd.addType("test.C", "", "test.B");
+    tsd.addType("test.A", "", "uima.cas.TOP");
+    tsd.addType("test.B", "", "test.A");
+    tsd.addType("test.D", "", "test.C");
+    tsd.addType("test.E", "", "test.Undefined");
+    tsd.addType("test.F", "", "test.E");
+
+    // merging keeps the types whose supertypes are undefined
+    TypeSystemDescription merged = CasCreationUtils.mergeTypeSystems(Collections.singletonList(tsd));
+    assertEquals(6, merged.getTypes().length);
+
+    CASMgr casMgr = CASFactory.createCAS();
+    try {
+      CasCreationUtils.setupTypeSystem(casMgr, tsd);
+      fail();
+    } catch (ResourceInitializationException e) {
+      assertEquals(ResourceInitializationException.UNDEFINED_SUPERTYPE, e.getMessageKey());
+      assertEquals("test.Undefined", e.getArguments()[0]);
+    }
+
+    tsd.setTypes(Arrays.copyOf(tsd.getTypes(), 4));
+    casMgr = CASFactory.createCAS();
+    CasCreationUtils.setupTypeSystem(casMgr, tsd);
+    TypeSystemImpl ts = (TypeSystemImpl) casMgr.getTypeSystemMgr();
+    int codeA = ts.getType("test.A").getCode();
+    assertEquals(codeA + 1, ts.getType("test.B").getCode());
+    assertEquals(codeA + 2, ts.getType("test.C").getCode());
+    assertEquals(codeA + 3, ts.getType("test.D").getCode());
+  }
+
+  public void testMergeAndSetupDeepTypeSystem() throws Exception {
+    // a chain of types, listed subtypes first
+    final int n = 2000;
+    TypeSystemDescription tsd = new TypeSystemDescription_impl();
+    for (int i = n - 1; i >= 0; i--) {
+      TypeDescription td = tsd.addType("test.T" + i, "", (i == 0) ? CAS.TYPE_NAME_ANNOTATION : "test.T" + (i - 1));
+      td.addFeature("f" + i, "", CAS.TYPE_NAME_INTEGER);
+    }
+    TypeSystemDescription merged = CasCreationUtils.mergeTypeSystems(Arrays.asList(tsd, tsd));
+    assertEquals(n, merged.getTypes().length);
+
+    CAS cas = CasCreationUtils.createCas(merged, null, null);
+    TypeSystem ts = cas.getTypeSystem();
+    Type last = ts.getType("test.T" + (n - 1));
+    assertTrue(ts.subsumes(ts.getType("test.T0"), last));
+    assertNotNull(last.getFeatureByBaseName("f0"));
+  }
+
   public void testCreateCasCollectionPropertiesResourceManager() throws Exception {
     try {
       // parse an AE descriptor
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.uima.Constants;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.analysis_component.JCasAnnotator_ImplBase;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests packing small documents into one CAS, and splitting the results.
+ */
+public class CasPackerTest extends TestCase {
+
+  /**
+   * Annotates space separated tokens, counting the CASs it processes. It can also add a
+   * DocumentAnnotation over the first token, as some annotators add document metadata.
+   */
+  public static class TokenAnnotator extends JCasAnnotator_ImplBase {
+    static int processCount = 0;
+
+    static boolean addDocumentAnnotation = false;
+
+    @Override
+    public void process(JCas jcas) {
+      processCount++;
+      String text = jcas.getDocumentText();
+      if (addDocumentAnnotation) {
+        CAS cas = jcas.getCas();
+        cas.addFsToIndexes(cas.createAnnotation(
+            cas.getTypeSystem().getType(CAS.TYPE_NAME_DOCUMENT_ANNOTATION), 0, text.indexOf(' ')));
+      }
+      int begin = 0;
+      for (int i = 0; i <= text.length(); i++) {
+        if (i == text.length() || Character.isWhitespace(text.charAt(i))) {
+          if (i > begin) {
+            new Annotation(jcas, begin, i).addToIndexes();
+          }
+          begin = i + 1;
+        }
+      }
+    }
+  }
+
+  private AnalysisEngine ae;
+
+  protected void setUp() throws Exception {
+    AnalysisEngineDescription desc = UIMAFramework.getResourceSpecifierFactory().createAnalysisEngineDescription();
+    desc.setFrameworkImplementation(Constants.JAVA_FRAMEWORK_NAME);
+    desc.setPrimitive(true);
+    desc.setAnnotatorImplementationName(TokenAnnotator.class.getName());
+    desc.getMetaData().setName("Token Annotator");
+    ae = UIMAFramework.produceAnalysisEngine(desc);
+    TokenAnnotator.processCount = 0;
+    TokenAnnotator.addDocumentAnnotation = false;
+  }
+
+  protected void tearDown() throws Exception {
+    ae.destroy();
+  }
+
+  public void testPackAndUnpack() throws Exception {
+    CAS packed = ae.newCAS();
+    CAS target = ae.newCAS();
+    List<AnnotationFS> segments = new CasPacker().pack(packed, Arrays.asList("a bc", "", "def g"),
+        Arrays.asList(null, "de", "en"));
+    assertEquals("a bc\n\n\n\ndef g", packed.getDocumentText());
+    assertEquals(3, segments.size());
+    assertEquals(segments, CasPacker.getSegments(packed));
+    assertEquals("def g", segments.get(2).getCoveredText());
+
+    ae.process(packed);
+
+    CasPacker.unpack(packed, segments.get(2), target);
+    assertEquals("def g", target.getDocumentText());
+    assertEquals("en", target.getDocumentLanguage());
+    assertEquals("DocumentAnnotation0-5 Annotation0-3 Annotation4-5", describe(target));
+
+    CasPacker.unpack(packed, segments.get(0), target);
+    assertEquals("a bc", target.getDocumentText());
+    assertEquals("x-unspecified", target.getDocumentLanguage());
+    assertEquals("DocumentAnnotation0-4 Annotation0-1 Annotation2-4", describe(target));
+
+    CasPacker.unpack(packed, segments.get(1), target);
+    assertEquals("", target.getDocumentText());
+    assertEquals("de", target.getDocumentLanguage());
+    assertEquals("DocumentAnnotation0-0", describe(target));
+
+    // with one copier for all the segments
+    List<String> results = new ArrayList<>();
+    CasPacker.unpackAll(packed, target, (cas, i) -> results.add(i + ":" + cas.getDocumentText()
+        + ":" + cas.getDocumentLanguage() + ":" + describe(cas)));
+    assertEquals(Arrays.asList(
+        "0:a bc:x-unspecified:DocumentAnnotation0-4 Annotation0-1 Annotation2-4",
+        "1::de:DocumentAnnotation0-0",
+        "2:def g:en:DocumentAnnotation0-5 Annotation0-3 Annotation4-5"), results);
+
+    try {
+      new CasPacker().pack(packed, Arrays.asList("a", "b"), Arrays.asList("en"));
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  public void testProcess() throws Exception {
+    List<String> texts = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      texts.add("doc " + i);
+    }
+    List<String> results = new ArrayList<>();
+    new CasPacker().process(ae, ae.newCAS(), ae.newCAS(), texts, 4,
+        (cas, i) -> results.add(i + ":" + cas.getDocumentText() + ":" + describe(cas)));
+    assertEquals(3, TokenAnnotator.processCount);
+    assertEquals(10, results.size());
+    assertEquals("0:doc 0:DocumentAnnotation0-5 Annotation0-3 Annotation4-5", results.get(0));
+    assertEquals("9:doc 9:DocumentAnnotation0-5 Annotation0-3 Annotation4-5", results.get(9));
+
+    List<String> languages = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      languages.add((i % 2 == 0) ? "en" : "de");
+    }
+    results.clear();
+    new CasPacker().process(ae, ae.newCAS(), ae.newCAS(), texts, languages, 4,
+        (cas, i) -> results.add(i + ":" + cas.getDocumentLanguage()));
+    assertEquals(10, results.size());
+    for (int i = 0; i < 10; i++) {
+      assertEquals(i + ":" + languages.get(i), results.get(i));
+    }
+  }
+
+  public void testProcessWithAddedDocumentAnnotation() throws Exception {
+    TokenAnnotator.addDocumentAnnotation = true;
+    List<String> texts = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      texts.add("doc " + i);
+    }
+    List<String> results = new ArrayList<>();
+    new CasPacker().process(ae, ae.newCAS(), ae.newCAS(), texts, 4,
+        (cas, i) -> results.add(i + ":" + cas.getDocumentText() + ":" + describe(cas)));
+    assertEquals(10, results.size());
+    for (int i = 0; i < 10; i++) {
+      assertEquals(i + ":doc " + i + ":DocumentAnnotation0-5 Annotation0-3 Annotation4-5",
+          results.get(i));
+    }
+  }
+
+  private static String describe(CAS cas) {
+    StringBuilder sb = new StringBuilder();
+    for (AnnotationFS a : cas.getAnnotationIndex()) {
+      if (sb.length() > 0) {
+        sb.append(' ');
+      }
+      sb.append(a.getType().getShortName()).append(a.getBegin()).append('-').append(a.getEnd());
+    }
+    return sb.toString();
+  }
+}
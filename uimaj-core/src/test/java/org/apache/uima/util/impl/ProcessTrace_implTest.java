@@ -19,7 +19,12 @@
 
 package org.apache.uima.util.impl;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Properties;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.UIMA_IllegalStateException;
 
 import org.apache.uima.util.ProcessTrace;
 import org.apache.uima.util.ProcessTraceEvent;
@@ -244,4 +249,156 @@ public class ProcessTrace_implTest extends TestCase {
     Assert.assertEquals(1000, c2subEvt.getDuration());
   }
 
+  public void testSampling() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(UIMAFramework.PROCESS_TRACE_ENABLED, "true");
+    props.setProperty(UIMAFramework.PROCESS_TRACE_SAMPLE_RATE, "3");
+
+    // the first trace of a thread is sampled, and keeps its events
+    Thread t = new Thread(() -> {
+      ProcessTrace_impl total = new ProcessTrace_impl(props);
+      Assert.assertTrue(total.isSampling());
+      List<ProcessTrace_impl> traces = new ArrayList<>();
+      for (int i = 0; i < 6; i++) {
+        ProcessTrace_impl pt = new ProcessTrace_impl(props);
+        pt.startEvent("c2", "t1", "testing");
+        pt.addEvent("c2", "t2", "testing", 500, "success");
+        pt.startEvent("c3", "t1", "testing");
+        pt.endEvent("c2", "t1", "success");  // also ends c3
+        pt.addEvent("c1", "t1", "testing", 250, "success " + i);
+        pt.startEvent("c4", "t1", "never closed");
+        traces.add(pt);
+      }
+      for (int i = 0; i < traces.size(); i++) {
+        ProcessTrace_impl pt = traces.get(i);
+        List<ProcessTraceEvent> evts = pt.getEvents();
+        Assert.assertEquals(2, evts.size());
+        Assert.assertEquals("c2", evts.get(0).getComponentName());
+        Assert.assertEquals(2, evts.get(0).getSubEvents().size());
+        Assert.assertEquals(500, evts.get(0).getSubEvents().get(0).getDuration());
+        Assert.assertEquals("c3", evts.get(0).getSubEvents().get(1).getComponentName());
+        Assert.assertEquals("success", evts.get(0).getSubEvents().get(1).getResultMessage());
+        Assert.assertEquals(250, evts.get(1).getDuration());
+        // sampled traces (the 2nd and 5th of this thread) keep the event objects
+        Assert.assertEquals(i % 3 == 2, evts == pt.getEvents());
+        total.aggregate(pt);
+      }
+
+      ProcessTraceStatistics stats = total.getStatistics();
+      ProcessTraceStatistics.Node c2 = stats.getNodes().get(0);
+      Assert.assertEquals(6, c2.getCount());
+      ProcessTraceStatistics.Node c2t2 = c2.getSubNodes().get(0);
+      Assert.assertEquals(6, c2t2.getCount());
+      Assert.assertEquals(3000, c2t2.getTotalDuration());
+      Assert.assertEquals(500, c2t2.getMaxDuration());
+      Assert.assertEquals(6, c2t2.getHistogram()[ProcessTraceStatistics.bucket(500)]);
+      ProcessTraceStatistics.Node c1 = stats.getNodes().get(1);
+      Assert.assertEquals("success 5", c1.getResultMessage());
+      Assert.assertEquals(1500, total.getEvent("c1", "t1").getDuration());
+
+      // unmatched endEvent
+      ProcessTrace_impl pt = traces.get(0);
+      try {
+        pt.endEvent("c5", "t1", "success");
+        Assert.fail();
+      } catch (UIMA_IllegalStateException e) {
+        // expected
+      }
+      pt.endEvent("c4", "t1", "success");
+      Assert.assertEquals(3, pt.getEvents().size());
+      pt.clear();
+      Assert.assertTrue(pt.getEvents().isEmpty());
+      total.clear();
+      Assert.assertTrue(total.getEvents().isEmpty());
+    });
+    final Throwable[] failure = new Throwable[1];
+    t.setUncaughtExceptionHandler((th, e) -> failure[0] = e);
+    t.start();
+    t.join();
+    if (failure[0] != null) {
+      throw new AssertionError(failure[0]);
+    }
+
+    // aggregating from several threads
+    ProcessTrace_impl total = new ProcessTrace_impl(props);
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread(() -> {
+        for (int j = 0; j < 1000; j++) {
+          ProcessTrace_impl pt = new ProcessTrace_impl(props);
+          pt.addEvent("c" + (j % 5), "t1", "testing", 2, "success");
+          total.aggregate(pt);
+        }
+      });
+      threads[i].start();
+    }
+    long count = 0;
+    for (Thread th : threads) {
+      th.join();
+    }
+    for (ProcessTraceStatistics.Node n : total.getStatistics().getNodes()) {
+      count += n.getCount();
+      Assert.assertEquals(800 * 2, n.getTotalDuration());
+    }
+    Assert.assertEquals(4000, count);
+  }
+
+  public void testSampledEventsKept() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(UIMAFramework.PROCESS_TRACE_ENABLED, "true");
+    props.setProperty(UIMAFramework.PROCESS_TRACE_SAMPLE_RATE, "2");
+
+    Thread t = new Thread(() -> {
+      ProcessTrace_impl total = new ProcessTrace_impl(props);  // sampled
+      ProcessTrace_impl pt = new ProcessTrace_impl(props);  // not sampled
+      // a cleared trace counts as a new one, so every other use is sampled
+      for (int i = 0; i < 6; i++) {
+        pt.startEvent("c1", "t1", "testing");
+        pt.addEvent("c2", "t1", "testing", i, "result " + i);
+        pt.endEvent("c1", "t1", "success");
+        Assert.assertEquals(i % 2 == 1, pt.getEvents() == pt.getEvents());
+        total.aggregate(pt);
+        pt.clear();
+      }
+      Assert.assertEquals(6, total.getStatistics().getNodes().get(0).getCount());
+
+      List<List<ProcessTraceEvent>> samples = total.getSampledEvents();
+      Assert.assertEquals(3, samples.size());
+      for (int i = 0; i < 3; i++) {
+        List<ProcessTraceEvent> sample = samples.get(i);
+        Assert.assertEquals(1, sample.size());
+        ProcessTraceEvent sub = sample.get(0).getSubEvents().get(0);
+        Assert.assertEquals(2 * i + 1, sub.getDuration());
+        Assert.assertEquals("result " + (2 * i + 1), sub.getResultMessage());
+      }
+
+      // kept through further aggregation, up to SAMPLES_KEPT
+      ProcessTrace_impl global = new ProcessTrace_impl(props);
+      global.aggregate(total);
+      Assert.assertEquals(3, global.getSampledEvents().size());
+      for (int i = 0; i < 4 * ProcessTraceStatistics.SAMPLES_KEPT; i++) {
+        pt.addEvent("c3", "t1", "testing", i, "success");
+        global.aggregate(pt);
+        pt.clear();
+      }
+      samples = global.getSampledEvents();
+      Assert.assertEquals(ProcessTraceStatistics.SAMPLES_KEPT, samples.size());
+      int lastDuration = -1;
+      for (List<ProcessTraceEvent> sample : samples) {
+        Assert.assertEquals("c3", sample.get(0).getComponentName());
+        Assert.assertTrue(sample.get(0).getDuration() > lastDuration);
+        lastDuration = sample.get(0).getDuration();
+      }
+
+      Assert.assertNull(new ProcessTrace_impl().getSampledEvents());
+    });
+    final Throwable[] failure = new Throwable[1];
+    t.setUncaughtExceptionHandler((th, e) -> failure[0] = e);
+    t.start();
+    t.join();
+    if (failure[0] != null) {
+      throw new AssertionError(failure[0]);
+    }
+  }
+
 }
@@ -260,6 +260,19 @@ public class BaseCPMImpl implements BaseCPM, Runnable {
     }
     // Instantiate class responsible for processing
     cpEngine = new CPMEngine(cpmThreadGroup, cpeFactory, procTr, checkpointData);
+    if (checkpoint != null) {
+      // Recover the documents completed by a previous run, if any. These are skipped.
+      try {
+        checkpoint.getCompletionLog().open();
+        cpEngine.setCompletionLog(checkpoint.getCompletionLog());
+      } catch (Exception e) {
+        // Continue without skipping completed documents; the checkpoint itself still works
+        UIMAFramework.getLogger(this.getClass()).logrb(Level.SEVERE, this.getClass().getName(),
+                "initialize", CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
+                "UIMA_CPM_checkpoint_log_open_failed__SEVERE",
+                new Object[] { Thread.currentThread().getName(), e.getMessage() });
+      }
+    }
     if (!aDummyCasProcessor) {
       int concurrentThreadCount = cpeFactory.getCpeDescriptor().getCpeCasProcessors()
               .getConcurrentPUCount();
@@ -69,6 +69,18 @@ public class Checkpoint implements Runnable {
   /** The synch point file name. */
   private String synchPointFileName = null;
 
+  /** The log of completed documents, synced at every checkpoint. */
+  private CheckpointLog completionLog = null;
+
+  /** The number of checkpoint intervals after which the full checkpoint data is rewritten. */
+  private static final int FULL_CHECKPOINT_INTERVALS = 10;
+
+  /** The number of checkpoint intervals since the full checkpoint data was last written. */
+  private volatile int intervalsSinceFullCheckpoint = FULL_CHECKPOINT_INTERVALS;
+
+  /** The number of completed documents when the full checkpoint data was last written. */
+  private volatile int completedAtFullCheckpoint = -1;
+
   /**
    * Initialize the checkpoint with a reference to controlling cpe, the file where the checkpoint is
    * to be stored, and the frequency of checkpoints.
@@ -83,6 +95,8 @@ public class Checkpoint implements Runnable {
     if (fExtPos > -1) {
       synchPointFileName = fileName.substring(0, fExtPos) + "_synchPoint.xml";
     }
+    completionLog = new CheckpointLog(
+            ((fExtPos > -1) ? fileName.substring(0, fExtPos) : fileName) + "_completed.log");
     cpm = aCpm;
     checkpointFrequency = aCheckpointFrequency;
   }
@@ -99,6 +113,7 @@ public class Checkpoint implements Runnable {
    */
   public void stop() {
     stop = true;
+    completionLog.close();
     // isRunning = false;
     if (UIMAFramework.getLogger().isLoggable(Level.INFO)) {
       UIMAFramework.getLogger(this.getClass()).logrb(Level.INFO, this.getClass().getName(),
@@ -130,7 +145,7 @@ public class Checkpoint implements Runnable {
                 "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE, "UIMA_CPM_checkpoint__FINEST",
                 new Object[] { Thread.currentThread().getName() });
       }
-      doCheckpoint();
+      doPeriodicCheckpoint();
 
       try {
         if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
@@ -156,6 +171,7 @@ public class Checkpoint implements Runnable {
     try {
       File checkpointFile = new File(fileName);
       checkpointFile.delete();
+      completionLog.delete();
     } catch (Exception e) {
       e.printStackTrace();
     }
@@ -183,6 +199,25 @@ public class Checkpoint implements Runnable {
     }
   }
 
+  /**
+   * Checkpoint taken at every interval. It forces the documents completed since the previous
+   * interval to the Checkpoint Log, which is enough to skip them on restart. The full checkpoint
+   * data is only rewritten every {@link #FULL_CHECKPOINT_INTERVALS} intervals, and only if documents
+   * completed since it was last written. Without an open Checkpoint Log, every interval writes the
+   * full checkpoint data.
+   */
+  private void doPeriodicCheckpoint() {
+    if (!completionLog.isOpen()) {
+      doCheckpoint();
+      return;
+    }
+    completionLog.sync();
+    if (++intervalsSinceFullCheckpoint >= FULL_CHECKPOINT_INTERVALS
+            && completionLog.size() != completedAtFullCheckpoint) {
+      doCheckpoint();
+    }
+  }
+
   /**
    * Serializes checkpoint information to disk. It retrieves data to checkpoint from the CPEEngine.
    * 
@@ -194,6 +229,10 @@ public class Checkpoint implements Runnable {
                 "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE, "UIMA_CPM_checkpoint__FINEST",
                 new Object[] { Thread.currentThread().getName() });
       }
+      // Force the completed documents recorded since the last checkpoint to disk
+      completionLog.sync();
+      intervalsSinceFullCheckpoint = 0;
+      completedAtFullCheckpoint = completionLog.size();
       // 02/08/05 Checkpoint has been broken up into two files. One containing the
       // ProcessTrace saved as binary object, and second containing the SynchPoint
       // saved as xml.
@@ -253,6 +292,16 @@ public class Checkpoint implements Runnable {
     }
   }
 
+  /**
+   * Returns the log of completed documents. It records each document whose processing has
+   * completed, and on restart is used to skip the documents completed in the previous run.
+   *
+   * @return the log of completed documents
+   */
+  public CheckpointLog getCompletionLog() {
+    return completionLog;
+  }
+
   /**
    * Renames previous checkpoint file.
    * 
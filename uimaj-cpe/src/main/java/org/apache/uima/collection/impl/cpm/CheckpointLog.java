@@ -0,0 +1,557 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl.cpm;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.impl.CASImpl;
+import org.apache.uima.collection.impl.cpm.engine.ConsumerCasUtils;
+import org.apache.uima.collection.impl.cpm.utils.CPMUtils;
+import org.apache.uima.util.Level;
+
+/**
+ * Append-only log of the documents whose processing has completed, kept next to the
+ * {@link Checkpoint} files.
+ * <p>
+ * Each completed document is recorded as one line holding its document key (see
+ * {@link #getDocumentKey(CAS)}). Records are buffered, and written and forced to disk in batches:
+ * when the batch is full, and at every checkpoint interval. A crash loses at most the unforced
+ * batch; those documents are reprocessed on restart.
+ * <p>
+ * The log is compacted in the background: the current log is rotated out, and a snapshot holding
+ * all completed keys is written to a temporary file, forced, and atomically renamed over the
+ * previous snapshot. Recovery reads the snapshot, any rotated log left over by a crash during
+ * compaction, and the current log, so every crash window is covered. A rotated log left over is
+ * appended to rather than replaced, so its keys are kept until a snapshot holds them. Renames are
+ * followed by forcing the directory to disk, where the platform supports it.
+ * <p>
+ * A partially written last record left by a crash is ignored on recovery, and cut off before the
+ * log is appended to.
+ * <p>
+ * On restart the CPM skips CASes whose document key was recovered from the log of the previous run.
+ * Documents identified only by a digest of their text are never skipped, as different documents
+ * may have the same text.
+ */
+public class CheckpointLog {
+
+  /** Default number of records forced to disk together. */
+  public static final int DEFAULT_BATCH_SIZE = 256;
+
+  /** Default number of records written to the log before it is compacted. */
+  public static final int DEFAULT_COMPACT_THRESHOLD = 100000;
+
+  private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+  private static final String ROTATED_SUFFIX = ".old";
+
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  private static final String TEXT_DIGEST_PREFIX = "sha256:";
+
+  private final File logFile;
+
+  private final File rotatedFile;
+
+  private final File snapshotFile;
+
+  private final int batchSize;
+
+  private final int compactThreshold;
+
+  /**
+   * The keys of all completed documents, recovered plus recorded
+   *
+   * @GuardedBy(this)
+   */
+  private final Set<String> completed = new HashSet<>();
+
+  /** The keys of the documents completed by a previous run, recovered by {@link #open()} */
+  private volatile Set<String> recovered = Collections.emptySet();
+
+  /**
+   * Records not yet written
+   *
+   * @GuardedBy(this)
+   */
+  private final StringBuilder pending = new StringBuilder();
+
+  /** @GuardedBy(this) */
+  private int pendingCount = 0;
+
+  /** @GuardedBy(this) */
+  private int recordsSinceCompaction = 0;
+
+  /** @GuardedBy(this) */
+  private FileChannel channel = null;
+
+  /** true while a background compaction is running */
+  private volatile boolean compacting = false;
+
+  /**
+   * Create a log using the default batch size and compaction threshold.
+   *
+   * @param aLogFileName the file holding the log
+   */
+  public CheckpointLog(String aLogFileName) {
+    this(aLogFileName, DEFAULT_BATCH_SIZE, DEFAULT_COMPACT_THRESHOLD);
+  }
+
+  /**
+   * @param aLogFileName the file holding the log
+   * @param aBatchSize the number of records forced to disk together
+   * @param aCompactThreshold the number of records written before compacting
+   */
+  public CheckpointLog(String aLogFileName, int aBatchSize, int aCompactThreshold) {
+    logFile = new File(aLogFileName);
+    rotatedFile = new File(aLogFileName + ROTATED_SUFFIX);
+    snapshotFile = new File(aLogFileName + SNAPSHOT_SUFFIX);
+    batchSize = Math.max(1, aBatchSize);
+    compactThreshold = Math.max(1, aCompactThreshold);
+  }
+
+  /**
+   * Recovers the keys of completed documents from a previous run, if any, and opens the log for
+   * appending.
+   *
+   * @return the number of completed documents recovered
+   * @throws IOException -
+   */
+  public synchronized int open() throws IOException {
+    completed.clear();
+    readKeys(snapshotFile);
+    readKeys(rotatedFile);
+    readKeys(logFile);
+    truncateTornRecord(rotatedFile);
+    truncateTornRecord(logFile);
+    recovered = Collections.unmodifiableSet(new HashSet<>(completed));
+    if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
+      UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST, this.getClass().getName(),
+              "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE, "UIMA_CPM_checkpoint_log_recovered__FINEST",
+              new Object[] { Thread.currentThread().getName(), String.valueOf(completed.size()) });
+    }
+    channel = openForAppend(logFile);
+    return completed.size();
+  }
+
+  /**
+   * @return true if the log has been opened and not closed since
+   */
+  public synchronized boolean isOpen() {
+    return channel != null;
+  }
+
+  /**
+   * @param aDocumentKey the key of a document
+   * @return true if the document was recorded as completed, in this or in a previous run
+   */
+  public synchronized boolean isCompleted(String aDocumentKey) {
+    return aDocumentKey != null && completed.contains(aDocumentKey);
+  }
+
+  /**
+   * Checks if a document can be skipped because a previous run completed it. Documents completed
+   * in this run are not considered, and neither are documents identified only by a digest of their
+   * text.
+   *
+   * @param aDocumentKey the key of a document
+   * @return true if the document was recovered from the log as completed by a previous run
+   */
+  public boolean isCompletedInPreviousRun(String aDocumentKey) {
+    return aDocumentKey != null && !aDocumentKey.startsWith(TEXT_DIGEST_PREFIX)
+            && recovered.contains(aDocumentKey);
+  }
+
+  /**
+   * @return the number of documents recovered from the log as completed by a previous run
+   */
+  public int getRecoveredCount() {
+    return recovered.size();
+  }
+
+  /**
+   * @return the number of documents recorded as completed, in this and in previous runs
+   */
+  public synchronized int size() {
+    return completed.size();
+  }
+
+  /**
+   * Records a document as completed. The record is forced to disk when the current batch fills up,
+   * or at the next {@link #sync()}.
+   *
+   * @param aDocumentKey the key of the document, ignored if null
+   */
+  public void recordCompleted(String aDocumentKey) {
+    if (aDocumentKey == null) {
+      return;
+    }
+    boolean isCompactNeeded = false;
+    synchronized (this) {
+      if (!completed.add(aDocumentKey)) {
+        return; // already recorded
+      }
+      pending.append(escape(aDocumentKey)).append('\n');
+      pendingCount++;
+      if (pendingCount >= batchSize) {
+        isCompactNeeded = writePending();
+      }
+    }
+    if (isCompactNeeded) {
+      compactInBackground();
+    }
+  }
+
+  /**
+   * Writes all buffered records and forces them to disk. Called at each checkpoint interval.
+   */
+  public void sync() {
+    boolean isCompactNeeded;
+    synchronized (this) {
+      isCompactNeeded = writePending();
+    }
+    if (isCompactNeeded) {
+      compactInBackground();
+    }
+  }
+
+  /**
+   * Must be called holding the lock
+   *
+   * @return true if compaction is needed
+   */
+  private boolean writePending() {
+    if (pendingCount == 0 || channel == null) {
+      return false;
+    }
+    try {
+      ByteBuffer bb = ByteBuffer.wrap(pending.toString().getBytes(StandardCharsets.UTF_8));
+      while (bb.hasRemaining()) {
+        channel.write(bb);
+      }
+      channel.force(false);
+      recordsSinceCompaction += pendingCount;
+      pending.setLength(0);
+      pendingCount = 0;
+    } catch (IOException e) {
+      // keep the records pending, retry at next sync
+      logException(e);
+      return false;
+    }
+    return recordsSinceCompaction >= compactThreshold && !compacting;
+  }
+
+  /**
+   * Compacts the log on a separate daemon thread, unless a compaction is already running.
+   */
+  public void compactInBackground() {
+    if (compacting) {
+      return;
+    }
+    Thread t = new Thread(() -> {
+      try {
+        compact();
+      } catch (IOException e) {
+        logException(e);
+      }
+    }, "CPM Checkpoint Log Compaction");
+    t.setDaemon(true);
+    t.start();
+  }
+
+  /**
+   * Replaces the snapshot with one holding all completed keys, and empties the log. Appends are only
+   * blocked while the log is rotated, not while the snapshot is written.
+   *
+   * @throws IOException -
+   */
+  public void compact() throws IOException {
+    List<String> keys;
+    synchronized (this) {
+      if (compacting || channel == null) {
+        return;
+      }
+      compacting = true;
+    }
+    try {
+      synchronized (this) {
+        writePending();
+        channel.close();
+        try {
+          rotate();
+        } finally {
+          channel = openForAppend(logFile);
+        }
+        recordsSinceCompaction = 0;
+        keys = new ArrayList<>(completed);
+      }
+      File tempFile = new File(snapshotFile.getPath() + TEMP_SUFFIX);
+      try (FileChannel out = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < keys.size(); i++) {
+          sb.append(escape(keys.get(i))).append('\n');
+          if (sb.length() > 65536 || i == keys.size() - 1) {
+            ByteBuffer bb = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+            while (bb.hasRemaining()) {
+              out.write(bb);
+            }
+            sb.setLength(0);
+          }
+        }
+        out.force(true);
+      }
+      Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.ATOMIC_MOVE);
+      syncDirectory();
+      rotatedFile.delete();
+      syncDirectory();
+    } finally {
+      compacting = false;
+    }
+  }
+
+  /**
+   * Moves the log out of the way, to be replaced by an empty one. A rotated log left over by a crash
+   * or a failed compaction may hold keys which are in no snapshot yet, so the log is then appended
+   * to it instead of replacing it. Must be called holding the lock, with the log closed.
+   *
+   * @throws IOException -
+   */
+  private void rotate() throws IOException {
+    if (rotatedFile.exists()) {
+      try (FileChannel in = FileChannel.open(logFile.toPath(), StandardOpenOption.READ);
+              FileChannel out = openForAppend(rotatedFile)) {
+        long size = in.size();
+        long position = 0;
+        while (position < size) {
+          position += in.transferTo(position, size - position, out);
+        }
+        out.force(false);
+      }
+      Files.delete(logFile.toPath());
+    } else {
+      Files.move(logFile.toPath(), rotatedFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+    syncDirectory();
+  }
+
+  /**
+   * Forces the directory entries of the log files to disk, so renames survive a crash. Not all
+   * platforms can open a directory for this; there the renames are left to the file system.
+   */
+  private void syncDirectory() {
+    File dir = logFile.getAbsoluteFile().getParentFile();
+    if (dir == null) {
+      return;
+    }
+    try (FileChannel dirChannel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+      dirChannel.force(true);
+    } catch (IOException e) {
+      // not supported on this platform, e.g. Windows
+    }
+  }
+
+  /**
+   * Writes any buffered records and closes the log. The log files are kept.
+   */
+  public synchronized void close() {
+    writePending();
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        logException(e);
+      }
+      channel = null;
+    }
+  }
+
+  /**
+   * Closes the log and deletes its files. Called when the collection has been completely processed.
+   */
+  public synchronized void delete() {
+    pending.setLength(0);
+    pendingCount = 0;
+    close();
+    logFile.delete();
+    rotatedFile.delete();
+    snapshotFile.delete();
+    completed.clear();
+    recovered = Collections.emptySet();
+  }
+
+  /**
+   * Computes the key identifying the document in a CAS, used to record its completion. This is, in
+   * order of preference:
+   * <ul>
+   * <li>the CPM document id metadata, for CASes having it</li>
+   * <li>the sofa URI of the initial view</li>
+   * <li>a digest of the document text of the initial view</li>
+   * </ul>
+   *
+   * @param aCas the CAS
+   * @return the key, or null if the document can't be identified
+   */
+  public static String getDocumentKey(CAS aCas) {
+    try {
+      CAS view = aCas.getView(CAS.NAME_DEFAULT_SOFA);
+      if (((CASImpl) aCas).isBackwardCompatibleCas()
+              && view.getTypeSystem().getType(Constants.METADATA_KEY) != null) {
+        String docId = ConsumerCasUtils.getStringFeatValue(view, Constants.METADATA_KEY,
+                Constants.DOC_ID);
+        if (docId != null && docId.length() > 0) {
+          return "id:" + docId;
+        }
+      }
+      String uri = view.getSofaDataURI();
+      if (uri != null) {
+        return "uri:" + uri;
+      }
+      String text = view.getDocumentText();
+      if (text != null) {
+        byte[] d = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+        StringBuilder sb = new StringBuilder(TEXT_DIGEST_PREFIX);
+        for (byte b : d) {
+          sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+      }
+    } catch (Exception e) {
+      // no identifiable document in this CAS
+    }
+    return null;
+  }
+
+  private void readKeys(File aFile) throws IOException {
+    if (!aFile.exists()) {
+      return;
+    }
+    // a crash may leave a partially written last line; it has no line terminator and is ignored
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(aFile),
+            StandardCharsets.UTF_8))) {
+      StringBuilder line = new StringBuilder();
+      int c;
+      while ((c = reader.read()) != -1) {
+        if (c == '\n') {
+          if (line.length() > 0) {
+            completed.add(unescape(line));
+          }
+          line.setLength(0);
+        } else {
+          line.append((char) c);
+        }
+      }
+    }
+  }
+
+  /**
+   * Cuts off a partially written last record, left by a crash. Recovery ignores it, but records
+   * appended after it would be merged into it.
+   *
+   * @param aFile the log file
+   * @throws IOException -
+   */
+  private static void truncateTornRecord(File aFile) throws IOException {
+    if (!aFile.exists()) {
+      return;
+    }
+    try (FileChannel ch = FileChannel.open(aFile.toPath(), StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      long size = ch.size();
+      ByteBuffer bb = ByteBuffer.allocate(4096);
+      long end = size;
+      // '\n' is never part of a multi-byte UTF-8 sequence, so scanning bytes backwards is safe
+      while (end > 0) {
+        long start = Math.max(0, end - bb.capacity());
+        bb.clear();
+        bb.limit((int) (end - start));
+        while (bb.hasRemaining() && ch.read(bb, start + bb.position()) >= 0) {
+          // read the whole block
+        }
+        for (int i = bb.position() - 1; i >= 0; i--) {
+          if (bb.get(i) == '\n') {
+            truncate(ch, start + i + 1, size);
+            return;
+          }
+        }
+        end = start;
+      }
+      truncate(ch, 0, size);
+    }
+  }
+
+  private static void truncate(FileChannel ch, long aNewSize, long aSize) throws IOException {
+    if (aNewSize < aSize) {
+      ch.truncate(aNewSize);
+      ch.force(true);
+    }
+  }
+
+  private static FileChannel openForAppend(File aFile) throws IOException {
+    return FileChannel.open(aFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+  }
+
+  /** keys are one per line; escape line terminators and the escape char */
+  private static String escape(String key) {
+    if (key.indexOf('\\') < 0 && key.indexOf('\n') < 0 && key.indexOf('\r') < 0) {
+      return key;
+    }
+    return key.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r");
+  }
+
+  private static String unescape(CharSequence s) {
+    StringBuilder sb = new StringBuilder(s.length());
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '\\' && i + 1 < s.length()) {
+        char n = s.charAt(++i);
+        sb.append(n == 'n' ? '\n' : n == 'r' ? '\r' : n);
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  private void logException(Exception e) {
+    UIMAFramework.getLogger(this.getClass()).logrb(Level.WARNING, this.getClass().getName(),
+            "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE, "UIMA_CPM_checkpoint_log_exception__WARNING",
+            new Object[] { Thread.currentThread().getName(), logFile.getPath(), e.getMessage() });
+  }
+}
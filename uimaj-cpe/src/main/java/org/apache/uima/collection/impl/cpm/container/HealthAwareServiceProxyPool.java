@@ -0,0 +1,351 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl.cpm.container;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.collection.base_cpm.CasProcessor;
+import org.apache.uima.collection.impl.cpm.utils.CPMUtils;
+import org.apache.uima.util.Level;
+
+/**
+ * Pool of proxies to remote CasProcessors which routes each check out to the free proxy with the
+ * lowest average latency, instead of the one which has been free the longest.
+ * <p>
+ * The latency of a proxy is the time from its check out to its check in, averaged with an
+ * exponentially weighted moving average. A proxy whose average becomes much slower than the
+ * fastest other proxy is ejected: it is not checked out for a while, as long as another proxy will
+ * be checked in to wait for. After that it is given one more try, and its average is measured
+ * again from scratch.
+ * <p>
+ * {@link #checkOut()} and {@link #checkIn(CasProcessor)} do not lock; a proxy is claimed with a
+ * compare and set on its in use flag. Threads waiting on this object are notified on each check
+ * in, as for {@link ServiceProxyPool}.
+ */
+public class HealthAwareServiceProxyPool extends ServiceProxyPool {
+
+  /** Weight of the newest sample in the latency average */
+  private static final double EWMA_ALPHA = 0.2;
+
+  /** Number of samples needed before a proxy is compared with the others */
+  private static final int MIN_SAMPLES = 5;
+
+  public static final double DEFAULT_EJECT_FACTOR = 3.0;
+
+  public static final long DEFAULT_EJECT_MILLIS = 10000;
+
+  private static final Slot[] NO_SLOTS = new Slot[0];
+
+  /**
+   * State of one proxy in the pool. The statistics are only written by the thread which has the
+   * proxy checked out, before it releases the in use flag.
+   */
+  private static final class Slot {
+    final CasProcessor casProcessor;
+
+    final AtomicBoolean inUse = new AtomicBoolean();
+
+    /** System.nanoTime() at check out */
+    volatile long checkedOutAt;
+
+    /** average latency in nanoseconds, 0 if no samples yet */
+    volatile double averageLatency;
+
+    volatile int samples;
+
+    /** System.nanoTime() until which the proxy is ejected, 0 if not ejected */
+    volatile long ejectedUntil;
+
+    Slot(CasProcessor aCasProcessor) {
+      casProcessor = aCasProcessor;
+    }
+
+    boolean isEjected(long aNow) {
+      long until = ejectedUntil;
+      return until != 0 && aNow - until < 0;
+    }
+  }
+
+  /** all proxies, copied on write */
+  private volatile Slot[] mSlots = NO_SLOTS;
+
+  private final double mEjectFactor;
+
+  private final long mEjectNanos;
+
+  public HealthAwareServiceProxyPool() {
+    this(DEFAULT_EJECT_FACTOR, DEFAULT_EJECT_MILLIS);
+  }
+
+  /**
+   * @param aEjectFactor
+   *          how many times slower than the fastest other proxy a proxy must be on average to be
+   *          ejected
+   * @param aEjectMillis
+   *          how long a slow proxy is ejected, in milliseconds
+   */
+  public HealthAwareServiceProxyPool(double aEjectFactor, long aEjectMillis) {
+    mEjectFactor = aEjectFactor;
+    mEjectNanos = TimeUnit.MILLISECONDS.toNanos(aEjectMillis);
+  }
+
+  /**
+   * Checks out the free proxy with the lowest average latency. Proxies with no samples yet are
+   * tried first. An ejected proxy is only checked out if no other proxy is in use, so there would
+   * be none to wait for.
+   *
+   * @return a CasProcessor for use by the client, or <code>null</code> if none are available (in
+   *         which case the client may wait on this object in order to be notified when an instance
+   *         becomes available).
+   */
+  @Override
+  public CasProcessor checkOut() {
+    return checkOut(false);
+  }
+
+  private CasProcessor checkOut(boolean aAllowEjected) {
+    if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
+      UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST, this.getClass().getName(),
+              "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
+              "UIMA_CPM_checking_out_cp_from_pool__FINEST",
+              new Object[] { Thread.currentThread().getName() });
+    }
+    Slot[] slots = mSlots;
+    while (true) {
+      long now = System.nanoTime();
+      Slot best = null;
+      double bestLatency = Double.MAX_VALUE;
+      Slot ejected = null;
+      boolean healthyInUse = false;
+      for (Slot slot : slots) {
+        boolean isEjected = slot.isEjected(now);
+        if (slot.inUse.get()) {
+          healthyInUse |= !isEjected;
+        } else if (isEjected) {
+          ejected = slot;
+        } else {
+          // an ejected proxy whose time is up is measured again from scratch
+          double latency = (slot.ejectedUntil != 0) ? 0 : slot.averageLatency;
+          if (latency < bestLatency) {
+            best = slot;
+            bestLatency = latency;
+          }
+        }
+      }
+      if (best == null && ejected != null && (aAllowEjected || !healthyInUse)) {
+        best = ejected;
+      }
+      if (best == null) {
+        if (UIMAFramework.getLogger().isLoggable(Level.WARNING)) {
+          UIMAFramework.getLogger(this.getClass()).logrb(Level.WARNING, this.getClass().getName(),
+                  "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE, "UIMA_CPM_cp_pool_empty__WARNING",
+                  new Object[] { Thread.currentThread().getName(), String.valueOf(slots.length),
+                      String.valueOf(getSize()) });
+        }
+        return null;
+      }
+      if (best.inUse.compareAndSet(false, true)) {
+        if (best.ejectedUntil != 0 && !best.isEjected(now)) {
+          best.ejectedUntil = 0;
+          best.averageLatency = 0;
+          best.samples = 0;
+        }
+        best.checkedOutAt = System.nanoTime();
+        if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
+          UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST, this.getClass().getName(),
+                  "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
+                  "UIMA_CPM_show_cp_pool_size__FINEST",
+                  new Object[] { Thread.currentThread().getName(), String.valueOf(slots.length),
+                      String.valueOf(getSize()) });
+        }
+        return best.casProcessor;
+      }
+      // another thread claimed it first, look again
+    }
+  }
+
+  /**
+   * Checks in a CasProcessor, recording how long it was checked out. Also notifies other Threads
+   * that may be waiting for an available instance.
+   *
+   * @param aResource -
+   *          instance of the CasProcessor to check in
+   */
+  @Override
+  public void checkIn(CasProcessor aResource) {
+    Slot[] slots = mSlots;
+    if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
+      UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST, this.getClass().getName(),
+              "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
+              "UIMA_CPM_checking_in_cp_to_pool__FINEST",
+              new Object[] { Thread.currentThread().getName(), String.valueOf(slots.length),
+                  String.valueOf(getSize()) });
+    }
+    Slot slot = findSlot(slots, aResource);
+    if (slot == null || !slot.inUse.get()) {
+      if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
+        UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST, this.getClass().getName(),
+                "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
+                "UIMA_CPM_checking_in_invalid_cp_to_pool__FINEST",
+                new Object[] { Thread.currentThread().getName() });
+        UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST, this.getClass().getName(),
+                "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
+                (slot == null) ? "UIMA_CPM_cp_not_in_pool__FINEST"
+                        : "UIMA_CPM_cp_already_checked_in__FINEST",
+                new Object[] { Thread.currentThread().getName() });
+      }
+    } else {
+      recordLatency(slots, slot, System.nanoTime() - slot.checkedOutAt);
+      slot.inUse.set(false);
+    }
+    if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
+      UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST, this.getClass().getName(),
+              "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE, "UIMA_CPM_show_cp_pool_size__FINEST",
+              new Object[] { Thread.currentThread().getName(), String.valueOf(slots.length),
+                  String.valueOf(getSize()) });
+    }
+    // Notify any threads waiting on this object
+    synchronized (this) {
+      notifyAll();
+    }
+  }
+
+  private static Slot findSlot(Slot[] aSlots, CasProcessor aCasProcessor) {
+    for (Slot slot : aSlots) {
+      if (slot.casProcessor == aCasProcessor) {
+        return slot;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Adds a sample to the average latency of a checked out proxy, and ejects the proxy if it has
+   * become too slow compared to the fastest healthy other one.
+   */
+  private void recordLatency(Slot[] aSlots, Slot aSlot, long aLatency) {
+    int samples = aSlot.samples;
+    double average = (samples == 0) ? aLatency
+            : aSlot.averageLatency + EWMA_ALPHA * (aLatency - aSlot.averageLatency);
+    aSlot.averageLatency = average;
+    aSlot.samples = ++samples;
+    if (samples < MIN_SAMPLES) {
+      return;
+    }
+    long now = System.nanoTime();
+    double fastest = Double.MAX_VALUE;
+    for (Slot other : aSlots) {
+      if (other != aSlot && other.samples >= MIN_SAMPLES && other.ejectedUntil == 0) {
+        fastest = Math.min(fastest, other.averageLatency);
+      }
+    }
+    if (fastest != Double.MAX_VALUE && average > mEjectFactor * fastest) {
+      aSlot.ejectedUntil = now + mEjectNanos;
+      if (UIMAFramework.getLogger().isLoggable(Level.INFO)) {
+        UIMAFramework.getLogger(this.getClass()).logrb(Level.INFO, this.getClass().getName(),
+                "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE, "UIMA_CPM_cp_ejected_from_pool__INFO",
+                new Object[] { Thread.currentThread().getName(),
+                    String.valueOf(TimeUnit.NANOSECONDS.toMillis((long) average)),
+                    String.valueOf(TimeUnit.NANOSECONDS.toMillis((long) fastest)),
+                    String.valueOf(TimeUnit.NANOSECONDS.toMillis(mEjectNanos)) });
+      }
+    }
+  }
+
+  /**
+   * Checks out a CasProcessor from the pool. If none is currently available, wait for the specified
+   * amount of time for one to be checked in. When the time is up, an ejected proxy is checked out
+   * if it is the only free one.
+   *
+   * @param aTimeout
+   *          the time to wait in milliseconds. A value of &lt;=0 will wait forever.
+   *
+   * @return a CasProcessor for use by the client. Returns <code>null</code> if none are available.
+   */
+  @Override
+  public synchronized CasProcessor checkOut(long aTimeout) {
+    long startTime = System.currentTimeMillis();
+    CasProcessor resource;
+    while ((resource = checkOut()) == null) {
+      try {
+        wait(aTimeout);
+      } catch (InterruptedException e) {
+      }
+      if (aTimeout > 0 && (System.currentTimeMillis() - startTime) >= aTimeout) {
+        // Timeout has expired
+        return checkOut(true);
+      }
+    }
+    return resource;
+  }
+
+  /**
+   * Destroys all CasProcessors in this pool.
+   */
+  @Override
+  public synchronized void destroy() {
+    mSlots = NO_SLOTS;
+  }
+
+  /**
+   * Gets the available size of this pool (the number of free instances at this moment, including
+   * ejected ones).
+   *
+   * @return the available size of this pool
+   */
+  @Override
+  public int getSize() {
+    int size = 0;
+    for (Slot slot : mSlots) {
+      if (!slot.inUse.get()) {
+        size++;
+      }
+    }
+    return size;
+  }
+
+  @Override
+  public synchronized void addCasProcessor(CasProcessor aCasProcessor) {
+    if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
+      UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST, this.getClass().getName(),
+              "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE, "UIMA_CPM_add_cp_to_pool__FINEST",
+              new Object[] { Thread.currentThread().getName(),
+                  aCasProcessor.getProcessingResourceMetaData().getName() });
+    }
+    Slot[] slots = mSlots;
+    Slot[] newSlots = new Slot[slots.length + 1];
+    System.arraycopy(slots, 0, newSlots, 0, slots.length);
+    newSlots[slots.length] = new Slot(aCasProcessor);
+    mSlots = newSlots;
+    if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
+      UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST, this.getClass().getName(),
+              "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE, "UIMA_CPM_show_cp_pool_size__FINEST",
+              new Object[] { Thread.currentThread().getName(), String.valueOf(newSlots.length),
+                  String.valueOf(getSize()) });
+    }
+  }
+
+  @Override
+  public int getAllInstanceCount() {
+    return mSlots.length;
+  }
+}
@@ -19,6 +19,7 @@
 
 package org.apache.uima.collection.impl.cpm.container.deployer;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.ConnectException;
 import java.net.InetAddress;
@@ -95,6 +96,9 @@ public class VinciTAP {
   /** The timeout. */
   private int timeout = 300; // 300 second timeout
 
+  /** Directory for the shared memory transport, null if not used. */
+  private File sharedMemoryDirectory = null;
+
   /** The total cas to frame time. */
   private long totalCasToFrameTime = 0;
 
@@ -166,6 +170,18 @@ public class VinciTAP {
     keys2Drop = aKeys2Drop;
   }
 
+  /**
+   * Pass requests and responses to a service on this host through memory mapped files in the given
+   * directory, instead of through the socket. The service must have been started with
+   * -DVINCI_SHM_DIR set to the same directory.
+   *
+   * @param aDir -
+   *          directory shared with the service, or null to use the socket
+   */
+  public void setSharedMemoryDirectory(File aDir) {
+    sharedMemoryDirectory = aDir;
+  }
+
   /**
    * Connects the proxy to Cas Processor running as a vinci service on a given host and port number.
    * 
@@ -206,6 +222,7 @@ public class VinciTAP {
         conn = new BaseClient(aHost, aPort);
         conn.setSocketTimeout(timeout);
         conn.setRetry(false);
+        conn.setSharedMemoryDirectory(sharedMemoryDirectory);
 
         serviceHost = conn.getHost();
         servicePort = String.valueOf(conn.getPort());
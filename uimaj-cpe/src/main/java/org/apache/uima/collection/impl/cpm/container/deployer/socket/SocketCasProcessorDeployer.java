@@ -32,6 +32,7 @@ import org.apache.uima.collection.impl.base_cpm.container.deployer.CasProcessorD
 import org.apache.uima.collection.impl.cpm.container.CPEFactory;
 import org.apache.uima.collection.impl.cpm.container.CasObjectNetworkCasProcessorImpl;
 import org.apache.uima.collection.impl.cpm.container.CasProcessorConfigurationJAXBImpl;
+import org.apache.uima.collection.impl.cpm.container.HealthAwareServiceProxyPool;
 import org.apache.uima.collection.impl.cpm.container.ProcessingContainer_Impl;
 import org.apache.uima.collection.impl.cpm.container.ServiceProxyPool;
 import org.apache.uima.collection.impl.cpm.engine.CPMEngine;
@@ -129,7 +130,7 @@ public class SocketCasProcessorDeployer implements CasProcessorDeployer {
       // Launch one instance of fenced CasProcessor per pipeline -Adam
       serviceUrls = controller.deploy(name, aCasProcessorList.size());
 
-      ServiceProxyPool casProcessorPool = new ServiceProxyPool();
+      ServiceProxyPool casProcessorPool = new HealthAwareServiceProxyPool();
       // Deploy one Cas Processor at a time in sequential order
       for (int i = 0; i < aCasProcessorList.size(); i++) {
         cProcessor = (CasProcessor) aCasProcessorList.get(i);
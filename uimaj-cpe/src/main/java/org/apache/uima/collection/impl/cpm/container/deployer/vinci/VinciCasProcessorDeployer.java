@@ -19,6 +19,7 @@
 
 package org.apache.uima.collection.impl.cpm.container.deployer.vinci;
 
+import java.io.File;
 import java.net.ConnectException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -38,6 +39,7 @@ import org.apache.uima.collection.impl.base_cpm.container.deployer.CasProcessorD
 import org.apache.uima.collection.impl.cpm.Constants;
 import org.apache.uima.collection.impl.cpm.container.CPEFactory;
 import org.apache.uima.collection.impl.cpm.container.CasProcessorConfigurationJAXBImpl;
+import org.apache.uima.collection.impl.cpm.container.HealthAwareServiceProxyPool;
 import org.apache.uima.collection.impl.cpm.container.NetworkCasProcessorImpl;
 import org.apache.uima.collection.impl.cpm.container.ProcessingContainer_Impl;
 import org.apache.uima.collection.impl.cpm.container.ServiceProxyPool;
@@ -62,6 +64,7 @@ import org.apache.uima.util.Level;
 import org.apache.uima.util.XMLInputSource;
 import org.apache.vinci.transport.ServiceDownException;
 import org.apache.vinci.transport.ServiceException;
+import org.apache.vinci.transport.SharedMemoryTransport;
 
 
 /**
@@ -149,6 +152,9 @@ public class VinciCasProcessorDeployer implements CasProcessorDeployer {
   /** The current service list. */
   private ArrayList currentServiceList = null;
 
+  /** Directory shared with locally launched services for passing CASes, null if not used. */
+  private File sharedMemoryDirectory = null;
+
   /**
    * Instantiaes the class and gives it access to CPE configuration.
    *
@@ -253,7 +259,7 @@ public class VinciCasProcessorDeployer implements CasProcessorDeployer {
           // Create a pool to hold instances of CasProcessors. Instances are managed by a container
           // through
           // getCasProcessor() and releaseProcessor() methods.
-          casProcessorPool = new ServiceProxyPool();
+          casProcessorPool = new HealthAwareServiceProxyPool();
           // Create CasProcess Configuration holding info defined in the CPE descriptor
           casProcessorConfig = new CasProcessorConfigurationJAXBImpl(casProcessorType, cpeFactory.getResourceManager());
 
@@ -436,6 +442,43 @@ public class VinciCasProcessorDeployer implements CasProcessorDeployer {
     }
   }
 
+  /**
+   * If the CPE was started with -DVINCI_SHM_DIR, pass the same setting to a local java service, right
+   * after its -DVNS_PORT argument, so that requests and responses go through memory mapped files in
+   * that directory instead of through the socket. Commands without a -DVNS_PORT argument are left
+   * alone, and their services use the socket.
+   *
+   * @param cmd -
+   *          the service's command line
+   * @return the command line to use
+   */
+  private String[] addSharedMemoryDirectory(String[] cmd) {
+    String dir = System.getProperty(SharedMemoryTransport.SHM_DIR_PROPERTY);
+    if (dir == null || cmd == null) {
+      return cmd;
+    }
+    String shmArg = "-D" + SharedMemoryTransport.SHM_DIR_PROPERTY + "=";
+    List<String> newCmd = new ArrayList<>(cmd.length + 1);
+    boolean isAdded = false;
+    for (String arg : cmd) {
+      if (arg != null && arg.startsWith(shmArg)) {
+        // already there, from an earlier launch
+        sharedMemoryDirectory = new File(arg.substring(shmArg.length()));
+        return cmd;
+      }
+      newCmd.add(arg);
+      if (!isAdded && arg != null && arg.indexOf("-DVNS_PORT") > -1) {
+        newCmd.add(shmArg + dir);
+        isAdded = true;
+      }
+    }
+    if (!isAdded) {
+      return cmd;
+    }
+    sharedMemoryDirectory = new File(dir);
+    return newCmd.toArray(new String[newCmd.size()]);
+  }
+
   /**
    * Retrieve the metadata from the service and add it to the container.
    *
@@ -481,7 +524,7 @@ public class VinciCasProcessorDeployer implements CasProcessorDeployer {
           throws CasProcessorDeploymentException {
     try {
       Execute exec = casProcessorConfig.getExecSpec();
-      String cmd[] = exec.getCmdLine();
+      String cmd[] = addSharedMemoryDirectory(exec.getCmdLine());
 
       String[] execCommand = new String[3];
       if (System.getProperty("os.name").equalsIgnoreCase("linux")) {
@@ -1671,6 +1714,7 @@ public class VinciCasProcessorDeployer implements CasProcessorDeployer {
             && Constants.DEPLOYMENT_LOCAL.equalsIgnoreCase(aCasProcessorConfig.getDeploymentType())) {
       vnsHost = "localhost"; // default for local deployment
       vnsPort = ""; // intialize
+      tap.setSharedMemoryDirectory(sharedMemoryDirectory);
       try {
         vnsPort = String.valueOf(vns.getPort());
       } catch (Exception e) {
@@ -32,11 +32,13 @@ import org.apache.uima.cas_data.CasData;
 import org.apache.uima.collection.CasInitializer;
 import org.apache.uima.collection.CollectionException;
 import org.apache.uima.collection.CollectionReader;
+import org.apache.uima.collection.PartitionedCollectionReader;
 import org.apache.uima.collection.StatusCallbackListener;
 import org.apache.uima.collection.base_cpm.BaseCollectionReader;
 import org.apache.uima.collection.base_cpm.CasDataCollectionReader;
 import org.apache.uima.collection.base_cpm.SkipCasException;
 import org.apache.uima.collection.impl.EntityProcessStatusImpl;
+import org.apache.uima.collection.impl.cpm.CheckpointLog;
 import org.apache.uima.collection.impl.cpm.Constants;
 import org.apache.uima.collection.impl.cpm.utils.CPMUtils;
 import org.apache.uima.collection.impl.cpm.utils.ChunkMetadata;
@@ -120,6 +122,9 @@ public class ArtifactProducer extends Thread {
   /** The global shared process trace. */
   private ProcessTrace globalSharedProcessTrace = null;
 
+  /** The stage reading a PartitionedCollectionReader, null for other readers. */
+  private PartitionedReaderStage partitionedStage = null;
+
   /**
    * Instantiates and initializes this instance.
    *
@@ -401,6 +406,26 @@ public class ArtifactProducer extends Thread {
     }
     boolean eventStarted = false;
 
+    if (partitionedStage != null) {
+      // The fetcher and decoder threads of the stage call the CollectionReader, one CAS at a time
+      PartitionedReaderStage.Decoded decoded = partitionedStage.next();
+      if (timer != null) {
+        totalFetchTime += (timer.getTimeInMillis() - start);
+      }
+      if (decoded == null) {
+        return null;
+      }
+      casList = new CAS[] { decoded.cas };
+      decoded.rethrow();
+      casObjects = casList;
+      setLastDocId(casList[0]);
+      if (cpmStatTable != null) {
+        cpmStatTable.put("COLLECTION_READER_PROGRESS", collectionReader.getProgress());
+        cpmStatTable.put("COLLECTION_READER_TIME", totalFetchTime);
+      }
+      return casObjects;
+    }
+
     // CasObject based CollectionReader does not support returning more than
     // one CAS at a time. So
     // fake support for this by calling its getNext() until the casList is
@@ -570,9 +595,7 @@ public class ArtifactProducer extends Thread {
                       "Process", "failure");
 
             }
-            synchronized (globalSharedProcessTrace) {
-              globalSharedProcessTrace.aggregate(localTrace);
-            }
+            CPMUtils.aggregate(globalSharedProcessTrace, localTrace);
 
           }
 
@@ -580,17 +603,7 @@ public class ArtifactProducer extends Thread {
       }
       casObjects = casList;
       if (casObjects != null && casObjects.length > 0) {
-        try {
-          if (((CASImpl) casList[0]).isBackwardCompatibleCas()) {
-            CAS view = casList[0].getView(CAS.NAME_DEFAULT_SOFA);
-            lastDocId[0] = ConsumerCasUtils.getStringFeatValue(view, Constants.METADATA_KEY,
-                    Constants.DOC_ID);
-          } else {
-            lastDocId[0] = "";
-          }
-        } catch (Exception e) {
-          lastDocId[0] = "";
-        }
+        setLastDocId(casList[0]);
       }
     } else {
       // Retrieve next set of CAS'es. fetchSize is hint to the
@@ -621,9 +634,7 @@ public class ArtifactProducer extends Thread {
                   "Process", "success");
 
         }
-        synchronized (globalSharedProcessTrace) {
-          globalSharedProcessTrace.aggregate(localTrace);
-        }
+        CPMUtils.aggregate(globalSharedProcessTrace, localTrace);
 
       }
       if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
@@ -654,6 +665,78 @@ public class ArtifactProducer extends Thread {
     return casObjects;
   }
 
+  /**
+   * Records the CPM doc id of a CAS returned by the CollectionReader as the last doc id.
+   *
+   * @param aCas -
+   *          a CAS filled by the CollectionReader
+   */
+  private void setLastDocId(CAS aCas) {
+    try {
+      if (((CASImpl) aCas).isBackwardCompatibleCas()) {
+        CAS view = aCas.getView(CAS.NAME_DEFAULT_SOFA);
+        lastDocId[0] = ConsumerCasUtils.getStringFeatValue(view, Constants.METADATA_KEY,
+                Constants.DOC_ID);
+      } else {
+        lastDocId[0] = "";
+      }
+    } catch (Exception e) {
+      lastDocId[0] = "";
+    }
+  }
+
+  /**
+   * Checks if the CollectionReader has more entities. For a PartitionedCollectionReader this waits
+   * for the next CAS decoded by the stage.
+   *
+   * @return true if there are more entities
+   * @throws IOException -
+   *           error while reading corpus
+   * @throws CollectionException -
+   */
+  private boolean hasNext() throws IOException, CollectionException {
+    if (partitionedStage != null) {
+      return partitionedStage.hasNext();
+    }
+    return collectionReader.hasNext();
+  }
+
+  /**
+   * Releases CASes holding documents recorded as completed in the checkpoint completion log by a
+   * previous run, notifying the listeners with a SkipCasException. The CASes are only released if
+   * every CAS in the list is completed, so that partially completed lists are reprocessed as a
+   * whole.
+   *
+   * @param aCasList -
+   *          list of CASes read from the Collection Reader
+   * @return true if the CASes were released and should not be processed
+   */
+  private boolean skipCompleted(CAS[] aCasList) {
+    CheckpointLog completionLog = cpm.getCompletionLog();
+    if (completionLog == null || completionLog.getRecoveredCount() == 0) {
+      return false;
+    }
+    String[] keys = new String[aCasList.length];
+    for (int i = 0; i < aCasList.length && aCasList[i] != null; i++) {
+      keys[i] = CheckpointLog.getDocumentKey(aCasList[i]);
+      if (!completionLog.isCompletedInPreviousRun(keys[i])) {
+        return false;
+      }
+    }
+    for (int i = 0; i < aCasList.length && aCasList[i] != null; i++) {
+      if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
+        UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST, this.getClass().getName(),
+                "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
+                "UIMA_CPM_skip_completed_document__FINEST",
+                new Object[] { Thread.currentThread().getName(), keys[i] });
+      }
+      notifyListeners(aCasList[i], new ResourceProcessException(new SkipCasException(
+              "Dropping CAS completed in a previous run. Document Key::" + keys[i])));
+      casPool.releaseCas(aCasList[i]);
+    }
+    return true;
+  }
+
   /**
    * Runs this thread until the CPM halts or the CollectionReader has no more entities. It
    * continuously fills the work queue with entities returned by the CollectionReader.
@@ -687,6 +770,11 @@ public class ArtifactProducer extends Thread {
       return;
     }
     isRunning = true;
+    if (collectionReader instanceof PartitionedCollectionReader && casPool != null) {
+      partitionedStage = new PartitionedReaderStage(cpm, casPool,
+              (PartitionedCollectionReader<?>) collectionReader, globalSharedProcessTrace);
+      partitionedStage.start();
+    }
     ProcessTrace localTrace = new ProcessTrace_impl(cpm.getPerformanceTuningSettings());
     while (cpm.isRunning()) {
 
@@ -728,7 +816,7 @@ public class ArtifactProducer extends Thread {
         localTrace.startEvent(collectionReader.getProcessingResourceMetaData().getName(),
                 "Process", "");
         crEventCompleted = false;
-        if (collectionReader.hasNext()) {
+        if (hasNext()) {
           localTrace.endEvent(collectionReader.getProcessingResourceMetaData().getName(),
                   "Process", "success");
           crEventCompleted = true;
@@ -762,6 +850,9 @@ public class ArtifactProducer extends Thread {
               if (releasedCas) {
                 continue;
               }
+              if (skipCompleted((CAS[]) casObjectList)) {
+                continue;
+              }
             }
             if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
               UIMAFramework.getLogger(this.getClass()).logrb(
@@ -872,9 +963,7 @@ public class ArtifactProducer extends Thread {
         }
       } finally {
         // Clear all events
-        synchronized (globalSharedProcessTrace) {
-          globalSharedProcessTrace.aggregate(localTrace);
-        }
+        CPMUtils.aggregate(globalSharedProcessTrace, localTrace);
         localTrace.clear();
       }
       if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
@@ -891,6 +980,10 @@ public class ArtifactProducer extends Thread {
               "UIMA_CPM_show_cpm_running_status__FINEST",
               new Object[] { Thread.currentThread().getName(), String.valueOf(cpm.isRunning()) });
     }
+    if (partitionedStage != null) {
+      // release CASes read ahead of the end of processing
+      partitionedStage.stop();
+    }
     // Done with processing. Create a "special" EOF token and place it in
     // the queue.
     // Consumers of the queue must interpret this token as End Of File
@@ -59,6 +59,7 @@ import org.apache.uima.collection.impl.base_cpm.container.ProcessingContainer;
 import org.apache.uima.collection.impl.base_cpm.container.deployer.CasProcessorDeployer;
 import org.apache.uima.collection.impl.base_cpm.container.deployer.CasProcessorDeploymentException;
 import org.apache.uima.collection.impl.cpm.CheckpointData;
+import org.apache.uima.collection.impl.cpm.CheckpointLog;
 import org.apache.uima.collection.impl.cpm.Constants;
 import org.apache.uima.collection.impl.cpm.container.CPEFactory;
 import org.apache.uima.collection.impl.cpm.container.deployer.DeployFactory;
@@ -242,6 +243,9 @@ public class CPMEngine extends Thread {
   /** The checkpoint data. */
   private CheckpointData checkpointData = null;
 
+  /** The log of completed documents, null if checkpointing is not configured. */
+  private CheckpointLog completionLog = null;
+
   /** The mixed cas processor type support. */
   private boolean mixedCasProcessorTypeSupport = false;
 
@@ -648,6 +652,26 @@ public class CPMEngine extends Thread {
 
   }
 
+  /**
+   * Sets the log of completed documents. Completed documents are recorded in it, and documents
+   * recorded in it by a previous run are skipped.
+   *
+   * @param aCompletionLog -
+   *          the (opened) log of completed documents
+   */
+  public void setCompletionLog(CheckpointLog aCompletionLog) {
+    completionLog = aCompletionLog;
+  }
+
+  /**
+   * Returns the log of completed documents.
+   *
+   * @return the log of completed documents, or null if checkpointing is not configured
+   */
+  public CheckpointLog getCompletionLog() {
+    return completionLog;
+  }
+
   /**
    * Returns if the CPE was killed hard. Soft kill allows the CPE to finish processing all
    * in-transit CASes. Hard kill causes the CPM to stop processing and to throw away all unprocessed
@@ -3509,12 +3533,10 @@ public class CPMEngine extends Thread {
         }
 
         // Update processing trace counts and timers
-        synchronized (procTr) {
-          long st = System.currentTimeMillis();
-          procTr.aggregate(pTrTemp);
-          pTrTemp.clear();
-          aggTime += (System.currentTimeMillis() - st);
-        }
+        long st = System.currentTimeMillis();
+        CPMUtils.aggregate(procTr, pTrTemp);
+        pTrTemp.clear();
+        aggTime += (System.currentTimeMillis() - st);
       }
     } // while
     tearDownCPE();
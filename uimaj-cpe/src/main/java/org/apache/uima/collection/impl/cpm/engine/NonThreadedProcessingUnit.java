@@ -43,6 +43,7 @@ import org.apache.uima.collection.impl.EntityProcessStatusImpl;
 import org.apache.uima.collection.impl.base_cpm.container.ProcessingContainer;
 import org.apache.uima.collection.impl.base_cpm.container.ServiceConnectionException;
 import org.apache.uima.collection.impl.base_cpm.container.deployer.CasProcessorDeployer;
+import org.apache.uima.collection.impl.cpm.CheckpointLog;
 import org.apache.uima.collection.impl.cpm.Constants;
 import org.apache.uima.collection.impl.cpm.container.CasObjectNetworkCasProcessorImpl;
 import org.apache.uima.collection.impl.cpm.container.NetworkCasProcessorImpl;
@@ -629,6 +630,27 @@ public class NonThreadedProcessingUnit {
     casPool = aPool;
   }
 
+  /**
+   * Appends the keys of fully processed CASes to the checkpoint completion log, if there is one,
+   * so that they are skipped after a restart.
+   *
+   * @param aCasObjectList -
+   *          list of processed CASes
+   * @param isCasObject -
+   *          true if the list contains CAS instances
+   */
+  private void recordCompleted(Object[] aCasObjectList, boolean isCasObject) {
+    CheckpointLog completionLog = cpm.getCompletionLog();
+    if (completionLog == null || !isCasObject || aCasObjectList == null) {
+      return;
+    }
+    for (Object cas : aCasObjectList) {
+      if (cas instanceof CAS) {
+        completionLog.recordCompleted(CheckpointLog.getDocumentKey((CAS) cas));
+      }
+    }
+  }
+
   /**
    * Post analysis.
    *
@@ -658,6 +680,7 @@ public class NonThreadedProcessingUnit {
 
         EntityProcessStatus aEntityProcStatus = new EntityProcessStatusImpl(aProcessTr);
         notifyListeners(aCasObjectList, isCasObject, aEntityProcStatus);
+        recordCompleted(aCasObjectList, isCasObject);
         threadState = 2014;
         if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
           UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST, this.getClass().getName(),
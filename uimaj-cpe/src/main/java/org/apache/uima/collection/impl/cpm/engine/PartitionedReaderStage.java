@@ -0,0 +1,489 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl.cpm.engine;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.UimaContextAdmin;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.impl.CASImpl;
+import org.apache.uima.collection.CasInitializer;
+import org.apache.uima.collection.CollectionException;
+import org.apache.uima.collection.PartitionedCollectionReader;
+import org.apache.uima.collection.impl.cpm.utils.CPMUtils;
+import org.apache.uima.resource.metadata.Capability;
+import org.apache.uima.resource.metadata.ConfigurationParameterSettings;
+import org.apache.uima.util.Level;
+import org.apache.uima.util.ProcessTrace;
+import org.apache.uima.util.impl.ProcessTrace_impl;
+
+/**
+ * Reader side stage of the CPM for a {@link PartitionedCollectionReader}. One thread per
+ * partition fetches artifacts ahead of processing into a bounded buffer, and a number of decoder
+ * threads take CASes from the CAS pool and decode the fetched artifacts into them. The
+ * {@link ArtifactProducer} takes the decoded CASes with {@link #hasNext()} and {@link #next()},
+ * in place of calling the Collection Reader's <code>hasNext()</code> and <code>getNext()</code>.
+ *
+ * The sizes are taken from the optional configuration parameters of the Collection Reader:
+ * <ul>
+ * <li><code>prefetchSize</code> - the number of fetched artifacts buffered ahead of decoding,
+ * by default 2 per partition</li>
+ * <li><code>decoderThreads</code> - the number of decoder threads, by default the number of
+ * partitions, but no more than the number of processors</li>
+ * </ul>
+ * At most one decoded CAS per decoder thread is buffered, since CASes are taken from the pool
+ * shared with the processing pipelines.
+ */
+public class PartitionedReaderStage {
+
+  /** Name of the Collection Reader parameter setting the size of the prefetch buffer. */
+  public static final String PARAM_PREFETCH_SIZE = "prefetchSize";
+
+  /** Name of the Collection Reader parameter setting the number of decoder threads. */
+  public static final String PARAM_DECODER_THREADS = "decoderThreads";
+
+  /** How long blocked threads wait before checking if the CPM is still running. */
+  private static final long POLL_MILLIS = 100;
+
+  /** Marks the end of the fetched artifacts and of the decoded CASes. */
+  private static final Object END = new Object();
+
+  /**
+   * A decoded CAS, or the failure to fetch or decode an artifact.
+   */
+  static class Decoded {
+
+    /** The CAS, null if fetching failed. */
+    final CAS cas;
+
+    /** The exception, null if the CAS was decoded. */
+    final Exception exception;
+
+    Decoded(CAS aCas, Exception aException) {
+      cas = aCas;
+      exception = aException;
+    }
+
+    /**
+     * Rethrows the exception of a failed fetch or decode.
+     *
+     * @throws IOException if fetching or decoding failed with an IOException
+     * @throws CollectionException if fetching or decoding failed otherwise
+     */
+    void rethrow() throws IOException, CollectionException {
+      if (exception instanceof IOException) {
+        throw (IOException) exception;
+      }
+      if (exception instanceof CollectionException) {
+        throw (CollectionException) exception;
+      }
+      if (exception != null) {
+        throw new CollectionException(exception);
+      }
+    }
+  }
+
+  /** The cpm. */
+  private final CPMEngine cpm;
+
+  /** The cas pool. */
+  private final CPECasPool casPool;
+
+  /** The collection reader. */
+  private final PartitionedCollectionReader<Object> reader;
+
+  /** The name of the collection reader, for the process trace events. */
+  private final String readerName;
+
+  /** The global shared process trace. */
+  private final ProcessTrace globalSharedProcessTrace;
+
+  /** True if the collection reader is given the initial view instead of the base CAS. */
+  private final boolean sofaUnaware;
+
+  /** Fetched artifacts, failed fetches as Decoded, and one END per decoder. */
+  private final BlockingQueue<Object> fetched;
+
+  /** Decoded CASes and failures as Decoded, followed by END. */
+  private final BlockingQueue<Object> decoded;
+
+  /** The fetcher threads, one per partition. */
+  private final Thread[] fetchers;
+
+  /** The decoder threads. */
+  private final Thread[] decoders;
+
+  /** The number of fetchers not done. */
+  private final AtomicInteger activeFetchers;
+
+  /** The number of decoders not done. */
+  private final AtomicInteger activeDecoders;
+
+  /** Set when the stage is stopped. */
+  private volatile boolean stopped = false;
+
+  /** The entry taken from the decoded queue by hasNext(), not yet returned by next(). */
+  private Object head = null;
+
+  /**
+   * Creates the stage, sizing it from the number of partitions of the Collection Reader and its
+   * optional configuration parameters.
+   *
+   * @param aCpm the cpm
+   * @param aCasPool the pool to take the CASes to decode into from
+   * @param aReader the collection reader
+   * @param aProcessTrace the shared process trace, null for none
+   */
+  @SuppressWarnings("unchecked")
+  public PartitionedReaderStage(CPMEngine aCpm, CPECasPool aCasPool,
+          PartitionedCollectionReader<?> aReader, ProcessTrace aProcessTrace) {
+    cpm = aCpm;
+    casPool = aCasPool;
+    reader = (PartitionedCollectionReader<Object>) aReader;
+    readerName = reader.getProcessingResourceMetaData().getName();
+    globalSharedProcessTrace = aProcessTrace;
+    sofaUnaware = isSofaUnaware();
+
+    int partitions = Math.max(1, reader.getNumberOfPartitions());
+    ConfigurationParameterSettings settings = reader.getProcessingResourceMetaData()
+            .getConfigurationParameterSettings();
+    int prefetchSize = getIntSetting(settings, PARAM_PREFETCH_SIZE, 2 * partitions);
+    int decoderThreads = getIntSetting(settings, PARAM_DECODER_THREADS,
+            Math.min(partitions, Runtime.getRuntime().availableProcessors()));
+
+    fetched = new ArrayBlockingQueue<>(prefetchSize);
+    decoded = new ArrayBlockingQueue<>(decoderThreads);
+    fetchers = new Thread[partitions];
+    decoders = new Thread[decoderThreads];
+    activeFetchers = new AtomicInteger(partitions);
+    activeDecoders = new AtomicInteger(decoderThreads);
+  }
+
+  /**
+   * Starts the fetcher and decoder threads, in the thread group of the calling thread.
+   */
+  public void start() {
+    ThreadGroup group = Thread.currentThread().getThreadGroup();
+    if (UIMAFramework.getLogger().isLoggable(Level.CONFIG)) {
+      UIMAFramework.getLogger(this.getClass()).logrb(Level.CONFIG, this.getClass().getName(),
+              "initialize", CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
+              "UIMA_CPM_start_partitioned_reader__CONFIG",
+              new Object[] { Thread.currentThread().getName(), String.valueOf(fetchers.length),
+                  String.valueOf(fetched.remainingCapacity()),
+                  String.valueOf(decoders.length) });
+    }
+    for (int i = 0; i < decoders.length; i++) {
+      decoders[i] = new Thread(group, this::decodeAll,
+              "[CollectionReader Decoder#" + (i + 1) + " Thread]::");
+      decoders[i].setDaemon(true);
+      decoders[i].start();
+    }
+    for (int i = 0; i < fetchers.length; i++) {
+      final int partition = i;
+      fetchers[i] = new Thread(group, () -> fetchAll(partition),
+              "[CollectionReader Partition#" + (i + 1) + " Thread]::");
+      fetchers[i].setDaemon(true);
+      fetchers[i].start();
+    }
+  }
+
+  /**
+   * Waits until a decoded CAS, or a failure, is available. Called by the one consuming thread only.
+   *
+   * @return true if {@link #next()} will return an entry, false if all partitions have been read,
+   *         or the CPM or this stage has stopped
+   */
+  public boolean hasNext() {
+    while (head == null) {
+      if (stopped || !cpm.isRunning()) {
+        return false;
+      }
+      try {
+        head = decoded.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt(); // propagate interrupted state upwards.
+        return false;
+      }
+    }
+    return head != END;
+  }
+
+  /**
+   * Takes the next decoded CAS, or failure. Called by the one consuming thread only.
+   *
+   * @return the next decoded CAS or failure, or null if there is none, see {@link #hasNext()}
+   */
+  Decoded next() {
+    if (!hasNext()) {
+      return null;
+    }
+    Decoded d = (Decoded) head;
+    head = null;
+    return d;
+  }
+
+  /**
+   * Stops the fetcher and decoder threads and releases the decoded CASes which have not been
+   * taken back to the pool.
+   */
+  public void stop() {
+    stopped = true;
+    for (Thread t : fetchers) {
+      if (t != null) {
+        t.interrupt();
+      }
+    }
+    for (Thread t : decoders) {
+      if (t != null) {
+        t.interrupt();
+      }
+    }
+    for (Thread t : decoders) {
+      if (t != null) {
+        try {
+          t.join(POLL_MILLIS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt(); // propagate interrupted state upwards.
+          break;
+        }
+      }
+    }
+    if (head instanceof Decoded) {
+      release((Decoded) head);
+    }
+    head = null;
+    releaseDecoded();
+  }
+
+  /**
+   * Runs in a fetcher thread, fetching the artifacts of one partition into the prefetch buffer.
+   *
+   * @param aPartition the partition
+   */
+  private void fetchAll(int aPartition) {
+    try {
+      while (!stopped && cpm.isRunning()) {
+        try {
+          if (!reader.hasNext(aPartition)) {
+            break;
+          }
+        } catch (Exception e) {
+          // the partition can not be read any further
+          put(fetched, new Decoded(null, e));
+          break;
+        }
+        Object artifact;
+        try {
+          artifact = reader.fetchNext(aPartition);
+          if (artifact == null) {
+            // can't be queued, report it instead of losing the rest of the partition
+            artifact = new Decoded(null, new CollectionException(CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
+                    "UIMA_CPM_EXP_null_artifact__WARNING",
+                    new Object[] { Thread.currentThread().getName(), readerName,
+                        String.valueOf(aPartition) }));
+          }
+        } catch (Exception e) {
+          artifact = new Decoded(null, e);
+        }
+        if (!put(fetched, artifact)) {
+          break;
+        }
+      }
+    } finally {
+      if (activeFetchers.decrementAndGet() == 0) {
+        for (int i = 0; i < decoders.length; i++) {
+          put(fetched, END);
+        }
+      }
+    }
+  }
+
+  /**
+   * Runs in a decoder thread, decoding fetched artifacts into CASes taken from the pool.
+   */
+  private void decodeAll() {
+    try {
+      while (!stopped && cpm.isRunning()) {
+        Object artifact = fetched.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (artifact == null) {
+          continue;
+        }
+        if (artifact == END) {
+          break;
+        }
+        if (artifact instanceof Decoded) {
+          // a failed fetch, passed on to the consumer
+          put(decoded, artifact);
+          continue;
+        }
+        CAS cas = null;
+        while (cas == null && !stopped && cpm.isRunning()) {
+          cas = casPool.getCas(POLL_MILLIS);
+        }
+        if (cas == null) {
+          break;
+        }
+        Decoded d = decode(artifact, cas);
+        if (!put(decoded, d)) {
+          release(d);
+          break;
+        }
+        if (stopped) {
+          // the stop may have missed this CAS
+          releaseDecoded();
+        }
+      }
+    } catch (InterruptedException e) {
+      // stopped
+      Thread.currentThread().interrupt();
+    } finally {
+      if (activeDecoders.decrementAndGet() == 0) {
+        put(decoded, END);
+      }
+    }
+  }
+
+  /**
+   * Decodes an artifact into a CAS, giving the Collection Reader the view it would get in
+   * getNext().
+   *
+   * @param aArtifact the fetched artifact
+   * @param aCas the CAS to decode into, as taken from the pool
+   * @return the decoded CAS, or the failure to decode it
+   */
+  private Decoded decode(Object aArtifact, CAS aCas) {
+    ProcessTrace localTrace = new ProcessTrace_impl(cpm.getPerformanceTuningSettings());
+    boolean success = false;
+    UimaContextAdmin context = reader.getUimaContextAdmin();
+    aCas.setCurrentComponentInfo(context.getComponentInfo());
+    localTrace.startEvent(readerName, "Process", "");
+    try {
+      if (sofaUnaware) {
+        String absSofaName = context.getComponentInfo().mapToSofaID(CAS.NAME_DEFAULT_SOFA);
+        if (!CAS.NAME_DEFAULT_SOFA.equals(absSofaName)) {
+          aCas.createView(CAS.NAME_DEFAULT_SOFA);
+        }
+        reader.decode(aArtifact, aCas.getView(CAS.NAME_DEFAULT_SOFA));
+      } else {
+        reader.decode(aArtifact, ((CASImpl) aCas).getBaseCAS());
+      }
+      success = true;
+      return new Decoded(aCas, null);
+    } catch (Exception e) {
+      return new Decoded(aCas, e);
+    } finally {
+      aCas.setCurrentComponentInfo(null);
+      localTrace.endEvent(readerName, "Process", success ? "success" : "failure");
+      if (globalSharedProcessTrace != null) {
+        CPMUtils.aggregate(globalSharedProcessTrace, localTrace);
+      }
+    }
+  }
+
+  /**
+   * Puts an entry in a queue, waiting for room while the stage and the CPM are running.
+   *
+   * @param aQueue the queue
+   * @param aEntry the entry
+   * @return true if the entry was put, false if the stage or CPM stopped first
+   */
+  private boolean put(BlockingQueue<Object> aQueue, Object aEntry) {
+    try {
+      while (!stopped && cpm.isRunning()) {
+        if (aQueue.offer(aEntry, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      }
+    } catch (InterruptedException e) {
+      // stopped
+      Thread.currentThread().interrupt();
+    }
+    return false;
+  }
+
+  /**
+   * Releases the CASes in the decoded queue to the pool.
+   */
+  private void releaseDecoded() {
+    Object entry;
+    while ((entry = decoded.poll()) != null) {
+      if (entry == END) {
+        // keep the end for hasNext()
+        decoded.offer(END);
+        break;
+      }
+      release((Decoded) entry);
+    }
+  }
+
+  /**
+   * Releases the CAS of a decoded entry to the pool.
+   *
+   * @param aDecoded the entry
+   */
+  private void release(Decoded aDecoded) {
+    if (aDecoded.cas != null) {
+      casPool.releaseCas(aDecoded.cas);
+    }
+  }
+
+  /**
+   * Checks if neither the Collection Reader nor its CAS Initializer declare output sofas, as in
+   * {@link ArtifactProducer}.
+   *
+   * @return true if the Collection Reader is sofa unaware
+   */
+  @SuppressWarnings("deprecation")
+  private boolean isSofaUnaware() {
+    Capability[] capabilities;
+    CasInitializer casIni = reader.getCasInitializer();
+    if (casIni != null) {
+      capabilities = casIni.getProcessingResourceMetaData().getCapabilities();
+    } else {
+      capabilities = reader.getProcessingResourceMetaData().getCapabilities();
+    }
+    for (int j = 0; j < capabilities.length; j++) {
+      if (capabilities[j].getOutputSofas().length > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gets an integer parameter setting.
+   *
+   * @param aSettings the parameter settings
+   * @param aName the parameter name
+   * @param aDefault the value if the parameter is not set
+   * @return the value, at least 1
+   */
+  private static int getIntSetting(ConfigurationParameterSettings aSettings, String aName,
+          int aDefault) {
+    Object value = (aSettings == null) ? null : aSettings.getParameterValue(aName);
+    int n = (value instanceof Integer) ? (Integer) value : aDefault;
+    return Math.max(1, n);
+  }
+}
@@ -45,6 +45,7 @@ import org.apache.uima.collection.impl.base_cpm.container.KillPipelineException;
 import org.apache.uima.collection.impl.base_cpm.container.ProcessingContainer;
 import org.apache.uima.collection.impl.base_cpm.container.ServiceConnectionException;
 import org.apache.uima.collection.impl.base_cpm.container.deployer.CasProcessorDeployer;
+import org.apache.uima.collection.impl.cpm.CheckpointLog;
 import org.apache.uima.collection.impl.cpm.Constants;
 import org.apache.uima.collection.impl.cpm.container.CasObjectNetworkCasProcessorImpl;
 import org.apache.uima.collection.impl.cpm.container.NetworkCasProcessorImpl;
@@ -623,9 +624,7 @@ public class ProcessingUnit extends Thread {
           CPMUtils.dumpEvents(pT);
         }
         // Update processing trace counts and timers
-        synchronized (processingUnitProcessTrace) {
-          processingUnitProcessTrace.aggregate(pT);
-        }
+        CPMUtils.aggregate(processingUnitProcessTrace, pT);
       } catch (ResourceProcessException e) {
         maybeLogSevereException(e);
         if (e.getCause() instanceof KillPipelineException) {
@@ -705,9 +704,7 @@ public class ProcessingUnit extends Thread {
             maybeLogFinest("UIMA_CPM_call_processNext__FINEST");
             processNext((Object[]) artifact, pT);
             maybeLogFinest("UIMA_CPM_call_processNext_done__FINEST");
-            synchronized (processingUnitProcessTrace) {
-              processingUnitProcessTrace.aggregate(pT);
-            }
+            CPMUtils.aggregate(processingUnitProcessTrace, pT);
             return true;
           }
         }
@@ -967,6 +964,7 @@ public class ProcessingUnit extends Thread {
             threadState = 2007;
 
             notifyListeners(aCasObjectList, isCasObject, aEntityProcStatus);
+            recordCompleted(aCasObjectList, isCasObject);
             if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
               logFinest("UIMA_CPM_done_notify_listeners__FINEST");
               logFinest("UIMA_CPM_releasing_cases__FINEST",
@@ -1259,6 +1257,27 @@ public class ProcessingUnit extends Thread {
     return true;
   }
 
+  /**
+   * Appends the keys of fully processed CASes to the checkpoint completion log, if there is one,
+   * so that they are skipped after a restart.
+   *
+   * @param aCasObjectList -
+   *          list of processed CASes
+   * @param isCasObject -
+   *          true if the list contains CAS instances
+   */
+  private void recordCompleted(Object[] aCasObjectList, boolean isCasObject) {
+    CheckpointLog completionLog = cpm.getCompletionLog();
+    if (completionLog == null || !isCasObject || aCasObjectList == null) {
+      return;
+    }
+    for (Object cas : aCasObjectList) {
+      if (cas instanceof CAS) {
+        completionLog.recordCompleted(CheckpointLog.getDocumentKey((CAS) cas));
+      }
+    }
+  }
+
   /**
    * Notifies application listeners of completed analysis and stores results of analysis (CAS) in
    * the Output Queue that this thread shares with a Cas Consumer thread.
@@ -1285,6 +1304,7 @@ public class ProcessingUnit extends Thread {
         // Notif Listeners
         EntityProcessStatus aEntityProcStatus = new EntityProcessStatusImpl(aProcessTr);
         notifyListeners(aCasObjectList, isCasObject, aEntityProcStatus);
+        recordCompleted(aCasObjectList, isCasObject);
         threadState = 2014;
         maybeLogFinest("UIMA_CPM_done_notify_listeners__FINEST");
       }
@@ -39,6 +39,7 @@ import org.apache.uima.util.Level;
 import org.apache.uima.util.ProcessTrace;
 import org.apache.uima.util.ProcessTraceEvent;
 import org.apache.uima.util.UimaTimer;
+import org.apache.uima.util.impl.ProcessTrace_impl;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
@@ -150,6 +151,25 @@ public class CPMUtils {
     return 0;
   }
 
+  /**
+   * Aggregates the events of one process trace into another, which is shared between threads. The
+   * shared trace is locked, unless it is a sampling one, which aggregates without locking.
+   *
+   * @param aSharedTrace -
+   *          the trace to aggregate into
+   * @param aTrace -
+   *          the trace to aggregate
+   */
+  public static void aggregate(ProcessTrace aSharedTrace, ProcessTrace aTrace) {
+    if (aSharedTrace instanceof ProcessTrace_impl && ((ProcessTrace_impl) aSharedTrace).isSampling()) {
+      aSharedTrace.aggregate(aTrace);
+    } else {
+      synchronized (aSharedTrace) {
+        aSharedTrace.aggregate(aTrace);
+      }
+    }
+  }
+
   /**
    * Dumps all events in the process trace object.
    *
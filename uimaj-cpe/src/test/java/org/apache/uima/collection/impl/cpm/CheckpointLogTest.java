@@ -0,0 +1,333 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl.cpm;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.uima.Constants;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.collection.CollectionProcessingEngine;
+import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.collection.CollectionReader_ImplBase;
+import org.apache.uima.collection.EntityProcessStatus;
+import org.apache.uima.collection.base_cpm.SkipCasException;
+import org.apache.uima.collection.impl.cpm.utils.DescriptorMakeUtil;
+import org.apache.uima.collection.impl.cpm.utils.FunctionErrorStore;
+import org.apache.uima.collection.impl.cpm.utils.TestStatusCallbackListener;
+import org.apache.uima.collection.impl.metadata.cpe.CpeDescriptorFactory;
+import org.apache.uima.collection.metadata.CpeDescription;
+import org.apache.uima.collection.metadata.CpeIntegratedCasProcessor;
+import org.apache.uima.test.junit_extension.JUnitExtension;
+import org.apache.uima.util.Progress;
+import org.apache.uima.util.ProgressImpl;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests recovery of the completed document log across runs.
+ */
+public class CheckpointLogTest extends TestCase {
+
+  private static final int DOCUMENT_COUNT = 5;
+
+  /** true to identify the documents by sofa URI, false to give them all the same text */
+  static volatile boolean useUris;
+
+  /** The number of documents the listener was notified of */
+  static volatile int notifiedCount;
+
+  /**
+   * Reads DOCUMENT_COUNT documents. Each document is only read once the previous one has been
+   * completed, and a little later, so the completion of the previous one is already recorded in the
+   * log.
+   */
+  public static class SequentialReader extends CollectionReader_ImplBase {
+
+    private int next = 0;
+
+    @Override
+    public boolean hasNext() {
+      return next < DOCUMENT_COUNT;
+    }
+
+    @Override
+    public void getNext(CAS aCAS) {
+      try {
+        for (int i = 0; i < 200 && notifiedCount < next; i++) {
+          Thread.sleep(10);
+        }
+        if (next > 0) {
+          // the completion is recorded right after the listeners are notified
+          Thread.sleep(50);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (useUris) {
+        aCAS.setSofaDataURI("file:/doc" + next, "text/plain");
+      } else {
+        aCAS.setDocumentText("the same text");
+      }
+      next++;
+    }
+
+    @Override
+    public Progress[] getProgress() {
+      return new Progress[] { new ProgressImpl(next, DOCUMENT_COUNT, Progress.ENTITIES) };
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  /**
+   * Collects the exceptions of the completed documents, null for documents without one.
+   */
+  static class ExceptionCollectingListener extends TestStatusCallbackListener {
+    final List<Throwable> exceptions = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public void entityProcessComplete(CAS aCas, EntityProcessStatus aStatus) {
+      super.entityProcessComplete(aCas, aStatus);
+      if (aStatus.isException()) {
+        Throwable t = (Throwable) aStatus.getExceptions().get(0);
+        exceptions.add(t.getCause() != null ? t.getCause() : t);
+      } else {
+        exceptions.add(null);
+      }
+      notifiedCount++;
+    }
+  }
+
+  private File dir;
+
+  private String logName;
+
+  protected void setUp() throws Exception {
+    dir = File.createTempFile("cpmCheckpointLog", "");
+    dir.delete();
+    dir.mkdirs();
+    logName = new File(dir, "checkpoint_completed.log").getPath();
+    UIMAFramework.getXMLParser().enableSchemaValidation(false);
+    notifiedCount = 0;
+  }
+
+  protected void tearDown() throws Exception {
+    new CheckpointLog(logName).delete();
+    File[] files = dir.listFiles();
+    for (int i = 0; files != null && i < files.length; i++) {
+      files[i].delete();
+    }
+    dir.delete();
+    FunctionErrorStore.resetCount();
+  }
+
+  public void testRecoverAfterSync() throws Exception {
+    CheckpointLog log = new CheckpointLog(logName, 10, 1000);
+    assertEquals(0, log.open());
+    for (int i = 0; i < 25; i++) {
+      log.recordCompleted("uri:doc" + i);
+    }
+    log.recordCompleted("id:with\nnewline");
+    log.sync();
+    // no close, as if the JVM died after the checkpoint
+
+    CheckpointLog recovered = new CheckpointLog(logName, 10, 1000);
+    assertEquals(26, recovered.open());
+    assertTrue(recovered.isCompleted("uri:doc0"));
+    assertTrue(recovered.isCompleted("uri:doc24"));
+    assertTrue(recovered.isCompleted("id:with\nnewline"));
+    assertFalse(recovered.isCompleted("uri:doc25"));
+    recovered.close();
+    log.close();
+  }
+
+  public void testOnlyPreviousRunCompleted() throws Exception {
+    CheckpointLog log = new CheckpointLog(logName, 1, 1000);
+    log.open();
+    log.recordCompleted("uri:a");
+    log.recordCompleted("sha256:0123");
+    assertTrue(log.isCompleted("uri:a"));
+    assertFalse(log.isCompletedInPreviousRun("uri:a"));
+    log.close();
+
+    CheckpointLog recovered = new CheckpointLog(logName, 1, 1000);
+    assertEquals(2, recovered.open());
+    assertEquals(2, recovered.getRecoveredCount());
+    assertTrue(recovered.isCompletedInPreviousRun("uri:a"));
+    // identical text does not mean the same document
+    assertFalse(recovered.isCompletedInPreviousRun("sha256:0123"));
+    recovered.recordCompleted("uri:b");
+    assertFalse(recovered.isCompletedInPreviousRun("uri:b"));
+    recovered.close();
+  }
+
+  public void testSameTextProcessedInOneRun() throws Exception {
+    useUris = false;
+    ExceptionCollectingListener listener = process();
+    assertEquals(Collections.nCopies(DOCUMENT_COUNT, null), listener.exceptions);
+    assertEquals(DOCUMENT_COUNT, FunctionErrorStore.getAnnotatorProcessCount());
+  }
+
+  public void testSkipCompletedAfterRestart() throws Exception {
+    useUris = true;
+    try (OutputStream os = new FileOutputStream(logName)) {
+      os.write("uri:file:/doc1\nuri:file:/doc3\n".getBytes(StandardCharsets.UTF_8));
+    }
+    ExceptionCollectingListener listener = process();
+    assertEquals(DOCUMENT_COUNT, listener.exceptions.size());
+    int skipped = 0;
+    for (Throwable t : listener.exceptions) {
+      if (t != null) {
+        assertTrue(t.toString(), t instanceof SkipCasException);
+        skipped++;
+      }
+    }
+    assertEquals(2, skipped);
+    assertEquals(DOCUMENT_COUNT - 2, FunctionErrorStore.getAnnotatorProcessCount());
+  }
+
+  private ExceptionCollectingListener process() throws Exception {
+    String taeBase = JUnitExtension.getFile("CpmTests" + File.separator + "ErrorTestAnnotator.xml")
+            .getAbsolutePath();
+
+    CpeDescription cpeDesc = CpeDescriptorFactory.produceDescriptor();
+    cpeDesc.setCheckpoint(new File(dir, "checkpoint.dat").getPath(), 1000);
+    CpeIntegratedCasProcessor integratedProcessor = CpeDescriptorFactory
+            .produceCasProcessor("ErrorTestAnnotator");
+    integratedProcessor.setDescriptor(DescriptorMakeUtil.makeAnalysisEngine(taeBase));
+    cpeDesc.addCasProcessor(integratedProcessor);
+    cpeDesc.addCollectionReader(makeCollectionReader());
+
+    CollectionProcessingEngine cpe = UIMAFramework.produceCollectionProcessingEngine(cpeDesc,
+            null, null);
+    ExceptionCollectingListener listener = new ExceptionCollectingListener();
+    cpe.addStatusCallbackListener(listener);
+    cpe.process();
+    while (!listener.isFinished()) {
+      Thread.sleep(5);
+    }
+    return listener;
+  }
+
+  private String makeCollectionReader() throws Exception {
+    CollectionReaderDescription crd = UIMAFramework.getResourceSpecifierFactory()
+            .createCollectionReaderDescription();
+    crd.setFrameworkImplementation(Constants.JAVA_FRAMEWORK_NAME);
+    crd.setImplementationName(SequentialReader.class.getName());
+    crd.getMetaData().setName("Sequential Test Reader");
+    File file = new File(dir, "SequentialReader.xml");
+    try (OutputStream out = new FileOutputStream(file)) {
+      crd.toXML(out);
+    }
+    return file.getAbsolutePath();
+  }
+
+  public void testRecoverAfterCompaction() throws Exception {
+    CheckpointLog log = new CheckpointLog(logName, 4, 1000);
+    log.open();
+    for (int i = 0; i < 10; i++) {
+      log.recordCompleted("uri:doc" + i);
+    }
+    log.compact();
+    log.recordCompleted("uri:doc10");
+    log.close();
+
+    CheckpointLog recovered = new CheckpointLog(logName);
+    assertEquals(11, recovered.open());
+    assertTrue(recovered.isCompleted("uri:doc5"));
+    assertTrue(recovered.isCompleted("uri:doc10"));
+    recovered.close();
+  }
+
+  public void testTornLastRecordIgnored() throws Exception {
+    CheckpointLog log = new CheckpointLog(logName, 1, 1000);
+    log.open();
+    log.recordCompleted("uri:a");
+    log.close();
+    try (OutputStream os = new FileOutputStream(logName, true)) {
+      os.write("uri:parti".getBytes(StandardCharsets.UTF_8));
+    }
+
+    CheckpointLog recovered = new CheckpointLog(logName);
+    assertEquals(1, recovered.open());
+    assertTrue(recovered.isCompleted("uri:a"));
+    assertFalse(recovered.isCompleted("uri:parti"));
+    recovered.close();
+  }
+
+  public void testAppendAfterTornLastRecord() throws Exception {
+    CheckpointLog log = new CheckpointLog(logName, 1, 1000);
+    log.open();
+    log.recordCompleted("uri:a");
+    log.close();
+    try (OutputStream os = new FileOutputStream(logName, true)) {
+      os.write("uri:parti".getBytes(StandardCharsets.UTF_8));
+    }
+
+    CheckpointLog reopened = new CheckpointLog(logName, 1, 1000);
+    reopened.open();
+    reopened.recordCompleted("uri:b");
+    reopened.close();
+
+    CheckpointLog recovered = new CheckpointLog(logName);
+    assertEquals(2, recovered.open());
+    assertTrue(recovered.isCompleted("uri:a"));
+    assertTrue(recovered.isCompleted("uri:b"));
+    recovered.close();
+  }
+
+  public void testRotatedLogKeptThroughCompaction() throws Exception {
+    // a rotated log left over by a crash during compaction
+    try (OutputStream os = new FileOutputStream(logName + ".old")) {
+      os.write("uri:old\n".getBytes(StandardCharsets.UTF_8));
+    }
+    CheckpointLog log = new CheckpointLog(logName, 1, 1000);
+    assertEquals(1, log.open());
+    log.recordCompleted("uri:new");
+    // rotating again must not drop the left over keys, which are in no snapshot yet,
+    // even if writing the snapshot then fails
+    File snapshotTemp = new File(logName + ".snapshot.tmp");
+    snapshotTemp.mkdir();
+    try {
+      log.compact();
+      fail();
+    } catch (IOException e) {
+      // expected
+    }
+    log.close();
+    snapshotTemp.delete();
+
+    CheckpointLog recovered = new CheckpointLog(logName);
+    assertEquals(2, recovered.open());
+    assertTrue(recovered.isCompleted("uri:old"));
+    assertTrue(recovered.isCompleted("uri:new"));
+    recovered.close();
+  }
+}
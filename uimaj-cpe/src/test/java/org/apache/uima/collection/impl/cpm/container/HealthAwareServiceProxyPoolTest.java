@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl.cpm.container;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.apache.uima.collection.base_cpm.CasProcessor;
+import org.apache.uima.resource.metadata.ProcessingResourceMetaData;
+import org.apache.uima.util.ProcessTrace;
+
+public class HealthAwareServiceProxyPoolTest extends TestCase {
+
+  private static class TestProcessor implements CasProcessor {
+    public boolean isStateless() {
+      return true;
+    }
+
+    public boolean isReadOnly() {
+      return false;
+    }
+
+    public ProcessingResourceMetaData getProcessingResourceMetaData() {
+      return null;
+    }
+
+    public void batchProcessComplete(ProcessTrace aTrace) {
+    }
+
+    public void collectionProcessComplete(ProcessTrace aTrace) {
+    }
+  }
+
+  public void testCheckOutCheckIn() throws Exception {
+    HealthAwareServiceProxyPool pool = new HealthAwareServiceProxyPool();
+    CasProcessor p1 = new TestProcessor();
+    CasProcessor p2 = new TestProcessor();
+    pool.addCasProcessor(p1);
+    pool.addCasProcessor(p2);
+    assertEquals(2, pool.getAllInstanceCount());
+    assertEquals(2, pool.getSize());
+
+    Set<CasProcessor> out = new HashSet<>();
+    out.add(pool.checkOut());
+    out.add(pool.checkOut());
+    assertEquals(2, out.size());
+    assertEquals(0, pool.getSize());
+    assertNull(pool.checkOut());
+    assertNull(pool.checkOut(10));
+
+    pool.checkIn(p1);
+    assertEquals(1, pool.getSize());
+    // checking in twice or checking in a stranger is ignored
+    pool.checkIn(p1);
+    pool.checkIn(new TestProcessor());
+    assertEquals(1, pool.getSize());
+    assertSame(p1, pool.checkOut());
+
+    pool.destroy();
+    assertEquals(0, pool.getAllInstanceCount());
+  }
+
+  public void testSlowProxyIsEjected() throws Exception {
+    HealthAwareServiceProxyPool pool = new HealthAwareServiceProxyPool(3.0, 500);
+    CasProcessor fast1 = new TestProcessor();
+    CasProcessor fast2 = new TestProcessor();
+    CasProcessor slow = new TestProcessor();
+    pool.addCasProcessor(fast1);
+    pool.addCasProcessor(slow);
+    pool.addCasProcessor(fast2);
+
+    for (int i = 0; i < 5; i++) {
+      Set<CasProcessor> out = new HashSet<>();
+      for (int j = 0; j < 3; j++) {
+        out.add(pool.checkOut());
+      }
+      assertEquals(3, out.size());
+      Thread.sleep(2);
+      pool.checkIn(fast1);
+      pool.checkIn(fast2);
+      Thread.sleep(40);
+      pool.checkIn(slow);
+    }
+
+    // the slow proxy is not handed out while a fast one will come back
+    CasProcessor first = pool.checkOut();
+    CasProcessor second = pool.checkOut();
+    assertNotSame(slow, first);
+    assertNotSame(slow, second);
+    assertNull(pool.checkOut());
+    assertEquals(1, pool.getSize());
+    // but it is when waiting runs out
+    assertSame(slow, pool.checkOut(10));
+    pool.checkIn(slow);
+    pool.checkIn(first);
+    pool.checkIn(second);
+    assertEquals(3, pool.getSize());
+
+    // after the ejection it is tried again first
+    Thread.sleep(600);
+    assertSame(slow, pool.checkOut());
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl.cpm.engine;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.uima.Constants;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.collection.CollectionException;
+import org.apache.uima.collection.CollectionProcessingEngine;
+import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.collection.CollectionReader_ImplBase;
+import org.apache.uima.collection.EntityProcessStatus;
+import org.apache.uima.collection.PartitionedCollectionReader;
+import org.apache.uima.collection.impl.cpm.utils.DescriptorMakeUtil;
+import org.apache.uima.collection.impl.cpm.utils.FunctionErrorStore;
+import org.apache.uima.collection.impl.cpm.utils.TestStatusCallbackListener;
+import org.apache.uima.collection.impl.metadata.cpe.CpeDescriptorFactory;
+import org.apache.uima.collection.metadata.CpeDescription;
+import org.apache.uima.collection.metadata.CpeIntegratedCasProcessor;
+import org.apache.uima.test.junit_extension.JUnitExtension;
+import org.apache.uima.util.Progress;
+import org.apache.uima.util.ProgressImpl;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests reading a PartitionedCollectionReader through the PartitionedReaderStage of the CPM.
+ */
+public class PartitionedReaderStageTest extends TestCase {
+
+  private static final int DOCUMENT_COUNT = 50;
+
+  private static final int PARTITIONS = 3;
+
+  /** The document whose decoding fails, -1 for none */
+  static volatile int failingDocument = -1;
+
+  /** The document fetched as null, -1 for none */
+  static volatile int nullDocument = -1;
+
+  /** The names of the threads which fetched documents */
+  static final Set<String> fetchThreads = Collections.synchronizedSet(new HashSet<>());
+
+  /**
+   * Reads DOCUMENT_COUNT documents, "doc 0" to "doc 49", split round robin into PARTITIONS
+   * partitions.
+   */
+  public static class TestPartitionedReader extends CollectionReader_ImplBase
+          implements PartitionedCollectionReader<String> {
+
+    private int next = 0;
+
+    private final int[] partitionNext = new int[PARTITIONS];
+
+    private final AtomicInteger completed = new AtomicInteger();
+
+    @Override
+    public void initialize() {
+      for (int i = 0; i < PARTITIONS; i++) {
+        partitionNext[i] = i;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < DOCUMENT_COUNT;
+    }
+
+    @Override
+    public void getNext(CAS aCAS) throws IOException, CollectionException {
+      decode("doc " + next++, aCAS);
+    }
+
+    @Override
+    public int getNumberOfPartitions() {
+      return PARTITIONS;
+    }
+
+    @Override
+    public boolean hasNext(int aPartition) {
+      return partitionNext[aPartition] < DOCUMENT_COUNT;
+    }
+
+    @Override
+    public String fetchNext(int aPartition) {
+      fetchThreads.add(Thread.currentThread().getName());
+      int doc = partitionNext[aPartition];
+      partitionNext[aPartition] += PARTITIONS;
+      return (doc == nullDocument) ? null : "doc " + doc;
+    }
+
+    @Override
+    public void decode(String aArtifact, CAS aCAS) throws CollectionException {
+      if (aArtifact.equals("doc " + failingDocument)) {
+        throw new CollectionException(new IllegalArgumentException(aArtifact));
+      }
+      aCAS.setDocumentText(aArtifact);
+      completed.incrementAndGet();
+    }
+
+    @Override
+    public Progress[] getProgress() {
+      return new Progress[] { new ProgressImpl(completed.get(), DOCUMENT_COUNT, Progress.ENTITIES) };
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  /**
+   * Collects the document texts of the processed CASes
+   */
+  static class TextCollectingListener extends TestStatusCallbackListener {
+    final Set<String> texts = Collections.synchronizedSet(new HashSet<>());
+
+    final AtomicInteger exceptions = new AtomicInteger();
+
+    @Override
+    public void entityProcessComplete(CAS aCas, EntityProcessStatus aStatus) {
+      super.entityProcessComplete(aCas, aStatus);
+      if (aStatus.isException()) {
+        exceptions.incrementAndGet();
+      } else {
+        texts.add(aCas.getDocumentText());
+      }
+    }
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    UIMAFramework.getXMLParser().enableSchemaValidation(false);
+    failingDocument = -1;
+    nullDocument = -1;
+    fetchThreads.clear();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    super.tearDown();
+    FunctionErrorStore.resetCount();
+  }
+
+  public void testReadPartitions() throws Exception {
+    TextCollectingListener listener = process();
+    assertEquals(0, listener.exceptions.get());
+    assertEquals(DOCUMENT_COUNT, listener.texts.size());
+    for (int i = 0; i < DOCUMENT_COUNT; i++) {
+      assertTrue(listener.texts.contains("doc " + i));
+    }
+    assertEquals(DOCUMENT_COUNT, FunctionErrorStore.getAnnotatorProcessCount());
+    assertEquals(PARTITIONS, fetchThreads.size());
+    for (String name : fetchThreads) {
+      assertTrue(name, name.startsWith("[CollectionReader Partition#"));
+    }
+  }
+
+  public void testDecodeFailure() throws Exception {
+    failingDocument = 7;
+    TextCollectingListener listener = process();
+    assertEquals(1, listener.exceptions.get());
+    assertEquals(DOCUMENT_COUNT - 1, listener.texts.size());
+    assertFalse(listener.texts.contains("doc 7"));
+  }
+
+  public void testNullArtifact() throws Exception {
+    nullDocument = 7;
+    TextCollectingListener listener = process();
+    assertEquals(1, listener.exceptions.get());
+    // the rest of the partition is still read
+    assertEquals(DOCUMENT_COUNT - 1, listener.texts.size());
+    assertFalse(listener.texts.contains("doc 7"));
+    assertTrue(listener.texts.contains("doc 10"));
+  }
+
+  private TextCollectingListener process() throws Exception {
+    String taeBase = JUnitExtension.getFile("CpmTests" + File.separator + "ErrorTestAnnotator.xml")
+            .getAbsolutePath();
+
+    CpeDescription cpeDesc = CpeDescriptorFactory.produceDescriptor();
+    cpeDesc.setInputQueueSize(2);
+    cpeDesc.setOutputQueueSize(2);
+    cpeDesc.setProcessingUnitThreadCount(2);
+    CpeIntegratedCasProcessor integratedProcessor = CpeDescriptorFactory
+            .produceCasProcessor("ErrorTestAnnotator");
+    integratedProcessor.setDescriptor(DescriptorMakeUtil.makeAnalysisEngine(taeBase));
+    cpeDesc.addCasProcessor(integratedProcessor);
+    cpeDesc.addCollectionReader(makeCollectionReader());
+
+    CollectionProcessingEngine cpe = UIMAFramework.produceCollectionProcessingEngine(cpeDesc,
+            null, null);
+    TextCollectingListener listener = new TextCollectingListener();
+    cpe.addStatusCallbackListener(listener);
+    cpe.process();
+    while (!listener.isFinished()) {
+      Thread.sleep(5);
+    }
+    return listener;
+  }
+
+  private static String makeCollectionReader() throws Exception {
+    CollectionReaderDescription crd = UIMAFramework.getResourceSpecifierFactory()
+            .createCollectionReaderDescription();
+    crd.setFrameworkImplementation(Constants.JAVA_FRAMEWORK_NAME);
+    crd.setImplementationName(TestPartitionedReader.class.getName());
+    crd.getMetaData().setName("Partitioned Test Reader");
+    File file = File.createTempFile("PartitionedCollectionReader", ".xml");
+    file.deleteOnExit();
+    try (OutputStream out = new FileOutputStream(file)) {
+      crd.toXML(out);
+    }
+    return file.getAbsolutePath();
+  }
+}
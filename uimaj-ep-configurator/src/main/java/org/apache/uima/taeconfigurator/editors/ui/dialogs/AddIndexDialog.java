@@ -154,10 +154,11 @@ public class AddIndexDialog extends AbstractDialogKeyVerifyJavaNames {
             "The globally unique index name");
 
     indexKindUI = newLabeledCCombo(twoCol, "Index Kind:",
-            "Specify the kind of index - sorted, set, or bag");
+            "Specify the kind of index - sorted, set, bag, or hash");
     indexKindUI.add("sorted");
     indexKindUI.add("bag");
     indexKindUI.add("set");
+    indexKindUI.add("hash");
 
     new Label(twoCol, SWT.NONE).setText("CAS Type");
     indexTypeUI = newTypeInput(section, twoCol);
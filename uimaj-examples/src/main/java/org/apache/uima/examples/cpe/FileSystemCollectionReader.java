@@ -21,18 +21,20 @@ package org.apache.uima.examples.cpe;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.CASException;
 import org.apache.uima.collection.CollectionException;
 import org.apache.uima.collection.CollectionReader_ImplBase;
+import org.apache.uima.collection.PartitionedCollectionReader;
 import org.apache.uima.examples.SourceDocumentInformation;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.tcas.DocumentAnnotation;
 import org.apache.uima.resource.ResourceConfigurationException;
 import org.apache.uima.resource.ResourceInitializationException;
-import org.apache.uima.util.FileUtils;
 import org.apache.uima.util.Progress;
 import org.apache.uima.util.ProgressImpl;
 
@@ -44,11 +46,16 @@ import org.apache.uima.util.ProgressImpl;
  * <li><code>InputDirectory</code> - path to directory containing files</li>
  * <li><code>Encoding</code> (optional) - character encoding of the input files</li>
  * <li><code>Language</code> (optional) - language of the input documents</li>
+ * <li><code>NumberOfPartitions</code> (optional) - number of partitions the CPM reads
+ * concurrently</li>
  * </ul>
  * 
+ * The CPM reads the files of each partition in a thread of its own, and decodes them into CASes in
+ * other threads. The files are assigned to the partitions round robin, in the order they are listed.
  * 
  */
-public class FileSystemCollectionReader extends CollectionReader_ImplBase {
+public class FileSystemCollectionReader extends CollectionReader_ImplBase
+        implements PartitionedCollectionReader<FileSystemCollectionReader.FetchedFile> {
   /**
    * Name of configuration parameter that must be set to the path of a directory containing input
    * files.
@@ -73,6 +80,37 @@ public class FileSystemCollectionReader extends CollectionReader_ImplBase {
    */
   public static final String PARAM_SUBDIR = "BrowseSubdirectories";
   
+  /**
+   * Name of optional configuration parameter that contains the number of partitions the files are
+   * split into, to be read concurrently by the CPM. Defaults to 1. The lastSegment feature of the
+   * SourceDocumentInformation is set for the file decoded last, which with more than 1 partition
+   * is not necessarily the last file of the collection.
+   */
+  public static final String PARAM_PARTITIONS = "NumberOfPartitions";
+
+  /**
+   * The contents of a file, fetched but not yet decoded.
+   */
+  public static class FetchedFile {
+
+    /** The file. */
+    private final File file;
+
+    /** The contents of the file. */
+    private final byte[] bytes;
+
+    /**
+     * Instantiates a new fetched file.
+     *
+     * @param aFile the file
+     * @param aBytes the contents of the file
+     */
+    FetchedFile(File aFile, byte[] aBytes) {
+      file = aFile;
+      bytes = aBytes;
+    }
+  }
+
   /** The m files. */
   private ArrayList<File> mFiles;
 
@@ -88,6 +126,15 @@ public class FileSystemCollectionReader extends CollectionReader_ImplBase {
   /** The m current index. */
   private int mCurrentIndex;
 
+  /** The m number of partitions. */
+  private int mPartitions;
+
+  /** The index of the next file of each partition. */
+  private int[] mPartitionIndex;
+
+  /** The number of files read. */
+  private final AtomicInteger mCompleted = new AtomicInteger();
+
   /**
    * Initialize.
    *
@@ -103,6 +150,13 @@ public class FileSystemCollectionReader extends CollectionReader_ImplBase {
       mRecursive = Boolean.FALSE;
     }
     mCurrentIndex = 0;
+    Integer partitions = (Integer) getConfigParameterValue(PARAM_PARTITIONS);
+    mPartitions = (null == partitions) ? 1 : Math.max(1, partitions);
+    mPartitionIndex = new int[mPartitions];
+    for (int i = 0; i < mPartitions; i++) {
+      mPartitionIndex[i] = i;
+    }
+    mCompleted.set(0);
 
     // if input directory does not exist or is not a directory, throw exception
     if (!directory.exists() || !directory.isDirectory()) {
@@ -153,6 +207,66 @@ public class FileSystemCollectionReader extends CollectionReader_ImplBase {
    * @see org.apache.uima.collection.CollectionReader#getNext(org.apache.uima.cas.CAS)
    */
   public void getNext(CAS aCAS) throws IOException, CollectionException {
+    decode(fetch(mCurrentIndex++), aCAS);
+  }
+
+  /**
+   * Gets the number of partitions.
+   *
+   * @return the number of partitions
+   * @see org.apache.uima.collection.PartitionedCollectionReader#getNumberOfPartitions()
+   */
+  public int getNumberOfPartitions() {
+    return mPartitions;
+  }
+
+  /**
+   * Checks for next in a partition.
+   *
+   * @param aPartition the partition
+   * @return true, if successful
+   * @see org.apache.uima.collection.PartitionedCollectionReader#hasNext(int)
+   */
+  public boolean hasNext(int aPartition) {
+    return mPartitionIndex[aPartition] < mFiles.size();
+  }
+
+  /**
+   * Reads the next file of a partition.
+   *
+   * @param aPartition the partition
+   * @return the contents of the file
+   * @throws IOException Signals that an I/O exception has occurred.
+   * @see org.apache.uima.collection.PartitionedCollectionReader#fetchNext(int)
+   */
+  public FetchedFile fetchNext(int aPartition) throws IOException {
+    int index = mPartitionIndex[aPartition];
+    mPartitionIndex[aPartition] += mPartitions;
+    return fetch(index);
+  }
+
+  /**
+   * Reads a file.
+   *
+   * @param aIndex the index of the file
+   * @return the contents of the file
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private FetchedFile fetch(int aIndex) throws IOException {
+    File file = mFiles.get(aIndex);
+    return new FetchedFile(file, Files.readAllBytes(file.toPath()));
+  }
+
+  /**
+   * Puts the contents of a file in a CAS.
+   *
+   * @param aFetched the contents of the file
+   * @param aCAS the a CAS
+   * @throws IOException Signals that an I/O exception has occurred.
+   * @throws CollectionException the collection exception
+   * @see org.apache.uima.collection.PartitionedCollectionReader#decode(Object, CAS)
+   */
+  public void decode(FetchedFile aFetched, CAS aCAS) throws IOException, CollectionException {
     JCas jcas;
     try {
       jcas = aCAS.getJCas();
@@ -160,9 +274,9 @@ public class FileSystemCollectionReader extends CollectionReader_ImplBase {
       throw new CollectionException(e);
     }
 
-    // open input stream to file
-    File file = (File) mFiles.get(mCurrentIndex++);
-    String text = FileUtils.file2String(file, mEncoding);
+    File file = aFetched.file;
+    String text = (mEncoding == null) ? new String(aFetched.bytes)
+            : new String(aFetched.bytes, mEncoding);
       // put document in CAS
     jcas.setDocumentText(text);
 
@@ -180,7 +294,8 @@ public class FileSystemCollectionReader extends CollectionReader_ImplBase {
     srcDocInfo.setUri(file.getAbsoluteFile().toURL().toString());
     srcDocInfo.setOffsetInSource(0);
     srcDocInfo.setDocumentSize((int) file.length());
-    srcDocInfo.setLastSegment(mCurrentIndex == mFiles.size());
+    // the files of several partitions are decoded concurrently, in no particular order
+    srcDocInfo.setLastSegment(mCompleted.incrementAndGet() == mFiles.size());
     srcDocInfo.addToIndexes();
   }
 
@@ -200,7 +315,7 @@ public class FileSystemCollectionReader extends CollectionReader_ImplBase {
    * @see org.apache.uima.collection.base_cpm.BaseCollectionReader#getProgress()
    */
   public Progress[] getProgress() {
-    return new Progress[] { new ProgressImpl(mCurrentIndex, mFiles.size(), Progress.ENTITIES) };
+    return new Progress[] { new ProgressImpl(mCompleted.get(), mFiles.size(), Progress.ENTITIES) };
   }
 
   /**